@@ -40,7 +40,7 @@ public class StaticGoogleClientFactory extends AbstractClientFactory {
 
 
     public static final ParameterDescriptorGroup PARAMETERS =
-            new ParameterBuilder().addName(NAME).addName("GSParameters").createGroup(IDENTIFIER,URL,SECURITY,IMAGE_CACHE,NIO_QUERIES,TIMEOUT);
+            new ParameterBuilder().addName(NAME).addName("GSParameters").createGroup(IDENTIFIER,URL,SECURITY,IMAGE_CACHE,NIO_QUERIES,TIMEOUT,TILE_CACHE,TILE_CACHE_SIZE);
 
     @Override
     public ParameterDescriptorGroup getOpenParameters() {
@@ -68,6 +68,8 @@ public class StaticGoogleClientFactory extends AbstractClientFactory {
             server.setUserProperty(CachedPyramidSet.PROPERTY_NIO, useNIO);
         }catch(ParameterNotFoundException ex){}
 
+        setTileCache(server, params);
+
         return server;
     }
 
@@ -135,6 +135,11 @@ public class GoogleMapsPyramidSet extends CachedPyramidSet{
         return (StaticGoogleMapsClient)super.getServer();
     }
 
+    @Override
+    protected String getTileCacheNamespace(Map hints) {
+        return super.getTileCacheNamespace(hints) + '/' + mapType;
+    }
+
     @Override
     public Request getTileRequest(Pyramid pyramid, Mosaic mosaic, int col, int row, Map hints) throws DataStoreException {
         final int zoom = ((GoogleMapsMosaic)mosaic).getScaleLevel();
@@ -50,7 +50,7 @@ public class OSMTMSClientFactory extends AbstractClientFactory {
 
     public static final ParameterDescriptorGroup PARAMETERS =
             new ParameterBuilder().addName(NAME).addName("OSMTMSParameters").createGroup(
-                IDENTIFIER,URL,MAX_ZOOM_LEVEL,SECURITY,IMAGE_CACHE,NIO_QUERIES,TIMEOUT);
+                IDENTIFIER,URL,MAX_ZOOM_LEVEL,SECURITY,IMAGE_CACHE,NIO_QUERIES,TIMEOUT,TILE_CACHE,TILE_CACHE_SIZE);
 
     @Override
     public ParameterDescriptorGroup getOpenParameters() {
@@ -79,6 +79,8 @@ public class OSMTMSClientFactory extends AbstractClientFactory {
             server.setUserProperty(CachedPyramidSet.PROPERTY_NIO, useNIO);
         }catch(ParameterNotFoundException ex){}
 
+        setTileCache(server, params);
+
         return server;
     }
 
@@ -17,14 +17,19 @@
  */
 package org.geotoolkit.client;
 
+import java.io.IOException;
 import java.net.URL;
+import java.nio.file.Path;
 import org.apache.sis.parameter.ParameterBuilder;
+import org.geotoolkit.client.map.CachedPyramidSet;
+import org.geotoolkit.client.map.DiskTileCache;
 import org.geotoolkit.security.ClientSecurity;
 import org.apache.sis.storage.DataStoreException;
 import org.apache.sis.storage.ProbeResult;
 import org.apache.sis.storage.StorageConnector;
 import org.geotoolkit.storage.DataStoreFactory;
 import org.opengis.parameter.ParameterDescriptor;
+import org.opengis.parameter.ParameterNotFoundException;
 import org.opengis.parameter.ParameterValueGroup;
 import org.opengis.util.InternationalString;
 
@@ -144,6 +149,28 @@ public abstract class AbstractClientFactory extends DataStoreFactory implements
             .setRequired(false)
             .create(Boolean.class, Boolean.FALSE);
 
+    /**
+     * Directory where tiles are stored, Optional.
+     * If not set, tiles are not stored on disk.
+     */
+    public static final ParameterDescriptor<Path> TILE_CACHE = new ParameterBuilder()
+            .addName("tilecache")
+            .addName(Bundle.formatInternational(Bundle.Keys.tileCache))
+            .setRemarks(Bundle.formatInternational(Bundle.Keys.tileCacheRemarks))
+            .setRequired(false)
+            .create(Path.class, null);
+
+    /**
+     * Maximum size in bytes of the tiles stored on disk, Optional.
+     * Default value is 512MB.
+     */
+    public static final ParameterDescriptor<Long> TILE_CACHE_SIZE = new ParameterBuilder()
+            .addName("tilecachesize")
+            .addName(Bundle.formatInternational(Bundle.Keys.tileCacheSize))
+            .setRemarks(Bundle.formatInternational(Bundle.Keys.tileCacheSizeRemarks))
+            .setRequired(false)
+            .create(Long.class, DiskTileCache.DEFAULT_MAX_SIZE);
+
     /**
      * Default Implementation returns the display name.
      * @return return display name
@@ -164,6 +191,35 @@ public abstract class AbstractClientFactory extends DataStoreFactory implements
         }
     }
 
+    /**
+     * Configure the disk tile cache of a tiled server from {@link #TILE_CACHE}
+     * and {@link #TILE_CACHE_SIZE} parameters.
+     *
+     * @param server server to configure
+     * @param params factory parameters
+     * @throws DataStoreException if cache directory can not be created.
+     */
+    protected static void setTileCache(final Client server, final ParameterValueGroup params) throws DataStoreException {
+        final Path directory;
+        long size = DiskTileCache.DEFAULT_MAX_SIZE;
+        try {
+            directory = (Path) params.parameter(TILE_CACHE.getName().getCode()).getValue();
+        } catch (ParameterNotFoundException ex) {
+            return;
+        }
+        if (directory == null) return;
+        try {
+            final Object value = params.parameter(TILE_CACHE_SIZE.getName().getCode()).getValue();
+            if (value instanceof Number) size = ((Number) value).longValue();
+        } catch (ParameterNotFoundException ex) {}
+
+        try {
+            server.setUserProperty(CachedPyramidSet.PROPERTY_TILE_CACHE, DiskTileCache.getInstance(directory, size));
+        } catch (IOException ex) {
+            throw new DataStoreException(ex.getMessage(), ex);
+        }
+    }
+
     @Override
     public ProbeResult probeContent(StorageConnector connector) throws DataStoreException {
         // TODO : properly implement in each sub-type
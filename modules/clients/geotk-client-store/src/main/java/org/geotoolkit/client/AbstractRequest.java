@@ -88,6 +88,11 @@ public abstract class AbstractRequest implements Request {
 
     protected boolean debug = false;
 
+    /**
+     * Connection of the last response opened by {@link #followLink(URLConnection) }, used to read response headers.
+     */
+    private volatile URLConnection response;
+
     protected AbstractRequest(final Client server) {
         this(server, null);
     }
@@ -165,6 +170,28 @@ public abstract class AbstractRequest implements Request {
         this.timeout = timeout;
     }
 
+    /**
+     * Get the status code of the last response returned by {@link #getResponseStream() }.
+     *
+     * @return HTTP status code, or -1 if there was no HTTP response.
+     * @throws IOException if the status can not be read.
+     */
+    public int getResponseCode() throws IOException {
+        final URLConnection cnx = response;
+        return (cnx instanceof HttpURLConnection) ? ((HttpURLConnection) cnx).getResponseCode() : -1;
+    }
+
+    /**
+     * Get a header field of the last response returned by {@link #getResponseStream() }.
+     *
+     * @param name header name
+     * @return header value, or null if the header is not set or there was no response yet.
+     */
+    public String getResponseHeader(final String name) {
+        final URLConnection cnx = response;
+        return (cnx != null) ? cnx.getHeaderField(name) : null;
+    }
+
     /**
      * Get client securing object.
      *
@@ -367,11 +394,14 @@ public abstract class AbstractRequest implements Request {
                 //security
                 httpCnx = (HttpURLConnection)security.secure(httpCnx);
             }else{
+                response = cnx;
                 return is;
             }
         }
 
-        return openRichException(cnx);
+        final InputStream is = openRichException(cnx);
+        response = cnx;
+        return is;
     }
 
     protected InputStream openRichException(final URLConnection cnx) throws IOException {
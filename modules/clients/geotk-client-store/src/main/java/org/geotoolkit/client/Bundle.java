@@ -78,35 +78,55 @@ public final class Bundle extends IndexedResourceBundle {
          */
         public static final short securityRemarks = 8;
 
+        /**
+         * Tile cache
+         */
+        public static final short tileCache = 9;
+
+        /**
+         * Directory where tiles are stored to avoid new queries.
+         */
+        public static final short tileCacheRemarks = 10;
+
+        /**
+         * Tile cache size
+         */
+        public static final short tileCacheSize = 11;
+
+        /**
+         * Maximum size of stored tiles in bytes.
+         */
+        public static final short tileCacheSizeRemarks = 12;
+
         /**
          * TimeOut(ms)
          */
-        public static final short timeout = 9;
+        public static final short timeout = 13;
 
         /**
          * TimeOut(ms)
          */
-        public static final short timeoutRemarks = 10;
+        public static final short timeoutRemarks = 14;
 
         /**
          * URL
          */
-        public static final short url = 11;
+        public static final short url = 15;
 
         /**
          * Server URL.
          */
-        public static final short urlRemarks = 12;
+        public static final short urlRemarks = 16;
 
         /**
          * Version
          */
-        public static final short version = 13;
+        public static final short version = 17;
 
         /**
          * Service version.
          */
-        public static final short versionRemarks = 14;
+        public static final short versionRemarks = 18;
     }
 
     /**
@@ -75,6 +75,12 @@ public abstract class CachedPyramidSet extends DefaultPyramidSet {
      */
     public static final String PROPERTY_NIO = "nio_query";
 
+    /**
+     * Client property used on tiled servers to store tiles on disk.
+     * Value must be a {@link DiskTileCache}, default is no disk cache.
+     */
+    public static final String PROPERTY_TILE_CACHE = "tile_cache";
+
     protected static final Logger LOGGER = Logging.getLogger("org.geotoolkit.client.map");
 
     //NIO netty bootstrap.
@@ -102,6 +108,7 @@ public abstract class CachedPyramidSet extends DefaultPyramidSet {
     protected final Client server;
     protected final boolean useURLQueries;
     protected final boolean cacheImages;
+    private volatile DiskTileCache diskCache;
 
     public CachedPyramidSet(Client server, boolean useURLQueries, boolean cacheImages) {
         this.server = server;
@@ -118,8 +125,75 @@ public abstract class CachedPyramidSet extends DefaultPyramidSet {
         return server;
     }
 
+    /**
+     * Get the disk cache used to store encoded tiles.
+     * If no cache has been set, the server {@link #PROPERTY_TILE_CACHE} property is used.
+     *
+     * @return disk tile cache, or null if tiles are not stored on disk.
+     */
+    public DiskTileCache getDiskCache() {
+        final DiskTileCache cache = diskCache;
+        if (cache != null) return cache;
+        final Client server = getServer();
+        if (server != null) {
+            final Object candidate = server.getUserProperty(PROPERTY_TILE_CACHE);
+            if (candidate instanceof DiskTileCache) {
+                return (DiskTileCache) candidate;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Set the disk cache used to store encoded tiles.
+     *
+     * @param diskCache disk tile cache, or null to use the server {@link #PROPERTY_TILE_CACHE} property.
+     */
+    public void setDiskCache(DiskTileCache diskCache) {
+        this.diskCache = diskCache;
+    }
+
     public abstract Request getTileRequest(Pyramid pyramid, Mosaic mosaic, int col, int row, Map hints) throws DataStoreException;
 
+    /**
+     * Get the namespace of tiles in the disk cache.
+     * Subclasses should override this method if the same server may return different
+     * tiles for the same pyramid, mosaic and format, for example for different layers.
+     *
+     * @param hints query hints
+     * @return tile key prefix, server URL by default.
+     */
+    protected String getTileCacheNamespace(Map hints) {
+        final Client server = getServer();
+        return (server == null) ? "" : server.getURL().toString();
+    }
+
+    /**
+     * Get the key of a tile in the disk cache.
+     *
+     * @return tile key composed of namespace, pyramid, mosaic, tile coordinates and format.
+     */
+    protected String getTileCacheKey(Pyramid pyramid, Mosaic mosaic, int col, int row, Map hints) {
+        final Object format = (hints == null) ? null : hints.get(Pyramids.HINT_FORMAT);
+        return new StringBuilder(getTileCacheNamespace(hints))
+                .append('/').append(pyramid.getIdentifier())
+                .append('/').append(mosaic.getIdentifier())
+                .append('/').append(col)
+                .append('/').append(row)
+                .append('/').append(format == null ? "" : format)
+                .toString();
+    }
+
+    /**
+     * Get the tile request, reading from the disk cache if there is one.
+     */
+    private Request getCachedTileRequest(Pyramid pyramid, Mosaic mosaic, int col, int row, Map hints) throws DataStoreException {
+        final Request request = getTileRequest(pyramid, mosaic, col, row, hints);
+        final DiskTileCache cache = getDiskCache();
+        if (cache == null) return request;
+        return cache.wrap(getTileCacheKey(pyramid, mosaic, col, row, hints), request);
+    }
+
     public ImageTile getTile(Pyramid pyramid, Mosaic mosaic, int col, int row, Map hints) throws DataStoreException {
         final String formatmime = (hints==null) ? null : (String) hints.get(Pyramids.HINT_FORMAT);
         ImageReaderSpi spi = null;
@@ -134,7 +208,7 @@ public abstract class CachedPyramidSet extends DefaultPyramidSet {
         if (cacheImages) {
             return new DefaultImageTile(spi, getTileImage(pyramid, mosaic, col, row, hints), 0, new Point(col, row));
         } else {
-            return new RequestImageTile(spi, getTileRequest(pyramid, mosaic, col, row, hints), 0, new Point(col, row));
+            return new RequestImageTile(spi, getCachedTileRequest(pyramid, mosaic, col, row, hints), 0, new Point(col, row));
         }
     }
 
@@ -158,7 +232,7 @@ public abstract class CachedPyramidSet extends DefaultPyramidSet {
             try {
                 value = handler.peek();
                 if (value == null) {
-                    final Request request = getTileRequest(pyramid, mosaic, col, row, hints);
+                    final Request request = getCachedTileRequest(pyramid, mosaic, col, row, hints);
                     InputStream stream = null;
                     ImageInputStream iis = null;
                     try {
@@ -224,13 +298,25 @@ public abstract class CachedPyramidSet extends DefaultPyramidSet {
 
 
         final CancellableQueue<Object> queue = new CancellableQueue<Object>(1000);
+        final DiskTileCache diskCache = getDiskCache();
 
         //compose the requiered queries
         final List<ImagePack> downloadList = new ArrayList<ImagePack>();
         for (Point p : locations) {
             //check the cache if we have the image already
             final String tid = toId(pyramid, mosaic, p.x, p.y, hints);
-            final RenderedImage image = tileCache.get(tid);
+            RenderedImage image = tileCache.get(tid);
+            if (image == null && diskCache != null) {
+                final byte[] data = diskCache.get(getTileCacheKey(pyramid, mosaic, p.x, p.y, hints));
+                if (data != null) {
+                    try {
+                        image = ImageIO.read(new ByteArrayInputStream(data));
+                        if (image != null) tileCache.put(tid, image);
+                    } catch (IOException ex) {
+                        LOGGER.log(Level.INFO, ex.getMessage(), ex);
+                    }
+                }
+            }
 
             if (queue.isCancelled()) {
                 queue.offer(Mosaic.END_OF_QUEUE); //end sentinel
@@ -319,6 +405,14 @@ public abstract class CachedPyramidSet extends DefaultPyramidSet {
                     request.setHeader(HttpHeaders.Names.HOST, host);
                     request.setHeader(HttpHeaders.Names.CONNECTION, HttpHeaders.Values.CLOSE);
                     request.setHeader(HttpHeaders.Names.ACCEPT_ENCODING, HttpHeaders.Values.BYTES);
+                    final DiskTileCache diskCache = getDiskCache();
+                    if (diskCache != null) {
+                        //revalidate the expired tile if it is still on disk
+                        final String key = getTileCacheKey(pack.pyramid, pack.mosaic, pack.pt.x, pack.pt.y, pack.hints);
+                        for (Map.Entry<String,String> header : diskCache.getValidationHeaders(key).entrySet()) {
+                            request.setHeader(header.getKey(), header.getValue());
+                        }
+                    }
 
                     if (channel.isOpen() && channel.isWritable() && !queue.isCancelled()) {
                         channel.write(request);
@@ -447,6 +541,8 @@ public abstract class CachedPyramidSet extends DefaultPyramidSet {
         private final ChannelBuffer buffer = ChannelBuffers.dynamicBuffer();
         private final Map hints;
         private RenderedImage img;
+        /** Response headers, for the disk cache. */
+        private HttpResponse response;
 
         public ImagePack(String requestPath, Pyramid pyramid, Mosaic mosaic, Point pt, Map hints) {
             this.requestPath = requestPath;
@@ -480,7 +576,27 @@ public abstract class CachedPyramidSet extends DefaultPyramidSet {
         public ImageTile getTile() {
             if(img == null){
                 try {
-                    img = ImageIO.read(new ByteArrayInputStream(buffer.array()));
+                    final DiskTileCache diskCache = getDiskCache();
+                    if (response != null && diskCache != null
+                            && response.getStatus().getCode() == HttpResponseStatus.NOT_MODIFIED.getCode()) {
+                        //cached tile is still valid
+                        final byte[] data = diskCache.notModified(getTileCacheKey(pyramid, mosaic, pt.x, pt.y, hints), response::getHeader);
+                        if (data != null) {
+                            img = ImageIO.read(new ByteArrayInputStream(data));
+                        }
+                    } else {
+                        img = ImageIO.read(new ByteArrayInputStream(buffer.array()));
+                        if(img != null && diskCache != null){
+                            final byte[] data = new byte[buffer.readableBytes()];
+                            buffer.getBytes(buffer.readerIndex(), data);
+                            final String key = getTileCacheKey(pyramid, mosaic, pt.x, pt.y, hints);
+                            if (response != null) {
+                                diskCache.put(key, data, response::getHeader);
+                            } else {
+                                diskCache.put(key, data);
+                            }
+                        }
+                    }
                     if(tileCache != null){
                         final String tid = toId(pyramid, mosaic, pt.x, pt.y, null);
                         //store it in the cache
@@ -543,6 +659,7 @@ public abstract class CachedPyramidSet extends DefaultPyramidSet {
 
             if (!chunks) {
                 final HttpResponse response = (HttpResponse) e.getMessage();
+                pack.response = response;
 
                 if (response.isChunked()) {
                     chunks = true;
@@ -552,6 +669,9 @@ public abstract class CachedPyramidSet extends DefaultPyramidSet {
                     if (content.readable()) {
                         pack.buffer.writeBytes(content);
                         messageCompleted(e);
+                    } else if (response.getStatus().getCode() == HttpResponseStatus.NOT_MODIFIED.getCode()) {
+                        //no content, the tile is read from the disk cache
+                        messageCompleted(e);
                     }
                 }
             } else {
@@ -0,0 +1,625 @@
+/*
+ *    Geotoolkit - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2018, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.client.map;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.apache.sis.util.ArgumentChecks;
+import org.apache.sis.util.logging.Logging;
+import org.geotoolkit.client.AbstractRequest;
+import org.geotoolkit.client.Request;
+
+/**
+ * Persistent cache of encoded tiles on local disk.
+ *
+ * Tiles are identified by a key, usually composed of the pyramid, mosaic, tile
+ * coordinates and format, see {@link CachedPyramidSet#getTileCacheKey}.
+ * Each tile is stored in its own file with the HTTP validators (ETag, Last-Modified)
+ * and expiration date sent by the server. Fresh tiles are served without network access,
+ * expired tiles are revalidated with a conditional request.
+ *
+ * The total size of the cache is bounded, least recently used tiles are deleted first.
+ * Instances are shared by directory, use {@link #getInstance(Path, long)}.
+ *
+ * @module
+ */
+public final class DiskTileCache {
+
+    private static final Logger LOGGER = Logging.getLogger("org.geotoolkit.client.map");
+
+    /**
+     * Default maximum size of the cache : 512MB.
+     */
+    public static final long DEFAULT_MAX_SIZE = 512L * 1024 * 1024;
+
+    /**
+     * Default time a tile is considered fresh when server does not send
+     * any caching header : 24 hours.
+     */
+    public static final long DEFAULT_EXPIRATION = 24L * 60 * 60 * 1000;
+
+    private static final int MAGIC = 0x54494C45;
+    private static final String EXTENSION = ".tile";
+    private static final String TEMPORARY_PREFIX = "tile";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    /**
+     * Fraction of the maximum size kept after a cleaning.
+     */
+    private static final double CLEAN_RATIO = 0.9;
+
+    /**
+     * Open caches by directory. Caches are weakly referenced, a cache no longer used is released
+     * and will index its directory again when requested.
+     */
+    private static final Map<Path,WeakReference<DiskTileCache>> INSTANCES = new HashMap<>();
+
+    /**
+     * Get the cache stored in given directory, create it if needed.
+     *
+     * If the cache is already open, its maximum size is raised to the given size
+     * if bigger, so one caller can not shrink a cache shared with others.
+     *
+     * @param root cache directory, created if it does not exist.
+     * @param maxSize maximum size of the cache in bytes.
+     * @return shared cache instance for this directory.
+     * @throws IOException if directory can not be created or read.
+     */
+    public static synchronized DiskTileCache getInstance(Path root, final long maxSize) throws IOException {
+        ArgumentChecks.ensureNonNull("root", root);
+        ArgumentChecks.ensureStrictlyPositive("maxSize", maxSize);
+        root = root.toAbsolutePath().normalize();
+        INSTANCES.values().removeIf((WeakReference<DiskTileCache> ref) -> ref.get() == null);
+        final WeakReference<DiskTileCache> ref = INSTANCES.get(root);
+        DiskTileCache cache = (ref != null) ? ref.get() : null;
+        if (cache == null) {
+            cache = new DiskTileCache(root, maxSize);
+            INSTANCES.put(root, new WeakReference<>(cache));
+        } else if (maxSize > cache.getMaxSize()) {
+            cache.setMaxSize(maxSize);
+        }
+        return cache;
+    }
+
+    private final Path root;
+    private volatile long maxSize;
+    private volatile long defaultExpiration = DEFAULT_EXPIRATION;
+    private final Map<Path,Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong size = new AtomicLong();
+
+    private DiskTileCache(final Path root, final long maxSize) throws IOException {
+        this.root = root;
+        this.maxSize = maxSize;
+        Files.createDirectories(root);
+
+        //index existing tiles, last modification time is the last access time
+        try (DirectoryStream<Path> dirs = Files.newDirectoryStream(root)) {
+            for (Path dir : dirs) {
+                if (!Files.isDirectory(dir)) continue;
+                //temporary files left by an interrupted write
+                try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, TEMPORARY_PREFIX + "*" + TEMPORARY_SUFFIX)) {
+                    for (Path file : files) {
+                        Files.deleteIfExists(file);
+                    }
+                }
+                try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + EXTENSION)) {
+                    for (Path file : files) {
+                        final Entry entry = new Entry(Files.size(file), Files.getLastModifiedTime(file).toMillis());
+                        entries.put(file, entry);
+                        size.addAndGet(entry.size);
+                    }
+                }
+            }
+        }
+        clean();
+    }
+
+    /**
+     * @return cache directory.
+     */
+    public Path getRoot() {
+        return root;
+    }
+
+    /**
+     * @return current size of the cache in bytes.
+     */
+    public long getSize() {
+        return size.get();
+    }
+
+    /**
+     * @return maximum size of the cache in bytes.
+     */
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Change the maximum size of the cache, tiles are deleted if needed.
+     *
+     * @param maxSize maximum size of the cache in bytes.
+     */
+    public void setMaxSize(final long maxSize) {
+        ArgumentChecks.ensureStrictlyPositive("maxSize", maxSize);
+        this.maxSize = maxSize;
+        clean();
+    }
+
+    /**
+     * @return time in milliseconds a tile is considered fresh when server does not send caching headers.
+     */
+    public long getDefaultExpiration() {
+        return defaultExpiration;
+    }
+
+    /**
+     * @param expiration time in milliseconds a tile is considered fresh when server does not send caching headers.
+     */
+    public void setDefaultExpiration(final long expiration) {
+        ArgumentChecks.ensurePositive("expiration", expiration);
+        this.defaultExpiration = expiration;
+    }
+
+    /**
+     * Get a fresh tile from the cache, without any network access.
+     *
+     * @param key tile key
+     * @return tile encoded bytes, or null if tile is not in cache or has expired.
+     */
+    public byte[] get(final String key) {
+        final Path file = toPath(key);
+        final Tile tile = read(file);
+        if (tile != null && tile.expires > System.currentTimeMillis()) {
+            touch(file);
+            return tile.data;
+        }
+        return null;
+    }
+
+    /**
+     * Store a tile in the cache, with default expiration.
+     *
+     * @param key tile key
+     * @param data tile encoded bytes
+     */
+    public void put(final String key, final byte[] data) {
+        write(toPath(key), new Tile(System.currentTimeMillis() + defaultExpiration, null, null, data));
+    }
+
+    /**
+     * Store a tile in the cache, with the expiration date and validators of the HTTP response.
+     * The tile is not stored if the response forbids it.
+     *
+     * @param key tile key
+     * @param data tile encoded bytes
+     * @param headers HTTP response header values by name
+     */
+    public void put(final String key, final byte[] data, final Function<String,String> headers) {
+        final Path file = toPath(key);
+        final long expires = getExpiration(headers, System.currentTimeMillis());
+        if (expires >= 0) {
+            write(file, new Tile(expires, headers.apply("ETag"), headers.apply("Last-Modified"), data));
+        } else {
+            remove(file);
+        }
+    }
+
+    /**
+     * Get the headers of a conditional request revalidating a cached tile.
+     *
+     * @param key tile key
+     * @return If-None-Match and If-Modified-Since headers, empty if the tile is not cached or has no validator.
+     */
+    public Map<String,String> getValidationHeaders(final String key) {
+        final Tile tile = read(toPath(key));
+        if (tile == null) {
+            return Collections.emptyMap();
+        }
+        return getValidationHeaders(tile);
+    }
+
+    private static Map<String,String> getValidationHeaders(final Tile tile) {
+        final Map<String,String> headers = new HashMap<>(4);
+        if (tile.etag != null) headers.put("If-None-Match", tile.etag);
+        if (tile.lastModified != null) headers.put("If-Modified-Since", tile.lastModified);
+        return headers;
+    }
+
+    /**
+     * Update a cached tile after a 304 (not modified) response to a conditional request.
+     *
+     * @param key tile key
+     * @param headers HTTP response header values by name
+     * @return cached tile encoded bytes, or null if the tile is not in cache anymore.
+     */
+    public byte[] notModified(final String key, final Function<String,String> headers) {
+        final Path file = toPath(key);
+        final Tile cached = read(file);
+        if (cached == null) {
+            return null;
+        }
+        final long expires = getExpiration(headers, System.currentTimeMillis());
+        final String etag = headers.apply("ETag");
+        final String lastModified = headers.apply("Last-Modified");
+        if (expires >= 0) {
+            write(file, new Tile(expires, etag != null ? etag : cached.etag,
+                    lastModified != null ? lastModified : cached.lastModified, cached.data));
+        } else {
+            remove(file);
+        }
+        return cached.data;
+    }
+
+    /**
+     * Get a tile, from the cache if it is fresh, otherwise from the request.
+     * Expired tiles are revalidated using the server validators when possible : the validators
+     * are added to the request headers while its response is read. Response caching headers
+     * are only available from {@link AbstractRequest}, other requests use the default expiration.
+     *
+     * @param key tile key
+     * @param request request used if tile is not in the cache or has expired.
+     * @return tile encoded bytes
+     * @throws IOException if tile is not in cache and request failed.
+     */
+    public byte[] getTile(final String key, final Request request) throws IOException {
+        final Path file = toPath(key);
+        final Tile cached = read(file);
+        final long now = System.currentTimeMillis();
+        if (cached != null && cached.expires > now) {
+            touch(file);
+            return cached.data;
+        }
+
+        //conditional request, validators are removed from the request headers once the response is read
+        final Map<String,String> requestHeaders = request.getHeaderMap();
+        final Map<String,String> previous = new HashMap<>(4);
+        if (cached != null) {
+            for (Map.Entry<String,String> entry : getValidationHeaders(cached).entrySet()) {
+                previous.put(entry.getKey(), requestHeaders.put(entry.getKey(), entry.getValue()));
+            }
+        }
+        final byte[] data;
+        try (InputStream in = request.getResponseStream()) {
+            data = readAll(in);
+        } finally {
+            for (Map.Entry<String,String> entry : previous.entrySet()) {
+                if (entry.getValue() == null) {
+                    requestHeaders.remove(entry.getKey());
+                } else {
+                    requestHeaders.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+
+        if (request instanceof AbstractRequest) {
+            final AbstractRequest req = (AbstractRequest) request;
+            if (cached != null && req.getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                final byte[] updated = notModified(key, req::getResponseHeader);
+                return (updated != null) ? updated : cached.data;
+            }
+            put(key, data, req::getResponseHeader);
+        } else {
+            //no caching headers, use default expiration
+            write(file, new Tile(now + defaultExpiration, null, null, data));
+        }
+        return data;
+    }
+
+    /**
+     * Wrap a request, the response is read from the cache when possible.
+     *
+     * @param key tile key
+     * @param request tile request
+     * @return request using this cache
+     */
+    public Request wrap(final String key, final Request request) {
+        return new CachedRequest(key, request);
+    }
+
+    /**
+     * Remove a tile from the cache.
+     *
+     * @param key tile key
+     */
+    public void remove(final String key) {
+        remove(toPath(key));
+    }
+
+    /**
+     * Remove all tiles from the cache.
+     */
+    public synchronized void clear() {
+        for (Path file : new ArrayList<>(entries.keySet())) {
+            remove(file);
+        }
+    }
+
+    /**
+     * Compute expiration date from HTTP headers.
+     * Cache-Control directives have precedence over the Expires header.
+     *
+     * @return expiration date, 0 if tile must be revalidated, -1 if tile must not be stored.
+     */
+    private long getExpiration(final Function<String,String> headers, final long now) {
+        final String cacheControl = headers.apply("Cache-Control");
+        if (cacheControl != null) {
+            for (String directive : cacheControl.split(",")) {
+                directive = directive.trim().toLowerCase();
+                if (directive.equals("no-store")) {
+                    return -1;
+                } else if (directive.equals("no-cache")) {
+                    return 0;
+                } else if (directive.startsWith("max-age=")) {
+                    try {
+                        return now + Long.parseLong(directive.substring(8).trim()) * 1000;
+                    } catch (NumberFormatException ex) {
+                        LOGGER.log(Level.FINE, "Invalid Cache-Control header : {0}", cacheControl);
+                    }
+                }
+            }
+        }
+        final String expires = headers.apply("Expires");
+        if (expires != null) {
+            try {
+                return ZonedDateTime.parse(expires.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+            } catch (DateTimeParseException ex) {
+                //invalid dates, like 0, mean already expired
+                return 0;
+            }
+        }
+        return now + defaultExpiration;
+    }
+
+    /**
+     * Tile file path, tiles are dispatched in sub-directories to avoid too many files in one directory.
+     */
+    private Path toPath(final String key) {
+        final byte[] hash;
+        try {
+            hash = MessageDigest.getInstance("SHA-1").digest(key.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException ex) {
+            //SHA-1 is available on all java platforms
+            throw new IllegalStateException(ex);
+        }
+        final StringBuilder sb = new StringBuilder(hash.length * 2);
+        for (byte b : hash) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return root.resolve(sb.substring(0, 2)).resolve(sb.append(EXTENSION).toString());
+    }
+
+    private Tile read(final Path file) {
+        if (!entries.containsKey(file)) return null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Invalid tile file " + file);
+            }
+            final long expires = in.readLong();
+            final String etag = in.readUTF();
+            final String lastModified = in.readUTF();
+            final byte[] data = new byte[in.readInt()];
+            in.readFully(data);
+            return new Tile(expires, etag.isEmpty() ? null : etag, lastModified.isEmpty() ? null : lastModified, data);
+        } catch (NoSuchFileException ex) {
+            removeEntry(file);
+            return null;
+        } catch (IOException ex) {
+            LOGGER.log(Level.INFO, "Failed to read cached tile : " + ex.getMessage(), ex);
+            remove(file);
+            return null;
+        }
+    }
+
+    private void write(final Path file, final Tile tile) {
+        try {
+            final Path dir = file.getParent();
+            Files.createDirectories(dir);
+            final Path tmp = Files.createTempFile(dir, TEMPORARY_PREFIX, TEMPORARY_SUFFIX);
+            try {
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                    out.writeInt(MAGIC);
+                    out.writeLong(tile.expires);
+                    out.writeUTF(tile.etag == null ? "" : tile.etag);
+                    out.writeUTF(tile.lastModified == null ? "" : tile.lastModified);
+                    out.writeInt(tile.data.length);
+                    out.write(tile.data);
+                }
+                try {
+                    Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException ex) {
+                    Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+            final Entry entry = new Entry(Files.size(file), System.currentTimeMillis());
+            final Entry previous = entries.put(file, entry);
+            size.addAndGet(entry.size - (previous == null ? 0 : previous.size));
+        } catch (IOException ex) {
+            LOGGER.log(Level.INFO, "Failed to store tile in cache : " + ex.getMessage(), ex);
+            return;
+        }
+        if (size.get() > maxSize) {
+            clean();
+        }
+    }
+
+    private void touch(final Path file) {
+        final Entry entry = entries.get(file);
+        if (entry == null) return;
+        entry.lastAccess = System.currentTimeMillis();
+        try {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(entry.lastAccess));
+        } catch (IOException ex) {
+            LOGGER.log(Level.FINE, ex.getMessage(), ex);
+        }
+    }
+
+    private void remove(final Path file) {
+        removeEntry(file);
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ex) {
+            LOGGER.log(Level.FINE, "Failed to delete cached tile : " + ex.getMessage(), ex);
+        }
+    }
+
+    private void removeEntry(final Path file) {
+        final Entry entry = entries.remove(file);
+        if (entry != null) {
+            size.addAndGet(-entry.size);
+        }
+    }
+
+    /**
+     * Delete least recently used tiles until cache size is below the maximum size.
+     */
+    private synchronized void clean() {
+        if (size.get() <= maxSize) return;
+        final long target = (long) (maxSize * CLEAN_RATIO);
+
+        final List<Map.Entry<Path,Long>> candidates = new ArrayList<>(entries.size());
+        for (Map.Entry<Path,Entry> entry : entries.entrySet()) {
+            //snapshot access time, it may change during sort
+            candidates.add(new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), entry.getValue().lastAccess));
+        }
+        Collections.sort(candidates, new Comparator<Map.Entry<Path,Long>>() {
+            @Override
+            public int compare(Map.Entry<Path,Long> o1, Map.Entry<Path,Long> o2) {
+                return Long.compare(o1.getValue(), o2.getValue());
+            }
+        });
+        for (int i = 0, n = candidates.size(); i < n && size.get() > target; i++) {
+            remove(candidates.get(i).getKey());
+        }
+    }
+
+    private static byte[] readAll(final InputStream in) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(16384);
+        final byte[] buffer = new byte[8192];
+        int nb;
+        while ((nb = in.read(buffer)) >= 0) {
+            out.write(buffer, 0, nb);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Size and access time of a tile file.
+     */
+    private static final class Entry {
+        final long size;
+        volatile long lastAccess;
+
+        Entry(final long size, final long lastAccess) {
+            this.size = size;
+            this.lastAccess = lastAccess;
+        }
+    }
+
+    /**
+     * Cached tile content.
+     */
+    private static final class Tile {
+        final long expires;
+        final String etag;
+        final String lastModified;
+        final byte[] data;
+
+        Tile(final long expires, final String etag, final String lastModified, final byte[] data) {
+            this.expires = expires;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.data = data;
+        }
+    }
+
+    /**
+     * Request reading its response from the cache.
+     */
+    private final class CachedRequest implements Request {
+
+        private final String key;
+        private final Request request;
+
+        CachedRequest(final String key, final Request request) {
+            this.key = key;
+            this.request = request;
+        }
+
+        @Override
+        public Map<String, String> getHeaderMap() {
+            return request.getHeaderMap();
+        }
+
+        @Override
+        public URL getURL() throws MalformedURLException {
+            return request.getURL();
+        }
+
+        @Override
+        public InputStream getResponseStream() throws IOException {
+            return new ByteArrayInputStream(getTile(key, request));
+        }
+
+        @Override
+        public long getTimeout() {
+            return request.getTimeout();
+        }
+
+        @Override
+        public void setTimeout(long timeout) {
+            request.setTimeout(timeout);
+        }
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ *    Geotoolkit - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2018, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.client.map;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.geotoolkit.client.Request;
+import org.geotoolkit.nio.IOUtilities;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test {@link DiskTileCache}.
+ *
+ * @module
+ */
+public class DiskTileCacheTest extends org.geotoolkit.test.TestBase {
+
+    /**
+     * Request on a local file, counting the number of queries.
+     */
+    private static final class CountingRequest implements Request {
+
+        private final URL url;
+        private final byte[] data;
+        private final AtomicInteger count = new AtomicInteger();
+
+        CountingRequest(Path file, byte[] data) throws MalformedURLException {
+            this.url = file.toUri().toURL();
+            this.data = data;
+        }
+
+        @Override
+        public Map<String, String> getHeaderMap() {
+            return new HashMap<>();
+        }
+
+        @Override
+        public URL getURL() throws MalformedURLException {
+            return url;
+        }
+
+        @Override
+        public InputStream getResponseStream() throws IOException {
+            count.incrementAndGet();
+            return new ByteArrayInputStream(data);
+        }
+
+        @Override
+        public long getTimeout() {
+            return 1000;
+        }
+
+        @Override
+        public void setTimeout(long timeout) {
+        }
+    }
+
+    @Test
+    public void getTileQueriesOnce() throws Exception {
+        final Path dir = Files.createTempDirectory("tilecache");
+        try {
+            final DiskTileCache cache = DiskTileCache.getInstance(dir, 1024 * 1024);
+            final byte[] data = new byte[]{1, 2, 3, 4, 5};
+            final CountingRequest request = new CountingRequest(dir.resolve("tile.png"), data);
+
+            assertArrayEquals(data, cache.getTile("a/0/0", request));
+            assertArrayEquals(data, cache.getTile("a/0/0", request));
+            assertArrayEquals(data, readAll(cache.wrap("a/0/0", request).getResponseStream()));
+            assertEquals(1, request.count.get());
+
+            //expired tiles are queried again
+            cache.setDefaultExpiration(0);
+            cache.remove("a/0/0");
+            assertArrayEquals(data, cache.getTile("a/0/0", request));
+            assertArrayEquals(data, cache.getTile("a/0/0", request));
+            assertEquals(3, request.count.get());
+            assertNull(cache.get("a/0/0"));
+        } finally {
+            IOUtilities.deleteRecursively(dir);
+        }
+    }
+
+    @Test
+    public void persistence() throws Exception {
+        final Path dir = Files.createTempDirectory("tilecache");
+        try {
+            final DiskTileCache cache = DiskTileCache.getInstance(dir, 1024 * 1024);
+            cache.put("b/1/2", new byte[]{9, 8, 7});
+            assertArrayEquals(new byte[]{9, 8, 7}, cache.get("b/1/2"));
+            assertNull(cache.get("b/2/1"));
+            assertTrue(cache.getSize() > 0);
+
+            //same directory returns the same instance
+            assertSame(cache, DiskTileCache.getInstance(dir, 1024 * 1024));
+
+            cache.clear();
+            assertEquals(0, cache.getSize());
+            assertNull(cache.get("b/1/2"));
+        } finally {
+            IOUtilities.deleteRecursively(dir);
+        }
+    }
+
+    @Test
+    public void evictLeastRecentlyUsed() throws Exception {
+        final Path dir = Files.createTempDirectory("tilecache");
+        try {
+            final DiskTileCache cache = DiskTileCache.getInstance(dir, 1024 * 1024);
+            final byte[] data = new byte[1000];
+            for (int i = 0; i < 10; i++) {
+                cache.put("c/" + i, data);
+                Thread.sleep(5);
+            }
+            //tile 0 becomes the most recently used
+            assertNotNull(cache.get("c/0"));
+            final long tileSize = cache.getSize() / 10;
+
+            cache.setMaxSize(tileSize * 5);
+            assertTrue(cache.getSize() <= tileSize * 5);
+            assertNotNull(cache.get("c/0"));
+            assertNotNull(cache.get("c/9"));
+            assertNull(cache.get("c/1"));
+        } finally {
+            IOUtilities.deleteRecursively(dir);
+        }
+    }
+
+    @Test
+    public void httpHeaders() throws Exception {
+        final Path dir = Files.createTempDirectory("tilecache");
+        try {
+            final DiskTileCache cache = DiskTileCache.getInstance(dir, 1024 * 1024);
+            final byte[] data = new byte[]{1, 2, 3};
+            final Map<String,String> headers = new HashMap<>();
+
+            headers.put("Cache-Control", "public, max-age=3600");
+            headers.put("ETag", "\"v1\"");
+            cache.put("d/0", data, headers::get);
+            assertArrayEquals(data, cache.get("d/0"));
+            assertEquals("\"v1\"", cache.getValidationHeaders("d/0").get("If-None-Match"));
+
+            //must be revalidated before use
+            headers.put("Cache-Control", "no-cache");
+            cache.put("d/1", data, headers::get);
+            assertNull(cache.get("d/1"));
+            headers.put("Cache-Control", "max-age=60");
+            assertArrayEquals(data, cache.notModified("d/1", headers::get));
+            assertArrayEquals(data, cache.get("d/1"));
+
+            //expiration date in the past
+            headers.remove("Cache-Control");
+            headers.put("Expires", "Thu, 01 Dec 1994 16:00:00 GMT");
+            cache.put("d/2", data, headers::get);
+            assertNull(cache.get("d/2"));
+
+            //not stored
+            headers.put("Cache-Control", "no-store");
+            cache.put("d/3", data, headers::get);
+            assertTrue(cache.getValidationHeaders("d/3").isEmpty());
+        } finally {
+            IOUtilities.deleteRecursively(dir);
+        }
+    }
+
+    @Test
+    public void sharedMaxSize() throws Exception {
+        final Path dir = Files.createTempDirectory("tilecache");
+        try {
+            final DiskTileCache cache = DiskTileCache.getInstance(dir, 1024 * 1024);
+            //a smaller size asked by another user does not shrink the cache
+            assertSame(cache, DiskTileCache.getInstance(dir, 1024));
+            assertEquals(1024 * 1024, cache.getMaxSize());
+            DiskTileCache.getInstance(dir, 2048 * 1024);
+            assertEquals(2048 * 1024, cache.getMaxSize());
+        } finally {
+            IOUtilities.deleteRecursively(dir);
+        }
+    }
+
+    @Test
+    public void deleteTemporaryFiles() throws Exception {
+        final Path dir = Files.createTempDirectory("tilecache");
+        try {
+            final Path sub = Files.createDirectory(dir.resolve("ab"));
+            final Path tmp = Files.createTempFile(sub, "tile", ".tmp");
+            final DiskTileCache cache = DiskTileCache.getInstance(dir, 1024 * 1024);
+            assertFalse(Files.exists(tmp));
+            assertEquals(0, cache.getSize());
+        } finally {
+            IOUtilities.deleteRecursively(dir);
+        }
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        try {
+            final byte[] buffer = new byte[64];
+            final int nb = in.read(buffer);
+            final byte[] result = new byte[Math.max(0, nb)];
+            System.arraycopy(buffer, 0, result, 0, result.length);
+            return result;
+        } finally {
+            in.close();
+        }
+    }
+}
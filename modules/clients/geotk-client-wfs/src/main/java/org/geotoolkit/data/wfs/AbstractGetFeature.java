@@ -71,6 +71,7 @@ public abstract class AbstractGetFeature extends AbstractRequest implements GetF
     private QName typeName       = null;
     private Filter filter        = null;
     private Integer maxFeatures  = null;
+    private Integer startIndex   = null;
     private GenericName[] propertyNames = null;
     private String outputFormat  = null;
 
@@ -127,6 +128,22 @@ public abstract class AbstractGetFeature extends AbstractRequest implements GetF
         maxFeatures = max;
     }
 
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public Integer getStartIndex(){
+        return startIndex;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void setStartIndex(final Integer start){
+        startIndex = start;
+    }
+
     /**
      * {@inheritDoc }
      */
@@ -169,7 +186,10 @@ public abstract class AbstractGetFeature extends AbstractRequest implements GetF
         requestParameters.put("VERSION", version.getCode());
 
         if(maxFeatures != null){
-            requestParameters.put("MAXFEATURES", maxFeatures.toString());
+            requestParameters.put(getMaxFeaturesParameterKey(), maxFeatures.toString());
+        }
+        if(startIndex != null){
+            requestParameters.put("STARTINDEX", startIndex.toString());
         }
 
         String prefix = "";
@@ -230,7 +250,7 @@ public abstract class AbstractGetFeature extends AbstractRequest implements GetF
         final XMLFilter xmlFilter = prepareFilter().orElse(null);
         final Query query = WFSXmlFactory.buildQuery(version.getCode(), xmlFilter, typeNames, null, null, null, propNames);
 
-        final GetFeature request = WFSXmlFactory.buildGetFeature(version.getCode(), "WFS", null, null, maxFeatures, query, ResultTypeType.RESULTS, outputFormat);
+        final GetFeature request = WFSXmlFactory.buildGetFeature(version.getCode(), "WFS", null, startIndex, maxFeatures, query, ResultTypeType.RESULTS, outputFormat);
 
         final URL url = new URL(serverURL);
         URLConnection conec = url.openConnection();
@@ -256,6 +276,13 @@ public abstract class AbstractGetFeature extends AbstractRequest implements GetF
 
     public abstract String getTypeNameParameterKey();
 
+    /**
+     * @return name of the parameter limiting the number of returned features.
+     */
+    public String getMaxFeaturesParameterKey() {
+        return "MAXFEATURES";
+    }
+
     /**
      * Marshall given XML filter (using version defined by {@link #getFilterVersion() }.
      * @param source The filter to marshall.
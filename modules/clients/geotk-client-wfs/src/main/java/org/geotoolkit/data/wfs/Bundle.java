@@ -58,15 +58,36 @@ public final class Bundle extends IndexedResourceBundle {
          */
         public static final short longitudeFirstRemarks = 4;
 
+        /**
+         * Page size
+         */
+        public static final short pageSize = 5;
+
+        /**
+         * Number of features requested at once from servers supporting WFS 2.0 result paging, 0 to
+         * disable paging.
+         */
+        public static final short pageSizeRemarks = 6;
+
         /**
          * POST queries
          */
-        public static final short post = 5;
+        public static final short post = 7;
 
         /**
          * Use post queries.
          */
-        public static final short postRemarks = 6;
+        public static final short postRemarks = 8;
+
+        /**
+         * Prefetched pages
+         */
+        public static final short prefetchPages = 9;
+
+        /**
+         * Number of pages downloaded in advance while the current page is read.
+         */
+        public static final short prefetchPagesRemarks = 10;
     }
 
     /**
@@ -64,6 +64,18 @@ public interface GetFeatureRequest extends Request{
      */
     void setMaxFeatures(Integer max);
 
+    /**
+     * @return Integer : index of the first feature returned by this request,
+     *  null to start at the first one. Only used by WFS 2.0 servers.
+     */
+    Integer getStartIndex();
+
+    /**
+     * @param start : index of the first feature returned by this request,
+     *  null to start at the first one. Only used by WFS 2.0 servers.
+     */
+    void setStartIndex(Integer start);
+
     /**
      * @return String[] : array of requested properties,
      *  null if all properties, empty for only the id.
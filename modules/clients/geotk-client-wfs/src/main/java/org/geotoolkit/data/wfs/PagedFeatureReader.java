@@ -0,0 +1,248 @@
+/*
+ *    Geotoolkit - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2018, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.data.wfs;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import org.geotoolkit.data.FeatureReader;
+import org.geotoolkit.data.FeatureStoreRuntimeException;
+import org.geotoolkit.internal.data.GenericCachedFeatureIterator;
+import org.opengis.feature.Feature;
+import org.opengis.feature.FeatureType;
+
+/**
+ * Feature reader iterating over consecutive GetFeature pages.
+ * The following pages are downloaded in background while the current one is parsed.
+ * <p>
+ * A page with less features than requested either ends the result or reveals
+ * a server limit on the number of features per response. The page size is then
+ * reduced to the number of received features and reading continues after the
+ * last received feature, until an empty page is returned.
+ * </p>
+ *
+ * @module
+ */
+final class PagedFeatureReader implements FeatureReader {
+
+    /**
+     * Access to the pages of a GetFeature result.
+     */
+    interface PageSource {
+        /**
+         * Downloads a page, called from a background thread.
+         *
+         * @param startIndex index of the first feature of the page
+         * @param count maximum number of features in the page
+         * @return page response content
+         */
+        byte[] fetch(int startIndex, int count) throws Exception;
+
+        /**
+         * Parses a downloaded page.
+         *
+         * @param content page response content
+         * @return reader over the page features
+         */
+        FeatureReader parse(byte[] content) throws Exception;
+    }
+
+    /**
+     * A requested page.
+     */
+    private static final class Page {
+        private final int start;
+        private final int count;
+        private final FutureTask<byte[]> content;
+
+        private Page(final int start, final int count, final FutureTask<byte[]> content) {
+            this.start = start;
+            this.count = count;
+            this.content = content;
+        }
+    }
+
+    private final FeatureType type;
+    private final PageSource source;
+    private final int prefetch;
+    /** Index after the last feature to read. */
+    private final long limit;
+    /** Downloading pages, in order. */
+    private final Deque<Page> pending = new ArrayDeque<>();
+
+    private int pageSize;
+    private int nextStart;
+
+    private Page page;
+    private FeatureReader reader;
+    private int read;
+    private boolean finished = false;
+    private Feature next = null;
+
+    /**
+     * @param type type of the returned features
+     * @param source access to the pages
+     * @param start index of the first feature to read
+     * @param max maximum number of features to read, null for no limit
+     * @param pageSize number of features requested per page
+     * @param prefetch number of pages downloaded in advance
+     */
+    PagedFeatureReader(final FeatureType type, final PageSource source, final int start,
+            final Integer max, final int pageSize, final int prefetch) {
+        this.type = type;
+        this.source = source;
+        this.prefetch = prefetch;
+        this.pageSize = pageSize;
+        this.nextStart = start;
+        this.limit = (max == null) ? Long.MAX_VALUE : (long) start + max;
+        //first page and the following ones
+        request(prefetch + 1);
+    }
+
+    /**
+     * Starts page downloads until the given number of pages are pending.
+     *
+     * @param nbPages number of pending pages to reach
+     */
+    private void request(final int nbPages) {
+        while (pending.size() < nbPages && nextStart < limit) {
+            final int start = nextStart;
+            final int count = (int) Math.min(pageSize, limit - start);
+            final Page p = new Page(start, count, new FutureTask<>(() -> source.fetch(start, count)));
+            nextStart += count;
+            pending.add(p);
+            GenericCachedFeatureIterator.POOL.execute(p.content);
+        }
+    }
+
+    /**
+     * Cancels downloads of the pages following the current one.
+     */
+    private void cancelPending() {
+        for (Page p : pending) {
+            p.content.cancel(true);
+        }
+        pending.clear();
+    }
+
+    private void findNext() throws FeatureStoreRuntimeException {
+        if (next != null || finished) return;
+
+        while (true) {
+            if (reader != null) {
+                if (reader.hasNext()) {
+                    next = reader.next();
+                    read++;
+                    return;
+                }
+                reader.close();
+                reader = null;
+
+                if (read == 0) {
+                    //empty page, no more features
+                    finished = true;
+                    cancelPending();
+                    return;
+                } else if (read < page.count) {
+                    //end of result or server limit, following pages started at a wrong index
+                    cancelPending();
+                    pageSize = read;
+                    nextStart = page.start + read;
+                }
+                page = null;
+            }
+
+            //current page, after a server limit following pages have been cancelled
+            request(1);
+            page = pending.poll();
+            if (page == null) {
+                finished = true;
+                return;
+            }
+            //keep downloading while this page is parsed
+            request(prefetch);
+
+            try {
+                reader = source.parse(page.content.get());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new FeatureStoreRuntimeException(ex);
+            } catch (ExecutionException ex) {
+                throw new FeatureStoreRuntimeException(ex.getCause());
+            } catch (FeatureStoreRuntimeException ex) {
+                throw ex;
+            } catch (Exception ex) {
+                throw new FeatureStoreRuntimeException(ex);
+            }
+            read = 0;
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public FeatureType getFeatureType() {
+        return type;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public boolean hasNext() throws FeatureStoreRuntimeException {
+        findNext();
+        return next != null;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public Feature next() throws FeatureStoreRuntimeException {
+        findNext();
+        final Feature c = next;
+        next = null;
+        if (c == null) {
+            throw new NoSuchElementException("No such Feature exists");
+        }
+        return c;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void close() throws FeatureStoreRuntimeException {
+        finished = true;
+        cancelPending();
+        if (reader != null) {
+            reader.close();
+            reader = null;
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void remove() {
+        throw new FeatureStoreRuntimeException("Paged reader does not support remove operation.");
+    }
+}
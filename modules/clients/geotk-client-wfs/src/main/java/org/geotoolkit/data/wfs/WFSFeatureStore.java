@@ -17,8 +17,11 @@
 
 package org.geotoolkit.data.wfs;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.net.URL;
 import java.util.AbstractMap;
 import java.util.ArrayList;
@@ -68,6 +71,8 @@ import org.geotoolkit.feature.xml.jaxb.JAXBFeatureTypeReader;
 import org.geotoolkit.feature.xml.jaxp.JAXPStreamFeatureReader;
 import org.geotoolkit.filter.visitor.DuplicatingFilterVisitor;
 import org.geotoolkit.internal.data.GenericNameIndex;
+import org.geotoolkit.ows.xml.AbstractDomain;
+import org.geotoolkit.ows.xml.AbstractOperationsMetadata;
 import org.geotoolkit.ows.xml.BoundingBox;
 import org.geotoolkit.storage.DataStoreFactory;
 import org.geotoolkit.storage.DataStores;
@@ -76,6 +81,7 @@ import org.geotoolkit.wfs.xml.FeatureTypeList;
 import org.geotoolkit.wfs.xml.TransactionResponse;
 import org.geotoolkit.wfs.xml.WFSCapabilities;
 import org.geotoolkit.wfs.xml.WFSMarshallerPool;
+import org.geotoolkit.wfs.xml.WFSVersion;
 import org.locationtech.jts.geom.Geometry;
 import org.opengis.feature.Feature;
 import org.opengis.feature.FeatureType;
@@ -84,6 +90,7 @@ import org.opengis.feature.PropertyType;
 import org.opengis.filter.Filter;
 import org.opengis.filter.expression.PropertyName;
 import org.opengis.filter.identity.FeatureId;
+import org.opengis.filter.sort.SortBy;
 import org.opengis.geometry.Envelope;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
 import org.opengis.util.FactoryException;
@@ -105,6 +112,8 @@ public class WFSFeatureStore extends AbstractFeatureStore{
     private final GenericNameIndex<FeatureType> types = new GenericNameIndex<>();
     private final GenericNameIndex<Envelope> bounds = new GenericNameIndex<>();
     private final Map<String,String> prefixes = new HashMap<>();
+    /** Whether the server supports WFS 2.0 startIndex and count parameters. */
+    private boolean resultPaging;
 
 
     public WFSFeatureStore(WebFeatureClient server) throws WebFeatureException {
@@ -127,6 +136,7 @@ public class WFSFeatureStore extends AbstractFeatureStore{
     private void checkTypeExist() throws WebFeatureException, IllegalNameException {
 
         final WFSCapabilities capabilities = server.getServiceCapabilities();
+        resultPaging = isResultPaging(capabilities);
         final FeatureTypeList lst = capabilities.getFeatureTypeList();
 
         for (final org.geotoolkit.wfs.xml.FeatureType ftt : lst.getFeatureType()) {
@@ -213,6 +223,27 @@ public class WFSFeatureStore extends AbstractFeatureStore{
         }
     }
 
+    /**
+     * Returns true if the server is a WFS 2.0 one declaring the
+     * {@code ImplementsResultPaging} constraint.
+     */
+    private boolean isResultPaging(final WFSCapabilities capabilities) {
+        final WFSVersion version = server.getVersion();
+        if (version != WFSVersion.v200 && version != WFSVersion.v202) {
+            return false;
+        }
+        final AbstractOperationsMetadata metadata = capabilities.getOperationsMetadata();
+        final AbstractDomain paging = (metadata == null) ? null : metadata.getConstraint("ImplementsResultPaging");
+        if (paging == null) {
+            return false;
+        }
+        if ("TRUE".equalsIgnoreCase(paging.getDefaultValue())) {
+            return true;
+        }
+        final List<String> values = paging.getValue();
+        return values != null && values.stream().anyMatch("TRUE"::equalsIgnoreCase);
+    }
+
     public boolean getUsePost(){
         return parameters.getValue(WFSFeatureStoreFactory.POST_REQUEST);
     }
@@ -221,6 +252,16 @@ public class WFSFeatureStore extends AbstractFeatureStore{
         return parameters.getValue(WFSFeatureStoreFactory.LONGITUDE_FIRST);
     }
 
+    public int getPageSize(){
+        final Integer size = parameters.getValue(WFSFeatureStoreFactory.PAGE_SIZE);
+        return (size == null) ? 0 : size;
+    }
+
+    public int getPrefetchPages(){
+        final Integer count = parameters.getValue(WFSFeatureStoreFactory.PREFETCH_PAGES);
+        return (count == null) ? 1 : count;
+    }
+
     @Override
     public DataStoreFactory getProvider() {
         return DataStores.getFactoryById(WFSFeatureStoreFactory.NAME);
@@ -507,11 +548,14 @@ public class WFSFeatureStore extends AbstractFeatureStore{
 
         /* We create a secondary query whose role is to handle mappings we won't
          * delegate to the WFS service. Examples are start offset, which cannot
-         * be converted to a proper WFS parameter, and the asked reprojection (if
-         * any), because it happens that WFS servers handle it badly.
+         * be converted to a proper WFS parameter before WFS 2.0, and the asked
+         * reprojection (if any), because it happens that WFS servers handle it badly.
          *
          */
         final QueryBuilder remainingQuery;
+        int start = 0;
+        Integer max = null;
+        boolean paged = false;
         if (gquery != null) {
             remainingQuery = new QueryBuilder(gquery);
 
@@ -550,9 +594,19 @@ public class WFSFeatureStore extends AbstractFeatureStore{
             // Filter is already processed, but a query builder does not support null filter.
             remainingQuery.setFilter(Filter.INCLUDE);
 
-            final int start = gquery.getStartIndex();
-            final Integer max = gquery.getMaxFeatures();
-            if (start <= 0 && max != null) {
+            start = Math.max(gquery.getStartIndex(), 0);
+            max = gquery.getMaxFeatures();
+            final SortBy[] sortBy = gquery.getSortBy();
+            if (resultPaging && (sortBy == null || sortBy.length == 0)) {
+                /* Server applies the offset and limit. Sorting is still done
+                 * afterwards, offsets can not be pushed down in this case.
+                 */
+                if (start > 0) request.setStartIndex(start);
+                request.setMaxFeatures(max);
+                remainingQuery.setStartIndex(0);
+                remainingQuery.setMaxFeatures(null);
+                paged = getPageSize() > 0;
+            } else if (start <= 0 && max != null) {
                 request.setMaxFeatures(max);
                 // For this one, do not remove from remaining queries : If the
                 // wfs service does not manage it, we will do it afterwards.
@@ -577,24 +631,35 @@ public class WFSFeatureStore extends AbstractFeatureStore{
             }
         } else remainingQuery = null;
 
+        FeatureReader streamReader;
+        if (paged) {
+            streamReader = new PagedFeatureReader(type, new GetFeaturePages(request, type),
+                    start, max, getPageSize(), getPrefetchPages());
+        } else {
+            streamReader = createFeatureReader(type).readAsStream(openStream(request));
+        }
+        if (remainingQuery != null) {
+            streamReader = FeatureStreams.subset(streamReader, remainingQuery.buildQuery());
+        }
+
+        return streamReader;
+    }
+
+    private static XmlFeatureReader createFeatureReader(final FeatureType type) {
         final XmlFeatureReader reader = new JAXPStreamFeatureReader(type);
         reader.getProperties().put(JAXPStreamFeatureReader.SKIP_UNEXPECTED_PROPERTY_TAGS, true);
-        final InputStream stream;
+        return reader;
+    }
+
+    private InputStream openStream(final GetFeatureRequest request) throws IOException {
         if (getUsePost()) {
             getLogger().log(Level.INFO, "[WFS Client] request feature by POST.");
-            stream = request.getResponseStream();
+            return request.getResponseStream();
         } else {
             final URL url = request.getURL();
             getLogger().log(Level.INFO, "[WFS Client] request feature : {0}", url);
-            stream = url.openStream();
-        }
-
-        FeatureReader streamReader = reader.readAsStream(stream);
-        if (remainingQuery != null) {
-            streamReader = FeatureStreams.subset(streamReader, remainingQuery.buildQuery());
+            return url.openStream();
         }
-
-        return streamReader;
     }
 
     @Override
@@ -606,6 +671,50 @@ public class WFSFeatureStore extends AbstractFeatureStore{
         checkTypeExist();
     }
 
+    /**
+     * Pages of a GetFeature request, each page is a copy of the request
+     * with its own start index and count.
+     */
+    private final class GetFeaturePages implements PagedFeatureReader.PageSource {
+
+        private final GetFeatureRequest request;
+        private final FeatureType type;
+
+        private GetFeaturePages(final GetFeatureRequest request, final FeatureType type) {
+            this.request = request;
+            this.type = type;
+        }
+
+        @Override
+        public byte[] fetch(final int startIndex, final int count) throws IOException {
+            final GetFeatureRequest page = server.createGetFeature();
+            page.setTypeName(request.getTypeName());
+            page.setFilter(request.getFilter());
+            page.setPropertyNames(request.getPropertyNames());
+            page.setOutputFormat(request.getOutputFormat());
+            page.setStartIndex(startIndex);
+            page.setMaxFeatures(count);
+
+            try (InputStream stream = openStream(page)) {
+                final ByteArrayOutputStream out = new ByteArrayOutputStream();
+                final byte[] buffer = new byte[8192];
+                int n;
+                while ((n = stream.read(buffer)) >= 0) {
+                    if (Thread.interrupted()) {
+                        throw new InterruptedIOException("Page download cancelled");
+                    }
+                    out.write(buffer, 0, n);
+                }
+                return out.toByteArray();
+            }
+        }
+
+        @Override
+        public FeatureReader parse(final byte[] content) throws IOException, XMLStreamException {
+            return createFeatureReader(type).readAsStream(new ByteArrayInputStream(content));
+        }
+    }
+
     private static class PropertyNameReplacement extends DuplicatingFilterVisitor {
 
         private final Map<String, String> nameReplacements;
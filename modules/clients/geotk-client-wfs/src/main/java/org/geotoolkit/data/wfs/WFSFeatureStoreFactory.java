@@ -88,11 +88,30 @@ public class WFSFeatureStoreFactory extends DataStoreFactory implements ClientFa
             .setRemarks(Bundle.formatInternational(Bundle.Keys.longitudeFirstRemarks))
             .setRequired(false)
             .create(Boolean.class, Boolean.FALSE);
+    /**
+     * Optional number of features per GetFeature page, 0 to disable paging.
+     * Only used with WFS 2.0 servers supporting result paging.
+     */
+    public static final ParameterDescriptor<Integer> PAGE_SIZE = new ParameterBuilder()
+            .addName("pageSize")
+            .addName(Bundle.formatInternational(Bundle.Keys.pageSize))
+            .setRemarks(Bundle.formatInternational(Bundle.Keys.pageSizeRemarks))
+            .setRequired(false)
+            .createBounded(0, Integer.MAX_VALUE, 0);
+    /**
+     * Optional number of GetFeature pages downloaded in advance.
+     */
+    public static final ParameterDescriptor<Integer> PREFETCH_PAGES = new ParameterBuilder()
+            .addName("prefetchPages")
+            .addName(Bundle.formatInternational(Bundle.Keys.prefetchPages))
+            .setRemarks(Bundle.formatInternational(Bundle.Keys.prefetchPagesRemarks))
+            .setRequired(false)
+            .createBounded(0, 2, 1);
 
     public static final ParameterDescriptorGroup PARAMETERS_DESCRIPTOR =
             new ParameterBuilder().addName(NAME).addName("WFSParameters").createGroup(
                 IDENTIFIER, AbstractClientFactory.URL, VERSION, AbstractClientFactory.SECURITY,
-                LONGITUDE_FIRST,POST_REQUEST,AbstractClientFactory.TIMEOUT);
+                LONGITUDE_FIRST,POST_REQUEST,AbstractClientFactory.TIMEOUT,PAGE_SIZE,PREFETCH_PAGES);
 
     /**
      * {@inheritDoc }
@@ -42,4 +42,9 @@ public class GetFeature200 extends AbstractGetFeature {
     public String getTypeNameParameterKey() {
         return "TYPENAMES";
     }
+
+    @Override
+    public String getMaxFeaturesParameterKey() {
+        return "COUNT";
+    }
 }
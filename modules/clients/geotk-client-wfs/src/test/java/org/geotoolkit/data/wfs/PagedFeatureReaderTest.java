@@ -0,0 +1,137 @@
+/*
+ *    Geotoolkit - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2018, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.data.wfs;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.sis.feature.builder.FeatureTypeBuilder;
+import org.geotoolkit.data.FeatureReader;
+import org.geotoolkit.data.FeatureStreams;
+import org.junit.Test;
+import org.opengis.feature.Feature;
+import org.opengis.feature.FeatureType;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test {@link PagedFeatureReader} with an in memory page source.
+ *
+ * @module
+ */
+public class PagedFeatureReaderTest extends org.geotoolkit.test.TestBase {
+
+    private final FeatureType type;
+    private final List<Feature> features = new ArrayList<>();
+
+    public PagedFeatureReaderTest() {
+        final FeatureTypeBuilder ftb = new FeatureTypeBuilder();
+        ftb.setName("test");
+        ftb.addAttribute(Integer.class).setName("index");
+        type = ftb.build();
+        for (int i = 0; i < 95; i++) {
+            final Feature f = type.newInstance();
+            f.setPropertyValue("index", i);
+            features.add(f);
+        }
+    }
+
+    /**
+     * Pages encoded as the start and end index of the returned features.
+     * The server returns at most {@code limit} features per page.
+     */
+    private final class Source implements PagedFeatureReader.PageSource {
+
+        private final int limit;
+        private final AtomicInteger requests = new AtomicInteger();
+
+        private Source(final int limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public byte[] fetch(final int startIndex, final int count) {
+            requests.incrementAndGet();
+            final int start = Math.min(features.size(), startIndex);
+            final int end = Math.min(features.size(), start + Math.min(count, limit));
+            return ByteBuffer.allocate(8).putInt(start).putInt(end).array();
+        }
+
+        @Override
+        public FeatureReader parse(final byte[] content) {
+            final ByteBuffer buffer = ByteBuffer.wrap(content);
+            final int start = buffer.getInt();
+            final int end = buffer.getInt();
+            return FeatureStreams.asReader(features.subList(start, end).iterator(), type);
+        }
+    }
+
+    private static void check(final FeatureReader reader, final int start, final int count) {
+        try {
+            for (int i = start; i < start + count; i++) {
+                assertTrue(reader.hasNext());
+                assertEquals(i, reader.next().getPropertyValue("index"));
+            }
+            assertFalse(reader.hasNext());
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testPages() {
+        check(new PagedFeatureReader(type, new Source(Integer.MAX_VALUE), 0, null, 10, 2), 0, 95);
+        check(new PagedFeatureReader(type, new Source(Integer.MAX_VALUE), 0, null, 1000, 0), 0, 95);
+
+        //limit reached on a full page, no more request
+        final Source source = new Source(Integer.MAX_VALUE);
+        check(new PagedFeatureReader(type, source, 12, 30, 10, 1), 12, 30);
+        assertEquals(3, source.requests.get());
+    }
+
+    /**
+     * Server returning less features per page than requested.
+     */
+    @Test
+    public void testServerLimit() {
+        check(new PagedFeatureReader(type, new Source(7), 0, null, 20, 2), 0, 95);
+        check(new PagedFeatureReader(type, new Source(7), 5, 50, 20, 1), 5, 50);
+    }
+
+    /**
+     * Only the current page and the prefetched ones are requested.
+     */
+    @Test
+    public void testPrefetchCount() throws Exception {
+        for (int prefetch : new int[]{0, 2}) {
+            final Source source = new Source(Integer.MAX_VALUE);
+            final PagedFeatureReader reader = new PagedFeatureReader(type, source, 0, null, 10, prefetch);
+            try {
+                assertTrue(reader.hasNext());
+                //prefetched pages are requested in background
+                for (int i = 0; i < 100 && source.requests.get() < 1 + prefetch; i++) {
+                    Thread.sleep(10);
+                }
+                Thread.sleep(100);
+                assertEquals(1 + prefetch, source.requests.get());
+            } finally {
+                reader.close();
+            }
+        }
+    }
+}
@@ -20,6 +20,7 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import javax.xml.namespace.QName;
 import org.geotoolkit.data.wfs.v110.GetFeature110;
+import org.geotoolkit.data.wfs.v200.GetFeature200;
 import org.geotoolkit.factory.FactoryFinder;
 import org.junit.Test;
 import org.opengis.filter.FilterFactory;
@@ -60,4 +61,20 @@ public class GetFeatureTest extends org.geotoolkit.test.TestBase {
         assertTrue("was:" + sUrl, sUrl.contains("lowerCorner%3E-180.0+-90.0"));
         assertTrue("was:" + sUrl, sUrl.contains("upperCorner%3E180.0+90.0"));
     }
+
+    /**
+     * Ensures the {@link GetFeature200#getURL()} method sends the paging parameters.
+     */
+    @Test
+    public void testGetFeature200Paging() throws MalformedURLException {
+        final GetFeature200 getFeat200 = new GetFeature200("http://test.com",null);
+        getFeat200.setTypeName(new QName("value"));
+        getFeat200.setStartIndex(100);
+        getFeat200.setMaxFeatures(50);
+        final String sUrl = getFeat200.getURL().toString();
+        assertTrue("was:" + sUrl, sUrl.contains("TYPENAMES=value"));
+        assertTrue("was:" + sUrl, sUrl.contains("STARTINDEX=100"));
+        assertTrue("was:" + sUrl, sUrl.contains("COUNT=50"));
+        assertFalse("was:" + sUrl, sUrl.contains("MAXFEATURES"));
+    }
 }
@@ -47,7 +47,7 @@ public class WMSCClientFactory extends AbstractClientFactory {
     public static final ParameterDescriptor<String> IDENTIFIER = createFixedIdentifier(NAME);
 
     public static final ParameterDescriptorGroup PARAMETERS =
-            new ParameterBuilder().addName(NAME).addName("WMSCParameters").createGroup(IDENTIFIER,URL,SECURITY,IMAGE_CACHE,NIO_QUERIES,TIMEOUT);
+            new ParameterBuilder().addName(NAME).addName("WMSCParameters").createGroup(IDENTIFIER,URL,SECURITY,IMAGE_CACHE,NIO_QUERIES,TIMEOUT,TILE_CACHE,TILE_CACHE_SIZE);
 
     @Override
     public ParameterDescriptorGroup getOpenParameters() {
@@ -88,6 +88,8 @@ public class WMSCClientFactory extends AbstractClientFactory {
             server.setUserProperty(CachedPyramidSet.PROPERTY_NIO, useNIO);
         }catch(ParameterNotFoundException ex){}
 
+        setTileCache(server, params);
+
         return server;
     }
 }
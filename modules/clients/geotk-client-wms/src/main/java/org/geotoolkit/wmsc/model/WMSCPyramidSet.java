@@ -90,6 +90,11 @@ public class WMSCPyramidSet extends CachedPyramidSet{
         return layer;
     }
 
+    @Override
+    protected String getTileCacheNamespace(Map hints) {
+        return super.getTileCacheNamespace(hints) + '/' + layer;
+    }
+
     @Override
     public Request getTileRequest(Pyramid pyramid, Mosaic mosaic, int col, int row, Map hints) throws DataStoreException {
         final GetMapRequest request = getServer().createGetMap();
@@ -53,7 +53,7 @@ public class WMTSClientFactory extends AbstractClientFactory {
 
     public static final ParameterDescriptorGroup PARAMETERS =
             new ParameterBuilder().addName(NAME).addName("WMTSParameters").createGroup(
-                IDENTIFIER,URL,VERSION, SECURITY, IMAGE_CACHE,NIO_QUERIES,TIMEOUT);
+                IDENTIFIER,URL,VERSION, SECURITY, IMAGE_CACHE,NIO_QUERIES,TIMEOUT,TILE_CACHE,TILE_CACHE_SIZE);
 
     @Override
     public ParameterDescriptorGroup getOpenParameters() {
@@ -81,6 +81,8 @@ public class WMTSClientFactory extends AbstractClientFactory {
             server.setUserProperty(CachedPyramidSet.PROPERTY_NIO, useNIO);
         }catch(ParameterNotFoundException ex){}
 
+        setTileCache(server, params);
+
         return server;
     }
 }
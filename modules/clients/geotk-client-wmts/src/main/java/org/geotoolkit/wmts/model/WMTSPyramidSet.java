@@ -100,6 +100,16 @@ public class WMTSPyramidSet extends CachedPyramidSet{
         return pyramids;
     }
 
+    @Override
+    protected String getTileCacheNamespace(Map hints) {
+        final Object style = (hints == null) ? null : hints.get(HINT_STYLE);
+        final StringBuilder sb = new StringBuilder(super.getTileCacheNamespace(hints)).append('/').append(layerName);
+        if (style instanceof String) {
+            sb.append('/').append(style);
+        }
+        return sb.toString();
+    }
+
     @Override
     public Request getTileRequest(Pyramid pyramid, Mosaic mosaic, int col, int row, Map hints) throws DataStoreException {
         final WMTSMosaic wmtsMosaic = (WMTSMosaic) mosaic;
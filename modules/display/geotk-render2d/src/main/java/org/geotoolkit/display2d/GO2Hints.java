@@ -61,14 +61,23 @@ public final class GO2Hints extends Static {
     }
 
     /**
-     * Configure the multithreading support. This usually makes the canvas
-     * build several buffered images to render each layer separately.
+     * Configure the multithreading support. When enabled, features of vector
+     * layers are distributed over several rendering threads, each thread
+     * painting in its own buffered images which are merged at the end.
      * This raises memory concumption.
+     * Layers using group symbolizers or the {@link #KEY_SYMBOL_RENDERING_ORDER}
+     * are still rendered by a single thread.
      *
      * WARNING : experimental
      */
     public static final Key KEY_MULTI_THREAD = new NamedKey(Boolean.class, "GO2 - MultiThread");
 
+    /**
+     * Configure the number of threads used to render a layer when
+     * {@link #KEY_MULTI_THREAD} is enabled. Default is the number of available processors.
+     */
+    public static final Key KEY_MULTI_THREAD_WORKERS = new NamedKey(Integer.class, "GO2 - MultiThread workers");
+
     /**
      * Configure the generalization, false by default in stateless mode, true
      * in statefull mode.
@@ -28,15 +28,9 @@ import java.awt.image.RenderedImage;
 import java.awt.image.SampleModel;
 import java.awt.image.WritableRaster;
 import java.io.IOException;
-import java.text.NumberFormat;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Hashtable;
-import java.util.Locale;
-import java.util.concurrent.atomic.AtomicLong;
-import java.util.function.LongConsumer;
-import java.util.stream.LongStream;
-import java.util.stream.Stream;
 import javax.media.jai.RasterFactory;
 import org.apache.sis.coverage.grid.GridGeometry;
 import org.apache.sis.geometry.Envelopes;
@@ -51,6 +45,7 @@ import org.geotoolkit.data.multires.Mosaic;
 import org.geotoolkit.data.multires.MultiResolutionModel;
 import org.geotoolkit.data.multires.Pyramid;
 import org.geotoolkit.data.multires.Pyramids;
+import org.geotoolkit.data.multires.TileGenerationScheduler;
 import org.geotoolkit.data.multires.Tile;
 import org.geotoolkit.display.PortrayalException;
 import org.geotoolkit.display2d.ext.dynamicrange.DynamicRangeSymbolizer;
@@ -64,7 +59,6 @@ import org.geotoolkit.map.CoverageMapLayer;
 import org.geotoolkit.map.MapBuilder;
 import org.geotoolkit.map.MapContext;
 import org.geotoolkit.map.MapLayer;
-import org.geotoolkit.process.ProcessEvent;
 import org.geotoolkit.process.ProcessListener;
 import org.geotoolkit.storage.coverage.AbstractPyramidalCoverageResource;
 import org.geotoolkit.storage.coverage.DefaultImageTile;
@@ -205,10 +199,7 @@ public class MapContextTileGenerator extends AbstractTileGenerator {
             Hints hints = sceneDef.getHints();
 
             final long total = countTiles(pyramid, env, resolutions);
-            final AtomicLong al = new AtomicLong();
-            //send an event only every few seconds
-            final AtomicLong tempo = new AtomicLong(System.currentTimeMillis());
-            final String msg = " / "+ NumberFormat.getIntegerInstance(Locale.FRANCE).format(total);
+            final TileGenerationScheduler.Job job = getScheduler().begin(total, listener);
 
             for (final Mosaic mosaic : mosaics) {
                 if (resolutions == null || resolutions.contains(mosaic.getScale())) {
@@ -219,68 +210,43 @@ public class MapContextTileGenerator extends AbstractTileGenerator {
                     final SceneDef sceneDef = new SceneDef(parent, hints);
                     final ViewDef viewDef = new ViewDef(mosaic.getEnvelope());
 
-                    //one thread per line, the progressive image generates multiple tiles when drawing
+                    //one task per line, the progressive image generates multiple tiles when drawing
                     //this approach is more efficient from profiling result then using tile by tile
                     //generation
-                    LongStream.range(rect.y, rect.y+rect.height).parallel().forEach(new LongConsumer() {
-                        @Override
-                        public void accept(final long y) {
-                            final NumberFormat format = NumberFormat.getIntegerInstance(Locale.FRANCE);
-                            long nb = 0;
-                            try {
-                                final ProgressiveImage img = new ProgressiveImage(canvasDef, sceneDef, viewDef,
-                                mosaic.getGridSize(), mosaic.getTileSize(), mosaic.getScale(), 0);
-
-                                for (int x=rect.x,xn=rect.x+rect.width;x<xn;x++) {
-                                    final Point coord = new Point((int)x, (int)y);
-                                    final Raster clipRaster = img.getTile(x, (int)y);
-                                    try {
-                                        if (skipEmptyTiles && img.isBatchEmpty()) {
-                                            //empty tile, for sure
-                                        } else {
-                                            //redefined raster corner to be at 0,0
-                                            final WritableRaster raster = clipRaster.createCompatibleWritableRaster(0, 0, clipRaster.getWidth(), clipRaster.getHeight());
-                                            raster.setRect(clipRaster);
-                                            final BufferedImage data = new BufferedImage(img.getColorModel(), raster, img.getColorModel().isAlphaPremultiplied(), null);
-
-                                            if (!skipEmptyTiles || (skipEmptyTiles && !BufferedImages.isAll(data, empty))) {
-                                                final ImageTile t = new DefaultImageTile(data, coord);
-                                                mosaic.writeTiles(Stream.of(t), null);
-                                            }
-                                        }
-                                    } finally {
-                                        nb++;
-                                        if (listener != null && nb%1000 == 0) {
-                                            final long time = System.currentTimeMillis();
-                                            if (tempo.updateAndGet((long operand) -> ((time-operand)  > 3000) ? time : operand) == time) {
-                                                long v = al.addAndGet(nb);
-                                                nb = 0;
-                                                listener.progressing(new ProcessEvent(DUMMY, format.format(v)+msg, (float) (( ((double)v)/((double)total) )*100.0)  ));
-                                            }
+                    job.run(mosaic, rect.height, (long index, TileGenerationScheduler.TileWriter writer) -> {
+                        final int y = (int) (rect.y + index);
+                        long done = 0;
+                        try {
+                            final ProgressiveImage img = new ProgressiveImage(canvasDef, sceneDef, viewDef,
+                            mosaic.getGridSize(), mosaic.getTileSize(), mosaic.getScale(), 0);
+
+                            for (int x=rect.x,xn=rect.x+rect.width;x<xn;x++) {
+                                final Point coord = new Point(x, y);
+                                final Raster clipRaster = img.getTile(x, y);
+                                try {
+                                    if (skipEmptyTiles && img.isBatchEmpty()) {
+                                        //empty tile, for sure
+                                    } else {
+                                        //redefined raster corner to be at 0,0
+                                        final WritableRaster raster = clipRaster.createCompatibleWritableRaster(0, 0, clipRaster.getWidth(), clipRaster.getHeight());
+                                        raster.setRect(clipRaster);
+                                        final BufferedImage data = new BufferedImage(img.getColorModel(), raster, img.getColorModel().isAlphaPremultiplied(), null);
+
+                                        if (!skipEmptyTiles || (skipEmptyTiles && !BufferedImages.isAll(data, empty))) {
+                                            writer.write(new DefaultImageTile(data, coord));
                                         }
                                     }
-                                }
-                            } catch (Exception ex) {
-                                ex.printStackTrace();
-                            }
-
-                            long v = al.addAndGet(nb);
-                            if (listener != null) {
-                                final long time = System.currentTimeMillis();
-                                if (tempo.updateAndGet((long operand) -> ((time-operand)  > 3000) ? time : operand) == time) {
-                                    listener.progressing(new ProcessEvent(DUMMY, format.format(v)+msg, (float) (( ((double)v)/((double)total) )*100.0)  ));
+                                } finally {
+                                    writer.processed(1);
+                                    done++;
                                 }
                             }
+                        } finally {
+                            //count tiles of the line which could not be generated
+                            if (done < rect.width) writer.processed(rect.width - done);
                         }
                     });
 
-                    //last level event
-                    final NumberFormat format = NumberFormat.getIntegerInstance(Locale.FRANCE);
-                    long v = al.get();
-                    if (listener != null) {
-                        listener.progressing(new ProcessEvent(DUMMY, format.format(v)+msg, (float) (( ((double)v)/((double)total) )*100.0)  ));
-                    }
-
                     //modify context
                     final DefaultPyramid pm = new DefaultPyramid(pyramid.getCoordinateReferenceSystem());
                     pm.getMosaicsInternal().add(mosaic);
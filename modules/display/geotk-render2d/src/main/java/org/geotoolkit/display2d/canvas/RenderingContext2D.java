@@ -648,13 +648,26 @@ public class RenderingContext2D implements RenderingContext{
      * @return RenderingContext2D
      */
     public RenderingContext2D create(final Graphics2D g2d){
+        return create(g2d, getLabelRenderer(true));
+    }
+
+    /**
+     * Same as {@link #create(java.awt.Graphics2D) } but labels are sent to the
+     * given label renderer instead of the one of this context.
+     * Rendering threads use it to collect labels without sharing the label renderer.
+     *
+     * @param g2d Graphics2D
+     * @param labelRenderer label renderer of the created context
+     * @return RenderingContext2D
+     */
+    public RenderingContext2D create(final Graphics2D g2d, final LabelRenderer labelRenderer){
         final RenderingContext2D context = new RenderingContext2D(canvas);
         context.initParameters(objectiveToDisplay, monitor,
                                paintingDisplayShape, paintingObjectiveShape,
                                canvasDisplayShape, canvasObjectiveShape, dpi);
         context.initGraphic(g2d);
         g2d.setRenderingHints(this.graphics.getRenderingHints());
-        context.labelRenderer = getLabelRenderer(true);
+        context.labelRenderer = labelRenderer;
         return context;
     }
 
@@ -17,8 +17,14 @@
 package org.geotoolkit.display2d.container.stateless;
 
 import org.locationtech.jts.geom.Polygon;
+import java.awt.RenderingHints;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Rectangle2D;
+import java.util.logging.Level;
+import org.apache.sis.geometry.Envelopes;
+import org.apache.sis.util.Utilities;
+import org.apache.sis.util.logging.Logging;
+import org.geotoolkit.display2d.GO2Hints;
 import org.geotoolkit.display2d.canvas.RenderingContext2D;
 import org.geotoolkit.geometry.jts.transform.CoordinateSequenceMathTransformer;
 import org.geotoolkit.geometry.jts.transform.GeometryCSTransformer;
@@ -27,7 +33,10 @@ import org.apache.sis.internal.referencing.j2d.AffineTransform2D;
 import org.apache.sis.util.Classes;
 import org.geotoolkit.display.canvas.AbstractCanvas2D;
 import org.geotoolkit.geometry.jts.JTS;
+import org.geotoolkit.internal.referencing.CRSUtilities;
+import org.opengis.geometry.Envelope;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.referencing.operation.TransformException;
 
 /**
  *
@@ -61,6 +70,12 @@ public class StatelessContextParams<T extends MapLayer> {
     public Rectangle2D displayClipRect;
     public Polygon displayClip;
 
+    //generalization parameters, for the last data CRS
+    private boolean generalizeSet;
+    private CoordinateReferenceSystem generalizeCRS;
+    private double[] generalizeResolution;
+    private org.locationtech.jts.geom.Envelope generalizeClip;
+
     public StatelessContextParams(final AbstractCanvas2D canvas, final T layer){
         this.canvas = canvas;
         this.layer = layer;
@@ -97,6 +112,76 @@ public class StatelessContextParams<T extends MapLayer> {
                 displayClipRect.getWidth()+2*CLIP_PIXEL_MARGIN,
                 displayClipRect.getHeight()+2*CLIP_PIXEL_MARGIN);
         displayClip = JTS.toGeometry(context.getCanvasDisplayBounds());
+
+        synchronized (this) {
+            generalizeSet = false;
+        }
+    }
+
+    /**
+     * Returns the size of a display pixel in the given data CRS. Geometries are
+     * generalized at this resolution before their projection.
+     *
+     * @param dataCRS geometries CRS, null if they are in objective CRS
+     * @return pixel size in data CRS, null if geometries should not be generalized
+     */
+    public synchronized double[] getGeneralizeResolution(final CoordinateReferenceSystem dataCRS) {
+        updateGeneralize(dataCRS);
+        return generalizeResolution;
+    }
+
+    /**
+     * Returns the painted area in the given data CRS, with a margin of {@link #CLIP_PIXEL_MARGIN}.
+     * Geometries are clipped to this area before their projection.
+     *
+     * @param dataCRS geometries CRS, null if they are in objective CRS
+     * @return clip area in data CRS, null if geometries should not be clipped
+     */
+    public synchronized org.locationtech.jts.geom.Envelope getGeneralizeClip(final CoordinateReferenceSystem dataCRS) {
+        updateGeneralize(dataCRS);
+        return generalizeClip;
+    }
+
+    private void updateGeneralize(final CoordinateReferenceSystem dataCRS) {
+        if (generalizeSet && generalizeCRS == dataCRS) {
+            return;
+        }
+        generalizeSet = true;
+        generalizeCRS = dataCRS;
+        generalizeResolution = null;
+        generalizeClip = null;
+
+        final RenderingHints hints = context.getRenderingHints();
+        if (hints != null && Boolean.FALSE.equals(hints.get(GO2Hints.KEY_GENERALIZE))) {
+            return;
+        }
+        final double[] res = (dataCRS == null) ? context.getResolution() : context.getResolution(dataCRS);
+        if (!(res[0] > 0 && res[1] > 0 && res[0] < Double.POSITIVE_INFINITY && res[1] < Double.POSITIVE_INFINITY)) {
+            return;
+        }
+        generalizeResolution = res;
+
+        //clipping is not possible when geometries are repeated on wrap around
+        if (context.wraps != null) {
+            return;
+        }
+        try {
+            Envelope env = context.getCanvasObjectiveBounds2D();
+            if (dataCRS != null) {
+                final CoordinateReferenceSystem crs2d = CRSUtilities.getCRS2D(dataCRS);
+                if (!Utilities.equalsIgnoreMetadata(crs2d, env.getCoordinateReferenceSystem())) {
+                    env = Envelopes.transform(env, crs2d);
+                }
+            }
+            final org.locationtech.jts.geom.Envelope clip = new org.locationtech.jts.geom.Envelope(
+                    env.getMinimum(0), env.getMaximum(0), env.getMinimum(1), env.getMaximum(1));
+            clip.expandBy(res[0] * CLIP_PIXEL_MARGIN, res[1] * CLIP_PIXEL_MARGIN);
+            if (Double.isFinite(clip.getWidth()) && Double.isFinite(clip.getHeight())) {
+                generalizeClip = clip;
+            }
+        } catch (TransformException ex) {
+            Logging.getLogger("org.geotoolkit.display2d.container.stateless").log(Level.FINE, ex.getMessage(), ex);
+        }
     }
 
 }
@@ -30,6 +30,14 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -64,6 +72,10 @@ import org.geotoolkit.display2d.primitive.ProjectedObject;
 import org.geotoolkit.display2d.primitive.SearchAreaJ2D;
 import org.geotoolkit.display2d.style.CachedRule;
 import org.geotoolkit.display2d.style.CachedSymbolizer;
+import org.geotoolkit.display2d.style.labeling.DefaultLabelRenderer;
+import org.geotoolkit.display2d.style.labeling.LabelDescriptor;
+import org.geotoolkit.display2d.style.labeling.LabelLayer;
+import org.geotoolkit.display2d.style.labeling.LabelRenderer;
 import org.geotoolkit.display2d.style.renderer.SymbolizerRenderer;
 import org.geotoolkit.display2d.style.renderer.SymbolizerRendererService;
 import org.geotoolkit.factory.Hints;
@@ -122,6 +134,26 @@ import org.opengis.style.TextSymbolizer;
  */
 public class StatelessFeatureLayerJ2D extends StatelessMapLayerJ2D<FeatureMapLayer> implements ChangeListener<ChangeEvent> {
 
+    /**
+     * Default number of threads used to render a layer when multithreading is enabled.
+     */
+    private static final int RENDERING_THREADS = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Number of features a rendering thread takes from the iterator at once.
+     */
+    private static final int BATCH_SIZE = 256;
+
+    private static final ExecutorService RENDERING_POOL = Executors.newCachedThreadPool(new ThreadFactory() {
+        private final AtomicInteger inc = new AtomicInteger();
+        @Override
+        public Thread newThread(Runnable r) {
+            final Thread t = new Thread(r, "FeatureRenderer-" + inc.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    });
+
     protected StorageListener.Weak weakSessionListener = new StorageListener.Weak(this);
 
     protected final StatelessContextParams params;
@@ -1112,17 +1144,29 @@ public class StatelessFeatureLayerJ2D extends StatelessMapLayerJ2D<FeatureMapLay
         if(monitor.stopRequested()) return false;
 
         //check if we have group symbolizers, if it's the case we must render by symbol order.
-        boolean symbolOrder = false;
+        boolean groupSymbolizer = false;
         for(CachedRule rule : rules){
             for(CachedSymbolizer symbolizer : rule.symbolizers()){
                 if(symbolizer.getRenderer().isGroupSymbolizer()){
-                    symbolOrder = true;
+                    groupSymbolizer = true;
                     break;
                 }
             }
         }
 
-        symbolOrder = symbolOrder || Boolean.TRUE.equals(canvas.getRenderingHint(GO2Hints.KEY_SYMBOL_RENDERING_ORDER));
+        final boolean symbolOrder = groupSymbolizer || Boolean.TRUE.equals(canvas.getRenderingHint(GO2Hints.KEY_SYMBOL_RENDERING_ORDER));
+
+        //group symbolizers need the complete collection, they can not be split between threads,
+        //threads do not preserve the symbol order either
+        if(!symbolOrder && Boolean.TRUE.equals(canvas.getRenderingHint(GO2Hints.KEY_MULTI_THREAD))){
+            try{
+                return renderInParallel(candidates, context, rules, params);
+            }catch(PortrayalException ex){
+                monitor.exceptionOccured(ex, Level.WARNING);
+            }
+            return false;
+        }
+
         if(symbolOrder){
             try{
                 return renderBySymbolOrder(candidates, context, rules, params);
@@ -1406,4 +1450,315 @@ public class StatelessFeatureLayerJ2D extends StatelessMapLayerJ2D<FeatureMapLay
         return ids.contains(id(candidate));
     }
 
+    /**
+     * Render features using several threads.
+     * Each thread takes batches of features from a shared iterator and renders them
+     * in its own buffered images, one for each symbolizer depth. Once all features
+     * are consumed, buffers are merged depth by depth so symbolizers keep their
+     * z-order, and labels collected by each thread are appended to the label renderer
+     * of the context.
+     * Cached rules evaluate their symbolizers lazily and keep image caches which
+     * are not thread safe, each worker thread renders with its own copy of the rules.
+     */
+    private boolean renderInParallel(final FeatureSet candidates,
+            final RenderingContext2D context, final CachedRule[] rules, final StatelessContextParams params)
+            throws PortrayalException {
+
+        final int elseRuleIndex = DefaultCachedRule.sortByElseRule(rules);
+
+        //number of buffers needed, text symbolizers at the end of the rules only produce labels
+        int depth = 1;
+        for(CachedRule cr : rules){
+            final CachedSymbolizer[] css = cr.symbolizers();
+            int len = css.length;
+            for(int k=css.length-1;k>=0;k--){
+                if(css[k].getSource() instanceof TextSymbolizer){
+                    len--;
+                }else{
+                    break;
+                }
+            }
+            depth = Math.max(depth, len);
+        }
+
+        final FeatureIterator iterator;
+        try {
+            iterator = getDetachedIterator(candidates);
+        } catch (DataStoreException ex) {
+            throw new PortrayalException(ex.getMessage(), ex);
+        }
+
+        Number nbWorker = (Number) canvas.getRenderingHint(GO2Hints.KEY_MULTI_THREAD_WORKERS);
+        if(nbWorker == null) nbWorker = RENDERING_THREADS;
+
+        final RenderingWorker[] workers = new RenderingWorker[Math.max(1, nbWorker.intValue())];
+        final List<Future<Boolean>> futures = new ArrayList<>(workers.length);
+        try{
+            //the calling thread uses the given rules, other workers their own copy, in the same order
+            final FeatureType expected = candidates.getType();
+            final List<Rule> sources = new ArrayList<>(rules.length);
+            for(CachedRule cr : rules){
+                sources.add(cr.getSource());
+            }
+            workers[0] = new RenderingWorker(iterator, context, rules, elseRuleIndex, depth, params);
+            for(int i=1;i<workers.length;i++){
+                workers[i] = new RenderingWorker(iterator, context, toCachedRules(sources, expected), elseRuleIndex, depth, params);
+            }
+        }catch(DataStoreException ex){
+            iterator.close();
+            throw new PortrayalException(ex.getMessage(), ex);
+        }
+
+        boolean dataRendered = false;
+        PortrayalException error = null;
+        try{
+            for(int i=1;i<workers.length;i++){
+                futures.add(RENDERING_POOL.submit(workers[i]));
+            }
+            //the calling thread also renders features
+            try{
+                dataRendered |= workers[0].call();
+            }catch(PortrayalException ex){
+                error = ex;
+            }
+        }finally{
+            //workers which did not start yet have nothing left to render
+            for(Future<Boolean> future : futures){
+                future.cancel(false);
+            }
+            for(Future<Boolean> future : futures){
+                try{
+                    dataRendered |= future.get();
+                }catch(CancellationException ex){
+                    //worker never started
+                }catch(InterruptedException ex){
+                    Thread.currentThread().interrupt();
+                    if(error == null) error = new PortrayalException(ex);
+                }catch(ExecutionException ex){
+                    if(error == null){
+                        final Throwable cause = ex.getCause();
+                        error = (cause instanceof PortrayalException) ? (PortrayalException) cause : new PortrayalException(cause);
+                    }
+                }
+            }
+            iterator.close();
+        }
+
+        //merge images, depth by depth --------------------------
+        context.switchToDisplayCRS();
+        final Graphics2D g = context.getGraphics();
+        g.setComposite(ALPHA_COMPOSITE_1F);
+        for(int k=0;k<depth;k++){
+            for(RenderingWorker worker : workers){
+                final BufferedImage img = worker.release(k);
+                if(img != null){
+                    g.drawImage(img, 0, 0, null);
+                    recycleBufferedImage(img);
+                }
+            }
+        }
+
+        //collect labels, in worker order --------------------------
+        final LabelRenderer labelRenderer = context.getLabelRenderer(true);
+        for(RenderingWorker worker : workers){
+            for(LabelLayer layer : worker.labels.layers){
+                if(layer.labels().isEmpty()) continue;
+                final LabelLayer target = labelRenderer.createLabelLayer();
+                labelRenderer.append(target);
+                for(LabelDescriptor label : layer.labels()){
+                    target.labels().add(label);
+                }
+            }
+        }
+
+        if(error != null) throw error;
+        return dataRendered;
+    }
+
+    /**
+     * Open an iterator on the features, features must be detached since
+     * they are rendered by a different thread than the one reading them.
+     */
+    private static FeatureIterator getDetachedIterator(final FeatureSet features) throws DataStoreException {
+        if (features instanceof FeatureCollection) {
+            return ((FeatureCollection)features).iterator(new Hints(HintsPending.FEATURE_DETACHED, Boolean.TRUE));
+        } else {
+            final Stream<Feature> stream = features.features(false);
+            final Iterator<Feature> i = stream.iterator();
+            return new FeatureIterator() {
+                @Override
+                public Feature next() throws FeatureStoreRuntimeException {
+                    return i.next();
+                }
+                @Override
+                public boolean hasNext() throws FeatureStoreRuntimeException {
+                    return i.hasNext();
+                }
+                @Override
+                public void close() {
+                    stream.close();
+                }
+            };
+        }
+    }
+
+    /**
+     * Renders batches of features taken from a shared iterator in its own buffers.
+     * Buffers are created with the first batch, the canvas context is not modified
+     * until all workers are done.
+     */
+    private static final class RenderingWorker implements Callable<Boolean> {
+
+        private final FeatureIterator iterator;
+        private final RenderingContext2D context;
+        private final CachedRule[] rules;
+        private final int elseRuleIndex;
+        private final int depth;
+        private final StatelessContextParams params;
+        private final BufferedLabelRenderer labels = new BufferedLabelRenderer();
+        private BufferedImage[] images;
+
+        RenderingWorker(FeatureIterator iterator, RenderingContext2D context,
+                CachedRule[] rules, int elseRuleIndex, int depth, StatelessContextParams params) {
+            this.iterator = iterator;
+            this.context = context;
+            this.rules = rules;
+            this.elseRuleIndex = elseRuleIndex;
+            this.depth = depth;
+            this.params = params;
+        }
+
+        @Override
+        public Boolean call() throws PortrayalException {
+            final CanvasMonitor monitor = context.getMonitor();
+
+            //do not allocate buffers if there is nothing left to render
+            final Feature[] batch = new Feature[BATCH_SIZE];
+            int nb = nextBatch(batch);
+            if(nb == 0) return false;
+
+            //prepare the buffers and contexts
+            final BufferedImage originalBuffer = (BufferedImage) context.getCanvas().getSnapShot();
+            final ColorModel cm = ColorModel.getRGBdefault();
+            final SampleModel sm = cm.createCompatibleSampleModel(originalBuffer.getWidth(), originalBuffer.getHeight());
+            final BufferedImage[] images = new BufferedImage[depth];
+            final RenderingContext2D[] ctxs = new RenderingContext2D[depth];
+            for(int k=0;k<depth;k++){
+                images[k] = createBufferedImage(cm, sm);
+                ctxs[k] = context.create((Graphics2D)images[k].getGraphics(), labels);
+            }
+            this.images = images;
+
+            final SymbolizerRenderer[][] renderers = new SymbolizerRenderer[rules.length][0];
+            for(int i=0;i<rules.length;i++){
+                final CachedSymbolizer[] css = rules[i].symbolizers();
+                renderers[i] = new SymbolizerRenderer[css.length];
+                for(int k=0;k<css.length;k++){
+                    if(css[k].getSource() instanceof TextSymbolizer){
+                        renderers[i][k] = css[k].getRenderer().createRenderer(css[k],ctxs[0]);
+                    }else{
+                        renderers[i][k] = css[k].getRenderer().createRenderer(css[k],ctxs[Math.min(k, depth-1)]);
+                    }
+                }
+            }
+
+            //projection parameters are not thread safe, each worker has its own
+            final StatelessContextParams workerParams = new StatelessContextParams(params.canvas, params.layer);
+            workerParams.update(context);
+            workerParams.objectiveJTSEnvelope = params.objectiveJTSEnvelope;
+            final ProjectedFeature projectedCandidate = new ProjectedFeature(workerParams);
+
+            boolean dataRendered = false;
+            try{
+                for(; nb>0; nb=nextBatch(batch)){
+                    for(int f=0;f<nb;f++){
+                        if(monitor.stopRequested()) return dataRendered;
+                        projectedCandidate.setCandidate(batch[f]);
+                        batch[f] = null;
+
+                        boolean painted = false;
+                        for(int i=0; i<elseRuleIndex; i++){
+                            final CachedRule rule = rules[i];
+                            final Filter ruleFilter = rule.getFilter();
+                            //test if the rule is valid for this feature
+                            if (ruleFilter == null || ruleFilter.evaluate(projectedCandidate.getCandidate())) {
+                                painted = true;
+                                for(SymbolizerRenderer renderer : renderers[i]){
+                                    dataRendered |= renderer.portray(projectedCandidate);
+                                }
+                            }
+                        }
+
+                        //paint with else rules
+                        if(!painted){
+                            for(int i=elseRuleIndex; i<rules.length; i++){
+                                final CachedRule rule = rules[i];
+                                final Filter ruleFilter = rule.getFilter();
+                                //test if the rule is valid for this feature
+                                if (ruleFilter == null || ruleFilter.evaluate(projectedCandidate.getCandidate())) {
+                                    for(SymbolizerRenderer renderer : renderers[i]){
+                                        dataRendered |= renderer.portray(projectedCandidate);
+                                    }
+                                }
+                            }
+                        }
+                    }
+                }
+            }finally{
+                for(int k=0;k<depth;k++){
+                    ctxs[k].getGraphics().dispose();
+                }
+            }
+            return dataRendered;
+        }
+
+        /**
+         * Fill the array with the next features of the shared iterator.
+         * @return number of features, 0 if iterator is exhausted
+         */
+        private int nextBatch(final Feature[] batch) {
+            int nb = 0;
+            synchronized(iterator){
+                while(nb < batch.length && iterator.hasNext()){
+                    batch[nb++] = iterator.next();
+                }
+            }
+            return nb;
+        }
+
+        /**
+         * @return buffer of given symbolizer depth, null if worker had nothing to render.
+         */
+        BufferedImage release(int k) {
+            if(images == null) return null;
+            final BufferedImage img = images[k];
+            images[k] = null;
+            return img;
+        }
+    }
+
+    /**
+     * Label renderer used by rendering threads, it only stores the label layers
+     * which are appended later to the label renderer of the canvas.
+     */
+    private static final class BufferedLabelRenderer extends DefaultLabelRenderer {
+
+        private final List<LabelLayer> layers = new ArrayList<>();
+
+        @Override
+        public void append(final LabelLayer layer) {
+            layers.add(layer);
+        }
+
+        @Override
+        public boolean portrayLabels() {
+            return false;
+        }
+
+        @Override
+        public void portrayImmidiately(final LabelLayer layer) {
+            layers.add(layer);
+        }
+    }
+
 }
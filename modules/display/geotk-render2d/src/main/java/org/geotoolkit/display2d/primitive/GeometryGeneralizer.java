@@ -0,0 +1,498 @@
+/*
+ *    Geotoolkit - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2018, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.display2d.primitive;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryCollection;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.LinearRing;
+import org.locationtech.jts.geom.MultiLineString;
+import org.locationtech.jts.geom.MultiPolygon;
+import org.locationtech.jts.geom.Polygon;
+
+/**
+ * Screen space generalization of data geometries, applied before their projection.
+ * <ul>
+ *   <li>Decimation : consecutive vertices falling in the same pixel of a grid
+ *       aligned on the data CRS origin are merged.</li>
+ *   <li>Clipping : parts of lines and polygons outside the view area are removed.</li>
+ * </ul>
+ * Decimation is made with the largest power of two resolution smaller than the
+ * display resolution, so results of a scale band are reused while zooming and
+ * panning. Decimated geometries are cached by source geometry instance and scale band.
+ *
+ * @module
+ */
+final class GeometryGeneralizer {
+
+    /**
+     * Geometries with less points are not generalized.
+     */
+    static final int MIN_POINTS = 64;
+
+    /**
+     * Maximum number of points of the cached decimated geometries.
+     */
+    private static final long CACHE_CAPACITY = 1 << 20;
+
+    /**
+     * Identifier of a decimated geometry, source geometries are compared by identity.
+     */
+    private static final class Key {
+        private final WeakReference<Geometry> source;
+        private final int hash;
+        private final int bandX;
+        private final int bandY;
+
+        Key(final Geometry source, final int bandX, final int bandY) {
+            this.source = new WeakReference<>(source);
+            this.hash   = System.identityHashCode(source) + 31 * (bandX + 31 * bandY);
+            this.bandX  = bandX;
+            this.bandY  = bandY;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (obj == this) return true;
+            if (obj instanceof Key) {
+                final Key other = (Key) obj;
+                final Geometry geom = source.get();
+                return geom != null && bandX == other.bandX && bandY == other.bandY && geom == other.source.get();
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Decimated geometries in least recently used order, released source geometries
+     * are removed when the cache is full.
+     */
+    private static final LinkedHashMap<Key,Geometry> CACHE = new LinkedHashMap<>(16, 0.75f, true);
+    private static long cacheSize;
+
+    private GeometryGeneralizer() {
+    }
+
+    /**
+     * Merge vertices falling in the same pixel.
+     *
+     * @param geom geometry to decimate, in data CRS
+     * @param resX pixel width in data CRS
+     * @param resY pixel height in data CRS
+     * @return decimated geometry, may be the given geometry
+     */
+    static Geometry decimate(final Geometry geom, final double resX, final double resY) {
+        final int bandX = Math.getExponent(resX);
+        final int bandY = Math.getExponent(resY);
+        final Key key = new Key(geom, bandX, bandY);
+        synchronized (CACHE) {
+            final Geometry cached = CACHE.get(key);
+            if (cached != null) return cached;
+        }
+
+        final Geometry result = new Decimator(Math.scalb(1.0, bandX), Math.scalb(1.0, bandY), geom.getFactory()).decimate(geom);
+
+        synchronized (CACHE) {
+            final long points = result.getNumPoints();
+            if (points <= CACHE_CAPACITY && CACHE.put(key, result) == null) {
+                cacheSize += points;
+                final Iterator<Map.Entry<Key,Geometry>> ite = CACHE.entrySet().iterator();
+                while (cacheSize > CACHE_CAPACITY && ite.hasNext()) {
+                    cacheSize -= ite.next().getValue().getNumPoints();
+                    ite.remove();
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Remove parts of lines and polygons outside the clip area.
+     * Polygon rings are clipped with Sutherland-Hodgman algorithm, border segments
+     * created by the clipping are on the clip bounds, which should be outside the view.
+     *
+     * @param geom geometry to clip, in data CRS
+     * @param clip clip area, in data CRS
+     * @return clipped geometry, may be empty
+     */
+    static Geometry clip(final Geometry geom, final Envelope clip) {
+        final Envelope env = geom.getEnvelopeInternal();
+        if (clip.contains(env)) {
+            return geom;
+        }
+        final GeometryFactory gf = geom.getFactory();
+        if (!clip.intersects(env)) {
+            return gf.createGeometryCollection(new Geometry[0]);
+        }
+        if (geom instanceof LineString) {
+            final List<LineString> parts = new ArrayList<>();
+            clipLine((LineString) geom, clip, parts);
+            return (parts.size() == 1) ? parts.get(0) : gf.createMultiLineString(parts.toArray(new LineString[parts.size()]));
+        } else if (geom instanceof Polygon) {
+            final Polygon poly = clipPolygon((Polygon) geom, clip);
+            return (poly != null) ? poly : gf.createPolygon((LinearRing) null);
+        } else if (geom instanceof MultiLineString) {
+            final List<LineString> parts = new ArrayList<>();
+            for (int i = 0, n = geom.getNumGeometries(); i < n; i++) {
+                clipLine((LineString) geom.getGeometryN(i), clip, parts);
+            }
+            return gf.createMultiLineString(parts.toArray(new LineString[parts.size()]));
+        } else if (geom instanceof MultiPolygon) {
+            final List<Polygon> parts = new ArrayList<>();
+            for (int i = 0, n = geom.getNumGeometries(); i < n; i++) {
+                final Polygon poly = clipPolygon((Polygon) geom.getGeometryN(i), clip);
+                if (poly != null) parts.add(poly);
+            }
+            return gf.createMultiPolygon(parts.toArray(new Polygon[parts.size()]));
+        } else if (geom instanceof GeometryCollection && geom.getClass() == GeometryCollection.class) {
+            final List<Geometry> parts = new ArrayList<>();
+            for (int i = 0, n = geom.getNumGeometries(); i < n; i++) {
+                final Geometry part = clip(geom.getGeometryN(i), clip);
+                if (!part.isEmpty()) parts.add(part);
+            }
+            return gf.createGeometryCollection(parts.toArray(new Geometry[parts.size()]));
+        }
+        //-- points are not clipped, their symbols may be larger than the clip margin
+        return geom;
+    }
+
+    /**
+     * Append the parts of the line inside the clip area.
+     */
+    private static void clipLine(final LineString line, final Envelope clip, final List<LineString> parts) {
+        final Envelope env = line.getEnvelopeInternal();
+        if (clip.contains(env)) {
+            parts.add(line);
+            return;
+        } else if (!clip.intersects(env)) {
+            return;
+        }
+        final CoordinateSequence cs = line.getCoordinateSequence();
+        final Ordinates part = new Ordinates(64);
+        final double[] seg = new double[4];
+        for (int i = 1, n = cs.size(); i < n; i++) {
+            seg[0] = cs.getX(i-1);
+            seg[1] = cs.getY(i-1);
+            seg[2] = cs.getX(i);
+            seg[3] = cs.getY(i);
+            final boolean startClipped = clipSegment(seg, clip);
+            if (Double.isNaN(seg[0])) {
+                //-- segment outside
+                part.flush(line.getFactory(), parts);
+                continue;
+            }
+            if (startClipped) {
+                part.flush(line.getFactory(), parts);
+            }
+            if (part.size == 0) {
+                part.add(seg[0], seg[1]);
+            }
+            part.add(seg[2], seg[3]);
+            if (seg[2] != cs.getX(i) || seg[3] != cs.getY(i)) {
+                //-- segment end clipped, line leaves the clip area
+                part.flush(line.getFactory(), parts);
+            }
+        }
+        part.flush(line.getFactory(), parts);
+    }
+
+    /**
+     * Clip segment (x1,y1,x2,y2) with Liang-Barsky algorithm.
+     * Segment ordinates are set to NaN if it is outside the clip area.
+     *
+     * @return true if segment start has been moved
+     */
+    private static boolean clipSegment(final double[] seg, final Envelope clip) {
+        final double x1 = seg[0], y1 = seg[1];
+        final double dx = seg[2] - x1, dy = seg[3] - y1;
+        final double[] p = {-dx, dx, -dy, dy};
+        final double[] q = {x1 - clip.getMinX(), clip.getMaxX() - x1, y1 - clip.getMinY(), clip.getMaxY() - y1};
+        double t0 = 0, t1 = 1;
+        for (int i = 0; i < 4; i++) {
+            if (p[i] == 0) {
+                if (q[i] < 0) {
+                    Arrays.fill(seg, Double.NaN);
+                    return false;
+                }
+            } else {
+                final double t = q[i] / p[i];
+                if (p[i] < 0) {
+                    if (t > t1) { Arrays.fill(seg, Double.NaN); return false; }
+                    if (t > t0) t0 = t;
+                } else {
+                    if (t < t0) { Arrays.fill(seg, Double.NaN); return false; }
+                    if (t < t1) t1 = t;
+                }
+            }
+        }
+        if (t1 < 1) {
+            seg[2] = x1 + t1 * dx;
+            seg[3] = y1 + t1 * dy;
+        }
+        if (t0 > 0) {
+            seg[0] = x1 + t0 * dx;
+            seg[1] = y1 + t0 * dy;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return clipped polygon, null if outside the clip area
+     */
+    private static Polygon clipPolygon(final Polygon poly, final Envelope clip) {
+        final Envelope env = poly.getEnvelopeInternal();
+        if (clip.contains(env)) {
+            return poly;
+        } else if (!clip.intersects(env)) {
+            return null;
+        }
+        final GeometryFactory gf = poly.getFactory();
+        final LinearRing exterior = clipRing((LinearRing) poly.getExteriorRing(), clip);
+        if (exterior == null) {
+            return null;
+        }
+        final List<LinearRing> holes = new ArrayList<>();
+        for (int i = 0, n = poly.getNumInteriorRing(); i < n; i++) {
+            final LinearRing hole = clipRing((LinearRing) poly.getInteriorRingN(i), clip);
+            if (hole != null) holes.add(hole);
+        }
+        return gf.createPolygon(exterior, holes.toArray(new LinearRing[holes.size()]));
+    }
+
+    /**
+     * Clip a ring with Sutherland-Hodgman algorithm.
+     *
+     * @return clipped ring, null if outside the clip area
+     */
+    private static LinearRing clipRing(final LinearRing ring, final Envelope clip) {
+        final Envelope env = ring.getEnvelopeInternal();
+        if (clip.contains(env)) {
+            return ring;
+        } else if (!clip.intersects(env)) {
+            return null;
+        }
+        final CoordinateSequence cs = ring.getCoordinateSequence();
+        //-- ring without its closing point
+        Ordinates current = new Ordinates(cs.size());
+        for (int i = 0, n = cs.size() - 1; i < n; i++) {
+            current.add(cs.getX(i), cs.getY(i));
+        }
+        Ordinates next = new Ordinates(cs.size());
+        for (int edge = 0; edge < 4 && current.size > 0; edge++) {
+            next.size = 0;
+            final double limit;
+            final int axis;
+            final boolean min;
+            switch (edge) {
+                case 0:  limit = clip.getMinX(); axis = 0; min = true;  break;
+                case 1:  limit = clip.getMaxX(); axis = 0; min = false; break;
+                case 2:  limit = clip.getMinY(); axis = 1; min = true;  break;
+                default: limit = clip.getMaxY(); axis = 1; min = false; break;
+            }
+            final double[] o = current.ordinates;
+            final int n = current.size;
+            double px = o[2*(n-1)], py = o[2*(n-1)+1];
+            boolean pin = inside(px, py, axis, limit, min);
+            for (int i = 0; i < n; i++) {
+                final double x = o[2*i], y = o[2*i+1];
+                final boolean in = inside(x, y, axis, limit, min);
+                if (in != pin) {
+                    //-- edge crossing
+                    if (axis == 0) {
+                        next.add(limit, py + (y - py) * (limit - px) / (x - px));
+                    } else {
+                        next.add(px + (x - px) * (limit - py) / (y - py), limit);
+                    }
+                }
+                if (in) next.add(x, y);
+                px = x; py = y; pin = in;
+            }
+            final Ordinates tmp = current;
+            current = next;
+            next = tmp;
+        }
+        if (current.size < 3) {
+            return null;
+        }
+        //-- close ring
+        current.add(current.ordinates[0], current.ordinates[1]);
+        return ring.getFactory().createLinearRing(current.toSequence(ring.getFactory()));
+    }
+
+    private static boolean inside(final double x, final double y, final int axis, final double limit, final boolean min) {
+        final double v = (axis == 0) ? x : y;
+        return min ? v >= limit : v <= limit;
+    }
+
+    /**
+     * Growable array of 2D ordinates.
+     */
+    private static final class Ordinates {
+        double[] ordinates;
+        int size;
+
+        Ordinates(final int capacity) {
+            ordinates = new double[Math.max(8, capacity * 2)];
+        }
+
+        void add(final double x, final double y) {
+            if (2*size + 2 > ordinates.length) {
+                ordinates = Arrays.copyOf(ordinates, ordinates.length * 2);
+            }
+            ordinates[2*size]   = x;
+            ordinates[2*size+1] = y;
+            size++;
+        }
+
+        CoordinateSequence toSequence(final GeometryFactory gf) {
+            final CoordinateSequence cs = gf.getCoordinateSequenceFactory().create(size, 2);
+            for (int i = 0; i < size; i++) {
+                cs.setOrdinate(i, 0, ordinates[2*i]);
+                cs.setOrdinate(i, 1, ordinates[2*i+1]);
+            }
+            return cs;
+        }
+
+        /**
+         * Add a line made of current ordinates and clear them.
+         */
+        void flush(final GeometryFactory gf, final List<LineString> parts) {
+            if (size >= 2) {
+                parts.add(gf.createLineString(toSequence(gf)));
+            }
+            size = 0;
+        }
+    }
+
+    /**
+     * Pixel snapping decimation of a geometry.
+     */
+    private static final class Decimator {
+
+        private final double resX;
+        private final double resY;
+        private final GeometryFactory gf;
+        private int[] kept = new int[64];
+
+        Decimator(final double resX, final double resY, final GeometryFactory gf) {
+            this.resX = resX;
+            this.resY = resY;
+            this.gf   = gf;
+        }
+
+        Geometry decimate(final Geometry geom) {
+            if (geom instanceof LinearRing) {
+                return decimate((LinearRing) geom);
+            } else if (geom instanceof LineString) {
+                final CoordinateSequence cs = decimate(((LineString) geom).getCoordinateSequence(), 2);
+                return (cs == null) ? geom : gf.createLineString(cs);
+            } else if (geom instanceof Polygon) {
+                final Polygon poly = (Polygon) geom;
+                final LinearRing exterior = decimate((LinearRing) poly.getExteriorRing());
+                final List<LinearRing> holes = new ArrayList<>();
+                for (int i = 0, n = poly.getNumInteriorRing(); i < n; i++) {
+                    final LinearRing hole = (LinearRing) poly.getInteriorRingN(i);
+                    //-- holes smaller than a pixel are removed
+                    final Envelope env = hole.getEnvelopeInternal();
+                    if (env.getWidth() >= resX || env.getHeight() >= resY) {
+                        holes.add(decimate(hole));
+                    }
+                }
+                return gf.createPolygon(exterior, holes.toArray(new LinearRing[holes.size()]));
+            } else if (geom instanceof MultiLineString) {
+                final LineString[] parts = new LineString[geom.getNumGeometries()];
+                for (int i = 0; i < parts.length; i++) parts[i] = (LineString) decimate(geom.getGeometryN(i));
+                return gf.createMultiLineString(parts);
+            } else if (geom instanceof MultiPolygon) {
+                final Polygon[] parts = new Polygon[geom.getNumGeometries()];
+                for (int i = 0; i < parts.length; i++) parts[i] = (Polygon) decimate(geom.getGeometryN(i));
+                return gf.createMultiPolygon(parts);
+            } else if (geom instanceof GeometryCollection && geom.getClass() == GeometryCollection.class) {
+                final Geometry[] parts = new Geometry[geom.getNumGeometries()];
+                for (int i = 0; i < parts.length; i++) parts[i] = decimate(geom.getGeometryN(i));
+                return gf.createGeometryCollection(parts);
+            }
+            //-- points are used as is
+            return geom;
+        }
+
+        private LinearRing decimate(final LinearRing ring) {
+            final CoordinateSequence cs = decimate(ring.getCoordinateSequence(), 4);
+            return (cs == null) ? ring : gf.createLinearRing(cs);
+        }
+
+        /**
+         * A vertex is kept if it is not in the same pixel as the previous kept vertex.
+         * Last vertex is always kept, replacing the previous one if they are in the same pixel.
+         *
+         * @param minPoints minimum number of points of the result
+         * @return decimated sequence, null if no vertex has been removed
+         */
+        private CoordinateSequence decimate(final CoordinateSequence cs, final int minPoints) {
+            final int size = cs.size();
+            if (size <= minPoints) return null;
+            if (kept.length < size) kept = new int[size];
+
+            int n = 1;
+            kept[0] = 0;
+            double cellX = Math.floor(cs.getX(0) / resX);
+            double cellY = Math.floor(cs.getY(0) / resY);
+            for (int i = 1; i < size - 1; i++) {
+                final double cx = Math.floor(cs.getX(i) / resX);
+                final double cy = Math.floor(cs.getY(i) / resY);
+                if (cx != cellX || cy != cellY) {
+                    kept[n++] = i;
+                    cellX = cx;
+                    cellY = cy;
+                }
+            }
+            final int last = size - 1;
+            if (n > 1 && Math.floor(cs.getX(last) / resX) == cellX && Math.floor(cs.getY(last) / resY) == cellY) {
+                kept[n-1] = last;
+            } else {
+                kept[n++] = last;
+            }
+            if (n == size) return null;
+
+            //-- ensure we have the minimum number of points, repeating the last one
+            final int length = Math.max(n, minPoints);
+            final CoordinateSequence result = gf.getCoordinateSequenceFactory().create(length, 2);
+            for (int i = 0; i < length; i++) {
+                final int index = (i < n - 1) ? kept[i] : last;
+                result.setOrdinate(i, 0, cs.getX(index));
+                result.setOrdinate(i, 1, cs.getY(index));
+            }
+            return result;
+        }
+    }
+}
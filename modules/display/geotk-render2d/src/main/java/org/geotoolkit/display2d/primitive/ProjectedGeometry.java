@@ -69,6 +69,10 @@ public class ProjectedGeometry  {
 
     private boolean geomSet = false;
 
+    //objective geometries are clipped to the painted area when generalized
+    private boolean clipToView = true;
+    private boolean objectiveClipped = false;
+
     private CoordinateReferenceSystem dataCRS = null;
 
     public ProjectedGeometry(final StatelessContextParams params){
@@ -82,9 +86,14 @@ public class ProjectedGeometry  {
         this.dataGeometryJTS        = copy.dataGeometryJTS;
         this.dataGeometryISO        = copy.dataGeometryISO;
         this.dataShape              = copy.dataShape;
-        this.objectiveGeometryJTS   = copy.objectiveGeometryJTS;
-        this.objectiveGeometryISO   = copy.objectiveGeometryISO;
-        this.objectiveShape         = copy.objectiveShape;
+        this.dataCRS                = copy.dataCRS;
+        //copies are used for labels, which must be placed on the complete geometry
+        this.clipToView             = false;
+        if(!copy.objectiveClipped){
+            this.objectiveGeometryJTS   = copy.objectiveGeometryJTS;
+            this.objectiveGeometryISO   = copy.objectiveGeometryISO;
+            this.objectiveShape         = copy.objectiveShape;
+        }
         this.displayGeometryJTS     = null;
         this.displayGeometryISO     = null;
         this.displayShape           = null;
@@ -140,6 +149,7 @@ public class ProjectedGeometry  {
         objectiveGeometryISO = null;
         objectiveGeometryJTS = null;
         objectiveShape = null;
+        objectiveClipped = false;
     }
 
     public void clearDisplayCache(){
@@ -175,14 +185,12 @@ public class ProjectedGeometry  {
 
             objectiveGeometryJTS = new org.locationtech.jts.geom.Geometry[1];
 
-            org.locationtech.jts.geom.Geometry objBase;
-            if(dataToObjective == null){
-                //we assume data and objective are in the same crs
-                objBase = dataGeometryJTS;
-            }else{
+            org.locationtech.jts.geom.Geometry objBase = getGeneralizedGeometryJTS();
+            if(dataToObjective != null){
                 final GeometryCSTransformer transformer = new GeometryCSTransformer(new CoordinateSequenceMathTransformer(dataToObjective));
-                objBase = transformer.transform(getDataGeometryJTS());
+                objBase = transformer.transform(objBase);
             }
+            //else we assume data and objective are in the same crs
 
 
             if(params.context.wraps != null){
@@ -260,6 +268,36 @@ public class ProjectedGeometry  {
         return objectiveGeometryJTS;
     }
 
+    /**
+     * Get the data geometry generalized at the display resolution : vertices in the same
+     * pixel are merged and parts outside of the painted area are removed.
+     * Small geometries are returned unchanged.
+     *
+     * @return JTS Geometry in data CRS
+     */
+    private org.locationtech.jts.geom.Geometry getGeneralizedGeometryJTS() {
+        org.locationtech.jts.geom.Geometry geom = dataGeometryJTS;
+        if(params.context == null || geom.getNumPoints() < GeometryGeneralizer.MIN_POINTS){
+            return geom;
+        }
+        //data CRS is unknown when data is already in objective CRS
+        final CoordinateReferenceSystem crs = (dataToObjective == null) ? null : dataCRS;
+        final double[] res = params.getGeneralizeResolution(crs);
+        if(res == null){
+            return geom;
+        }
+        geom = GeometryGeneralizer.decimate(geom, res[0], res[1]);
+
+        if(clipToView){
+            final Envelope clip = params.getGeneralizeClip(crs);
+            if(clip != null && !clip.contains(geom.getEnvelopeInternal())){
+                geom = GeometryGeneralizer.clip(geom, clip);
+                objectiveClipped = true;
+            }
+        }
+        return geom;
+    }
+
     /**
      * Get a JTS representation of the geometry in display CRS.
      *
@@ -0,0 +1,340 @@
+/*
+ *    Geotoolkit - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2018, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.display2d.style.labeling.candidate;
+
+import java.awt.Shape;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+import org.apache.sis.util.ArgumentChecks;
+
+/**
+ * Collision index of placed label candidates, in display space.<br>
+ * Candidates are stored in a uniform grid, a new candidate is only compared
+ * with candidates sharing a grid cell, exact test is made by
+ * {@link LabelingUtilities#intersects(org.geotoolkit.display2d.style.labeling.candidate.Candidate, org.geotoolkit.display2d.style.labeling.candidate.Candidate) }.
+ * <br>
+ * Insertions may be made concurrently from several rendering threads, cells are
+ * guarded by a fixed set of locks so that insertions in distinct areas do not block each other.
+ *
+ * @module
+ */
+public class LabelCollisionIndex {
+
+    /**
+     * Default grid cell size, in pixels.
+     */
+    public static final int DEFAULT_CELL_SIZE = 64;
+
+    /**
+     * Number of locks guarding cells, must be a power of 2.
+     */
+    private static final int NB_LOCKS = 64;
+
+    /**
+     * Candidates covering more cells are stored in a separate list checked by all insertions.
+     */
+    private static final int MAX_CELLS = 256;
+
+    private final int cellSize;
+    private final ReentrantLock[] locks = new ReentrantLock[NB_LOCKS];
+    private final Map<Long,List<Candidate>> cells = new ConcurrentHashMap<>();
+    private final List<Candidate> large = new ArrayList<>();
+    private final Queue<Candidate> placed = new ConcurrentLinkedQueue<>();
+
+    public LabelCollisionIndex() {
+        this(DEFAULT_CELL_SIZE);
+    }
+
+    /**
+     * @param cellSize grid cell size in pixels, should be close to the usual label size.
+     */
+    public LabelCollisionIndex(final int cellSize) {
+        ArgumentChecks.ensureStrictlyPositive("cellSize", cellSize);
+        this.cellSize = cellSize;
+        for (int i=0; i<NB_LOCKS; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Place candidate if it does not intersect any candidate already placed.
+     * Test and insertion are atomic.
+     *
+     * @param candidate label candidate
+     * @return true if candidate has been placed, false if it collides with a placed candidate.
+     */
+    public boolean add(final Candidate candidate) {
+        ArgumentChecks.ensureNonNull("candidate", candidate);
+        final Rectangle2D bounds = getDisplayBounds(candidate);
+        if (bounds == null) {
+            //no extent, can not collide
+            placed.add(candidate);
+            return true;
+        }
+
+        final int minX = cell(bounds.getMinX());
+        final int maxX = cell(bounds.getMaxX());
+        final int minY = cell(bounds.getMinY());
+        final int maxY = cell(bounds.getMaxY());
+        final boolean isLarge = ((long)maxX-minX+1) * ((long)maxY-minY+1) > MAX_CELLS;
+
+        final boolean[] used = lockedStripes(minX, maxX, minY, maxY, isLarge);
+        lock(used);
+        try {
+            if (intersects(candidate, minX, maxX, minY, maxY, isLarge)) {
+                return false;
+            }
+            if (isLarge) {
+                large.add(candidate);
+            } else {
+                for (int x=minX; x<=maxX; x++) {
+                    for (int y=minY; y<=maxY; y++) {
+                        cells.computeIfAbsent(key(x, y), (Long k) -> new ArrayList<>()).add(candidate);
+                    }
+                }
+            }
+            placed.add(candidate);
+            return true;
+        } finally {
+            unlock(used);
+        }
+    }
+
+    /**
+     * Place candidates by decreasing priority, then by display position.
+     * Candidates with the same priority and position are placed in the collection order.
+     *
+     * @param candidates label candidates
+     * @return number of placed candidates
+     */
+    public int addAll(final Collection<? extends Candidate> candidates) {
+        final List<Ordered> sorted = new ArrayList<>(candidates.size());
+        for (Candidate c : candidates) {
+            sorted.add(new Ordered(c, sorted.size()));
+        }
+        Collections.sort(sorted);
+        int nb = 0;
+        for (Ordered o : sorted) {
+            if (add(o.candidate)) nb++;
+        }
+        return nb;
+    }
+
+    /**
+     * Test if candidate intersects a placed candidate.
+     *
+     * @param candidate label candidate
+     * @return true if candidate collides with a placed candidate.
+     */
+    public boolean intersects(final Candidate candidate) {
+        final Rectangle2D bounds = getDisplayBounds(candidate);
+        if (bounds == null) return false;
+        final int minX = cell(bounds.getMinX());
+        final int maxX = cell(bounds.getMaxX());
+        final int minY = cell(bounds.getMinY());
+        final int maxY = cell(bounds.getMaxY());
+        final boolean isLarge = ((long)maxX-minX+1) * ((long)maxY-minY+1) > MAX_CELLS;
+        final boolean[] used = lockedStripes(minX, maxX, minY, maxY, isLarge);
+        lock(used);
+        try {
+            return intersects(candidate, minX, maxX, minY, maxY, isLarge);
+        } finally {
+            unlock(used);
+        }
+    }
+
+    /**
+     * @return placed candidates, in placement order.
+     */
+    public List<Candidate> getCandidates() {
+        return new ArrayList<>(placed);
+    }
+
+    /**
+     * @return number of placed candidates.
+     */
+    public int size() {
+        return placed.size();
+    }
+
+    /**
+     * Remove all candidates.
+     */
+    public void clear() {
+        final boolean[] all = new boolean[NB_LOCKS];
+        Arrays.fill(all, true);
+        lock(all);
+        try {
+            cells.clear();
+            large.clear();
+            placed.clear();
+        } finally {
+            unlock(all);
+        }
+    }
+
+    /**
+     * Must be called with cell locks acquired.
+     */
+    private boolean intersects(final Candidate candidate, final int minX, final int maxX,
+            final int minY, final int maxY, final boolean isLarge) {
+        for (Candidate c : large) {
+            if (LabelingUtilities.intersects(candidate, c)) return true;
+        }
+        if (isLarge) {
+            //large candidate, check all cells
+            for (List<Candidate> lst : cells.values()) {
+                for (Candidate c : lst) {
+                    if (LabelingUtilities.intersects(candidate, c)) return true;
+                }
+            }
+            return false;
+        }
+        for (int x=minX; x<=maxX; x++) {
+            for (int y=minY; y<=maxY; y++) {
+                final List<Candidate> lst = cells.get(key(x, y));
+                if (lst == null) continue;
+                for (Candidate c : lst) {
+                    if (LabelingUtilities.intersects(candidate, c)) return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Locks needed to access cells in given range, large candidates need all locks.
+     */
+    private static boolean[] lockedStripes(final int minX, final int maxX, final int minY, final int maxY, final boolean isLarge) {
+        final boolean[] used = new boolean[NB_LOCKS];
+        if (isLarge) {
+            Arrays.fill(used, true);
+        } else {
+            for (int x=minX; x<=maxX; x++) {
+                for (int y=minY; y<=maxY; y++) {
+                    used[stripe(x, y)] = true;
+                }
+            }
+        }
+        return used;
+    }
+
+    /**
+     * Locks are always acquired in the same order to avoid dead locks.
+     */
+    private void lock(final boolean[] used) {
+        for (int i=0; i<NB_LOCKS; i++) {
+            if (used[i]) locks[i].lock();
+        }
+    }
+
+    private void unlock(final boolean[] used) {
+        for (int i=NB_LOCKS-1; i>=0; i--) {
+            if (used[i]) locks[i].unlock();
+        }
+    }
+
+    private int cell(final double v) {
+        return (int) Math.floor(v / cellSize);
+    }
+
+    private static long key(final int x, final int y) {
+        return (((long) x) << 32) | (y & 0xFFFFFFFFL);
+    }
+
+    private static int stripe(final int x, final int y) {
+        return (x * 31 + y) & (NB_LOCKS - 1);
+    }
+
+    /**
+     * Candidate placement order : decreasing priority, then x, then y and
+     * finally the sequence number to obtain a total order.
+     */
+    private static final class Ordered implements Comparable<Ordered> {
+
+        private final Candidate candidate;
+        private final int priority;
+        private final double x;
+        private final double y;
+        private final int sequence;
+
+        private Ordered(final Candidate candidate, final int sequence) {
+            this.candidate = candidate;
+            this.priority = candidate.getPriority();
+            this.sequence = sequence;
+            final Rectangle2D bounds = getDisplayBounds(candidate);
+            if (bounds == null) {
+                x = Double.POSITIVE_INFINITY;
+                y = Double.POSITIVE_INFINITY;
+            } else {
+                x = bounds.getMinX();
+                y = bounds.getMinY();
+            }
+        }
+
+        @Override
+        public int compareTo(final Ordered o) {
+            int c = Integer.compare(o.priority, priority);
+            if (c == 0) c = Double.compare(x, o.x);
+            if (c == 0) c = Double.compare(y, o.y);
+            if (c == 0) c = Integer.compare(sequence, o.sequence);
+            return c;
+        }
+    }
+
+    /**
+     * Compute candidate bounds in display space, including label rotation.
+     *
+     * @return candidate bounds or null if candidate has no extent.
+     */
+    static Rectangle2D getDisplayBounds(final Candidate candidate) {
+        if (candidate instanceof PointCandidate) {
+            final PointCandidate pc = (PointCandidate) candidate;
+            final double ox = pc.getCorrectedX();
+            final double oy = pc.getCorrectedY();
+            final double height = pc.upper + pc.lower;
+            final double angle = Math.toRadians(pc.getDescriptor().getRotation());
+            final double cos = Math.cos(angle);
+            final double sin = Math.sin(angle);
+            double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+            double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+            for (int i=0; i<4; i++) {
+                final double lx = ((i & 1) == 0) ? 0 : pc.width;
+                final double ly = (((i & 2) == 0) ? 0 : height) - pc.upper;
+                final double x = ox + lx*cos - ly*sin;
+                final double y = oy + lx*sin + ly*cos;
+                minX = Math.min(minX, x); maxX = Math.max(maxX, x);
+                minY = Math.min(minY, y); maxY = Math.max(maxY, y);
+            }
+            return new Rectangle2D.Double(minX, minY, maxX-minX, maxY-minY);
+        } else if (candidate instanceof LinearCandidate) {
+            final Shape shape = ((LinearCandidate) candidate).getShape();
+            return (shape == null) ? null : shape.getBounds2D();
+        }
+        return null;
+    }
+
+}
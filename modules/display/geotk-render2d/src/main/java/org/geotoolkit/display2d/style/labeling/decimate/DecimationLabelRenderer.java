@@ -20,8 +20,6 @@ import java.awt.Graphics2D;
 import java.awt.RenderingHints;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.SortedSet;
-import java.util.TreeSet;
 import org.geotoolkit.display2d.canvas.RenderingContext2D;
 import org.geotoolkit.display2d.style.labeling.DefaultLabelRenderer;
 import org.geotoolkit.display2d.style.labeling.LabelDescriptor;
@@ -29,6 +27,7 @@ import org.geotoolkit.display2d.style.labeling.LabelLayer;
 import org.geotoolkit.display2d.style.labeling.LinearLabelDescriptor;
 import org.geotoolkit.display2d.style.labeling.PointLabelDescriptor;
 import org.geotoolkit.display2d.style.labeling.candidate.Candidate;
+import org.geotoolkit.display2d.style.labeling.candidate.LabelCollisionIndex;
 import org.geotoolkit.display2d.style.labeling.candidate.LabelingUtilities;
 import org.geotoolkit.display2d.style.labeling.candidate.LinearCandidate;
 import org.geotoolkit.display2d.style.labeling.candidate.PointCandidate;
@@ -42,7 +41,10 @@ import org.geotoolkit.display2d.style.labeling.candidate.PointCandidate;
  */
 public class DecimationLabelRenderer extends DefaultLabelRenderer{
 
-    private final SortedSet<Candidate> candidates = new TreeSet<Candidate>(LabelingUtilities.XY_COMPARATOR);
+    /**
+     * Placed candidates, layers may add labels concurrently.
+     */
+    private final LabelCollisionIndex candidates = new LabelCollisionIndex();
 
     private final List<LabelLayer> layers = new ArrayList<LabelLayer>();
 
@@ -93,7 +95,8 @@ public class DecimationLabelRenderer extends DefaultLabelRenderer{
         g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 
         //paint the remaining candidates
-        for(Candidate candidate : candidates){
+        final List<Candidate> placed = candidates.getCandidates();
+        for(Candidate candidate : placed){
             if(candidate instanceof PointCandidate){
                 pointRenderer.render(candidate);
             }else if(candidate instanceof LinearCandidate){
@@ -102,7 +105,7 @@ public class DecimationLabelRenderer extends DefaultLabelRenderer{
         }
 
         layers.clear();
-        return !candidates.isEmpty();
+        return !placed.isEmpty();
     }
 
     private List<Candidate> optimize(List<Candidate> candidates){
@@ -123,21 +126,14 @@ public class DecimationLabelRenderer extends DefaultLabelRenderer{
                     for(Candidate c : pcs){
                         final PointCandidate pc = (PointCandidate) c;
                         pc.setPriority(1);
-                        synchronized(candidates){
-                            if(!LabelingUtilities.intersects(pc,candidates)){
-                                candidates.add(pc);
-                            }else{
-                            }
-                        }
+                        candidates.add(pc);
                     }
                 }else if(label instanceof LinearLabelDescriptor){
                     final Candidate[] lcs = LinearRenderer.generateCandidat((LinearLabelDescriptor) label);
                     for(Candidate c : lcs){
                         final LinearCandidate lc = (LinearCandidate) c;
                         lc.setPriority(1);
-                        synchronized(candidates){
-                            candidates.add(lc);
-                        }
+                        candidates.add(lc);
                     }
                 }
                 return true;
@@ -0,0 +1,172 @@
+/*
+ *    Geotoolkit - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2018, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.display2d.container.stateless;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.sis.feature.builder.AttributeRole;
+import org.apache.sis.feature.builder.FeatureTypeBuilder;
+import org.apache.sis.geometry.GeneralEnvelope;
+import org.apache.sis.referencing.CommonCRS;
+import org.geotoolkit.data.FeatureCollection;
+import org.geotoolkit.data.FeatureStoreUtilities;
+import org.geotoolkit.display2d.GO2Hints;
+import org.geotoolkit.display2d.service.CanvasDef;
+import org.geotoolkit.display2d.service.DefaultPortrayalService;
+import org.geotoolkit.display2d.service.SceneDef;
+import org.geotoolkit.display2d.service.ViewDef;
+import org.geotoolkit.factory.Hints;
+import org.geotoolkit.filter.DefaultFilterFactory2;
+import org.geotoolkit.map.MapBuilder;
+import org.geotoolkit.map.MapContext;
+import org.geotoolkit.style.DefaultStyleFactory;
+import org.geotoolkit.style.StyleConstants;
+import org.junit.Assert;
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Point;
+import org.opengis.feature.Feature;
+import org.opengis.feature.FeatureType;
+import org.opengis.filter.FilterFactory2;
+import org.opengis.style.GraphicalSymbol;
+import org.opengis.style.PointSymbolizer;
+import org.opengis.style.Symbolizer;
+
+/**
+ * Test features rendering with {@link GO2Hints#KEY_MULTI_THREAD} enabled.
+ *
+ * @module
+ */
+public class MultiThreadRenderingTest extends org.geotoolkit.test.TestBase {
+
+    private static final GeometryFactory GF = new GeometryFactory();
+    private static final DefaultStyleFactory SF = new DefaultStyleFactory();
+    private static final FilterFactory2 FF = new DefaultFilterFactory2();
+
+    /**
+     * Multi thread rendering must produce the same image as the single thread
+     * rendering in symbol order.
+     */
+    @Test
+    public void testSameAsSymbolOrder() throws Exception {
+        final MapContext context = createContext();
+
+        final GeneralEnvelope env = new GeneralEnvelope(CommonCRS.WGS84.normalizedGeographic());
+        env.setRange(0, -180, +180);
+        env.setRange(1, -90, +90);
+
+        Hints hints = new Hints();
+        hints.put(GO2Hints.KEY_MULTI_THREAD, GO2Hints.MULTI_THREAD_OFF);
+        hints.put(GO2Hints.KEY_SYMBOL_RENDERING_ORDER, GO2Hints.SYMBOL_RENDERING_PRIME);
+        final BufferedImage expected = DefaultPortrayalService.portray(
+                new CanvasDef(new Dimension(400, 200), Color.WHITE),
+                new SceneDef(context, hints),
+                new ViewDef(env));
+
+        hints = new Hints();
+        hints.put(GO2Hints.KEY_MULTI_THREAD, GO2Hints.MULTI_THREAD_ON);
+        hints.put(GO2Hints.KEY_MULTI_THREAD_WORKERS, 4);
+        final BufferedImage result = DefaultPortrayalService.portray(
+                new CanvasDef(new Dimension(400, 200), Color.WHITE),
+                new SceneDef(context, hints),
+                new ViewDef(env));
+
+        int nbRed = 0;
+        for (int y = 0; y < 200; y++) {
+            for (int x = 0; x < 400; x++) {
+                final Color e = new Color(expected.getRGB(x, y), true);
+                final Color r = new Color(result.getRGB(x, y), true);
+                Assert.assertEquals(e.getRed(), r.getRed(), 2);
+                Assert.assertEquals(e.getGreen(), r.getGreen(), 2);
+                Assert.assertEquals(e.getBlue(), r.getBlue(), 2);
+                if (r.getRGB() == Color.RED.getRGB()) nbRed++;
+            }
+        }
+        //small red squares must be painted over the black ones
+        Assert.assertTrue(nbRed > 800);
+    }
+
+    /**
+     * The symbol rendering order hint has priority over multi thread rendering.
+     */
+    @Test
+    public void testSymbolOrderFallback() throws Exception {
+        final MapContext context = createContext();
+
+        final GeneralEnvelope env = new GeneralEnvelope(CommonCRS.WGS84.normalizedGeographic());
+        env.setRange(0, -180, +180);
+        env.setRange(1, -90, +90);
+
+        Hints hints = new Hints();
+        hints.put(GO2Hints.KEY_MULTI_THREAD, GO2Hints.MULTI_THREAD_OFF);
+        hints.put(GO2Hints.KEY_SYMBOL_RENDERING_ORDER, GO2Hints.SYMBOL_RENDERING_PRIME);
+        final BufferedImage expected = DefaultPortrayalService.portray(
+                new CanvasDef(new Dimension(400, 200), Color.WHITE),
+                new SceneDef(context, hints),
+                new ViewDef(env));
+
+        hints = new Hints();
+        hints.put(GO2Hints.KEY_MULTI_THREAD, GO2Hints.MULTI_THREAD_ON);
+        hints.put(GO2Hints.KEY_MULTI_THREAD_WORKERS, 4);
+        hints.put(GO2Hints.KEY_SYMBOL_RENDERING_ORDER, GO2Hints.SYMBOL_RENDERING_PRIME);
+        final BufferedImage result = DefaultPortrayalService.portray(
+                new CanvasDef(new Dimension(400, 200), Color.WHITE),
+                new SceneDef(context, hints),
+                new ViewDef(env));
+
+        for (int y = 0; y < 200; y++) {
+            for (int x = 0; x < 400; x++) {
+                Assert.assertEquals(expected.getRGB(x, y), result.getRGB(x, y));
+            }
+        }
+    }
+
+    /**
+     * A grid of 800 points, black squares under red squares.
+     */
+    private static MapContext createContext() {
+        final FeatureTypeBuilder ftb = new FeatureTypeBuilder();
+        ftb.setName("test");
+        ftb.addAttribute(Point.class).setName("geom").setCRS(CommonCRS.WGS84.normalizedGeographic()).addRole(AttributeRole.DEFAULT_GEOMETRY);
+        final FeatureType type = ftb.build();
+
+        final List<Feature> features = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            for (int j = 0; j < 20; j++) {
+                final Feature feature = type.newInstance();
+                feature.setPropertyValue("geom", GF.createPoint(new Coordinate(-175.5 + 9 * i, -85.5 + 9 * j)));
+                features.add(feature);
+            }
+        }
+        final FeatureCollection col = FeatureStoreUtilities.collection(type, features);
+
+        final MapContext context = MapBuilder.createContext();
+        context.layers().add(MapBuilder.createFeatureLayer(col, SF.style(new Symbolizer[]{square(Color.BLACK, 8), square(Color.RED, 4)})));
+        return context;
+    }
+
+    private static PointSymbolizer square(Color color, int size) {
+        final List<GraphicalSymbol> symbols = new ArrayList<>();
+        symbols.add(SF.mark(StyleConstants.MARK_SQUARE, SF.fill(color), SF.stroke(color, 0)));
+        return SF.pointSymbolizer(SF.graphic(symbols, StyleConstants.LITERAL_ONE_FLOAT,
+                FF.literal(size), StyleConstants.LITERAL_ZERO_FLOAT, null, null), null);
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ *    Geotoolkit - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2018, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.display2d.primitive;
+
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.MultiLineString;
+import org.locationtech.jts.geom.Polygon;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test screen space generalization of geometries.
+ *
+ * @module
+ */
+public class GeometryGeneralizerTest extends org.geotoolkit.test.TestBase {
+
+    private static final double DELTA = 0.0000000001;
+
+    private static final GeometryFactory GF = new GeometryFactory();
+
+    private static Polygon circle(final int nbPoints, final double radius) {
+        final Coordinate[] coords = new Coordinate[nbPoints + 1];
+        for (int i = 0; i < nbPoints; i++) {
+            final double angle = 2 * Math.PI * i / nbPoints;
+            coords[i] = new Coordinate(radius * Math.cos(angle), radius * Math.sin(angle));
+        }
+        coords[nbPoints] = coords[0];
+        return GF.createPolygon(coords);
+    }
+
+    @Test
+    public void decimateTest() {
+        final Polygon circle = circle(100000, 100);
+        final Geometry result = GeometryGeneralizer.decimate(circle, 1, 1);
+        assertTrue(result instanceof Polygon);
+        assertTrue(result.getNumPoints() < 2000);
+        assertTrue(result.isValid());
+        //shape must not move more than a pixel
+        assertEquals(circle.getArea(), result.getArea(), 2 * Math.PI * 100 * 1);
+        final Envelope env = result.getEnvelopeInternal();
+        assertEquals(-100, env.getMinX(), 1);
+        assertEquals( 100, env.getMaxX(), 1);
+
+        //result is cached for the scale band
+        assertSame(result, GeometryGeneralizer.decimate(circle, 1.5, 1.5));
+        assertNotSame(result, GeometryGeneralizer.decimate(circle, 2.5, 2.5));
+
+        //sub pixel geometry keeps a valid ring
+        final Geometry dot = GeometryGeneralizer.decimate(circle, 1000, 1000);
+        assertTrue(dot instanceof Polygon);
+        assertTrue(dot.getNumPoints() >= 4);
+    }
+
+    @Test
+    public void clipLineTest() {
+        final LineString line = GF.createLineString(new Coordinate[]{
+            new Coordinate(-20, 5),
+            new Coordinate( 20, 5),
+            new Coordinate( 20, 50),
+            new Coordinate(  5, 50),
+            new Coordinate(  5, -5)
+        });
+        final Geometry result = GeometryGeneralizer.clip(line, new Envelope(0, 10, 0, 10));
+        assertTrue(result instanceof MultiLineString);
+        assertEquals(2, result.getNumGeometries());
+        assertTrue(GF.createLineString(new Coordinate[]{
+            new Coordinate( 0, 5),
+            new Coordinate(10, 5)}).equalsExact(result.getGeometryN(0), DELTA));
+        assertTrue(GF.createLineString(new Coordinate[]{
+            new Coordinate(5, 10),
+            new Coordinate(5, 0)}).equalsExact(result.getGeometryN(1), DELTA));
+    }
+
+    @Test
+    public void clipPolygonTest() {
+        final Polygon circle = circle(1000, 100);
+        final Envelope clip = new Envelope(-10, 10, -10, 10);
+        Geometry result = GeometryGeneralizer.clip(circle, clip);
+        assertTrue(result instanceof Polygon);
+        assertEquals(400, result.getArea(), DELTA);
+        assertTrue(clip.contains(result.getEnvelopeInternal()));
+
+        //partial overlap
+        result = GeometryGeneralizer.clip(circle, new Envelope(90, 200, -10, 10));
+        assertEquals(circle.intersection(GF.toGeometry(new Envelope(90, 200, -10, 10))).getArea(), result.getArea(), 0.01);
+
+        //outside
+        result = GeometryGeneralizer.clip(circle, new Envelope(200, 300, 200, 300));
+        assertTrue(result.isEmpty());
+    }
+}
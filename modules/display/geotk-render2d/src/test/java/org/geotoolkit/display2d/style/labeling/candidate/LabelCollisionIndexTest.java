@@ -0,0 +1,151 @@
+/*
+ *    Geotoolkit - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2018, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.display2d.style.labeling.candidate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.geotoolkit.display2d.style.labeling.DefaultPointLabelDescriptor;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test {@link LabelCollisionIndex}.
+ *
+ * @module
+ */
+public class LabelCollisionIndexTest extends org.geotoolkit.test.TestBase {
+
+    private static PointCandidate candidate(final float x, final float y, final int width, final float rotation) {
+        final DefaultPointLabelDescriptor desc = new DefaultPointLabelDescriptor(
+                "label", null, null, 0, null, 0, 0, 0, 0, rotation, null, null);
+        return new PointCandidate(desc, width, 10, 3, x, y);
+    }
+
+    private static List<PointCandidate> createCandidates(final Random random, final int nb) {
+        final List<PointCandidate> candidates = new ArrayList<>(nb);
+        for (int i=0; i<nb; i++) {
+            final float rotation = random.nextBoolean() ? 0 : random.nextFloat() * 360;
+            candidates.add(candidate(random.nextFloat() * 1000, random.nextFloat() * 1000,
+                    10 + random.nextInt(80), rotation));
+        }
+        return candidates;
+    }
+
+    @Test
+    public void overlapTest() {
+        final LabelCollisionIndex index = new LabelCollisionIndex();
+        assertTrue(index.add(candidate(100, 100, 50, 0)));
+        assertFalse(index.add(candidate(120, 105, 50, 0)));
+        assertTrue(index.add(candidate(200, 100, 50, 0)));
+        //rotated label crossing the first one
+        assertFalse(index.add(candidate(125, 60, 80, 90)));
+        //large label spanning many cells
+        assertFalse(index.add(candidate(-2000, 100, 20000, 0)));
+        assertTrue(index.add(candidate(-2000, 400, 20000, 0)));
+        assertFalse(index.intersects(candidate(500, 800, 20, 0)));
+        assertTrue(index.intersects(candidate(500, 405, 20, 0)));
+        assertEquals(3, index.size());
+
+        index.clear();
+        assertEquals(0, index.size());
+        assertTrue(index.add(candidate(120, 105, 50, 0)));
+    }
+
+    /**
+     * Index should place exactly the same candidates than a brute force scan.
+     */
+    @Test
+    public void bruteForceTest() {
+        final List<PointCandidate> candidates = createCandidates(new Random(7), 2000);
+        final LabelCollisionIndex index = new LabelCollisionIndex(32);
+        final List<Candidate> expected = new ArrayList<>();
+        for (PointCandidate c : candidates) {
+            final boolean free = !LabelingUtilities.intersects(c, expected);
+            if (free) expected.add(c);
+            assertEquals(free, index.add(c));
+        }
+        assertEquals(expected.size(), index.size());
+    }
+
+    /**
+     * Placed candidates should never overlap when inserted from several threads.
+     */
+    @Test
+    public void concurrentTest() throws Exception {
+        final List<PointCandidate> candidates = createCandidates(new Random(9), 4000);
+        final LabelCollisionIndex index = new LabelCollisionIndex();
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t=0; t<4; t++) {
+                final List<PointCandidate> part = candidates.subList(t * 1000, (t + 1) * 1000);
+                futures.add(executor.submit(() -> {
+                    for (PointCandidate c : part) index.add(c);
+                }));
+            }
+            for (Future<?> f : futures) f.get();
+        } finally {
+            executor.shutdown();
+        }
+
+        final List<Candidate> placed = index.getCandidates();
+        assertTrue(placed.size() > 0);
+        for (int i=0; i<placed.size(); i++) {
+            for (int j=i+1; j<placed.size(); j++) {
+                assertFalse(LabelingUtilities.intersects(placed.get(i), placed.get(j)));
+            }
+        }
+        //all rejected candidates collide with a placed one
+        for (PointCandidate c : candidates) {
+            assertTrue(LabelingUtilities.intersects(c, placed) || placed.contains(c));
+        }
+    }
+
+    /**
+     * Higher priority candidates are placed first.
+     */
+    @Test
+    public void priorityTest() {
+        final PointCandidate low = candidate(100, 100, 50, 0);
+        final PointCandidate high = candidate(110, 102, 50, 0);
+        high.setPriority(5);
+        final LabelCollisionIndex index = new LabelCollisionIndex();
+        assertEquals(1, index.addAll(Arrays.asList(low, high)));
+        assertSame(high, index.getCandidates().get(0));
+    }
+
+    /**
+     * Equal priority candidates are placed by position, then in collection order,
+     * placed candidates are returned in placement order.
+     */
+    @Test
+    public void placementOrderTest() {
+        final PointCandidate right = candidate(300, 100, 50, 0);
+        final PointCandidate left = candidate(100, 100, 50, 0);
+        final PointCandidate first = candidate(500, 100, 50, 0);
+        final PointCandidate same = candidate(500, 100, 50, 0);
+        final LabelCollisionIndex index = new LabelCollisionIndex();
+        assertEquals(3, index.addAll(Arrays.asList(right, first, left, same)));
+        assertEquals(Arrays.asList(left, right, first), index.getCandidates());
+    }
+}
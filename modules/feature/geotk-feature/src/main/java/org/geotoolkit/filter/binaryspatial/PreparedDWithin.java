@@ -0,0 +1,173 @@
+/*
+ *    Geotoolkit - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2018, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.filter.binaryspatial;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import javax.measure.Unit;
+import org.apache.sis.measure.Units;
+import org.apache.sis.referencing.CRS;
+import org.apache.sis.util.Utilities;
+import org.geotoolkit.geometry.jts.JTS;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.opengis.filter.expression.Expression;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.referencing.operation.MathTransform;
+import org.opengis.referencing.operation.TransformException;
+import org.opengis.util.FactoryException;
+
+/**
+ * "dwithin" filter with a geometry literal operand.<br>
+ * The CRS used for distance computation is resolved once for each CRS of evaluated geometries,
+ * with the same rules as {@link AbstractBinarySpatialOperator#toSameCRS(org.locationtech.jts.geom.Geometry, org.locationtech.jts.geom.Geometry, javax.measure.Unit) },
+ * the literal and the converted distance are cached with it.
+ *
+ * @module
+ */
+public class PreparedDWithin extends DefaultDWithin {
+
+    /**
+     * Literal and distance expressed in the CRS used for distance computation.
+     */
+    private static final class Plan {
+        /**
+         * Transform to apply on evaluated geometries, null if they do not need to be reprojected.
+         */
+        private final MathTransform transform;
+        private final Geometry geometry;
+        private final Envelope envelope;
+        private final double distance;
+
+        private Plan(final MathTransform transform, final Geometry geometry, final double distance) {
+            this.transform = transform;
+            this.geometry = geometry;
+            this.envelope = geometry.getEnvelopeInternal();
+            this.distance = distance;
+        }
+    }
+
+    private final PreparedGeometryLiteral literal;
+    private final Unit unit;
+    private final Map<CoordinateReferenceSystem,Plan> plans = new ConcurrentHashMap<>();
+    private volatile Plan undefinedPlan;
+
+    /**
+     * @throws IllegalArgumentException if none of the expressions is a geometry literal.
+     */
+    public PreparedDWithin(final Expression left, final Expression right, final double distance, final String unit) {
+        super(left,right,distance,unit);
+        this.literal = PreparedGeometryLiteral.create(left, right);
+        this.unit = toUnit(unit);
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public boolean evaluate(final Object object) {
+        final Geometry candidate = toGeometry(object, literal.isLeft() ? right : left);
+        if(candidate == null){
+            return false;
+        }
+
+        try {
+            final Plan plan = getPlan(JTS.findCoordinateReferenceSystem(candidate));
+            final Geometry geom = (plan.transform == null) ? candidate : JTS.transform(candidate, plan.transform);
+            if (plan.envelope.distance(geom.getEnvelopeInternal()) > plan.distance) {
+                return false;
+            }
+            return plan.geometry.isWithinDistance(geom, plan.distance);
+        } catch (FactoryException | TransformException ex) {
+            LOGGER.log(Level.WARNING, null, ex);
+            return false;
+        }
+    }
+
+    private Plan getPlan(final CoordinateReferenceSystem geomCRS) throws FactoryException, TransformException {
+        Plan plan = (geomCRS == null) ? undefinedPlan : plans.get(geomCRS);
+        if (plan == null) {
+            plan = createPlan(geomCRS);
+            if (geomCRS == null) {
+                undefinedPlan = plan;
+            } else {
+                plans.put(geomCRS, plan);
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * Resolve matching CRS as done by {@link AbstractBinarySpatialOperator#toSameCRS(org.locationtech.jts.geom.Geometry, org.locationtech.jts.geom.Geometry, javax.measure.Unit) }.
+     */
+    private Plan createPlan(final CoordinateReferenceSystem geomCRS) throws FactoryException, TransformException {
+        final PreparedGeometryLiteral.Projection same = literal.getProjection();
+        final CoordinateReferenceSystem literalCRS = JTS.findCoordinateReferenceSystem(same.geometry);
+
+        if (geomCRS == null && literalCRS == null) {
+            //both geometries do not have a defined CRS, we assume that both
+            //are in the same CRS and distance has a valid unit
+            return new Plan(null, same.geometry, getDistance());
+        }
+
+        final CoordinateReferenceSystem matchingCRS;
+        if (geomCRS == null || literalCRS == null || Utilities.equalsIgnoreMetadata(geomCRS, literalCRS)) {
+            final CoordinateReferenceSystem crs = (literalCRS == null) ? geomCRS : literalCRS;
+            matchingCRS = isCompatible(crs) ? crs : mercator();
+            if (matchingCRS == crs) {
+                return new Plan(null, same.geometry, toDistance(matchingCRS));
+            }
+            final MathTransform trs = CRS.findOperation(crs, matchingCRS, null).getMathTransform();
+            return new Plan(trs, JTS.transform(same.geometry, trs), toDistance(matchingCRS));
+        }
+
+        final CoordinateReferenceSystem leftCRS = literal.isLeft() ? literalCRS : geomCRS;
+        final CoordinateReferenceSystem rightCRS = literal.isLeft() ? geomCRS : literalCRS;
+        if (isCompatible(leftCRS)) {
+            matchingCRS = leftCRS;
+        } else if (isCompatible(rightCRS)) {
+            matchingCRS = rightCRS;
+        } else {
+            matchingCRS = mercator();
+        }
+
+        final MathTransform geomTrs = (matchingCRS == geomCRS) ? null
+                : CRS.findOperation(geomCRS, matchingCRS, null).getMathTransform();
+        final Geometry literalMatch = (matchingCRS == literalCRS) ? same.geometry
+                : JTS.transform(same.geometry, CRS.findOperation(literalCRS, matchingCRS, null).getMathTransform());
+        return new Plan(geomTrs, literalMatch, toDistance(matchingCRS));
+    }
+
+    private boolean isCompatible(final CoordinateReferenceSystem crs) {
+        return crs.getCoordinateSystem().getAxis(0).getUnit().isCompatible(unit);
+    }
+
+    private CoordinateReferenceSystem mercator() throws TransformException {
+        if (Units.METRE.isCompatible(unit)) {
+            //in that case we reproject to mercator EPSG:3395
+            return MERCATOR;
+        }
+        //we can not find a matching projection in this case
+        throw new TransformException("Could not find a matching CRS for both geometries for unit :" + unit);
+    }
+
+    private double toDistance(final CoordinateReferenceSystem crs) {
+        return unit.getConverterTo(crs.getCoordinateSystem().getAxis(0).getUnit()).convert(getDistance());
+    }
+
+}
@@ -0,0 +1,165 @@
+/*
+ *    Geotoolkit - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2018, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.filter.binaryspatial;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.sis.referencing.CRS;
+import org.apache.sis.util.Utilities;
+import org.geotoolkit.geometry.jts.JTS;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
+import org.opengis.filter.expression.Expression;
+import org.opengis.filter.expression.Literal;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.referencing.operation.MathTransform;
+import org.opengis.referencing.operation.TransformException;
+import org.opengis.util.FactoryException;
+
+/**
+ * Literal geometry operand of a binary spatial operator.<br>
+ * The literal is prepared once, and reprojected once for each CRS of evaluated geometries,
+ * following the rule of {@link AbstractBinarySpatialOperator#toSameCRS(org.locationtech.jts.geom.Geometry, org.locationtech.jts.geom.Geometry) } :
+ * the right operand is reprojected in the left operand CRS.
+ *
+ * @module
+ */
+public final class PreparedGeometryLiteral {
+
+    private static final PreparedGeometryFactory PREPARED_FACTORY = new PreparedGeometryFactory();
+
+    /**
+     * Literal geometry expressed in a given CRS.
+     */
+    static final class Projection {
+        final Geometry geometry;
+        final PreparedGeometry prepared;
+        final Envelope envelope;
+        /**
+         * Transform to apply on evaluated geometries, null if they do not need to be reprojected.
+         */
+        final MathTransform transform;
+
+        private Projection(final Geometry geometry, final PreparedGeometry prepared,
+                final MathTransform transform) {
+            this.geometry = geometry;
+            this.prepared = prepared;
+            this.envelope = geometry.getEnvelopeInternal();
+            this.transform = transform;
+        }
+
+        /**
+         * Express evaluated geometry in the same CRS as the literal.
+         */
+        Geometry toSameCRS(final Geometry geom) throws TransformException {
+            return (transform == null) ? geom : JTS.transform(geom, transform);
+        }
+    }
+
+    private final boolean literalIsLeft;
+    private final CoordinateReferenceSystem crs;
+    private final Projection same;
+    private final Map<CoordinateReferenceSystem,Projection> projections = new ConcurrentHashMap<>();
+
+    /**
+     * @param geometry literal geometry
+     * @param literalIsLeft true if literal is the left operand.
+     */
+    PreparedGeometryLiteral(final Geometry geometry, final boolean literalIsLeft) throws FactoryException {
+        this.literalIsLeft = literalIsLeft;
+        this.crs = JTS.findCoordinateReferenceSystem(geometry);
+        this.same = new Projection(geometry, PREPARED_FACTORY.create(geometry), null);
+    }
+
+    /**
+     * Prepare the geometry literal operand, right operand is used if both are literals.
+     *
+     * @param left operator left expression
+     * @param right operator right expression
+     * @throws IllegalArgumentException if none of the expressions is a geometry literal.
+     */
+    static PreparedGeometryLiteral create(final Expression left, final Expression right) {
+        final boolean isLeft = !isGeometryLiteral(right);
+        if (isLeft && !isGeometryLiteral(left)) {
+            throw new IllegalArgumentException("One of the operator expressions should be a geometry literal.");
+        }
+        try {
+            return new PreparedGeometryLiteral(toLiteralGeometry(isLeft ? left : right), isLeft);
+        } catch (FactoryException ex) {
+            throw new IllegalArgumentException(ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * @return true if literal is the left operand
+     */
+    boolean isLeft() {
+        return literalIsLeft;
+    }
+
+    /**
+     * Test if expression is a literal which can be converted to a geometry.
+     *
+     * @param exp tested expression
+     * @return true if expression is a geometry literal
+     */
+    public static boolean isGeometryLiteral(final Expression exp) {
+        return exp instanceof Literal && toLiteralGeometry(exp) != null;
+    }
+
+    static Geometry toLiteralGeometry(final Expression exp) {
+        return AbstractBinarySpatialOperator.toGeometry(null, exp);
+    }
+
+    /**
+     * @return literal geometry in its own CRS
+     */
+    Projection getProjection() {
+        return same;
+    }
+
+    /**
+     * Get literal geometry to compare with geometries in given CRS.
+     *
+     * @param geomCRS CRS of evaluated geometries, may be null
+     * @return literal projection, never null
+     */
+    Projection getProjection(final CoordinateReferenceSystem geomCRS) throws FactoryException, TransformException {
+        if (geomCRS == null || crs == null) {
+            //one or both geometries do not have a defined CRS, we assume both are in the same CRS
+            return same;
+        }
+        Projection projection = projections.get(geomCRS);
+        if (projection == null) {
+            if (Utilities.equalsIgnoreMetadata(crs, geomCRS)) {
+                projection = same;
+            } else if (literalIsLeft) {
+                //evaluated geometries are reprojected
+                projection = new Projection(same.geometry, same.prepared,
+                        CRS.findOperation(geomCRS, crs, null).getMathTransform());
+            } else {
+                //literal is reprojected
+                final Geometry geom = JTS.transform(same.geometry, CRS.findOperation(crs, geomCRS, null).getMathTransform());
+                projection = new Projection(geom, PREPARED_FACTORY.create(geom), null);
+            }
+            projections.put(geomCRS, projection);
+        }
+        return projection;
+    }
+}
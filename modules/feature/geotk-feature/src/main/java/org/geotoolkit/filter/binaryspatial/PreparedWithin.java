@@ -0,0 +1,76 @@
+/*
+ *    Geotoolkit - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2018, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.filter.binaryspatial;
+
+import java.util.logging.Level;
+import org.geotoolkit.geometry.jts.JTS;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.opengis.filter.expression.Expression;
+import org.opengis.referencing.operation.TransformException;
+import org.opengis.util.FactoryException;
+
+/**
+ * "within" filter with a geometry literal operand.<br>
+ * The literal is prepared once and reprojected once per evaluated geometry CRS,
+ * evaluation is rejected on envelopes before any topology test.
+ *
+ * @module
+ */
+public class PreparedWithin extends DefaultWithin {
+
+    private final PreparedGeometryLiteral literal;
+
+    /**
+     * @throws IllegalArgumentException if none of the expressions is a geometry literal.
+     */
+    public PreparedWithin(final Expression left, final Expression right) {
+        super(left,right);
+        literal = PreparedGeometryLiteral.create(left, right);
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public boolean evaluate(final Object object) {
+        final Geometry candidate = toGeometry(object, literal.isLeft() ? right : left);
+        if(candidate == null){
+            return false;
+        }
+
+        final PreparedGeometryLiteral.Projection projection;
+        final Geometry geom;
+        try {
+            projection = literal.getProjection(JTS.findCoordinateReferenceSystem(candidate));
+            geom = projection.toSameCRS(candidate);
+        } catch (FactoryException | TransformException ex) {
+            LOGGER.log(Level.WARNING, null, ex);
+            return false;
+        }
+
+        final Envelope env = geom.getEnvelopeInternal();
+        if (literal.isLeft()) {
+            //literal within geometry
+            return env.contains(projection.envelope) && projection.prepared.within(geom);
+        } else {
+            //geometry within literal
+            return projection.envelope.contains(env) && projection.prepared.contains(geom);
+        }
+    }
+
+}
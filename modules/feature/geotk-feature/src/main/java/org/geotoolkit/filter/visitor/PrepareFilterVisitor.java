@@ -18,12 +18,28 @@
 package org.geotoolkit.filter.visitor;
 
 import org.geotoolkit.filter.FilterUtilities;
+import org.geotoolkit.filter.binaryspatial.DefaultContains;
+import org.geotoolkit.filter.binaryspatial.DefaultDWithin;
+import org.geotoolkit.filter.binaryspatial.DefaultIntersect;
+import org.geotoolkit.filter.binaryspatial.DefaultWithin;
+import org.geotoolkit.filter.binaryspatial.PreparedContains;
+import org.geotoolkit.filter.binaryspatial.PreparedDWithin;
+import org.geotoolkit.filter.binaryspatial.PreparedGeometryLiteral;
+import org.geotoolkit.filter.binaryspatial.PreparedIntersect;
+import org.geotoolkit.filter.binaryspatial.PreparedWithin;
 import org.opengis.feature.FeatureType;
 import org.opengis.filter.expression.PropertyName;
+import org.opengis.filter.spatial.BinarySpatialOperator;
+import org.opengis.filter.spatial.Contains;
+import org.opengis.filter.spatial.DWithin;
+import org.opengis.filter.spatial.Intersects;
+import org.opengis.filter.spatial.Within;
 
 /**
  * Simplify and prepare the filter against a given target class.
  * All propertyName expression will be prepared against it.
+ * Spatial operators with a geometry literal are replaced by prepared operators
+ * which reuse the literal geometry between evaluations.
  *
  * @author Johann Sorel (Geomatys)
  */
@@ -42,4 +58,49 @@ public class PrepareFilterVisitor extends SimplifyingFilterVisitor{
         return FilterUtilities.prepare(expression, clazz, expectedType);
     }
 
+    @Override
+    public Object visit(final Contains filter, final Object extraData) {
+        final Object result = super.visit(filter, extraData);
+        if (result.getClass() == DefaultContains.class && hasGeometryLiteral((Contains) result)) {
+            final Contains f = (Contains) result;
+            return new PreparedContains(f.getExpression1(), f.getExpression2());
+        }
+        return result;
+    }
+
+    @Override
+    public Object visit(final DWithin filter, final Object extraData) {
+        final Object result = super.visit(filter, extraData);
+        if (result.getClass() == DefaultDWithin.class && hasGeometryLiteral((DWithin) result)) {
+            final DWithin f = (DWithin) result;
+            return new PreparedDWithin(f.getExpression1(), f.getExpression2(), f.getDistance(), f.getDistanceUnits());
+        }
+        return result;
+    }
+
+    @Override
+    public Object visit(final Intersects filter, final Object extraData) {
+        final Object result = super.visit(filter, extraData);
+        if (result.getClass() == DefaultIntersect.class && hasGeometryLiteral((Intersects) result)) {
+            final Intersects f = (Intersects) result;
+            return new PreparedIntersect(f.getExpression1(), f.getExpression2());
+        }
+        return result;
+    }
+
+    @Override
+    public Object visit(final Within filter, final Object extraData) {
+        final Object result = super.visit(filter, extraData);
+        if (result.getClass() == DefaultWithin.class && hasGeometryLiteral((Within) result)) {
+            final Within f = (Within) result;
+            return new PreparedWithin(f.getExpression1(), f.getExpression2());
+        }
+        return result;
+    }
+
+    private static boolean hasGeometryLiteral(final BinarySpatialOperator filter) {
+        return PreparedGeometryLiteral.isGeometryLiteral(filter.getExpression1())
+            || PreparedGeometryLiteral.isGeometryLiteral(filter.getExpression2());
+    }
+
 }
@@ -0,0 +1,130 @@
+/*
+ *    Geotoolkit - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2018, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.filter.binaryspatial;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.apache.sis.referencing.CommonCRS;
+import org.geotoolkit.filter.FilterUtilities;
+import org.geotoolkit.geometry.jts.JTS;
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.opengis.filter.Filter;
+import org.opengis.filter.expression.Expression;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+
+import static org.junit.Assert.*;
+import static org.geotoolkit.filter.FilterTestConstants.*;
+
+/**
+ * Test prepared spatial filters give the same results as default filters.
+ *
+ * @module
+ */
+public class PreparedSpatialTest extends org.geotoolkit.test.TestBase {
+
+    private static Geometry createGeometry(final Random random, final double size) {
+        final double x = random.nextDouble() * 40 - 20;
+        final double y = random.nextDouble() * 40 - 20;
+        if (random.nextInt(4) == 0) {
+            return GF.createPoint(new Coordinate(x, y));
+        }
+        final double w = random.nextDouble() * size;
+        final double h = random.nextDouble() * size;
+        return GF.createPolygon(new Coordinate[]{
+            new Coordinate(x, y),
+            new Coordinate(x + w, y),
+            new Coordinate(x + w / 2, y + h),
+            new Coordinate(x, y)});
+    }
+
+    private static List<Map<String,Object>> createCandidates(final Random random, final CoordinateReferenceSystem crs) {
+        final List<Map<String,Object>> candidates = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            final Geometry geom = createGeometry(random, 10);
+            if (crs != null) JTS.setCRS(geom, crs);
+            candidates.add(Collections.singletonMap("geom", geom));
+        }
+        return candidates;
+    }
+
+    private static Geometry createLiteral(final CoordinateReferenceSystem crs) {
+        final Geometry literal = GF.createPolygon(new Coordinate[]{
+            new Coordinate(-8, -5),
+            new Coordinate(8, -5),
+            new Coordinate(8, 6),
+            new Coordinate(-8, 6),
+            new Coordinate(-8, -5)});
+        if (crs != null) JTS.setCRS(literal, crs);
+        return literal;
+    }
+
+    private static List<Filter> createFilters(final Expression literal, final boolean withDistance) {
+        final List<Filter> filters = new ArrayList<>();
+        filters.add(FF.intersects(FF.property("geom"), literal));
+        filters.add(FF.intersects(literal, FF.property("geom")));
+        filters.add(FF.contains(FF.property("geom"), literal));
+        filters.add(FF.contains(literal, FF.property("geom")));
+        filters.add(FF.within(FF.property("geom"), literal));
+        filters.add(FF.within(literal, FF.property("geom")));
+        if (withDistance) {
+            filters.add(FF.dwithin(FF.property("geom"), literal, 3, "m"));
+            filters.add(FF.dwithin(literal, FF.property("geom"), 3, "m"));
+        }
+        return filters;
+    }
+
+    private static void compare(final List<Filter> filters, final List<Map<String,Object>> candidates) {
+        for (Filter filter : filters) {
+            final Filter prepared = FilterUtilities.prepare(filter, Map.class, null);
+            assertTrue(prepared.getClass().getSimpleName().startsWith("Prepared"));
+            for (Map<String,Object> candidate : candidates) {
+                assertEquals(filter.toString(), filter.evaluate(candidate), prepared.evaluate(candidate));
+            }
+        }
+    }
+
+    @Test
+    public void testWithoutCRS() {
+        final Random random = new Random(31);
+        compare(createFilters(FF.literal(createLiteral(null)), true), createCandidates(random, null));
+    }
+
+    /**
+     * Literal and evaluated geometries in different CRS, one of them is reprojected.
+     */
+    @Test
+    public void testReprojected() {
+        final Random random = new Random(47);
+        final List<Map<String,Object>> candidates = createCandidates(random, CommonCRS.WGS84.geographic());
+        compare(createFilters(FF.literal(createLiteral(CommonCRS.WGS84.normalizedGeographic())), false), candidates);
+        compare(createFilters(FF.literal(createLiteral(CommonCRS.WGS84.geographic())), false), candidates);
+    }
+
+    /**
+     * Filters without literal are not modified.
+     */
+    @Test
+    public void testNoLiteral() {
+        final Filter filter = FF.intersects(FF.property("geom"), FF.property("geom2"));
+        assertEquals(DefaultIntersect.class, FilterUtilities.prepare(filter, Map.class, null).getClass());
+    }
+}
@@ -18,6 +18,8 @@ package org.geotoolkit.index.tree;
 
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import org.apache.sis.util.ArgumentChecks;
 import org.apache.sis.util.Classes;
 import org.opengis.geometry.Envelope;
@@ -30,7 +32,8 @@ import org.apache.sis.util.Utilities;
 import static org.geotoolkit.internal.tree.TreeUtilities.*;
 
 /**
- * Create an abstract Tree.
+ * Create an abstract Tree.<br/>
+ * Searches may run concurrently, insertions, removals and flush are exclusive.
  *
  * @author Rémi Marechal       (Geomatys).
  * @author Martin Desruisseaux (Geomatys).
@@ -78,6 +81,11 @@ public abstract class AbstractTree<E> implements Tree<E> {
      */
     private Node root;
 
+    /**
+     * Shared by {@link #searchID(org.opengis.geometry.Envelope) } calls, exclusive for Tree modifications.
+     */
+    protected final ReadWriteLock lock = new ReentrantReadWriteLock();
+
     /**
      * Tree fundation implementation.
      *
@@ -102,17 +110,20 @@ public abstract class AbstractTree<E> implements Tree<E> {
      * {@inheritDoc}
      */
     @Override
-    public synchronized int[] searchID(final Envelope regionSearch) throws StoreIndexException {
+    public int[] searchID(final Envelope regionSearch) throws StoreIndexException {
         ArgumentChecks.ensureNonNull("Envelope regionSearch", regionSearch);
-        final Node root = getRoot();
-         final double[] regSearch = TreeUtilities.getCoords(regionSearch);
-        if (root != null && !root.isEmpty()) {
-            try {
+        final double[] regSearch = TreeUtilities.getCoords(regionSearch);
+        lock.readLock().lock();
+        try {
+            final Node root = getRoot();
+            if (root != null && !root.isEmpty()) {
                 return treeAccess.search(root.getNodeId(), regSearch);
-            } catch (IOException ex) {
-                throw new StoreIndexException(this.getClass().getName()+" impossible to find stored elements at "
-                        +Arrays.toString(regSearch)+" region search area.", ex);
             }
+        } catch (IOException ex) {
+            throw new StoreIndexException(this.getClass().getName()+" impossible to find stored elements at "
+                    +Arrays.toString(regSearch)+" region search area.", ex);
+        } finally {
+            lock.readLock().unlock();
         }
         return new int[0];
     }
@@ -131,7 +142,8 @@ public abstract class AbstractTree<E> implements Tree<E> {
      * {@inheritDoc}
      */
     @Override
-    public synchronized int insert(final E object) throws IllegalArgumentException , StoreIndexException{
+    public int insert(final E object) throws IllegalArgumentException , StoreIndexException{
+        lock.writeLock().lock();
         try {
             ArgumentChecks.ensureNonNull("insert : object", object);
             final Envelope env = treeEltMap.getEnvelope(object);
@@ -147,6 +159,8 @@ public abstract class AbstractTree<E> implements Tree<E> {
             return treeIdentifier - 1;
         } catch (IOException ex) {
             throw new StoreIndexException(ex);
+        } finally {
+            lock.writeLock().unlock();
         }
     }
 
@@ -154,6 +168,7 @@ public abstract class AbstractTree<E> implements Tree<E> {
      * {@inheritDoc}
      */
     public void insert(final int identifier, final double... coordinates) throws IllegalArgumentException, StoreIndexException {
+        lock.writeLock().lock();
         try {
             eltCompteur++;
             Node root = getRoot();
@@ -170,6 +185,8 @@ public abstract class AbstractTree<E> implements Tree<E> {
             }
         } catch (IOException ex) {
             throw new StoreIndexException(this.getClass().getName()+"Tree.insert(), impossible to add element.", ex);
+        } finally {
+            lock.writeLock().unlock();
         }
     }
 
@@ -426,7 +443,8 @@ public abstract class AbstractTree<E> implements Tree<E> {
      * {@inheritDoc }.
      */
     @Override
-    public synchronized boolean remove(final E object) throws StoreIndexException {
+    public boolean remove(final E object) throws StoreIndexException {
+        lock.writeLock().lock();
         try {
             ArgumentChecks.ensureNonNull("Object to remove", object);
             final Envelope env = treeEltMap.getEnvelope(object);
@@ -436,6 +454,8 @@ public abstract class AbstractTree<E> implements Tree<E> {
 
         } catch (IOException ex) {
             throw new StoreIndexException(ex);
+        } finally {
+            lock.writeLock().unlock();
         }
     }
 
@@ -447,7 +467,12 @@ public abstract class AbstractTree<E> implements Tree<E> {
             for (double d : coordinates)
                 if (Double.isNaN(d))
                     throw new IllegalArgumentException("coordinates contain at least one NAN value");
-            return remove(entry, coordinates);
+            lock.writeLock().lock();
+            try {
+                return remove(entry, coordinates);
+            } finally {
+                lock.writeLock().unlock();
+            }
     }
 
     /**
@@ -567,8 +592,13 @@ public abstract class AbstractTree<E> implements Tree<E> {
      * {@inheritDoc}
      */
     @Override
-    public synchronized void clear() throws StoreIndexException {
-        setRoot(null);
+    public void clear() throws StoreIndexException {
+        lock.writeLock().lock();
+        try {
+            setRoot(null);
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     /**
@@ -599,17 +629,23 @@ public abstract class AbstractTree<E> implements Tree<E> {
      */
     @Override
     public void close() throws IOException {
-        treeAccess.setTreeIdentifier(treeIdentifier);
-        treeAccess.setEltNumber(eltCompteur);
-        treeAccess.close();
-        treeEltMap.close();
+        lock.writeLock().lock();
+        try {
+            treeAccess.setTreeIdentifier(treeIdentifier);
+            treeAccess.setEltNumber(eltCompteur);
+            treeAccess.close();
+            treeEltMap.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     /**
      * {@inheritDoc }.
      */
     @Override
-    public synchronized void flush() throws StoreIndexException {
+    public void flush() throws StoreIndexException {
+        lock.writeLock().lock();
         try {
             treeAccess.setTreeIdentifier(treeIdentifier);
             treeAccess.setEltNumber(eltCompteur);
@@ -617,6 +653,8 @@ public abstract class AbstractTree<E> implements Tree<E> {
             treeEltMap.flush();
         } catch (IOException ex) {
             throw new StoreIndexException("FileBasicRTree : close(). Impossible to close TreeAccessFile.", ex);
+        } finally {
+            lock.writeLock().unlock();
         }
     }
 
@@ -0,0 +1,585 @@
+/*
+ *    Geotoolkit - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2018, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.index.tree;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import org.apache.sis.util.ArgumentChecks;
+import org.apache.sis.util.Utilities;
+import org.geotoolkit.index.tree.basic.SplitCase;
+import org.geotoolkit.internal.tree.TreeAccess;
+import org.geotoolkit.internal.tree.TreeAccessFile;
+import org.geotoolkit.internal.tree.TreeUtilities;
+import org.opengis.geometry.Envelope;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+
+import static org.geotoolkit.internal.tree.TreeUtilities.*;
+
+/**
+ * Build a {@link Tree} file from a large set of entries in one pass, also called bulk loading.<br/><br/>
+ *
+ * Entries are first stored in a temporary file, then sorted following the
+ * <a href = "http://en.wikipedia.org/wiki/Hilbert_curve">Hilbert curve</a> of their center
+ * with an external merge sort, so the entry number is not limited by memory.
+ * Sorted entries are finally written as fully packed leaf and internal {@link Node}s through
+ * a {@link TreeAccessFile}, without any Node split.<br/>
+ * It is much faster than successive {@link Tree#insert(java.lang.Object) } calls
+ * and Nodes are better ordered for search.<br/><br/>
+ *
+ * Built file can be open by {@link org.geotoolkit.index.tree.star.FileStarRTree} or
+ * {@link org.geotoolkit.index.tree.basic.FileBasicRTree} and supports later insertions and removals.<br/>
+ * Note : {@link org.geotoolkit.index.tree.hilbert.FileHilbertRTree} is not supported,
+ * its leaves own an additional cell level which can not be packed.
+ *
+ * @see TreeAccessFile
+ */
+public class TreeBuilder implements Closeable {
+
+    /**
+     * Default number of entries sorted in memory at once.
+     */
+    public static final int DEFAULT_RUN_SIZE = 1 << 18;
+
+    /**
+     * Hilbert curve order, in bits, for each of the two first dimensions.
+     */
+    private static final int HILBERT_ORDER = 16;
+
+    /**
+     * Temporary file stream buffer length.
+     */
+    private static final int DEFAULT_BUFFER_LENGTH = 65536;
+
+    private final Path output;
+    private final int magicNumber;
+    private final int maxElements;
+    private final SplitCase splitMade;
+    private final CoordinateReferenceSystem crs;
+    private final int boundLength;
+
+    /**
+     * Data extent, used to compute Hilbert values.
+     */
+    private final double[] extent;
+
+    /**
+     * Temporary file where entries are stored until {@link #build() }.
+     */
+    private final Path entryFile;
+    private DataOutputStream entryOutput;
+    private final List<Path> runFiles = new ArrayList<>();
+
+    private int runSize = DEFAULT_RUN_SIZE;
+    private int count;
+    private int maxIdentifier;
+    private boolean built;
+
+    /**
+     * Create a builder.
+     *
+     * @param output path of the tree file which will be built. If file exist it will be overwrite.
+     * @param magicNumber {@code Integer} single {@link Tree} code.
+     * @param maxElements maximum children value permit per Node.
+     * @param splitMade define how to split a {@link Node}, only use by {@link BasicRTree}, may be {@code null} for other tree.
+     * @param crs Tree {@link CoordinateReferenceSystem}.
+     * @throws IOException if temporary file can not be created.
+     */
+    protected TreeBuilder(final Path output, final int magicNumber, final int maxElements,
+            final SplitCase splitMade, final CoordinateReferenceSystem crs) throws IOException {
+        ArgumentChecks.ensureNonNull("output", output);
+        ArgumentChecks.ensureNonNull("crs", crs);
+        ArgumentChecks.ensureBetween("maxElements", 2, Integer.MAX_VALUE, maxElements);
+        this.output      = output;
+        this.magicNumber = magicNumber;
+        this.maxElements = maxElements;
+        this.splitMade   = splitMade;
+        this.crs         = crs;
+        this.boundLength = crs.getCoordinateSystem().getDimension() << 1;
+        this.extent      = new double[boundLength];
+        final int dim = boundLength >> 1;
+        Arrays.fill(extent, 0, dim, Double.POSITIVE_INFINITY);
+        Arrays.fill(extent, dim, boundLength, Double.NEGATIVE_INFINITY);
+
+        final Path parent = output.toAbsolutePath().getParent();
+        entryFile   = (parent == null) ? Files.createTempFile("tree", ".entries") : Files.createTempFile(parent, "tree", ".entries");
+        entryOutput = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(entryFile), DEFAULT_BUFFER_LENGTH));
+    }
+
+    /**
+     * Create a builder of a file which can be open by {@link org.geotoolkit.index.tree.star.FileStarRTree}.
+     *
+     * @param output path of the tree file which will be built. If file exist it will be overwrite.
+     * @param maxElements maximum children value permit per Node.
+     * @param crs Tree {@link CoordinateReferenceSystem}.
+     * @return builder, should be closed after use.
+     * @throws IOException if temporary file can not be created.
+     */
+    public static TreeBuilder star(final Path output, final int maxElements, final CoordinateReferenceSystem crs) throws IOException {
+        return new TreeBuilder(output, STAR_NUMBER, maxElements, null, crs);
+    }
+
+    /**
+     * Create a builder of a file which can be open by {@link org.geotoolkit.index.tree.basic.FileBasicRTree}.
+     *
+     * @param output path of the tree file which will be built. If file exist it will be overwrite.
+     * @param maxElements maximum children value permit per Node.
+     * @param crs Tree {@link CoordinateReferenceSystem}.
+     * @param splitMade define tree node split made during later insertions.
+     * @return builder, should be closed after use.
+     * @throws IOException if temporary file can not be created.
+     */
+    public static TreeBuilder basic(final Path output, final int maxElements, final CoordinateReferenceSystem crs,
+            final SplitCase splitMade) throws IOException {
+        ArgumentChecks.ensureNonNull("splitMade", splitMade);
+        return new TreeBuilder(output, BASIC_NUMBER, maxElements, splitMade, crs);
+    }
+
+    /**
+     * Set the number of entries sorted in memory at once.<br/>
+     * Each entry needs around {@code 12 + 16 * dimension} bytes.
+     *
+     * @param runSize number of entries sorted in memory, default is {@link #DEFAULT_RUN_SIZE}.
+     */
+    public void setRunSize(final int runSize) {
+        ArgumentChecks.ensureStrictlyPositive("runSize", runSize);
+        this.runSize = runSize;
+    }
+
+    /**
+     * Return number of entries added.
+     *
+     * @return number of entries added.
+     */
+    public int getEntryCount() {
+        return count;
+    }
+
+    /**
+     * Add an entry.
+     *
+     * @param identifier tree identifier of the data, strictly positive.
+     * @param envelope data boundary, in tree {@link CoordinateReferenceSystem}.
+     * @throws IOException if problem during temporary file writing.
+     */
+    public void add(final int identifier, final Envelope envelope) throws IOException {
+        ArgumentChecks.ensureNonNull("envelope", envelope);
+        if (!Utilities.equalsIgnoreMetadata(crs, envelope.getCoordinateReferenceSystem()))
+            throw new IllegalArgumentException("Element should have same CoordinateReferenceSystem as Tree.");
+        add(identifier, TreeUtilities.getCoords(envelope));
+    }
+
+    /**
+     * Add an entry.
+     *
+     * @param identifier tree identifier of the data, strictly positive.
+     * @param coordinates data boundary, all lower coordinates followed by upper coordinates.
+     * @throws IOException if problem during temporary file writing.
+     */
+    public void add(final int identifier, final double... coordinates) throws IOException {
+        ArgumentChecks.ensureStrictlyPositive("identifier", identifier);
+        ArgumentChecks.ensureNonNull("coordinates", coordinates);
+        if (coordinates.length != boundLength)
+            throw new IllegalArgumentException("coordinates length should be "+boundLength+", found : "+coordinates.length);
+        for (double d : coordinates)
+            if (Double.isNaN(d))
+                throw new IllegalArgumentException("coordinates contain at least one NAN value");
+        if (built)
+            throw new IllegalStateException("Tree has already been built.");
+
+        entryOutput.writeInt(identifier);
+        for (double d : coordinates) entryOutput.writeDouble(d);
+        final int dim = boundLength >> 1;
+        for (int i = 0; i < dim; i++) {
+            extent[i]       = Math.min(extent[i], coordinates[i]);
+            extent[dim + i] = Math.max(extent[dim + i], coordinates[dim + i]);
+        }
+        maxIdentifier = Math.max(maxIdentifier, identifier);
+        count++;
+    }
+
+    /**
+     * Add all objects.<br/>
+     * Each object receive a tree identifier following the last added one,
+     * stored in the given {@link TreeElementMapper} like {@link Tree#insert(java.lang.Object) } does.
+     *
+     * @param objects objects to add.
+     * @param treeEltMap object which store tree identifier and data.
+     * @return number of added objects.
+     * @throws IOException if problem during temporary file or mapper writing.
+     */
+    public <E> int addAll(final Iterator<? extends E> objects, final TreeElementMapper<E> treeEltMap) throws IOException {
+        ArgumentChecks.ensureNonNull("objects", objects);
+        ArgumentChecks.ensureNonNull("treeEltMap", treeEltMap);
+        int nb = 0;
+        while (objects.hasNext()) {
+            final E object = objects.next();
+            final int identifier = maxIdentifier + 1;
+            add(identifier, treeEltMap.getEnvelope(object));
+            treeEltMap.setTreeIdentifier(object, identifier);
+            nb++;
+        }
+        return nb;
+    }
+
+    /**
+     * Sort all entries and write tree file.
+     *
+     * @throws IOException if problem during temporary or tree file writing.
+     * @throws StoreIndexException if tree has already been built.
+     */
+    public void build() throws IOException, StoreIndexException {
+        if (built) throw new StoreIndexException("Tree has already been built.");
+        built = true;
+        entryOutput.close();
+
+        final TreeAccess access = new TreeAccessFile(output, magicNumber, VERSION_NUMBER, maxElements, splitMade, crs);
+        try {
+            if (count > 0) {
+                try (final EntryReader entries = sort()) {
+                    write(access, entries);
+                }
+            }
+            access.setEltNumber(count);
+            access.setTreeIdentifier(maxIdentifier + 1);
+        } finally {
+            access.close();
+        }
+    }
+
+    /**
+     * Write all sorted entries.<br/>
+     * Node identifiers are computed from the entry number : internal Nodes are stored
+     * level after level from the root (identifier 1) to the leaves, followed by data Nodes in Hilbert order.
+     * Data Nodes are written first while leaf boundaries are computed, then all other Nodes.
+     */
+    private void write(final TreeAccess access, final EntryReader entries) throws IOException {
+        //-- Node number by level, level 0 are leaves
+        final List<Integer> levelSizes = new ArrayList<>();
+        int size = count;
+        do {
+            size = (int) ((size + (long) maxElements - 1) / maxElements);
+            levelSizes.add(size);
+        } while (size > 1);
+        final int nbLevel = levelSizes.size();
+
+        final int[] firstId = new int[nbLevel];
+        int internalCount = 0;
+        for (int l = nbLevel - 1; l >= 0; l--) {
+            firstId[l] = 1 + internalCount;
+            internalCount += levelSizes.get(l);
+        }
+        final int first = access.reserveNodeIdentifiers(internalCount + count);
+        if (first != 1) throw new IllegalStateException("Tree access should be empty.");
+        final int firstDataId = internalCount + 1;
+
+        //-- data Nodes
+        final double[][] bounds = new double[nbLevel][];
+        final double[] leafBounds = bounds[0] = new double[levelSizes.get(0) * boundLength];
+        final double[] coords = new double[boundLength];
+        for (int k = 0; k < count; k++) {
+            if (!entries.next(coords)) throw new EOFException("Missing tree entries.");
+            final int leaf    = k / maxElements;
+            final int sibling = (k + 1 < count && (k + 1) / maxElements == leaf) ? firstDataId + k + 1 : 0;
+            access.writeNode(new Node(access, firstDataId + k, coords, IS_DATA, firstId[0] + leaf, sibling, -entries.identifier));
+            union(leafBounds, leaf, coords, 0, k % maxElements == 0);
+        }
+
+        //-- upper level boundaries
+        for (int l = 1; l < nbLevel; l++) {
+            final double[] below = bounds[l - 1];
+            final double[] current = bounds[l] = new double[levelSizes.get(l) * boundLength];
+            for (int j = 0, n = levelSizes.get(l - 1); j < n; j++) {
+                union(current, j / maxElements, below, j * boundLength, j % maxElements == 0);
+            }
+        }
+
+        //-- internal Nodes, from root to leaves
+        for (int l = nbLevel - 1; l >= 0; l--) {
+            final int levelSize = levelSizes.get(l);
+            final int childSize = (l == 0) ? count : levelSizes.get(l - 1);
+            final int childFirstId = (l == 0) ? firstDataId : firstId[l - 1];
+            final byte properties = (l == 0) ? IS_LEAF : IS_OTHER;
+            for (int j = 0; j < levelSize; j++) {
+                final int parent  = (l == nbLevel - 1) ? 0 : firstId[l + 1] + j / maxElements;
+                final int sibling = (j + 1 < levelSize && (j + 1) / maxElements == j / maxElements) ? firstId[l] + j + 1 : 0;
+                final double[] boundary = Arrays.copyOfRange(bounds[l], j * boundLength, (j + 1) * boundLength);
+                final Node node = new Node(access, firstId[l] + j, boundary, properties, parent, sibling, childFirstId + j * maxElements);
+                node.setChildCount(Math.min(maxElements, childSize - j * maxElements));
+                access.writeNode(node);
+            }
+        }
+    }
+
+    /**
+     * Compute union of the boundary at index {@code srcIndex} in source table
+     * with boundary number {@code index} of target table.
+     *
+     * @param init true to copy source boundary instead of computing union.
+     */
+    private void union(final double[] target, final int index, final double[] source, final int srcIndex, final boolean init) {
+        final int dim = boundLength >> 1;
+        final int t = index * boundLength;
+        if (init) {
+            System.arraycopy(source, srcIndex, target, t, boundLength);
+            return;
+        }
+        for (int i = 0; i < dim; i++) {
+            target[t + i]       = Math.min(target[t + i], source[srcIndex + i]);
+            target[t + dim + i] = Math.max(target[t + dim + i], source[srcIndex + dim + i]);
+        }
+    }
+
+    /**
+     * Sort entries file in runs of {@link #runSize} entries, then merge them.
+     *
+     * @return sorted entries.
+     */
+    private EntryReader sort() throws IOException {
+        try (final DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(entryFile), DEFAULT_BUFFER_LENGTH))) {
+            int remaining = count;
+            if (remaining <= runSize) {
+                final MemoryRun run = new MemoryRun(remaining);
+                run.read(in);
+                return run;
+            }
+            final Path parent = entryFile.getParent();
+            while (remaining > 0) {
+                final MemoryRun run = new MemoryRun(Math.min(runSize, remaining));
+                run.read(in);
+                remaining -= run.keys.length;
+                final Path runFile = Files.createTempFile(parent, "tree", ".run");
+                runFiles.add(runFile);
+                try (final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(runFile), DEFAULT_BUFFER_LENGTH))) {
+                    final double[] coords = new double[boundLength];
+                    while (run.next(coords)) {
+                        out.writeLong(run.hilbert);
+                        out.writeInt(run.identifier);
+                        for (double d : coords) out.writeDouble(d);
+                    }
+                }
+            }
+        }
+        Files.deleteIfExists(entryFile);
+        return new MergeReader();
+    }
+
+    /**
+     * Compute Hilbert value of the entry center, from its two first dimensions.
+     */
+    private long hilbert(final double[] coords) {
+        final int dim = boundLength >> 1;
+        final int max = (1 << HILBERT_ORDER) - 1;
+        int x = quantize(0, (coords[0] + coords[dim]) / 2, max);
+        int y = (dim > 1) ? quantize(1, (coords[1] + coords[dim + 1]) / 2, max) : 0;
+        long d = 0;
+        for (int s = 1 << (HILBERT_ORDER - 1); s > 0; s >>= 1) {
+            final int rx = ((x & s) != 0) ? 1 : 0;
+            final int ry = ((y & s) != 0) ? 1 : 0;
+            d += ((long) s) * s * ((3 * rx) ^ ry);
+            //-- rotate quadrant
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = max - x;
+                    y = max - y;
+                }
+                final int t = x;
+                x = y;
+                y = t;
+            }
+        }
+        return d;
+    }
+
+    private int quantize(final int ordinate, final double value, final int max) {
+        final double min  = extent[ordinate];
+        final double span = extent[ordinate + (boundLength >> 1)] - min;
+        if (!(span > 0) || Double.isInfinite(span)) return 0;
+        final double v = (value - min) / span * max;
+        return (v <= 0) ? 0 : (v >= max) ? max : (int) v;
+    }
+
+    /**
+     * Delete temporary files.
+     *
+     * @throws IOException if problem during temporary file deletion.
+     */
+    @Override
+    public void close() throws IOException {
+        entryOutput.close();
+        Files.deleteIfExists(entryFile);
+        for (Path p : runFiles) Files.deleteIfExists(p);
+        runFiles.clear();
+    }
+
+    /**
+     * Sorted entries.
+     */
+    private abstract static class EntryReader implements Closeable {
+
+        /**
+         * Current entry Hilbert value and tree identifier.
+         */
+        long hilbert;
+        int identifier;
+
+        /**
+         * Move to next entry.
+         *
+         * @param coords table filled with entry boundary.
+         * @return false if there is no more entry.
+         */
+        abstract boolean next(double[] coords) throws IOException;
+
+        @Override
+        public void close() throws IOException {
+        }
+    }
+
+    /**
+     * Entries sorted in memory.<br/>
+     * Sort keys pack Hilbert value (32 bits) and entry index (31 bits) in a single {@code long}
+     * to use primitive sort.
+     */
+    private final class MemoryRun extends EntryReader {
+
+        private final long[] keys;
+        private final int[] identifiers;
+        private final double[] coordinates;
+        private int position;
+
+        MemoryRun(final int size) {
+            keys        = new long[size];
+            identifiers = new int[size];
+            coordinates = new double[size * boundLength];
+        }
+
+        void read(final DataInputStream in) throws IOException {
+            final double[] coords = new double[boundLength];
+            for (int i = 0; i < keys.length; i++) {
+                identifiers[i] = in.readInt();
+                for (int j = 0; j < boundLength; j++) {
+                    coords[j] = in.readDouble();
+                }
+                System.arraycopy(coords, 0, coordinates, i * boundLength, boundLength);
+                keys[i] = (hilbert(coords) << 31) | i;
+            }
+            Arrays.sort(keys);
+        }
+
+        @Override
+        boolean next(final double[] coords) {
+            if (position >= keys.length) return false;
+            final long key = keys[position++];
+            final int index = (int) (key & Integer.MAX_VALUE);
+            hilbert    = key >>> 31;
+            identifier = identifiers[index];
+            System.arraycopy(coordinates, index * boundLength, coords, 0, boundLength);
+            return true;
+        }
+    }
+
+    /**
+     * Sorted entries stored in a run file.
+     */
+    private final class RunReader extends EntryReader {
+
+        private final DataInputStream in;
+        private final int order;
+        final double[] coords = new double[boundLength];
+
+        RunReader(final Path file, final int order) throws IOException {
+            this.in    = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), DEFAULT_BUFFER_LENGTH));
+            this.order = order;
+        }
+
+        boolean next() throws IOException {
+            try {
+                hilbert = in.readLong();
+            } catch (EOFException ex) {
+                return false;
+            }
+            identifier = in.readInt();
+            for (int j = 0; j < boundLength; j++) {
+                coords[j] = in.readDouble();
+            }
+            return true;
+        }
+
+        @Override
+        boolean next(final double[] target) throws IOException {
+            if (!next()) return false;
+            System.arraycopy(coords, 0, target, 0, boundLength);
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /**
+     * K-way merge of all run files.
+     */
+    private final class MergeReader extends EntryReader {
+
+        private final List<RunReader> readers = new ArrayList<>();
+        private final PriorityQueue<RunReader> queue = new PriorityQueue<>(
+                (RunReader a, RunReader b) -> (a.hilbert != b.hilbert) ? Long.compare(a.hilbert, b.hilbert) : Integer.compare(a.order, b.order));
+
+        MergeReader() throws IOException {
+            try {
+                for (int i = 0; i < runFiles.size(); i++) {
+                    final RunReader reader = new RunReader(runFiles.get(i), i);
+                    readers.add(reader);
+                    if (reader.next()) queue.add(reader);
+                }
+            } catch (IOException ex) {
+                close();
+                throw ex;
+            }
+        }
+
+        @Override
+        boolean next(final double[] coords) throws IOException {
+            final RunReader reader = queue.poll();
+            if (reader == null) return false;
+            hilbert    = reader.hilbert;
+            identifier = reader.identifier;
+            System.arraycopy(reader.coords, 0, coords, 0, boundLength);
+            if (reader.next()) queue.add(reader);
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (RunReader reader : readers) reader.close();
+        }
+    }
+}
@@ -103,7 +103,7 @@ public strictfp class StarRTree<E> extends AbstractTree<E> {
      */
     @Override
     public void insert(int identifier, double... coordinates) throws IllegalArgumentException, StoreIndexException {
-
+        lock.writeLock().lock();
         try {
             eltCompteur++;
             Node root = getRoot();
@@ -145,6 +145,8 @@ public strictfp class StarRTree<E> extends AbstractTree<E> {
             }
         } catch (IOException ex) {
             throw new StoreIndexException(this.getClass().getName()+"Tree.insert(), impossible to add element.", ex);
+        } finally {
+            lock.writeLock().unlock();
         }
     }
 
@@ -308,6 +308,21 @@ public abstract class TreeAccess {
      * @return true if {@link TreeAccess} has already been closed else false.
      */
     public abstract boolean isClose();
+    /**
+     * Reserve a continuous range of Node identifiers.<br/>
+     * Reserved identifiers will never be returned by {@link #createNode(double[], byte, int, int, int) },
+     * caller is responsible to write Nodes at these identifiers.
+     *
+     * @param count number of identifiers to reserve.
+     * @return first reserved identifier.
+     * @see org.geotoolkit.index.tree.TreeBuilder
+     */
+    public synchronized int reserveNodeIdentifiers(final int count) {
+        final int first = nodeId;
+        nodeId += count;
+        return first;
+    }
+
     /**
      * Create a {@link Node} adapted to {@link AbstractBasicRTree} and {@link AbstractStarRTree} Implementations.
      *
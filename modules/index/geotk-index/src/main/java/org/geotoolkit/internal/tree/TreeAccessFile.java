@@ -19,9 +19,12 @@ package org.geotoolkit.internal.tree;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 import org.apache.sis.referencing.CRS;
 
 import org.apache.sis.util.ArgumentChecks;
@@ -30,9 +33,15 @@ import org.geotoolkit.index.tree.basic.SplitCase;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
 import org.opengis.util.FactoryException;
 
+import static org.geotoolkit.internal.tree.TreeUtilities.intersects;
+
 /**
  * {@link TreeAccess} implementation.<br>
- * Store all {@link Node} architecture use by {@link Tree} on disk drive.
+ * Store all {@link Node} architecture use by {@link Tree} on disk drive.<br><br>
+ *
+ * Searches read Nodes from a read only memory mapped view of the file, without any shared buffer,
+ * so they may run concurrently as long as no Node is written at the same time.
+ * The view is refreshed by the first search following a Node writing.
  *
  * @author Rémi Maréchal (Geomatys).
  */
@@ -54,6 +63,17 @@ public class TreeAccessFile extends ChannelTreeAccess {
      */
     private static final int INT_NUMBER = 4;
 
+    /**
+     * Read only view of the whole tree file, shared by concurrent searches.<br>
+     * {@code null} if file can not be mapped, searches are then serialized.
+     */
+    private volatile ByteBuffer readView;
+
+    /**
+     * {@code false} if some Nodes have been written since {@link #readView} creation.
+     */
+    private volatile boolean readViewValid;
+
     /**
      * Build a {@link Tree} from an already filled file at {@link Path} location.<br><br>
      *
@@ -198,6 +218,108 @@ public class TreeAccessFile extends ChannelTreeAccess {
                 StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING), magicNumber, versionNumber, maxElements, hilbertOrder, splitMade, crs, byteBufferLength, integerNumberPerNode);
     }
 
+    /**
+     * {@inheritDoc }
+     * <br>
+     * Search is done from the memory mapped view of the tree file, without lock.
+     */
+    @Override
+    public int[] search(final int nodeID, final double[] regionSearch) throws IOException {
+        final ByteBuffer view = getReadView();
+        if (view == null) return super.search(nodeID, regionSearch);
+
+        final double[] boundary = new double[boundLength];
+        int[] result  = new int[100];
+        int nbResult  = 0;
+        int[] stack   = new int[32];
+        int stackSize = 0;
+        stack[stackSize++] = nodeID;
+        while (stackSize > 0) {
+            final int id = stack[--stackSize];
+            int offset = beginPosition + (id - 1) * nodeSize;
+            for (int i = 0; i < boundLength; i++, offset += Double.BYTES) {
+                boundary[i] = view.getDouble(offset);
+            }
+            offset += 5;// step properties (1 byte) and step parent ID (int  : 4 byte)
+            final int sibling = view.getInt(offset);
+            final int child   = view.getInt(offset + Integer.BYTES);
+
+            //-- children are pushed before sibling to travel Nodes in same order than internalSearch
+            if (stackSize + 2 > stack.length) stack = Arrays.copyOf(stack, stack.length << 1);
+            if (intersects(boundary, regionSearch, true)) {
+                if (child > 0) {
+                    stack[stackSize++] = child;
+                } else {
+                    if (child == 0)
+                        throw new IllegalStateException("child index should never be 0.");
+                    if (nbResult == result.length) result = Arrays.copyOf(result, nbResult << 1);
+                    result[nbResult++] = -child;
+                }
+            }
+            if (sibling != 0) stack[stackSize++] = sibling;
+        }
+        return Arrays.copyOf(result, nbResult);
+    }
+
+    /**
+     * Return the read only view of the tree file, after having written pending Nodes.
+     *
+     * @return tree file view or {@code null} if file can not be mapped.
+     * @throws IOException if problem during pending Nodes writing or file mapping.
+     */
+    private ByteBuffer getReadView() throws IOException {
+        if (readViewValid) return readView;
+        synchronized (this) {
+            if (!readViewValid) {
+                if (!(inOutChannel instanceof FileChannel)) return null;
+                final FileChannel channel = (FileChannel) inOutChannel;
+                if (writeBufferLimit > 0) {
+                    //-- positional write, channel position expected by adjustBuffer is kept
+                    final ByteBuffer pending = byteBuffer.duplicate();
+                    pending.position(0);
+                    pending.limit(writeBufferLimit);
+                    long position = currentBufferPosition;
+                    while (pending.hasRemaining()) {
+                        position += channel.write(pending, position);
+                    }
+                    writeBufferLimit = 0;
+                }
+                final long size = channel.size();
+                readView = (size > Integer.MAX_VALUE) ? null : channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                readViewValid = true;
+            }
+            return readView;
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void writeNode(final Node candidate) throws IOException {
+        readViewValid = false;
+        super.writeNode(candidate);
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public synchronized void rewind() throws IOException {
+        readViewValid = false;
+        super.rewind();
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void close() throws IOException {
+        readViewValid = false;
+        readView = null;
+        super.close();
+    }
+
     /**
      * Retrieve the CRS of the input tree.
      * @param treeFile The file containing the tree.
@@ -0,0 +1,169 @@
+/*
+ *    Geotoolkit - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2018, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.index.tree;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.apache.sis.geometry.GeneralEnvelope;
+import org.geotoolkit.index.tree.star.FileStarRTree;
+import org.geotoolkit.referencing.crs.PredefinedCRS;
+import org.junit.Test;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test searches from several threads on a file Tree, with and without concurrent insertions.
+ */
+public class ConcurrentSearchTest extends TreeTest {
+
+    private static final CoordinateReferenceSystem CRS = PredefinedCRS.CARTESIAN_2D;
+
+    private static final int NB_THREADS = 8;
+
+    public ConcurrentSearchTest() throws IOException {
+        super();
+    }
+
+    private static double[] createData(final Random random) {
+        final double x = random.nextDouble() * 1000 - 500;
+        final double y = random.nextDouble() * 1000 - 500;
+        return new double[]{x, y, x + random.nextDouble() * 10, y + random.nextDouble() * 10};
+    }
+
+    private static GeneralEnvelope createArea(final Random random) {
+        final double x = random.nextDouble() * 1000 - 500;
+        final double y = random.nextDouble() * 1000 - 500;
+        final GeneralEnvelope area = new GeneralEnvelope(CRS);
+        area.setEnvelope(x, y, x + 100, y + 100);
+        return area;
+    }
+
+    /**
+     * Return sorted identifiers of datas which intersect area.
+     */
+    private static int[] bruteForce(final List<double[]> data, final GeneralEnvelope area) {
+        final List<Integer> result = new ArrayList<>();
+        for (int i = 0; i < data.size(); i++) {
+            final double[] d = data.get(i);
+            if (d[0] <= area.getMaximum(0) && d[2] >= area.getMinimum(0)
+             && d[1] <= area.getMaximum(1) && d[3] >= area.getMinimum(1)) result.add(i + 1);
+        }
+        final int[] tab = new int[result.size()];
+        for (int i = 0; i < tab.length; i++) tab[i] = result.get(i);
+        return tab;
+    }
+
+    /**
+     * All threads should find same results than a brute force search, also after new insertions.
+     */
+    @Test
+    public void concurrentSearchTest() throws Exception {
+        final Random random = new Random(12);
+        final List<double[]> data = new ArrayList<>();
+        final TreeElementMapper<double[]> mapper = new FileTreeElementMapperTest(CRS, File.createTempFile("mapper", "test", tempDir));
+        final Tree<double[]> tree = new FileStarRTree<>(File.createTempFile("starRTree", "tree", tempDir).toPath(), 5, CRS, mapper);
+        final ExecutorService executor = Executors.newFixedThreadPool(NB_THREADS);
+        try {
+            for (int step = 0; step < 2; step++) {
+                for (int i = 0; i < 2000; i++) {
+                    final double[] d = createData(random);
+                    data.add(d);
+                    tree.insert(d);
+                }
+                final List<Future<Boolean>> futures = new ArrayList<>();
+                for (int t = 0; t < NB_THREADS; t++) {
+                    final long seed = random.nextLong();
+                    futures.add(executor.submit(new Callable<Boolean>() {
+                        @Override
+                        public Boolean call() throws Exception {
+                            final Random rd = new Random(seed);
+                            for (int i = 0; i < 50; i++) {
+                                final GeneralEnvelope area = createArea(rd);
+                                final int[] result = tree.searchID(area);
+                                Arrays.sort(result);
+                                assertArrayEquals(bruteForce(data, area), result);
+                            }
+                            return true;
+                        }
+                    }));
+                }
+                for (Future<Boolean> f : futures) {
+                    assertTrue(f.get());
+                }
+            }
+        } finally {
+            executor.shutdown();
+            tree.close();
+        }
+    }
+
+    /**
+     * Searches running during insertions should never fail and find all data inserted before search beginning.
+     */
+    @Test
+    public void searchDuringInsertionTest() throws Exception {
+        final Random random = new Random(24);
+        final TreeElementMapper<double[]> mapper = new FileTreeElementMapperTest(CRS, File.createTempFile("mapper", "test", tempDir));
+        final Tree<double[]> tree = new FileStarRTree<>(File.createTempFile("starRTree", "tree", tempDir).toPath(), 5, CRS, mapper);
+        final GeneralEnvelope all = new GeneralEnvelope(CRS);
+        all.setEnvelope(-1000, -1000, 1000, 1000);
+        final ExecutorService executor = Executors.newFixedThreadPool(NB_THREADS);
+        try {
+            final Future<Boolean> writer = executor.submit(new Callable<Boolean>() {
+                @Override
+                public Boolean call() throws Exception {
+                    for (int i = 0; i < 3000; i++) {
+                        tree.insert(createData(random));
+                    }
+                    return true;
+                }
+            });
+            final List<Future<Boolean>> readers = new ArrayList<>();
+            for (int t = 1; t < NB_THREADS; t++) {
+                readers.add(executor.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() throws Exception {
+                        int previous = 0;
+                        while (!writer.isDone()) {
+                            final int nb = tree.searchID(all).length;
+                            assertTrue(nb >= previous);
+                            previous = nb;
+                        }
+                        return true;
+                    }
+                }));
+            }
+            assertTrue(writer.get());
+            for (Future<Boolean> f : readers) {
+                assertTrue(f.get());
+            }
+            assertEquals(3000, tree.searchID(all).length);
+        } finally {
+            executor.shutdown();
+            tree.close();
+        }
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ *    Geotoolkit - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2018, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.index.tree;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.apache.sis.geometry.GeneralEnvelope;
+import org.geotoolkit.index.tree.basic.FileBasicRTree;
+import org.geotoolkit.index.tree.basic.SplitCase;
+import org.geotoolkit.index.tree.star.FileStarRTree;
+import org.geotoolkit.referencing.crs.PredefinedCRS;
+import org.junit.Test;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+
+import static org.junit.Assert.*;
+import static org.geotoolkit.internal.tree.TreeUtilities.*;
+
+/**
+ * Test {@link TreeBuilder}.
+ */
+public class TreeBuilderTest extends TreeTest {
+
+    private static final CoordinateReferenceSystem CRS = PredefinedCRS.CARTESIAN_2D;
+
+    public TreeBuilderTest() throws IOException {
+        super();
+    }
+
+    private static List<double[]> createData(final int nb) {
+        final Random random = new Random(42);
+        final List<double[]> data = new ArrayList<>(nb);
+        for (int i = 0; i < nb; i++) {
+            final double x = random.nextDouble() * 1000 - 500;
+            final double y = random.nextDouble() * 1000 - 500;
+            data.add(new double[]{x, y, x + random.nextDouble() * 10, y + random.nextDouble() * 10});
+        }
+        return data;
+    }
+
+    /**
+     * Built Star tree, sorted in several runs, should be valid, searchable and writable.
+     */
+    @Test
+    public void buildStarTest() throws IOException, StoreIndexException {
+        final List<double[]> data = createData(5000);
+        final File treeFile = File.createTempFile("starRTree", "tree", tempDir);
+        final TreeElementMapper<double[]> mapper = new FileTreeElementMapperTest(CRS, File.createTempFile("mapper", "test", tempDir));
+        try (final TreeBuilder builder = TreeBuilder.star(treeFile.toPath(), 5, CRS)) {
+            builder.setRunSize(700);
+            assertEquals(5000, builder.addAll(data.iterator(), mapper));
+            builder.build();
+        }
+        checkTree(new FileStarRTree<>(treeFile.toPath(), mapper), data);
+    }
+
+    /**
+     * Built Basic tree, sorted in memory, should be valid, searchable and writable.
+     */
+    @Test
+    public void buildBasicTest() throws IOException, StoreIndexException {
+        final List<double[]> data = createData(3000);
+        final File treeFile = File.createTempFile("basicRTree", "tree", tempDir);
+        final TreeElementMapper<double[]> mapper = new FileTreeElementMapperTest(CRS, File.createTempFile("mapper", "test", tempDir));
+        try (final TreeBuilder builder = TreeBuilder.basic(treeFile.toPath(), 4, CRS, SplitCase.QUADRATIC)) {
+            assertEquals(3000, builder.addAll(data.iterator(), mapper));
+            builder.build();
+        }
+        checkTree(new FileBasicRTree<>(treeFile.toPath(), mapper), data);
+    }
+
+    /**
+     * Entry number lower than node capacity gives a single leaf root.
+     */
+    @Test
+    public void buildSmallTest() throws IOException, StoreIndexException {
+        final List<double[]> data = createData(3);
+        final File treeFile = File.createTempFile("starRTree", "tree", tempDir);
+        final TreeElementMapper<double[]> mapper = new FileTreeElementMapperTest(CRS, File.createTempFile("mapper", "test", tempDir));
+        try (final TreeBuilder builder = TreeBuilder.star(treeFile.toPath(), 4, CRS)) {
+            builder.addAll(data.iterator(), mapper);
+            builder.build();
+        }
+        final Tree<double[]> tree = new FileStarRTree<>(treeFile.toPath(), mapper);
+        assertTrue(tree.getRoot().isLeaf());
+        checkTree(tree, data);
+    }
+
+    /**
+     * Verify tree structure, then compare search results with brute force and insert more datas.
+     */
+    private void checkTree(final Tree<double[]> tree, final List<double[]> data) throws IOException, StoreIndexException {
+        try {
+            assertEquals(data.size(), tree.getElementsNumber());
+            assertEquals(data.size(), checkNode(tree.getRoot(), data, tree.getMaxElements()));
+
+            final GeneralEnvelope area = new GeneralEnvelope(CRS);
+            area.setEnvelope(-100, -50, 120, 80);
+            final int[] result = tree.searchID(area);
+            Arrays.sort(result);
+            final List<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < data.size(); i++) {
+                final double[] d = data.get(i);
+                if (d[0] <= 120 && d[2] >= -100 && d[1] <= 80 && d[3] >= -50) expected.add(i + 1);
+            }
+            assertEquals(expected.size(), result.length);
+            for (int i = 0; i < result.length; i++) {
+                assertEquals(expected.get(i).intValue(), result[i]);
+            }
+
+            //-- built tree should support later updates
+            final double[] added = new double[]{1000, 1000, 1001, 1001};
+            assertEquals(data.size() + 1, tree.insert(added));
+            assertTrue(tree.remove(data.get(0)));
+            assertEquals(data.size(), tree.getElementsNumber());
+            final GeneralEnvelope all = new GeneralEnvelope(CRS);
+            all.setEnvelope(-1000, -1000, 2000, 2000);
+            assertEquals(data.size(), tree.searchID(all).length);
+        } finally {
+            tree.close();
+        }
+    }
+
+    /**
+     * Compare Node boundary from its sub-Nodes boundary sum and count data.
+     */
+    private int checkNode(final Node node, final List<double[]> data, final int maxElements) throws IOException {
+        final double[] boundary = node.getBoundary();
+        double[] subBoundary = null;
+        int nb = 0;
+        int nbChild = 0;
+        for (Node child : node.getChildren()) {
+            nbChild++;
+            if (subBoundary == null) {
+                subBoundary = child.getBoundary().clone();
+            } else {
+                add(subBoundary, child.getBoundary());
+            }
+            if (node.isLeaf()) {
+                assertTrue(child.isData());
+                assertArrayEquals(data.get(- child.getChildId() - 1), child.getBoundary(), 0.0);
+                nb++;
+            } else {
+                nb += checkNode(child, data, maxElements);
+            }
+        }
+        assertEquals(nbChild, node.getChildCount());
+        assertTrue(nbChild <= maxElements);
+        assertArrayEquals(subBoundary, boundary, 0.0);
+        return nb;
+    }
+}
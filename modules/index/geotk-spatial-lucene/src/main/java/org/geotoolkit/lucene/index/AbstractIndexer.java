@@ -38,7 +38,6 @@ import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.TermQuery;
-import org.apache.lucene.store.Directory;
 import org.apache.sis.util.ArgumentChecks;
 import org.geotoolkit.geometry.jts.JTS;
 
@@ -97,6 +96,11 @@ public abstract class AbstractIndexer<E> extends IndexLucene {
      */
     private final Map<String, String> numericFields = new HashMap<>();
 
+    /**
+     * The writer shared with other indexers and searchers in managed mode, null otherwise.
+     */
+    private SharedIndexWriter sharedWriter;
+
     /**
      * Build a new Indexer witch create an index in the specified directory,
      * with the specified analyzer.
@@ -165,6 +169,84 @@ public abstract class AbstractIndexer<E> extends IndexLucene {
         return needCreation;
     }
 
+    /**
+     * Switch this indexer in managed mode with default commit parameters.
+     *
+     * @throws IndexingException if the shared index writer can not be opened.
+     * @see #setManagedMode(long, int)
+     */
+    public void setManagedMode() throws IndexingException {
+        setManagedMode(SharedIndexWriter.DEFAULT_COMMIT_INTERVAL, SharedIndexWriter.DEFAULT_COMMIT_COUNT);
+    }
+
+    /**
+     * Switch this indexer in managed mode : all modifications go through a
+     * {@link SharedIndexWriter} which stays open until this indexer is destroyed.
+     * Modifications are committed when {@code commitCount} modifications are pending
+     * or after {@code commitInterval} milliseconds. Searchers created on the same
+     * directory see the modifications without being refreshed.
+     *
+     * @param commitInterval maximum delay in milliseconds before modifications are committed.
+     * @param commitCount number of pending modifications causing an immediate commit.
+     * @throws IndexingException if the shared index writer can not be opened.
+     */
+    public synchronized void setManagedMode(final long commitInterval, final int commitCount) throws IndexingException {
+        if (sharedWriter == null) {
+            try {
+                sharedWriter = SharedIndexWriter.acquire(getFileDirectory(), analyzer, commitInterval, commitCount);
+            } catch (IOException ex) {
+                throw new IndexingException("IOException while opening the shared index writer:" + ex.getMessage(), ex);
+            }
+        }
+    }
+
+    /**
+     * @return true if this indexer uses a shared index writer.
+     */
+    public synchronized boolean isManagedMode() {
+        return sharedWriter != null;
+    }
+
+    /**
+     * Return the writer to use for a bulk indexation : the shared writer in managed mode, a new one otherwise.
+     */
+    private synchronized IndexWriter openWriter() throws IOException {
+        if (sharedWriter != null) {
+            return sharedWriter.getWriter();
+        }
+        final IndexWriterConfig conf = new IndexWriterConfig(analyzer);
+        return new IndexWriter(LuceneUtils.getAppropriateDirectory(getFileDirectory()), conf);
+    }
+
+    /**
+     * Close a writer obtained by {@link #openWriter()}, or commit it in managed mode.
+     */
+    private synchronized void closeWriter(final IndexWriter writer) throws IOException {
+        if (sharedWriter != null && sharedWriter.getWriter() == writer) {
+            sharedWriter.commit();
+        } else {
+            writer.close();
+        }
+    }
+
+    /**
+     * Release the shared writer if any.
+     *
+     * @return true if the shared writer has been closed, false if it is still used by others.
+     */
+    private synchronized boolean releaseSharedWriter() {
+        boolean closed = false;
+        if (sharedWriter != null) {
+            try {
+                closed = sharedWriter.release();
+            } catch (IOException ex) {
+                LOGGER.log(Level.WARNING, "IOException while closing the shared index writer", ex);
+            }
+            sharedWriter = null;
+        }
+        return closed;
+    }
+
     /**
      * Replace the precedent index directory by another pre-generated.
      */
@@ -207,8 +289,7 @@ public abstract class AbstractIndexer<E> extends IndexLucene {
         final long time = System.currentTimeMillis();
         int nbEntries = 0;
         try {
-            final IndexWriterConfig conf = new IndexWriterConfig(analyzer);
-            final IndexWriter writer     = new IndexWriter(LuceneUtils.getAppropriateDirectory(getFileDirectory()), conf);
+            final IndexWriter writer     = openWriter();
             final String serviceID       = getServiceID();
 
             resetTree();
@@ -223,7 +304,7 @@ public abstract class AbstractIndexer<E> extends IndexLucene {
                 }
             }
             // writer.optimize(); no longer justified
-            writer.close();
+            closeWriter(writer);
 
             // we store the numeric fields in a properties file int the index directory
             storeNumericFieldsFile();
@@ -246,8 +327,7 @@ public abstract class AbstractIndexer<E> extends IndexLucene {
         final long time  = System.currentTimeMillis();
         int nbEntries      = 0;
         try {
-            final IndexWriterConfig conf       = new IndexWriterConfig(analyzer);
-            final IndexWriter writer           = new IndexWriter(LuceneUtils.getAppropriateDirectory(getFileDirectory()), conf);
+            final IndexWriter writer           = openWriter();
             final String serviceID             = getServiceID();
 
             resetTree();
@@ -294,7 +374,7 @@ public abstract class AbstractIndexer<E> extends IndexLucene {
                 }
             }
             // writer.optimize(); no longer justified
-            writer.close();
+            closeWriter(writer);
 
             // we store the numeric fields in a properties file int the index directory
             storeNumericFieldsFile();
@@ -315,9 +395,20 @@ public abstract class AbstractIndexer<E> extends IndexLucene {
      * @param meta The object to index.
      */
     public void indexDocument(final IndexWriter writer, final E meta) throws IndexingException, IOException {
-        final int docId = writer.maxDoc();
-        //adding the document in a specific model. in this case we use a MDwebDocument.
-        writer.addDocument(createDocument(meta, docId));
+        final SharedIndexWriter shared;
+        synchronized (this) {
+            shared = sharedWriter;
+        }
+        if (shared != null && shared.getWriter() == writer) {
+            // the document id is computed from the writer state, same lock as SharedIndexWriter.addDocument
+            synchronized (shared) {
+                writer.addDocument(createDocument(meta, writer.maxDoc()));
+            }
+        } else {
+            final int docId = writer.maxDoc();
+            //adding the document in a specific model. in this case we use a MDwebDocument.
+            writer.addDocument(createDocument(meta, docId));
+        }
         LOGGER.log(Level.FINER, "Metadata: {0} indexed", getIdentifier(meta));
     }
 
@@ -328,14 +419,26 @@ public abstract class AbstractIndexer<E> extends IndexLucene {
      */
     public void indexDocument(final E meta) {
         try {
-            final IndexWriterConfig config = new IndexWriterConfig(analyzer);
-            final IndexWriter writer = new IndexWriter(LuceneUtils.getAppropriateDirectory(getFileDirectory()), config);
+            final SharedIndexWriter shared;
+            synchronized (this) {
+                shared = sharedWriter;
+            }
+            if (shared != null) {
+                // the document id is computed from the writer state, it must not change until the document is added
+                synchronized (shared) {
+                    shared.getWriter().addDocument(createDocument(meta, shared.getWriter().maxDoc()));
+                }
+                shared.changed(1);
+            } else {
+                final IndexWriterConfig config = new IndexWriterConfig(analyzer);
+                final IndexWriter writer = new IndexWriter(LuceneUtils.getAppropriateDirectory(getFileDirectory()), config);
 
-            final int docId = writer.maxDoc();
-            //adding the document in a specific model. in this case we use a MDwebDocument.
-            writer.addDocument(createDocument(meta, docId));
+                final int docId = writer.maxDoc();
+                //adding the document in a specific model. in this case we use a MDwebDocument.
+                writer.addDocument(createDocument(meta, docId));
+                writer.close();
+            }
             LOGGER.log(Level.FINER, "Metadata: {0} indexed", getIdentifier(meta));
-            writer.close();
             if (rTree != null) {
                 rTree.getTreeElementMapper().flush();
                 rTree.flush();
@@ -366,8 +469,24 @@ public abstract class AbstractIndexer<E> extends IndexLucene {
 
     private void stopIndexation(final IndexWriter writer, final String serviceID) throws IOException {
         // writer.optimize(); no longer justified
-        writer.close();
-        IOUtilities.deleteRecursively(getFileDirectory());
+        final SharedIndexWriter shared;
+        synchronized (this) {
+            shared = sharedWriter;
+        }
+        if (shared != null) {
+            // other indexers or searchers may still use the shared writer : documents are removed
+            // through it and the directory is only deleted by the last user
+            synchronized (shared) {
+                shared.getWriter().deleteAll();
+            }
+            shared.commit();
+            if (releaseSharedWriter()) {
+                IOUtilities.deleteRecursively(getFileDirectory());
+            }
+        } else {
+            writer.close();
+            IOUtilities.deleteRecursively(getFileDirectory());
+        }
         if (indexationToStop.contains(serviceID)) {
             indexationToStop.remove(serviceID);
         }
@@ -411,7 +530,6 @@ public abstract class AbstractIndexer<E> extends IndexLucene {
      */
     public void removeDocument(final String identifier) {
         try {
-            final Directory dir   = LuceneUtils.getAppropriateDirectory(getFileDirectory());
             final Term t          = new Term("id", identifier);
             final TermQuery query = new TermQuery(t);
             LOGGER.log(logLevel, "Term query:{0}", query);
@@ -433,14 +551,21 @@ public abstract class AbstractIndexer<E> extends IndexLucene {
                 }
             }
 
-            final IndexWriterConfig config = new IndexWriterConfig(analyzer);
-            final IndexWriter writer       = new IndexWriter(dir, config);
-            writer.deleteDocuments(query);
+            final SharedIndexWriter shared;
+            synchronized (this) {
+                shared = sharedWriter;
+            }
+            if (shared != null) {
+                shared.deleteDocuments(query);
+            } else {
+                final IndexWriterConfig config = new IndexWriterConfig(analyzer);
+                final IndexWriter writer       = new IndexWriter(LuceneUtils.getAppropriateDirectory(getFileDirectory()), config);
+                writer.deleteDocuments(query);
+                writer.commit();
+                writer.close();
+            }
             LOGGER.log(logLevel, "Metadata: {0} removed from the index", identifier);
 
-            writer.commit();
-            writer.close();
-
         } catch (CorruptIndexException ex) {
             LOGGER.log(Level.WARNING, "CorruptIndexException while indexing document: " + ex.getMessage(), ex);
         } catch (IOException ex) {
@@ -508,6 +633,7 @@ public abstract class AbstractIndexer<E> extends IndexLucene {
      */
     @Override
     public void destroy() {
+        releaseSharedWriter();
         super.destroy();
     }
 
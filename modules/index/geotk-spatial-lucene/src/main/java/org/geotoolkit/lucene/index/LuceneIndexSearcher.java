@@ -27,8 +27,6 @@ import java.util.logging.Level;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.index.CorruptIndexException;
-import org.apache.lucene.index.DirectoryReader;
-import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.queryparser.classic.ParseException;
 import org.apache.lucene.queryparser.classic.QueryParser;
@@ -37,7 +35,9 @@ import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.Filter;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ReferenceManager;
 import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
 import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.TopDocs;
@@ -61,9 +61,40 @@ public class LuceneIndexSearcher extends IndexLucene {
 
     /**
      * This is the index searcher of Lucene.
+     * It is the searcher acquired at the last refresh, searches acquire their own
+     * searcher from the {@link #searcherManager} to see the latest modifications.
      */
     protected IndexSearcher searcher;
 
+    /**
+     * Provides up to date searchers. It is the near-real-time manager of the
+     * {@link SharedIndexWriter} if one is open on the index directory, or a
+     * manager reopening the committed index otherwise.
+     */
+    private ReferenceManager<IndexSearcher> searcherManager;
+
+    /**
+     * The shared writer providing the searcher manager, acquired by this object and released with it.
+     * Null if the searcher manager has been created by this object and must be closed with it.
+     */
+    private SharedIndexWriter sharedWriter;
+
+    /**
+     * Clear the query cache when the searcher manager opens a new searcher.
+     */
+    private final ReferenceManager.RefreshListener refreshListener = new ReferenceManager.RefreshListener() {
+        @Override
+        public void beforeRefresh() {
+        }
+
+        @Override
+        public void afterRefresh(final boolean didRefresh) {
+            if (didRefresh) {
+                cachedQueries.clear();
+            }
+        }
+    };
+
     /**
      * A default Query requesting all the document
      */
@@ -84,11 +115,6 @@ public class LuceneIndexSearcher extends IndexLucene {
      */
     private final boolean isCacheEnabled;
 
-    /**
-     * A Map of DocID -> metadata ID .
-     */
-    private final Map<Integer, String> identifiers = new HashMap<>();
-
     /**
      * A list of numeric fields names.
      */
@@ -179,7 +205,6 @@ public class LuceneIndexSearcher extends IndexLucene {
             }
             isCacheEnabled        = true;
             initSearcher();
-            initIdentifiersList();
 
         } catch (CorruptIndexException ex) {
             throw new IndexingException("Corruption encountered during index searcher creation", ex);
@@ -195,37 +220,79 @@ public class LuceneIndexSearcher extends IndexLucene {
     private void initSearcher() throws CorruptIndexException, IOException {
         final Path indexDirectory = getFileDirectory();
         this.rTree = SQLRtreeManager.get(indexDirectory, this);
-        final IndexReader reader  = DirectoryReader.open(LuceneUtils.getAppropriateDirectory(indexDirectory));
-        searcher                  = new IndexSearcher(reader);
-        LOGGER.log(Level.INFO, "Creating new Index Searcher with index directory:{0}", indexDirectory.toString());
-
+        sharedWriter = SharedIndexWriter.acquireExisting(indexDirectory);
+        if (sharedWriter != null) {
+            searcherManager = sharedWriter.getSearcherManager();
+            LOGGER.log(Level.INFO, "Creating near-real-time Index Searcher with index directory:{0}", indexDirectory.toString());
+        } else {
+            searcherManager = new SearcherManager(LuceneUtils.getAppropriateDirectory(indexDirectory), null);
+            LOGGER.log(Level.INFO, "Creating new Index Searcher with index directory:{0}", indexDirectory.toString());
+        }
+        searcherManager.addListener(refreshListener);
+        searcher = searcherManager.acquire();
+        LOGGER.log(logLevel, "{0} records found.", searcher.getIndexReader().numDocs());
     }
 
     /**
-     * Fill the list of identifiers ordered by doc ID
+     * Close the searcher manager, or release the shared writer owning it.
      */
-    private void initIdentifiersList() throws IOException {
-        final Map<Integer, String> temp = new HashMap<>();
-        final int nbValidDoc = searcher.getIndexReader().numDocs(); // do not take in count deleted document
-        final long nbDoc = searcher.collectionStatistics("id").maxDoc(); // contains deleted document
-        for (int i = 0; i < nbDoc; i++) {
-            final String metadataID = getMatchingID(searcher.doc(i));
-            temp.put(i, metadataID);
+    private void closeSearcher() throws IOException {
+        if (searcherManager != null) {
+            searcherManager.removeListener(refreshListener);
+            try {
+                searcherManager.release(searcher);
+            } finally {
+                try {
+                    if (sharedWriter != null) {
+                        //the manager is closed with the writer, when its last user releases it
+                        sharedWriter.release();
+                    } else {
+                        searcherManager.close();
+                    }
+                } finally {
+                    searcher        = null;
+                    searcherManager = null;
+                    sharedWriter    = null;
+                }
+            }
         }
-        identifiers.clear();
-        identifiers.putAll(temp);
-        LOGGER.log(logLevel, "{0} records found.", nbValidDoc);
+    }
+
+    /**
+     * Acquire an up to date searcher, it must be released after use with {@link #releaseSearcher(IndexSearcher)}.
+     * Only the modified segments of the index are reopened.
+     *
+     * @return current index searcher.
+     * @throws IOException if the index can not be reopened.
+     */
+    protected IndexSearcher acquireSearcher() throws IOException {
+        searcherManager.maybeRefresh();
+        return searcherManager.acquire();
+    }
+
+    /**
+     * Release a searcher obtained by {@link #acquireSearcher()}.
+     *
+     * @param s searcher to release.
+     * @throws IOException if the searcher reader can not be closed.
+     */
+    protected void releaseSearcher(final IndexSearcher s) throws IOException {
+        searcherManager.release(s);
     }
 
     /**
      * Refresh the searcher (must be call after deleting document from the index for example)
+     * Only the modified segments of the index are reopened.
      *
      * @throws IndexingException
      */
     public void refresh() throws IndexingException {
         try {
-            initSearcher();
-            initIdentifiersList();
+            this.rTree = SQLRtreeManager.get(getFileDirectory(), this);
+            searcherManager.maybeRefreshBlocking();
+            final IndexSearcher previous = searcher;
+            searcher = searcherManager.acquire();
+            searcherManager.release(previous);
             cachedQueries.clear();
             LOGGER.log(logLevel, "refreshing index searcher");
         } catch (CorruptIndexException ex) {
@@ -236,12 +303,13 @@ public class LuceneIndexSearcher extends IndexLucene {
     }
 
     /**
-     * Add the metadata id to the list of result if its present in the identifiers.
+     * Add the metadata id to the list of result if its present in the document.
+     * @param s searcher which has found the document
      * @param results
      * @param docID
      */
-    private void addToResult(final Set<String> results, final int docID) {
-        final String metadataID = identifiers.get(docID);
+    private void addToResult(final IndexSearcher s, final Set<String> results, final int docID) throws IOException {
+        final String metadataID = getMatchingID(s.doc(docID));
         if (metadataID != null) {
             results.add(metadataID);
         } else {
@@ -259,7 +327,9 @@ public class LuceneIndexSearcher extends IndexLucene {
      * @throws SearchingException
      */
     public String identifierQuery(final String id) throws SearchingException {
+        IndexSearcher searcher = null;
         try {
+            searcher = acquireSearcher();
             final TermQuery query = new TermQuery(new Term(getIdentifierSearchField(), id));
             final Set<String> results = new LinkedHashSet<>();
             final int maxRecords = (int)searcher.collectionStatistics("id").maxDoc();
@@ -281,6 +351,8 @@ public class LuceneIndexSearcher extends IndexLucene {
             }
         } catch (IOException ex) {
             throw new SearchingException("Parse Exception while performing lucene request", ex);
+        } finally {
+            release(searcher);
         }
         return null;
     }
@@ -319,11 +391,15 @@ public class LuceneIndexSearcher extends IndexLucene {
      */
     public Set<String> doSearch(final SpatialQuery spatialQueryI) throws SearchingException {
         org.geotoolkit.lucene.filter.SpatialQuery spatialQuery = (org.geotoolkit.lucene.filter.SpatialQuery) spatialQueryI;
+        IndexSearcher searcher = null;
         try {
             final long start = System.currentTimeMillis();
             final Set<String> results = new LinkedHashSet<>();
             spatialQuery.applyRtreeOnFilter(rTree, envelopeOnly);
 
+            // reopen modified segments first, the cache is cleared if the index has changed
+            searcher = acquireSearcher();
+
             //we look for a cached Query
             if (isCacheEnabled && cachedQueries.containsKey(spatialQuery)) {
                 final Set<String> cachedResults = cachedQueries.get(spatialQuery);
@@ -394,7 +470,7 @@ public class LuceneIndexSearcher extends IndexLucene {
                     docs = searcher.search(query, filter, maxRecords);
                 }
                 for (ScoreDoc doc : docs.scoreDocs) {
-                    addToResult(results, doc.doc);
+                    addToResult(searcher, results, doc.doc);
                 }
 
             // for a OR we need to perform many request
@@ -409,10 +485,10 @@ public class LuceneIndexSearcher extends IndexLucene {
                     hits2 = searcher.search(SIMPLE_QUERY, spatialQuery.getSpatialFilter(), maxRecords);
                 }
                 for (ScoreDoc doc : hits1.scoreDocs) {
-                    addToResult(results, doc.doc);
+                    addToResult(searcher, results, doc.doc);
                 }
                 for (ScoreDoc doc : hits2.scoreDocs) {
-                    addToResult(results, doc.doc);
+                    addToResult(searcher, results, doc.doc);
                 }
 
             // for a NOT we need to perform many request
@@ -425,7 +501,7 @@ public class LuceneIndexSearcher extends IndexLucene {
                 }
                 final Set<String> unWanteds = new LinkedHashSet<>();
                 for (ScoreDoc doc : hits1.scoreDocs) {
-                    addToResult(unWanteds, doc.doc);
+                    addToResult(searcher, unWanteds, doc.doc);
                 }
 
                 final TopDocs hits2;
@@ -435,7 +511,7 @@ public class LuceneIndexSearcher extends IndexLucene {
                     hits2 = searcher.search(SIMPLE_QUERY, maxRecords);
                 }
                 for (ScoreDoc doc : hits2.scoreDocs) {
-                    final String id = identifiers.get(doc.doc);
+                    final String id = getMatchingID(searcher.doc(doc.doc));
                     if (id != null && !unWanteds.contains(id)) {
                         results.add(id);
                     }
@@ -480,6 +556,21 @@ public class LuceneIndexSearcher extends IndexLucene {
             throw new SearchingException("Parse Exception while performing lucene request", ex);
         } catch (IOException ex) {
            throw new SearchingException("IO Exception while performing lucene request", ex);
+        } finally {
+            release(searcher);
+        }
+    }
+
+    /**
+     * Release a searcher acquired for a search, if any.
+     */
+    private void release(final IndexSearcher s) throws SearchingException {
+        if (s != null) {
+            try {
+                releaseSearcher(s);
+            } catch (IOException ex) {
+                throw new SearchingException("IO Exception while releasing lucene searcher", ex);
+            }
         }
     }
 
@@ -523,6 +614,11 @@ public class LuceneIndexSearcher extends IndexLucene {
     public void destroy() {
         super.destroy();
         LOGGER.info("shutting down index searcher");
+        try {
+            closeSearcher();
+        } catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "IO exception while closing index searcher", ex);
+        }
         cachedQueries.clear();
     }
 }
@@ -0,0 +1,283 @@
+/*
+ *    Geotoolkit - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2018, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation; either
+ *    version 3 of the License, or (at your option) any later version.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.lucene.index;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.sis.util.ArgumentChecks;
+import org.apache.sis.util.logging.Logging;
+import org.geotoolkit.internal.Threads;
+import org.geotoolkit.lucene.LuceneUtils;
+
+/**
+ * A single {@link IndexWriter} shared by all the indexers and searchers working
+ * on the same index directory.
+ *
+ * Opening a writer, committing and closing it for each document update is costly.
+ * The shared writer stays open, modifications are committed by groups : when the
+ * number of pending modifications reach a threshold, or periodically.
+ * Searchers acquire the writer too and use its near-real-time {@link SearcherManager},
+ * so modifications are visible to searches before being committed.
+ *
+ * Instances are obtained with {@link #acquire(Path, Analyzer, long, int)} and
+ * must be released with {@link #release()} when no longer needed. The writer
+ * is committed and closed when the last user releases it.
+ *
+ * @module
+ */
+public final class SharedIndexWriter {
+
+    private static final Logger LOGGER = Logging.getLogger("org.geotoolkit.lucene.index");
+
+    /**
+     * Default delay between two commits, in milliseconds.
+     */
+    public static final long DEFAULT_COMMIT_INTERVAL = 1000;
+
+    /**
+     * Default number of pending modifications causing a commit.
+     */
+    public static final int DEFAULT_COMMIT_COUNT = 1000;
+
+    /**
+     * Shared writers by index directory.
+     */
+    private static final Map<Path, SharedIndexWriter> WRITERS = new HashMap<>();
+
+    /**
+     * Executor running periodic commits, created when the first writer is
+     * opened and shutdown when the last one is closed.
+     */
+    private static ScheduledExecutorService COMMITTER;
+
+    private final Path directory;
+    private final IndexWriter writer;
+    private final SearcherManager searcherManager;
+    private final int commitCount;
+    private final ScheduledFuture<?> commitTask;
+
+    /**
+     * Number of modifications since last commit.
+     */
+    private int pending;
+
+    /**
+     * Number of users of this writer, guarded by the class lock.
+     */
+    private int users;
+
+    /**
+     * Commits hold the read lock, closing holds the write lock so it waits for running commits.
+     */
+    private final ReentrantReadWriteLock closeLock = new ReentrantReadWriteLock();
+
+    /**
+     * True once the writer is closed, guarded by {@link #closeLock}.
+     */
+    private boolean closed;
+
+    private SharedIndexWriter(final Path directory, final Analyzer analyzer,
+            final long commitInterval, final int commitCount) throws IOException {
+        this.directory   = directory;
+        this.commitCount = commitCount;
+        this.writer      = new IndexWriter(LuceneUtils.getAppropriateDirectory(directory), new IndexWriterConfig(analyzer));
+        this.searcherManager = new SearcherManager(writer, true, null);
+
+        if (COMMITTER == null) {
+            COMMITTER = Executors.newSingleThreadScheduledExecutor(Threads.createThreadFactory("Lucene commit #"));
+        }
+        commitTask = COMMITTER.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    commit();
+                } catch (IOException | RuntimeException ex) {
+                    LOGGER.log(Level.WARNING, "Unable to commit index " + SharedIndexWriter.this.directory, ex);
+                }
+            }
+        }, commitInterval, commitInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Get the shared writer of the given index directory, opening it if needed.
+     * If the writer is already open, the analyzer and commit parameters are ignored.
+     *
+     * @param directory index directory.
+     * @param analyzer analyzer used when opening the writer.
+     * @param commitInterval maximum delay in milliseconds before modifications are committed.
+     * @param commitCount number of pending modifications causing an immediate commit.
+     * @return shared writer, to release after use.
+     * @throws IOException if the index writer can not be opened.
+     */
+    public static synchronized SharedIndexWriter acquire(final Path directory, final Analyzer analyzer,
+            final long commitInterval, final int commitCount) throws IOException {
+        ArgumentChecks.ensureNonNull("directory", directory);
+        ArgumentChecks.ensureStrictlyPositive("commitInterval", commitInterval);
+        ArgumentChecks.ensureStrictlyPositive("commitCount", commitCount);
+        final Path key = directory.toAbsolutePath().normalize();
+        SharedIndexWriter shared = WRITERS.get(key);
+        if (shared == null) {
+            shared = new SharedIndexWriter(key, analyzer, commitInterval, commitCount);
+            WRITERS.put(key, shared);
+        }
+        shared.users++;
+        return shared;
+    }
+
+    /**
+     * Acquire the shared writer currently open on the given index directory, without opening a new one.
+     * Searchers use this method so the writer and its searcher manager are not closed while they use them.
+     *
+     * @param directory index directory.
+     * @return shared writer, to release after use, or null if none is open.
+     */
+    static synchronized SharedIndexWriter acquireExisting(final Path directory) {
+        final SharedIndexWriter shared = WRITERS.get(directory.toAbsolutePath().normalize());
+        if (shared != null) {
+            shared.users++;
+        }
+        return shared;
+    }
+
+    /**
+     * @return the Lucene index writer, modifications made directly on it are committed by this object.
+     */
+    public IndexWriter getWriter() {
+        return writer;
+    }
+
+    /**
+     * @return near-real-time searcher manager on this writer, valid until this writer is released.
+     */
+    public SearcherManager getSearcherManager() {
+        return searcherManager;
+    }
+
+    /**
+     * Add a document to the index.
+     * Indexers computing document ids from {@link IndexWriter#maxDoc() } hold this object
+     * lock too, so the document is added with the same lock.
+     *
+     * @param doc document to add.
+     * @throws IOException if the document can not be written.
+     */
+    public void addDocument(final Document doc) throws IOException {
+        synchronized (this) {
+            writer.addDocument(doc);
+        }
+        changed(1);
+    }
+
+    /**
+     * Delete documents matching the query.
+     *
+     * @param query documents to delete.
+     * @throws IOException if the deletion can not be written.
+     */
+    public void deleteDocuments(final Query query) throws IOException {
+        writer.deleteDocuments(query);
+        changed(1);
+    }
+
+    /**
+     * Declare modifications made directly on the writer, commit if there are too many pending modifications.
+     *
+     * @param count number of modifications.
+     * @throws IOException if the commit failed.
+     */
+    public void changed(final int count) throws IOException {
+        final boolean needCommit;
+        synchronized (this) {
+            pending += count;
+            needCommit = pending >= commitCount;
+        }
+        if (needCommit) {
+            commit();
+        }
+    }
+
+    /**
+     * Commit pending modifications.
+     *
+     * @throws IOException if the commit failed.
+     */
+    public void commit() throws IOException {
+        closeLock.readLock().lock();
+        try {
+            if (closed) return;
+            synchronized (this) {
+                if (pending == 0 && !writer.hasUncommittedChanges()) return;
+                pending = 0;
+            }
+            writer.commit();
+        } finally {
+            closeLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Release this writer. The writer is committed and closed when there are no more users.
+     * The writer is closed before the directory can be acquired again, so a new writer
+     * never waits for the index lock of the closed one.
+     *
+     * @return true if the writer has been closed, false if it is still used.
+     * @throws IOException if the writer can not be committed or closed.
+     */
+    public boolean release() throws IOException {
+        synchronized (SharedIndexWriter.class) {
+            if (--users > 0) return false;
+            try {
+                commitTask.cancel(false);
+                //wait for a running periodic commit
+                closeLock.writeLock().lock();
+                try {
+                    closed = true;
+                    try {
+                        searcherManager.close();
+                    } finally {
+                        writer.close();
+                    }
+                } finally {
+                    closeLock.writeLock().unlock();
+                }
+            } finally {
+                WRITERS.remove(directory);
+                if (WRITERS.isEmpty()) {
+                    COMMITTER.shutdown();
+                    COMMITTER = null;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -2467,6 +2467,96 @@ public class LuceneSearcherTest extends org.geotoolkit.test.TestBase {
         assertTrue(results.contains("line 1 projected"));
     }
 
+    /**
+     * Test that modifications made through a shared index writer are visible
+     * to a searcher without recreating it.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void ManagedModeTest() throws Exception {
+        final Analyzer analyzer = new StandardAnalyzer();
+        final DocumentIndexer indexer = new DocumentIndexer(directory, null, analyzer);
+        indexer.setManagedMode(60000, 1000);
+        final LuceneIndexSearcher nrtSearcher = new LuceneIndexSearcher(directory, null, new ClassicAnalyzer(), false);
+        try {
+            org.opengis.filter.Filter bboxFilter = FF.bbox(GEOMETRY_PROPERTY, -20, -20, 20, 20, "CRS:84");
+            SpatialQuery bboxQuery = new SpatialQuery(wrap(bboxFilter));
+
+            Set<String> results = nrtSearcher.doSearch(bboxQuery);
+            assertTrue(results.contains("box 2 projected"));
+            final int nbResults = results.size();
+
+            // not committed, but visible through the near-real-time searcher
+            indexer.removeDocument("box 2 projected");
+            results = nrtSearcher.doSearch(bboxQuery);
+            assertEquals(nbResults - 1, results.size());
+            assertFalse(results.contains("box 2 projected"));
+
+            // re-add the document
+            final CoordinateReferenceSystem CRS3395 = CRS.forCode("EPSG:3395");
+            Document docu = new Document();
+            docu.add(new StringField("id", "box 2 projected", Field.Store.YES));
+            docu.add(new StringField("docid", 66 + "", Field.Store.YES));
+            docu.add(new StringField("metafile", "doc",   Field.Store.YES));
+            NamedEnvelope env = addBoundingBox(docu,             556597.4539663679,  1113194.9079327357,  1111475.1028522244, 1678147.5163917788, CRS3395);
+            indexer.indexDocument(new DocumentIndexer.DocumentEnvelope(docu, env));
+
+            results = nrtSearcher.doSearch(bboxQuery);
+            assertEquals(nbResults, results.size());
+            assertTrue(results.contains("box 2 projected"));
+        } finally {
+            nrtSearcher.destroy();
+            indexer.destroy();
+        }
+
+        // modifications are committed when the shared writer is released
+        searcher.refresh();
+        org.opengis.filter.Filter bboxFilter = FF.bbox(GEOMETRY_PROPERTY, -20, -20, 20, 20, "CRS:84");
+        Set<String> results = searcher.doSearch(new SpatialQuery(wrap(bboxFilter)));
+        assertTrue(results.contains("box 2 projected"));
+    }
+
+    /**
+     * Test that a searcher using the shared index writer stays usable
+     * after the indexer which opened the writer released it.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void ManagedModeReleaseTest() throws Exception {
+        final DocumentIndexer indexer = new DocumentIndexer(directory, null, new StandardAnalyzer());
+        indexer.setManagedMode(60000, 1000);
+        final LuceneIndexSearcher nrtSearcher = new LuceneIndexSearcher(directory, null, new ClassicAnalyzer(), false);
+        try {
+            org.opengis.filter.Filter bboxFilter = FF.bbox(GEOMETRY_PROPERTY, -20, -20, 20, 20, "CRS:84");
+            SpatialQuery bboxQuery = new SpatialQuery(wrap(bboxFilter));
+            final Set<String> expected = nrtSearcher.doSearch(bboxQuery);
+
+            // the searcher still holds the shared writer, its searcher manager must not be closed
+            indexer.destroy();
+            nrtSearcher.refresh();
+            assertEquals(expected, nrtSearcher.doSearch(bboxQuery));
+        } finally {
+            nrtSearcher.destroy();
+        }
+    }
+
+    /**
+     * Test that the directory can be acquired again right after the last user
+     * released the shared index writer, without failing on the write lock.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void ManagedModeReacquireTest() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            final DocumentIndexer indexer = new DocumentIndexer(directory, null, new StandardAnalyzer());
+            indexer.setManagedMode(60000, 1000);
+            indexer.destroy();
+        }
+        searcher.refresh();
+        org.opengis.filter.Filter bboxFilter = FF.bbox(GEOMETRY_PROPERTY, -20, -20, 20, 20, "CRS:84");
+        assertFalse(searcher.doSearch(new SpatialQuery(wrap(bboxFilter))).isEmpty());
+    }
+
     private static List<DocumentEnvelope> fillTestData() throws Exception {
 
         final List<DocumentEnvelope> docs = new ArrayList<>();
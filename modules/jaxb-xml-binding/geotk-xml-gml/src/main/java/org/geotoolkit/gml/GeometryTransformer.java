@@ -588,7 +588,18 @@ public class GeometryTransformer implements Supplier<Geometry> {
     }
 
     protected CoordinateReferenceSystem findCRS(final String srsName) {
-        final boolean longitudeFirst = isLongitudeFirst();
+        return findCRS(srsName, isLongitudeFirst());
+    }
+
+    /**
+     * Decode a GML srsName attribute. Decoded systems are cached.
+     *
+     * @param srsName The CRS identifier.
+     * @param longitudeFirst True to force {@link AxesConvention#RIGHT_HANDED} convention.
+     * @return Found coordinate reference system, never null.
+     * @throws UnconvertibleObjectException If the identifier cannot be decoded.
+     */
+    public static CoordinateReferenceSystem findCRS(final String srsName, final boolean longitudeFirst) {
         try {
             return CRS_CACHE.getOrCreate(new AbstractMap.SimpleImmutableEntry<>(srsName, longitudeFirst), () -> GeometryTransformer.loadCRS(srsName, longitudeFirst));
         } catch (Exception ex) {
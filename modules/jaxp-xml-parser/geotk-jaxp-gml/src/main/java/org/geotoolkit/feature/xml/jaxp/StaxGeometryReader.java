@@ -0,0 +1,528 @@
+/*
+ *    Geotoolkit - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2018, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.feature.xml.jaxp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.apache.sis.util.UnconvertibleObjectException;
+import org.geotoolkit.geometry.jts.JTS;
+import org.geotoolkit.gml.GeometryTransformer;
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryCollection;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.LinearRing;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.geom.impl.PackedCoordinateSequenceFactory;
+
+import static javax.xml.stream.XMLStreamConstants.*;
+
+/**
+ * Decode GML 3.1.1 and 3.2.1 geometries directly from a {@link XMLStreamReader}.<br>
+ * Coordinates of Point, LineString, LinearRing, Polygon and their multi-geometries
+ * (MultiPoint, MultiLineString, MultiCurve, MultiPolygon, MultiSurface) are read from
+ * pos, posList, coordinates and coord elements into packed coordinate sequences, without
+ * intermediate binding objects. Other geometries are delegated to a fallback reader.
+ * <p>
+ * Decoded geometries follow {@link GeometryTransformer} rules : srsName and srsDimension
+ * are inherited from enclosing geometries, coordinates are never swapped.
+ * </p>
+ * Each read method expects the reader on the START_ELEMENT of the geometry and
+ * returns with the reader on the event following the matching END_ELEMENT, as
+ * JAXB unmarshaller does.
+ *
+ * @module
+ */
+final class StaxGeometryReader {
+
+    static final String GML_311 = "http://www.opengis.net/gml";
+    static final String GML_321 = "http://www.opengis.net/gml/3.2";
+
+    private static final GeometryFactory GF = new GeometryFactory(PackedCoordinateSequenceFactory.DOUBLE_FACTORY);
+
+    /**
+     * Reader of geometries not supported by this decoder.
+     */
+    @FunctionalInterface
+    interface Fallback {
+        /**
+         * Read geometry at current START_ELEMENT, the reader is left on the event following
+         * the matching END_ELEMENT.
+         */
+        Geometry read() throws XMLStreamException;
+    }
+
+    private final XMLStreamReader reader;
+    private final boolean longitudeFirst;
+    private final Fallback fallback;
+
+    /**
+     * Coordinates of the geometry being read.
+     */
+    private double[] coords = new double[64];
+    private int size;
+    private int dimension;
+
+    StaxGeometryReader(final XMLStreamReader reader, final boolean longitudeFirst, final Fallback fallback) {
+        this.reader = reader;
+        this.longitudeFirst = longitudeFirst;
+        this.fallback = fallback;
+    }
+
+    /**
+     * @param namespace element namespace URI
+     * @return true if element is in a GML 3.1.1 or 3.2.1 namespace
+     */
+    static boolean isGML(final String namespace) {
+        return GML_311.equals(namespace) || GML_321.equals(namespace);
+    }
+
+    /**
+     * Read the geometry at current START_ELEMENT.
+     *
+     * @return decoded geometry, never null
+     */
+    Geometry read() throws XMLStreamException {
+        return read(null, 0);
+    }
+
+    /**
+     * @param srsName srsName of enclosing geometry, may be null
+     * @param srsDimension srsDimension of enclosing geometry, 0 if undefined
+     */
+    private Geometry read(String srsName, int srsDimension) throws XMLStreamException {
+        if (!isGML(reader.getNamespaceURI())) {
+            return fallback(srsName);
+        }
+        final String att = reader.getAttributeValue(null, "srsName");
+        if (att != null) srsName = att;
+        srsDimension = srsDimension(srsDimension);
+
+        final Geometry geom;
+        switch (reader.getLocalName()) {
+            case "Point": {
+                readCoordinates(srsDimension);
+                geom = GF.createPoint(size == 0 ? null : sequence());
+                break;
+            }
+            case "LineString": {
+                readCoordinates(srsDimension);
+                geom = GF.createLineString(sequence());
+                break;
+            }
+            case "LinearRing": {
+                final String posListSrs = readCoordinates(srsDimension);
+                if (srsName == null) srsName = posListSrs;
+                geom = GF.createLinearRing(sequence());
+                break;
+            }
+            case "Polygon": {
+                geom = readPolygon(srsName, srsDimension);
+                break;
+            }
+            case "MultiPoint":
+            case "MultiLineString":
+            case "MultiCurve":
+            case "MultiPolygon":
+            case "MultiSurface": {
+                geom = readMulti(reader.getLocalName(), srsName, srsDimension);
+                break;
+            }
+            default: return fallback(srsName);
+        }
+        applyCRS(geom, srsName);
+        return geom;
+    }
+
+    /**
+     * Delegate reading to the fallback reader. The enclosing geometry CRS is
+     * applied if the returned geometry does not define one.
+     */
+    private Geometry fallback(final String srsName) throws XMLStreamException {
+        final Geometry geom = fallback.read();
+        if (geom.getUserData() == null) {
+            applyCRS(geom, srsName);
+        }
+        return geom;
+    }
+
+    private void applyCRS(final Geometry geom, final String srsName) throws XMLStreamException {
+        if (srsName != null) {
+            try {
+                JTS.setCRS(geom, GeometryTransformer.findCRS(srsName, longitudeFirst));
+            } catch (UnconvertibleObjectException ex) {
+                throw new XMLStreamException(ex.getMessage(), ex);
+            }
+        }
+    }
+
+    /**
+     * @return srsDimension attribute of current element, or given default value
+     */
+    private int srsDimension(final int defaultValue) throws XMLStreamException {
+        final String att = reader.getAttributeValue(null, "srsDimension");
+        if (att == null) return defaultValue;
+        try {
+            return Integer.parseInt(att.trim());
+        } catch (NumberFormatException ex) {
+            throw new XMLStreamException("Invalid srsDimension : " + att, reader.getLocation(), ex);
+        }
+    }
+
+    /**
+     * Move to the next START_ELEMENT child, or after the END_ELEMENT of the current element.
+     *
+     * @return true if reader is on a child START_ELEMENT
+     */
+    private boolean nextChild() throws XMLStreamException {
+        for (int event = reader.getEventType(); ; event = reader.next()) {
+            if (event == START_ELEMENT) return true;
+            if (event == END_ELEMENT) {
+                reader.next();
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Skip current element and its content.
+     */
+    private void skipElement() throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            final int event = reader.next();
+            if (event == START_ELEMENT) depth++;
+            else if (event == END_ELEMENT) depth--;
+        }
+        reader.next();
+    }
+
+    /**
+     * Read the text of current element and move after its END_ELEMENT.
+     */
+    private String elementText() throws XMLStreamException {
+        final String text = reader.getElementText();
+        reader.next();
+        return text;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Coordinates /////////////////////////////////////////////////////////////
+    ////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Read the coordinates of a Point, LineString or LinearRing in the coordinate buffer.
+     *
+     * @param srsDimension srsDimension of the geometry, 0 if undefined
+     * @return srsName of the posList element, may be null
+     */
+    private String readCoordinates(final int srsDimension) throws XMLStreamException {
+        size = 0;
+        dimension = 0;
+        String posListSrs = null;
+        reader.next();
+        while (nextChild()) {
+            switch (reader.getLocalName()) {
+                case "pos": {
+                    final int dim = srsDimension(0);
+                    final int start = size;
+                    parseValues(elementText());
+                    setDimension(dim > 0 ? dim : size - start);
+                    break;
+                }
+                case "posList": {
+                    final int dim = srsDimension(srsDimension);
+                    posListSrs = reader.getAttributeValue(null, "srsName");
+                    parseValues(elementText());
+                    setDimension(dim > 0 ? dim : 2);
+                    break;
+                }
+                case "coordinates": {
+                    parseCoordinates(srsDimension);
+                    break;
+                }
+                case "coord": {
+                    readCoord();
+                    break;
+                }
+                case "pointProperty":
+                case "pointRep":
+                case "pointMember": {
+                    reader.next();
+                    while (nextChild()) {
+                        //-- nested point coordinates are appended to the current buffer
+                        if (isGML(reader.getNamespaceURI()) && "Point".equals(reader.getLocalName())) {
+                            reader.next();
+                            while (nextChild()) readPosition();
+                        } else {
+                            skipElement();
+                        }
+                    }
+                    break;
+                }
+                default: skipElement();
+            }
+        }
+        if (dimension == 0) dimension = (srsDimension > 0) ? srsDimension : 2;
+        if (size % dimension != 0) {
+            throw new XMLStreamException("Number of ordinates " + size
+                    + " is not a multiple of dimension " + dimension, reader.getLocation());
+        }
+        return posListSrs;
+    }
+
+    /**
+     * Read a pos, coordinates or coord element of a nested point.
+     */
+    private void readPosition() throws XMLStreamException {
+        switch (reader.getLocalName()) {
+            case "pos": {
+                final int dim = srsDimension(0);
+                final int start = size;
+                parseValues(elementText());
+                setDimension(dim > 0 ? dim : size - start);
+                break;
+            }
+            case "coordinates": parseCoordinates(0); break;
+            case "coord": readCoord(); break;
+            default: skipElement();
+        }
+    }
+
+    private void setDimension(final int dim) throws XMLStreamException {
+        if (dim < 2 || dim > 3) {
+            throw new XMLStreamException("Only 2D and 3D positions accepted, but received dimension: " + dim, reader.getLocation());
+        }
+        if (dimension == 0) {
+            dimension = dim;
+        } else if (dimension != dim) {
+            throw new XMLStreamException("Inconsistent coordinate dimensions", reader.getLocation());
+        }
+    }
+
+    private void add(final double value) {
+        if (size == coords.length) {
+            coords = Arrays.copyOf(coords, size * 2);
+        }
+        coords[size++] = value;
+    }
+
+    /**
+     * Parse white space separated decimal values.
+     */
+    private void parseValues(final String text) throws XMLStreamException {
+        final int length = text.length();
+        int i = 0;
+        while (i < length) {
+            while (i < length && Character.isWhitespace(text.charAt(i))) i++;
+            if (i == length) break;
+            final int start = i;
+            while (i < length && !Character.isWhitespace(text.charAt(i))) i++;
+            add(parseDouble(text.substring(start, i)));
+        }
+    }
+
+    private double parseDouble(final String value) throws XMLStreamException {
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException ex) {
+            throw new XMLStreamException("Invalid coordinate value : " + value, reader.getLocation(), ex);
+        }
+    }
+
+    /**
+     * Parse a GML 2 coordinates element, using its decimal, tuple and coordinate separators.
+     * If tuples are not separated, values are grouped by srsDimension.
+     */
+    private void parseCoordinates(final int srsDimension) throws XMLStreamException {
+        final String decimal = attribute("decimal", ".");
+        final String cs = attribute("cs", ",");
+        final String ts = attribute("ts", " ");
+        String text = elementText().trim();
+        if (!".".equals(decimal)) {
+            text = text.replace(decimal, ".");
+        }
+        final boolean wsTuples = ts.trim().isEmpty();
+        final int length = text.length();
+        int tupleDim = -1;
+        int i = 0;
+        while (i < length) {
+            //-- find tuple end
+            int end;
+            if (wsTuples) {
+                end = i;
+                while (end < length && !Character.isWhitespace(text.charAt(end))) end++;
+            } else {
+                end = text.indexOf(ts, i);
+                if (end < 0) end = length;
+            }
+            //-- split tuple values
+            int dim = 0;
+            int start = i;
+            while (start <= end) {
+                int sep = text.indexOf(cs, start);
+                if (sep < 0 || sep > end) sep = end;
+                final String value = text.substring(start, sep).trim();
+                if (!value.isEmpty()) {
+                    add(parseDouble(value));
+                    dim++;
+                }
+                start = sep + cs.length();
+            }
+            if (tupleDim < 0) tupleDim = dim;
+            //-- move to next tuple
+            i = end + (wsTuples ? 0 : ts.length());
+            while (i < length && Character.isWhitespace(text.charAt(i))) i++;
+        }
+        if (tupleDim > 1) {
+            setDimension(tupleDim);
+        } else if (tupleDim > 0) {
+            setDimension(srsDimension > 0 ? srsDimension : 2);
+        }
+    }
+
+    private String attribute(final String name, final String defaultValue) {
+        final String value = reader.getAttributeValue(null, name);
+        return (value == null || value.isEmpty()) ? defaultValue : value;
+    }
+
+    /**
+     * Read a GML 2 coord element, made of X, Y and Z elements.
+     */
+    private void readCoord() throws XMLStreamException {
+        double x = Double.NaN, y = Double.NaN, z = Double.NaN;
+        reader.next();
+        while (nextChild()) {
+            switch (reader.getLocalName()) {
+                case "X": x = parseDouble(elementText().trim()); break;
+                case "Y": y = parseDouble(elementText().trim()); break;
+                case "Z": z = parseDouble(elementText().trim()); break;
+                default: skipElement();
+            }
+        }
+        add(x);
+        add(y);
+        if (Double.isNaN(z)) {
+            setDimension(2);
+        } else {
+            add(z);
+            setDimension(3);
+        }
+    }
+
+    /**
+     * @return packed sequence of buffered coordinates
+     */
+    private CoordinateSequence sequence() {
+        return PackedCoordinateSequenceFactory.DOUBLE_FACTORY.create(Arrays.copyOf(coords, size), dimension);
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Composed geometries /////////////////////////////////////////////////////
+    ////////////////////////////////////////////////////////////////////////////
+
+    private Polygon readPolygon(final String srsName, final int srsDimension) throws XMLStreamException {
+        LinearRing exterior = null;
+        final List<LinearRing> interiors = new ArrayList<>();
+        reader.next();
+        while (nextChild()) {
+            final String name = reader.getLocalName();
+            final boolean isExterior = "exterior".equals(name) || "outerBoundaryIs".equals(name);
+            if (isExterior || "interior".equals(name) || "innerBoundaryIs".equals(name)) {
+                reader.next();
+                while (nextChild()) {
+                    final Geometry ring = read(srsName, srsDimension);
+                    if (!(ring instanceof LinearRing)) {
+                        throw new XMLStreamException("Cannot create a polygon, because one of its boundaries is not a ring", reader.getLocation());
+                    }
+                    if (isExterior) {
+                        exterior = (LinearRing) ring;
+                    } else {
+                        interiors.add((LinearRing) ring);
+                    }
+                }
+            } else {
+                skipElement();
+            }
+        }
+        if (exterior == null) {
+            return GF.createPolygon((LinearRing) null);
+        }
+        return GF.createPolygon(exterior, interiors.toArray(new LinearRing[interiors.size()]));
+    }
+
+    /**
+     * Read members of a multi-geometry. Members may be wrapped one by one (pointMember,
+     * curveMember, ...) or all together (pointMembers, surfaceMembers, ...).
+     */
+    private Geometry readMulti(final String type, final String srsName, final int srsDimension) throws XMLStreamException {
+        final List<Geometry> members = new ArrayList<>();
+        reader.next();
+        while (nextChild()) {
+            if (reader.getLocalName().endsWith("Member") || reader.getLocalName().endsWith("Members")) {
+                reader.next();
+                while (nextChild()) {
+                    members.add(read(srsName, srsDimension));
+                }
+            } else {
+                skipElement();
+            }
+        }
+
+        switch (type) {
+            case "MultiPoint": {
+                return GF.createMultiPoint(components(members, Point.class, type).toArray(new Point[0]));
+            }
+            case "MultiLineString":
+            case "MultiCurve": {
+                return GF.createMultiLineString(components(members, LineString.class, type).toArray(new LineString[0]));
+            }
+            default: {
+                return GF.createMultiPolygon(components(members, Polygon.class, type).toArray(new Polygon[0]));
+            }
+        }
+    }
+
+    /**
+     * Check members type, members which are collections of the expected type are flattened.
+     */
+    private <T extends Geometry> List<T> components(final List<Geometry> members, final Class<T> type,
+            final String collectionType) throws XMLStreamException {
+        final List<T> components = new ArrayList<>(members.size());
+        for (Geometry member : members) {
+            if (type.isInstance(member)) {
+                components.add(type.cast(member));
+            } else if (member instanceof GeometryCollection) {
+                for (int i = 0, n = member.getNumGeometries(); i < n; i++) {
+                    final Geometry part = member.getGeometryN(i);
+                    if (!type.isInstance(part)) {
+                        throw new XMLStreamException("Cannot create a " + collectionType + ", because some of its components are not " + type.getSimpleName(), reader.getLocation());
+                    }
+                    components.add(type.cast(part));
+                }
+            } else {
+                throw new XMLStreamException("Cannot create a " + collectionType + ", because some of its components are not " + type.getSimpleName(), reader.getLocation());
+            }
+        }
+        return components;
+    }
+}
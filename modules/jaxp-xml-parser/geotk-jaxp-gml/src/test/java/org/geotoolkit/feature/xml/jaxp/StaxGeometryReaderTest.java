@@ -0,0 +1,157 @@
+/*
+ *    Geotoolkit - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2018, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.feature.xml.jaxp;
+
+import java.io.StringReader;
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.apache.sis.util.Utilities;
+import org.geotoolkit.geometry.jts.JTS;
+import org.geotoolkit.gml.GeometrytoJTS;
+import org.geotoolkit.gml.xml.AbstractGeometry;
+import org.geotoolkit.gml.xml.GMLMarshallerPool;
+import org.junit.Test;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.MultiLineString;
+import org.locationtech.jts.geom.MultiPolygon;
+
+import static javax.xml.stream.XMLStreamConstants.*;
+import static org.junit.Assert.*;
+
+/**
+ * Compare geometries decoded by {@link StaxGeometryReader} with JAXB decoding.
+ *
+ * @module
+ */
+public class StaxGeometryReaderTest extends org.geotoolkit.test.TestBase {
+
+    private static final String GML31 = "xmlns:gml=\"http://www.opengis.net/gml\"";
+    private static final String GML32 = "xmlns:gml=\"http://www.opengis.net/gml/3.2\"";
+
+    /**
+     * Decode the first child of a wrapping element and check the reader is left
+     * after the geometry, on the following sibling element.
+     */
+    private static Geometry read(final String gml) throws Exception {
+        final XMLStreamReader reader = XMLInputFactory.newInstance().createXMLStreamReader(
+                new StringReader("<wrapper>" + gml + "<next/></wrapper>"));
+        reader.nextTag();
+        reader.nextTag();
+        final Unmarshaller unmarshaller = GMLMarshallerPool.getInstance().acquireUnmarshaller();
+        try {
+            final Geometry geom = new StaxGeometryReader(reader, true, () -> {
+                try {
+                    final Object obj = ((JAXBElement) unmarshaller.unmarshal(reader)).getValue();
+                    return GeometrytoJTS.toJTS((AbstractGeometry) obj);
+                } catch (Exception ex) {
+                    throw new XMLStreamException(ex);
+                }
+            }).read();
+            assertEquals(START_ELEMENT, reader.getEventType());
+            assertEquals("next", reader.getLocalName());
+            return geom;
+        } finally {
+            GMLMarshallerPool.getInstance().recycle(unmarshaller);
+        }
+    }
+
+    private static void compare(final String gml) throws Exception {
+        final Geometry expected = GeometrytoJTS.toJTS(gml);
+        final Geometry result = read(gml);
+        assertEquals(expected.getGeometryType(), result.getGeometryType());
+        assertTrue(result.toText(), expected.equalsExact(result));
+        assertEquals(expected.getCoordinate() == null ? Double.NaN : expected.getCoordinate().z,
+                     result.getCoordinate()   == null ? Double.NaN : result.getCoordinate().z, 0.0);
+        assertTrue(Utilities.equalsIgnoreMetadata(
+                JTS.findCoordinateReferenceSystem(expected),
+                JTS.findCoordinateReferenceSystem(result)));
+    }
+
+    @Test
+    public void pointTest() throws Exception {
+        compare("<gml:Point " + GML31 + " srsName=\"EPSG:4326\"><gml:pos>10.5 -20.25</gml:pos></gml:Point>");
+        compare("<gml:Point " + GML32 + " srsName=\"urn:ogc:def:crs:EPSG::4326\"><gml:pos>10 20 30</gml:pos></gml:Point>");
+        compare("<gml:Point " + GML31 + " srsName=\"EPSG:4326\"><gml:coordinates>1.5,2.5</gml:coordinates></gml:Point>");
+        compare("<gml:Point " + GML31 + " srsName=\"EPSG:4326\"><gml:coord><gml:X>3</gml:X><gml:Y>4</gml:Y></gml:coord></gml:Point>");
+    }
+
+    @Test
+    public void lineStringTest() throws Exception {
+        compare("<gml:LineString " + GML32 + " srsName=\"EPSG:3857\">"
+              + "<gml:posList>0 0 10 10 20 0 30 10</gml:posList></gml:LineString>");
+        compare("<gml:LineString " + GML31 + " srsName=\"EPSG:4326\" srsDimension=\"3\">"
+              + "<gml:posList>0 0 1 10 10 2</gml:posList></gml:LineString>");
+        compare("<gml:LineString " + GML31 + " srsName=\"EPSG:4326\">"
+              + "<gml:pos>0 0</gml:pos><gml:pos>5 5</gml:pos></gml:LineString>");
+        compare("<gml:LineString " + GML31 + " srsName=\"EPSG:4326\">"
+              + "<gml:coordinates>0,0 5,5 10,0</gml:coordinates></gml:LineString>");
+    }
+
+    @Test
+    public void polygonTest() throws Exception {
+        compare("<gml:Polygon " + GML32 + " srsName=\"EPSG:4326\">"
+              + "<gml:exterior><gml:LinearRing><gml:posList>0 0 10 0 10 10 0 10 0 0</gml:posList></gml:LinearRing></gml:exterior>"
+              + "<gml:interior><gml:LinearRing><gml:posList>2 2 4 2 4 4 2 4 2 2</gml:posList></gml:LinearRing></gml:interior>"
+              + "</gml:Polygon>");
+        compare("<gml:Polygon " + GML31 + " srsName=\"EPSG:4326\">"
+              + "<gml:outerBoundaryIs><gml:LinearRing><gml:coordinates>0,0 10,0 10,10 0,0</gml:coordinates></gml:LinearRing></gml:outerBoundaryIs>"
+              + "</gml:Polygon>");
+    }
+
+    @Test
+    public void multiGeometryTest() throws Exception {
+        compare("<gml:MultiPoint " + GML31 + " srsName=\"EPSG:4326\">"
+              + "<gml:pointMember><gml:Point><gml:pos>1 2</gml:pos></gml:Point></gml:pointMember>"
+              + "<gml:pointMember><gml:Point><gml:pos>3 4</gml:pos></gml:Point></gml:pointMember>"
+              + "</gml:MultiPoint>");
+        compare("<gml:MultiCurve " + GML32 + " srsName=\"EPSG:4326\">"
+              + "<gml:curveMember><gml:LineString><gml:posList>0 0 1 1</gml:posList></gml:LineString></gml:curveMember>"
+              + "<gml:curveMember><gml:LineString><gml:posList>2 2 3 3</gml:posList></gml:LineString></gml:curveMember>"
+              + "</gml:MultiCurve>");
+        compare("<gml:MultiSurface " + GML31 + " srsName=\"EPSG:4326\">"
+              + "<gml:surfaceMember><gml:Polygon><gml:exterior><gml:LinearRing>"
+              + "<gml:posList>0 0 10 0 10 10 0 0</gml:posList></gml:LinearRing></gml:exterior></gml:Polygon></gml:surfaceMember>"
+              + "</gml:MultiSurface>");
+        compare("<gml:MultiPolygon " + GML31 + " srsName=\"EPSG:4326\">"
+              + "<gml:polygonMember><gml:Polygon><gml:outerBoundaryIs><gml:LinearRing>"
+              + "<gml:coordinates>0,0 10,0 10,10 0,0</gml:coordinates></gml:LinearRing></gml:outerBoundaryIs></gml:Polygon></gml:polygonMember>"
+              + "</gml:MultiPolygon>");
+    }
+
+    /**
+     * Nested geometries not supported by the direct decoder are read with the fallback.
+     */
+    @Test
+    public void fallbackTest() throws Exception {
+        Geometry geom = read("<gml:MultiCurve " + GML31 + " srsName=\"EPSG:4326\"><gml:curveMember>"
+              + "<gml:Curve><gml:segments><gml:LineStringSegment><gml:posList>0 0 1 1 2 0</gml:posList></gml:LineStringSegment></gml:segments></gml:Curve>"
+              + "</gml:curveMember></gml:MultiCurve>");
+        assertTrue(geom instanceof MultiLineString);
+        assertEquals(3, geom.getNumPoints());
+        assertNotNull(JTS.findCoordinateReferenceSystem(geom));
+
+        geom = read("<gml:MultiSurface " + GML31 + " srsName=\"EPSG:4326\"><gml:surfaceMember>"
+              + "<gml:Surface><gml:patches><gml:PolygonPatch><gml:exterior><gml:LinearRing>"
+              + "<gml:posList>0 0 10 0 10 10 0 0</gml:posList></gml:LinearRing></gml:exterior></gml:PolygonPatch></gml:patches></gml:Surface>"
+              + "</gml:surfaceMember></gml:MultiSurface>");
+        assertTrue(geom instanceof MultiPolygon);
+        assertEquals(4, geom.getNumPoints());
+    }
+}
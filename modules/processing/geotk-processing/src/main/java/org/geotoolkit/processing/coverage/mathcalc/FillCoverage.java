@@ -22,10 +22,11 @@ import java.awt.Point;
 import java.awt.image.BufferedImage;
 import java.awt.image.ColorModel;
 import java.awt.image.DataBuffer;
+import java.awt.image.RenderedImage;
 import java.awt.image.SampleModel;
 import java.awt.image.WritableRaster;
 import java.util.Arrays;
-import java.util.stream.Stream;
+import java.util.Collection;
 import org.apache.sis.coverage.grid.GridExtent;
 import org.apache.sis.coverage.grid.GridGeometry;
 import org.apache.sis.geometry.Envelopes;
@@ -43,6 +44,7 @@ import org.geotoolkit.coverage.io.GridCoverageWriter;
 import org.geotoolkit.data.multires.Mosaic;
 import org.geotoolkit.data.multires.Pyramid;
 import org.geotoolkit.data.multires.Pyramids;
+import org.geotoolkit.data.multires.TileGenerationScheduler;
 import org.geotoolkit.factory.FactoryFinder;
 import org.geotoolkit.geometry.HyperCubeIterator;
 import org.geotoolkit.image.BufferedImages;
@@ -190,6 +192,8 @@ public class FillCoverage {
 
     /**
      * Fill given coverage reference, providing it with processed images.
+     * Tiles are computed concurrently on the {@link TileGenerationScheduler#getDefault() default tile scheduler}.
+     * If a tile can not be computed, remaining tiles are skipped and the tile exception is thrown.
      *
      * @param evaluator
      * @param outRef
@@ -200,27 +204,70 @@ public class FillCoverage {
         final ColorModel cm = outRef.getColorModel();
         final SampleModel sm = outRef.getSampleModel();
 
-        for(Pyramid pyramid : outRef.getModels()){
+        //compiled expression is shared by all tiles
+        final MathCalcKernel kernel = (evaluator instanceof MathCalcCoverageEvaluator) ?
+                ((MathCalcCoverageEvaluator) evaluator).compile() : null;
+
+        final Collection<Pyramid> pyramids = outRef.getModels();
+        long total = 0;
+        for(Pyramid pyramid : pyramids){
             for(Mosaic mosaic : pyramid.getMosaics()){
-                final Dimension tileSize = mosaic.getTileSize();
-                final double[] upperLeftGeo = mosaic.getUpperLeftCorner().getCoordinate();
-
-                final Dimension gridSize = mosaic.getGridSize();
-                for(int y=0;y<gridSize.height;y++){
-                    for(int x=0;x<gridSize.width;x++){
-                        final MathTransform gridToCRS = Pyramids.getTileGridToCRS(mosaic, new Point(x, y), PixelInCell.CELL_CENTER);
-                        final MathTransform crsToGrid = gridToCRS.inverse();
-                        final double[] baseCoord = new double[upperLeftGeo.length];
-                        crsToGrid.transform(upperLeftGeo, 0, baseCoord, 0, 1);
-                        final MathCalcImageEvaluator eval = new MathCalcImageEvaluator(baseCoord, gridToCRS, evaluator.copy());
-                        final ProcessedRenderedImage image = new ProcessedRenderedImage(sm, cm, eval, tileSize.width, tileSize.height);
-                        mosaic.writeTiles(Stream.of(new DefaultImageTile(image, new Point(x, y))), null);
-                    }
+                total += ((long) mosaic.getGridSize().width) * mosaic.getGridSize().height;
+            }
+        }
+
+        final TileGenerationScheduler.Job job = TileGenerationScheduler.getDefault().begin(total, null);
+        //a pyramid with missing tiles is not a valid result
+        job.setFailFast(true);
+        try {
+            for(Pyramid pyramid : pyramids){
+                for(Mosaic mosaic : pyramid.getMosaics()){
+                    final Dimension tileSize = mosaic.getTileSize();
+                    final double[] upperLeftGeo = mosaic.getUpperLeftCorner().getCoordinate();
+                    final Dimension gridSize = mosaic.getGridSize();
+
+                    job.run(mosaic, ((long) gridSize.width) * gridSize.height, (long index, TileGenerationScheduler.TileWriter writer) -> {
+                        try {
+                            final Point coord = new Point((int) (index % gridSize.width), (int) (index / gridSize.width));
+                            final MathTransform gridToCRS = Pyramids.getTileGridToCRS(mosaic, coord, PixelInCell.CELL_CENTER);
+                            final MathTransform crsToGrid = gridToCRS.inverse();
+                            final double[] baseCoord = new double[upperLeftGeo.length];
+                            crsToGrid.transform(upperLeftGeo, 0, baseCoord, 0, 1);
+                            final MathCalcImageEvaluator eval = new MathCalcImageEvaluator(baseCoord, gridToCRS,
+                                    (kernel == null) ? evaluator.copy() : evaluator, kernel);
+                            final ProcessedRenderedImage image = new ProcessedRenderedImage(sm, cm, eval, tileSize.width, tileSize.height);
+                            writer.write(new DefaultImageTile(compute(image, cm), coord));
+                        } finally {
+                            writer.processed(1);
+                        }
+                    });
                 }
             }
+        } catch (DataStoreException ex) {
+            //rethrow tile failures with their original type
+            final Exception failure = job.getFailure();
+            if (failure instanceof TransformException) {
+                throw (TransformException) failure;
+            } else if (failure instanceof FactoryException) {
+                throw (FactoryException) failure;
+            }
+            throw ex;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new DataStoreException(ex.getMessage(), ex);
         }
     }
 
+    /**
+     * Compute image in the calling thread, processed images are otherwise
+     * computed when written.
+     */
+    private static RenderedImage compute(ProcessedRenderedImage image, ColorModel cm) {
+        if (cm == null) return image;
+        final WritableRaster raster = (WritableRaster) image.getTile(0, 0);
+        return new BufferedImage(cm, raster, cm.isAlphaPremultiplied(), null);
+    }
+
 
     /**
      *
@@ -66,6 +66,15 @@ public class MathCalcCoverageEvaluator implements FillCoverage.SampleEvaluator {
         return new MathCalcCoverageEvaluator(this);
     }
 
+    /**
+     * Compile expression to evaluate whole rows of samples.
+     *
+     * @return compiled expression, or null if expression is not supported.
+     */
+    MathCalcKernel compile() throws FactoryException {
+        return MathCalcKernel.compile(exp, pick.coverages, pick.mapping, positionGeo.getCoordinateReferenceSystem());
+    }
+
     private static class DynamicPick extends AbstractMap{
 
         private final Coverage[] coverages;
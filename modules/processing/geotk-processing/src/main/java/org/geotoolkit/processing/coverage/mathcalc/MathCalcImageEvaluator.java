@@ -17,6 +17,7 @@
 
 package org.geotoolkit.processing.coverage.mathcalc;
 
+import java.awt.image.WritableRaster;
 import java.util.Arrays;
 import java.util.logging.Level;
 
@@ -27,13 +28,17 @@ import org.opengis.referencing.operation.MathTransform;
 import org.apache.sis.util.logging.Logging;
 
 /**
+ * Evaluate pixels of a processed image.<br>
+ * When a compiled kernel is available, the image tiles are computed row by row
+ * and may be computed concurrently.
  *
  * @author Johann Sorel (Geomatys)
  */
-public class MathCalcImageEvaluator implements ProcessedRenderedImage.Evaluator {
+public class MathCalcImageEvaluator implements ProcessedRenderedImage.TileEvaluator {
 
     private final MathTransform gridToCrs;
     private final SampleEvaluator coverageEvaluator;
+    private final MathCalcKernel kernel;
     private final double[] gridCoord;
     private final double[] crsCoord;
     private final GeneralDirectPosition geoPos;
@@ -45,8 +50,21 @@ public class MathCalcImageEvaluator implements ProcessedRenderedImage.Evaluator
      * @param coverageEvaluator
      */
     public MathCalcImageEvaluator(double[] baseGridCoord, MathTransform gridToCrs, SampleEvaluator coverageEvaluator) {
+        this(baseGridCoord, gridToCrs, coverageEvaluator, null);
+    }
+
+    /**
+     *
+     * @param baseGridCoord
+     * @param gridToCrs CORNER grid to crs transform
+     * @param coverageEvaluator
+     * @param kernel compiled expression, may be null
+     */
+    MathCalcImageEvaluator(double[] baseGridCoord, MathTransform gridToCrs, SampleEvaluator coverageEvaluator,
+            MathCalcKernel kernel) {
         this.gridToCrs = gridToCrs;
         this.coverageEvaluator = coverageEvaluator;
+        this.kernel = kernel;
         this.gridCoord = baseGridCoord;
         this.crsCoord = new double[gridToCrs.getTargetDimensions()];
         this.geoPos = new GeneralDirectPosition(crsCoord.length);
@@ -67,4 +85,48 @@ public class MathCalcImageEvaluator implements ProcessedRenderedImage.Evaluator
         coverageEvaluator.evaluate(geoPos, sampleBuffer);
     }
 
+    @Override
+    public void evaluate(WritableRaster raster, int offsetX, int offsetY) {
+        final int width = raster.getWidth();
+        final int height = raster.getHeight();
+        if (kernel == null) {
+            synchronized (this) {
+                final double[] sampleBuffer = new double[raster.getNumBands()];
+                for (int y=0; y<height; y++) {
+                    for (int x=0; x<width; x++) {
+                        evaluate(x+offsetX, y+offsetY, sampleBuffer);
+                        raster.setPixel(x, y, sampleBuffer);
+                    }
+                }
+            }
+            return;
+        }
+
+        //prepare a row of grid coordinates, extra dimensions are constant
+        final int gridDim = gridCoord.length;
+        final double[] rowGrid = new double[width * gridDim];
+        for (int x=0; x<width; x++) {
+            System.arraycopy(gridCoord, 0, rowGrid, x*gridDim, gridDim);
+            rowGrid[x*gridDim] = x + offsetX;
+        }
+        final double[] rowCrs = new double[width * crsCoord.length];
+        final double[] rowSamples = new double[width];
+        final MathCalcKernel.Buffers buffers = kernel.createBuffers(width);
+
+        for (int y=0; y<height; y++) {
+            for (int x=0; x<width; x++) {
+                rowGrid[x*gridDim + 1] = y + offsetY;
+            }
+            try {
+                gridToCrs.transform(rowGrid, 0, rowCrs, 0, width);
+                kernel.evaluate(rowCrs, width, buffers, rowSamples);
+            } catch (Exception ex) {
+                Logging.getLogger("org.geotoolkit.processing.coverage.mathcalc").log(Level.WARNING, ex.getMessage(), ex);
+                //we should use NoData value
+                Arrays.fill(rowSamples, Double.NaN);
+            }
+            raster.setSamples(0, y, width, 1, 0, rowSamples);
+        }
+    }
+
 }
@@ -0,0 +1,394 @@
+/*
+ *    Geotoolkit - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2018, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.processing.coverage.mathcalc;
+
+import java.awt.Rectangle;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.util.Arrays;
+import java.util.logging.Level;
+import org.apache.sis.geometry.GeneralDirectPosition;
+import org.apache.sis.referencing.CRS;
+import org.apache.sis.referencing.operation.transform.MathTransforms;
+import org.apache.sis.util.logging.Logging;
+import org.geotoolkit.coverage.Coverage;
+import org.geotoolkit.coverage.grid.GridCoverage2D;
+import org.opengis.coverage.CannotEvaluateException;
+import org.opengis.filter.expression.Add;
+import org.opengis.filter.expression.BinaryExpression;
+import org.opengis.filter.expression.Divide;
+import org.opengis.filter.expression.Expression;
+import org.opengis.filter.expression.Literal;
+import org.opengis.filter.expression.Multiply;
+import org.opengis.filter.expression.PropertyName;
+import org.opengis.filter.expression.Subtract;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.referencing.operation.MathTransform;
+import org.opengis.referencing.operation.TransformException;
+import org.opengis.util.FactoryException;
+
+/**
+ * MathCalc expression compiled to operations on arrays of samples.<br>
+ * Samples of a whole row of pixels are computed at once : coordinates are
+ * transformed in a single call for each source coverage, then the expression
+ * operations are applied on primitive arrays.
+ * <br>
+ * A kernel is immutable and can be shared between threads, temporary arrays are
+ * held by {@link Buffers} which must be created for each thread.
+ */
+final class MathCalcKernel {
+
+    /**
+     * Compiled expression node.
+     */
+    private static abstract class Node {
+        /**
+         * Index of the node result buffer, -1 if the node result is a source buffer or a constant.
+         */
+        int buffer = -1;
+
+        /**
+         * @param samples source coverage samples
+         * @param buffers node results
+         * @param length number of samples to compute
+         * @return array containing node result, must not be modified
+         */
+        abstract double[] evaluate(double[][] samples, double[][] buffers, int length);
+    }
+
+    private static final class Constant extends Node {
+        private final double value;
+        private Constant(double value) {
+            this.value = value;
+        }
+        @Override
+        double[] evaluate(double[][] samples, double[][] buffers, int length) {
+            final double[] result = buffers[buffer];
+            Arrays.fill(result, 0, length, value);
+            return result;
+        }
+    }
+
+    private static final class Source extends Node {
+        private final int index;
+        private Source(int index) {
+            this.index = index;
+        }
+        @Override
+        double[] evaluate(double[][] samples, double[][] buffers, int length) {
+            return samples[index];
+        }
+    }
+
+    private static final class Operation extends Node {
+        private final char operator;
+        private final Node left;
+        private final Node right;
+        private Operation(char operator, Node left, Node right) {
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+        @Override
+        double[] evaluate(double[][] samples, double[][] buffers, int length) {
+            final double[] l = left.evaluate(samples, buffers, length);
+            final double[] r = right.evaluate(samples, buffers, length);
+            final double[] result = buffers[buffer];
+            switch (operator) {
+                case '+' : for (int i=0; i<length; i++) result[i] = l[i] + r[i]; break;
+                case '-' : for (int i=0; i<length; i++) result[i] = l[i] - r[i]; break;
+                case '*' : for (int i=0; i<length; i++) result[i] = l[i] * r[i]; break;
+                case '/' : for (int i=0; i<length; i++) result[i] = l[i] / r[i]; break;
+                default : throw new IllegalStateException("Unexpected operator " + operator);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Read band 0 of a source coverage.
+     */
+    private static abstract class Sampler {
+        /**
+         * Transform from evaluation CRS to the sampler space.
+         */
+        final MathTransform transform;
+
+        private Sampler(MathTransform transform) {
+            this.transform = transform;
+        }
+
+        /**
+         * @param coords coordinates in the sampler space
+         * @param samples where to store samples
+         * @param length number of samples
+         */
+        abstract void sample(double[] coords, double[] samples, int length);
+    }
+
+    /**
+     * Read samples directly in the image of a 2D grid coverage, using nearest neighbor
+     * as {@link GridCoverage2D#evaluate(java.awt.geom.Point2D, double[]) }.
+     */
+    private static final class ImageSampler extends Sampler {
+        private final RenderedImage image;
+        private final Rectangle bounds;
+
+        private ImageSampler(MathTransform crsToGrid, RenderedImage image) {
+            super(crsToGrid);
+            this.image = image;
+            this.bounds = new Rectangle(image.getMinX(), image.getMinY(), image.getWidth(), image.getHeight());
+        }
+
+        @Override
+        void sample(double[] coords, double[] samples, int length) {
+            final int tileWidth = image.getTileWidth();
+            final int tileHeight = image.getTileHeight();
+            final int offsetX = image.getTileGridXOffset();
+            final int offsetY = image.getTileGridYOffset();
+            Raster tile = null;
+            int tileX = 0, tileY = 0;
+            for (int i=0,k=0; i<length; i++,k+=2) {
+                final double fx = coords[k];
+                final double fy = coords[k+1];
+                if (Double.isNaN(fx) || Double.isNaN(fy)) {
+                    samples[i] = Double.NaN;
+                    continue;
+                }
+                final int x = (int) Math.round(fx);
+                final int y = (int) Math.round(fy);
+                if (!bounds.contains(x, y)) {
+                    samples[i] = Double.NaN;
+                    continue;
+                }
+                final int tx = Math.floorDiv(x - offsetX, tileWidth);
+                final int ty = Math.floorDiv(y - offsetY, tileHeight);
+                if (tile == null || tx != tileX || ty != tileY) {
+                    //pixels of a row are usually in the same tile
+                    tile = image.getTile(tx, ty);
+                    tileX = tx;
+                    tileY = ty;
+                }
+                samples[i] = tile.getSampleDouble(x, y, 0);
+            }
+        }
+    }
+
+    /**
+     * Evaluate samples on any coverage type, point by point.
+     */
+    private static final class CoverageSampler extends Sampler {
+        private final Coverage coverage;
+        private final CoordinateReferenceSystem crs;
+        private final int dimension;
+
+        private CoverageSampler(MathTransform baseToCoverage, Coverage coverage) {
+            super(baseToCoverage);
+            this.coverage = coverage;
+            this.crs = coverage.getCoordinateReferenceSystem();
+            this.dimension = baseToCoverage.getTargetDimensions();
+        }
+
+        @Override
+        void sample(double[] coords, double[] samples, int length) {
+            final GeneralDirectPosition position = new GeneralDirectPosition(crs);
+            final double[] buffer = new double[coverage.getSampleDimensions().size()];
+            for (int i=0; i<length; i++) {
+                for (int d=0; d<dimension; d++) {
+                    position.setOrdinate(d, coords[i*dimension + d]);
+                }
+                try {
+                    coverage.evaluate(position, buffer);
+                    samples[i] = buffer[0];
+                } catch (CannotEvaluateException ex) {
+                    samples[i] = Double.NaN;
+                }
+            }
+        }
+    }
+
+    /**
+     * Marks used coverages while compiling.
+     */
+    private static final Sampler PLACEHOLDER = new Sampler(null) {
+        @Override
+        void sample(double[] coords, double[] samples, int length) {
+        }
+    };
+
+    /**
+     * Temporary arrays used by a kernel, can not be shared between threads.
+     */
+    final class Buffers {
+        private final int capacity;
+        private final double[][] samples;
+        private final double[][] results;
+        private final double[] coords;
+
+        private Buffers(int capacity) {
+            this.capacity = capacity;
+            samples = new double[samplers.length][];
+            int maxDim = 0;
+            for (int i=0; i<samplers.length; i++) {
+                if (samplers[i] != null) {
+                    samples[i] = new double[capacity];
+                    maxDim = Math.max(maxDim, samplers[i].transform.getTargetDimensions());
+                }
+            }
+            results = new double[nbBuffers][capacity];
+            coords = new double[capacity * maxDim];
+        }
+    }
+
+    private final Node root;
+    private final Sampler[] samplers;
+    private final int nbBuffers;
+
+    private MathCalcKernel(Node root, Sampler[] samplers, int nbBuffers) {
+        this.root = root;
+        this.samplers = samplers;
+        this.nbBuffers = nbBuffers;
+    }
+
+    /**
+     * Compile expression.
+     *
+     * @param exp expression to compile
+     * @param coverages source coverages
+     * @param mapping coverage names used in expression
+     * @param crs CRS of evaluated coordinates
+     * @return compiled expression, or null if expression contains unsupported elements.
+     */
+    static MathCalcKernel compile(Expression exp, Coverage[] coverages, String[] mapping,
+            CoordinateReferenceSystem crs) throws FactoryException {
+        final Sampler[] samplers = new Sampler[coverages.length];
+        final Node root = toNode(exp, mapping, samplers);
+        if (root == null) {
+            return null;
+        }
+        for (int i=0; i<samplers.length; i++) {
+            if (samplers[i] != null) {
+                samplers[i] = createSampler(coverages[i], crs);
+            }
+        }
+        return new MathCalcKernel(root, samplers, assignBuffers(root, 0));
+    }
+
+    /**
+     * Convert expression to a node, used coverages are marked with a placeholder in samplers array.
+     *
+     * @return node or null if expression is not supported
+     */
+    private static Node toNode(Expression exp, String[] mapping, Sampler[] samplers) {
+        if (exp instanceof Literal) {
+            final Double value = exp.evaluate(null, Double.class);
+            return (value == null) ? null : new Constant(value);
+        } else if (exp instanceof PropertyName) {
+            final String name = ((PropertyName) exp).getPropertyName();
+            for (int i=0; i<mapping.length; i++) {
+                if (mapping[i].equals(name)) {
+                    samplers[i] = PLACEHOLDER;
+                    return new Source(i);
+                }
+            }
+            // no coverage for this name
+            return new Constant(Double.NaN);
+        } else if (exp instanceof BinaryExpression) {
+            final char operator;
+            if (exp instanceof Add)           operator = '+';
+            else if (exp instanceof Subtract) operator = '-';
+            else if (exp instanceof Multiply) operator = '*';
+            else if (exp instanceof Divide)   operator = '/';
+            else return null;
+            final BinaryExpression be = (BinaryExpression) exp;
+            final Node left = toNode(be.getExpression1(), mapping, samplers);
+            final Node right = toNode(be.getExpression2(), mapping, samplers);
+            if (left == null || right == null) {
+                return null;
+            }
+            return new Operation(operator, left, right);
+        }
+        return null;
+    }
+
+    /**
+     * Give each node writing values its own result buffer.
+     *
+     * @return number of buffers
+     */
+    private static int assignBuffers(Node node, int next) {
+        if (node instanceof Operation) {
+            next = assignBuffers(((Operation) node).left, next);
+            next = assignBuffers(((Operation) node).right, next);
+            node.buffer = next++;
+        } else if (node instanceof Constant) {
+            node.buffer = next++;
+        }
+        return next;
+    }
+
+    private static Sampler createSampler(Coverage coverage, CoordinateReferenceSystem crs) throws FactoryException {
+        final CoordinateReferenceSystem coverageCRS = coverage.getCoordinateReferenceSystem();
+        final MathTransform baseToCoverage = CRS.findOperation(crs, coverageCRS, null).getMathTransform();
+        if (coverage instanceof GridCoverage2D && coverageCRS.getCoordinateSystem().getDimension() == 2) {
+            final GridCoverage2D cov = (GridCoverage2D) coverage;
+            try {
+                final MathTransform crsToGrid = cov.getGridGeometry().getGridToCRS2D().inverse();
+                return new ImageSampler(MathTransforms.concatenate(baseToCoverage, crsToGrid), cov.getRenderedImage());
+            } catch (TransformException ex) {
+                //not invertible, use coverage evaluation
+            }
+        }
+        return new CoverageSampler(baseToCoverage, coverage);
+    }
+
+    /**
+     * @param capacity maximum number of samples computed in one call
+     * @return new temporary arrays for the calling thread
+     */
+    Buffers createBuffers(int capacity) {
+        return new Buffers(capacity);
+    }
+
+    /**
+     * Evaluate expression at given coordinates.
+     *
+     * @param crsCoords coordinates in evaluation CRS
+     * @param length number of coordinates
+     * @param buffers temporary arrays, created by {@link #createBuffers(int) }
+     * @param result where to store evaluated values
+     */
+    void evaluate(double[] crsCoords, int length, Buffers buffers, double[] result) {
+        if (length > buffers.capacity) {
+            throw new IllegalArgumentException("Buffers capacity is too small : " + buffers.capacity);
+        }
+        for (int i=0; i<samplers.length; i++) {
+            final Sampler sampler = samplers[i];
+            if (sampler == null) continue;
+            try {
+                sampler.transform.transform(crsCoords, 0, buffers.coords, 0, length);
+                sampler.sample(buffers.coords, buffers.samples[i], length);
+            } catch (TransformException ex) {
+                Logging.getLogger("org.geotoolkit.processing.coverage.mathcalc").log(Level.WARNING, ex.getMessage(), ex);
+                Arrays.fill(buffers.samples[i], 0, length, Double.NaN);
+            }
+        }
+        final double[] values = root.evaluate(buffers.samples, buffers.results, length);
+        System.arraycopy(values, 0, result, 0, length);
+    }
+
+}
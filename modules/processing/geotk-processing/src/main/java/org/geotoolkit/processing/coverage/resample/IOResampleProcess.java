@@ -34,7 +34,7 @@ import org.apache.sis.geometry.Envelopes;
 import org.geotoolkit.image.interpolation.Interpolation;
 import org.geotoolkit.image.interpolation.InterpolationCase;
 import org.geotoolkit.image.interpolation.Resample;
-import org.geotoolkit.image.io.large.LargeCache;
+import org.geotoolkit.image.io.large.ImageCacheConfiguration;
 import org.geotoolkit.image.io.large.LargeRenderedImage;
 import org.geotoolkit.image.iterator.PixelIterator;
 import org.geotoolkit.image.iterator.PixelIteratorFactory;
@@ -149,7 +149,7 @@ public class IOResampleProcess extends AbstractProcess {
             // Prepare the input image. We use a LargeRenderedImage, because we'll get random access to pixels, and if it's too big, we need a cache system.
             final ImageTypeSpecifier rawImageType = inImage.getRawImageType(0);
             final ColorModel colorModel = rawImageType.getColorModel();
-            final LargeRenderedImage rawImage = new LargeRenderedImage(inImage, 0, LargeCache.getInstance(), tileSize);
+            final LargeRenderedImage rawImage = new LargeRenderedImage(inImage, 0, ImageCacheConfiguration.getDefaultTileCache(), tileSize);
 
             /*
              * Prepare output image for writing. If no file location is given, we create a new TIF temporary file to
@@ -34,6 +34,7 @@ import org.opengis.parameter.ParameterValueGroup;
  *     <li>FEATURE_IN "feature_in" Source FeatureCollection</li>
  *     <li>FEATURE_TARGET "feature_target" Target FeatureCollection </li>
  *     <li>INTERSECT "intersect" Method used. true => Intersection, false => Nearest</li>
+ *     <li>THREAD_COUNT "threadCount" Number of threads used to join target features</li>
  * </ul>
  * outputs :
  * <ul>
@@ -65,9 +66,20 @@ public final class SpatialJoinDescriptor extends VectorDescriptor {
             .setRequired(false)
             .create(Boolean.class, true);
 
+    /**
+     * Optional - Number of threads used to join target features.
+     * If not set the result is computed lazily while iterating, otherwise the
+     * target collection is split between the threads. 0 means one thread per processor.
+     */
+    public static final ParameterDescriptor<Integer> THREAD_COUNT = new ParameterBuilder()
+            .addName("threadCount")
+            .setRemarks("Number of threads used to join target features, 0 for one thread per processor")
+            .setRequired(false)
+            .create(Integer.class, null);
+
     /** Input Parameters */
     public static final ParameterDescriptorGroup INPUT_DESC =
-            new ParameterBuilder().addName("InputParameters").createGroup(FEATURE_IN, FEATURE_TARGET,INTERSECT);
+            new ParameterBuilder().addName("InputParameters").createGroup(FEATURE_IN, FEATURE_TARGET,INTERSECT,THREAD_COUNT);
 
     /** Ouput Parameters */
     public static final ParameterDescriptorGroup OUTPUT_DESC =
@@ -17,7 +17,10 @@
 package org.geotoolkit.processing.vector.spatialjoin;
 
 import org.geotoolkit.data.FeatureCollection;
+import org.geotoolkit.data.FeatureStoreRuntimeException;
 import org.geotoolkit.data.memory.WrapFeatureCollection;
+import org.geotoolkit.feature.FeatureExt;
+import org.geotoolkit.process.ProcessException;
 
 import org.opengis.feature.Feature;
 import org.opengis.feature.FeatureType;
@@ -32,6 +35,7 @@ public class SpatialJoinFeatureCollection extends WrapFeatureCollection {
     private final FeatureType newFeatureType;
     private final FeatureCollection sourceFC;
     private final boolean method;
+    private SpatialJoinIndex index;
 
     /**
      * Create the new
@@ -57,11 +61,25 @@ public class SpatialJoinFeatureCollection extends WrapFeatureCollection {
         return newFeatureType;
     }
 
+    /**
+     * Source features index, created on first use.
+     */
+    private synchronized SpatialJoinIndex getIndex() throws ProcessException {
+        if (index == null) {
+            index = new SpatialJoinIndex(sourceFC, FeatureExt.getCRS(getOriginalFeatureCollection().getType()));
+        }
+        return index;
+    }
+
     /**
      *  {@inheritDoc }
      */
     @Override
-    protected Feature modify(final Feature original) {
-        return SpatialJoinProcess.join(original, newFeatureType, sourceFC, method);
+    protected Feature modify(final Feature original) throws FeatureStoreRuntimeException {
+        try {
+            return SpatialJoinProcess.join(original, newFeatureType, getIndex(), method);
+        } catch (ProcessException ex) {
+            throw new FeatureStoreRuntimeException(ex.getMessage(), ex);
+        }
     }
 }
@@ -0,0 +1,203 @@
+/*
+ *    Geotoolkit - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2018, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.processing.vector.spatialjoin;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.sis.internal.feature.AttributeConvention;
+import org.geotoolkit.data.FeatureCollection;
+import org.geotoolkit.data.FeatureIterator;
+import org.geotoolkit.feature.FeatureExt;
+import org.geotoolkit.process.ProcessException;
+import org.geotoolkit.processing.vector.VectorProcessUtils;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.index.strtree.STRtree;
+import org.opengis.feature.Feature;
+import org.opengis.feature.PropertyType;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.referencing.operation.TransformException;
+import org.opengis.util.FactoryException;
+
+/**
+ * In-memory spatial index over the source features of a spatial join.
+ *
+ * The source {@link FeatureCollection} is read only once : each geometry is
+ * reprojected in the index CRS, then the R-Tree is bulk loaded from all envelopes
+ * with the Sort-Tile-Recursive algorithm.
+ * Target geometries are then matched against the tree, and only the candidates
+ * whose envelope intersects the target one are tested with exact JTS operations.
+ *
+ * Instances are safe for concurrent lookups once built.
+ *
+ * @module
+ */
+final class SpatialJoinIndex implements Closeable {
+
+    /**
+     * Maximum number of elements per tree node.
+     */
+    private static final int MAX_ELEMENTS = 16;
+
+    private final CoordinateReferenceSystem indexCRS;
+    private final List<Feature> features = new ArrayList<>();
+    private final List<Geometry> geometries = new ArrayList<>();
+    /**
+     * Tree items are the index of the geometry in the geometries list.
+     */
+    private final STRtree tree = new STRtree(MAX_ELEMENTS);
+
+    /**
+     * Indexed data extent, used as first guess for nearest searches.
+     */
+    private final double[] extent = new double[]{
+        Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+        Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+
+    /**
+     * Read and index all features of the given collection.
+     *
+     * @param sourceFC source features to index
+     * @param crs CRS in which geometries are indexed, if null the source collection CRS is used
+     * @throws ProcessException if a geometry can not be reprojected or indexed
+     */
+    SpatialJoinIndex(final FeatureCollection sourceFC, final CoordinateReferenceSystem crs) throws ProcessException {
+        this.indexCRS = (crs != null) ? crs : FeatureExt.getCRS(sourceFC.getType());
+
+        try (final FeatureIterator ite = sourceFC.iterator()) {
+            while (ite.hasNext()) {
+                final Feature feature = ite.next();
+                for (final PropertyType property : feature.getType().getProperties(true)) {
+                    if (!AttributeConvention.isGeometryAttribute(property)) continue;
+                    Geometry geom = (Geometry) feature.getPropertyValue(property.getName().toString());
+                    if (geom == null || geom.isEmpty()) continue;
+
+                    final CoordinateReferenceSystem geomCRS = FeatureExt.getCRS(property);
+                    if (indexCRS != null && geomCRS != null) {
+                        geom = VectorProcessUtils.repojectGeometry(indexCRS, geomCRS, geom);
+                    }
+                    final Envelope env = geom.getEnvelopeInternal();
+                    //items are only collected here, the tree is packed once all are known
+                    tree.insert(env, geometries.size());
+                    features.add(feature);
+                    geometries.add(geom);
+
+                    extent[0] = Math.min(extent[0], env.getMinX());
+                    extent[1] = Math.min(extent[1], env.getMinY());
+                    extent[2] = Math.max(extent[2], env.getMaxX());
+                    extent[3] = Math.max(extent[3], env.getMaxY());
+                }
+            }
+            //sort-tile-recursive packing, the tree is read-only afterwards
+            tree.build();
+        } catch (TransformException | FactoryException ex) {
+            throw new ProcessException("Failed to index source features : " + ex.getMessage(), null, ex);
+        }
+    }
+
+    /**
+     * @return CRS in which target geometries must be expressed
+     */
+    CoordinateReferenceSystem getCoordinateReferenceSystem() {
+        return indexCRS;
+    }
+
+    /**
+     * Find the source feature with the biggest intersection area with given geometry.
+     * If many features have the same area, the first one in source order is returned.
+     *
+     * @param target geometry in index CRS
+     * @return best source feature or null if none intersects
+     */
+    Feature intersect(final Geometry target) {
+        final int[] candidates = search(target.getEnvelopeInternal(), 0.0);
+        int best = -1;
+        double bestArea = -1.0;
+        for (final int candidate : candidates) {
+            final Geometry geom = geometries.get(candidate);
+            if (!target.intersects(geom)) continue;
+            final double area = target.intersection(geom).getArea();
+            if (area > bestArea || (area == bestArea && candidate < best)) {
+                best = candidate;
+                bestArea = area;
+            }
+        }
+        return (best < 0) ? null : features.get(best);
+    }
+
+    /**
+     * Find the source feature nearest to given geometry.
+     * If many features are at the same distance, the first one in source order is returned.
+     *
+     * @param target geometry in index CRS
+     * @return nearest source feature or null if index is empty
+     */
+    Feature nearest(final Geometry target) {
+        if (geometries.isEmpty() || target.isEmpty()) return null;
+        final Envelope targetEnv = target.getEnvelopeInternal();
+
+        //grow the search window until at least one candidate is found
+        final double span = Math.max(extent[2] - extent[0], extent[3] - extent[1]);
+        double radius = (span > 0) ? span / Math.sqrt(geometries.size()) : 1.0;
+        int[] candidates = search(targetEnv, 0.0);
+        while (candidates.length == 0) {
+            candidates = search(targetEnv, radius);
+            radius *= 2;
+        }
+
+        //any closer geometry must be within the current best distance of the target envelope
+        double bestDist = Double.POSITIVE_INFINITY;
+        for (final int candidate : candidates) {
+            bestDist = Math.min(bestDist, target.distance(geometries.get(candidate)));
+        }
+        if (bestDist > 0) {
+            candidates = search(targetEnv, bestDist);
+        }
+
+        int best = -1;
+        for (final int candidate : candidates) {
+            final double dist = target.distance(geometries.get(candidate));
+            if (dist < bestDist || (dist == bestDist && (best < 0 || candidate < best))) {
+                best = candidate;
+                bestDist = dist;
+            }
+        }
+        return features.get(best);
+    }
+
+    /**
+     * Search index for geometries which envelope intersects given envelope expanded by a distance.
+     */
+    private int[] search(final Envelope env, final double expand) {
+        final Envelope area = new Envelope(env);
+        area.expandBy(expand);
+        final List<?> items = tree.query(area);
+        final int[] ids = new int[items.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = (Integer) items.get(i);
+        }
+        return ids;
+    }
+
+    @Override
+    public void close() throws IOException {
+        features.clear();
+        geometries.clear();
+    }
+}
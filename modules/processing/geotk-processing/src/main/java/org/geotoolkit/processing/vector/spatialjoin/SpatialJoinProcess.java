@@ -18,19 +18,25 @@ package org.geotoolkit.processing.vector.spatialjoin;
 
 import org.locationtech.jts.geom.Geometry;
 
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.logging.Level;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.opengis.feature.AttributeType;
 import org.geotoolkit.data.FeatureCollection;
 import org.geotoolkit.data.FeatureIterator;
+import org.geotoolkit.data.FeatureStoreRuntimeException;
+import org.geotoolkit.data.FeatureStoreUtilities;
 import org.geotoolkit.feature.SingleAttributeTypeBuilder;
-import org.geotoolkit.geometry.jts.JTS;
 import org.geotoolkit.processing.AbstractProcess;
-import org.geotoolkit.process.ProcessDescriptor;
 import org.geotoolkit.process.ProcessException;
-import org.geotoolkit.processing.vector.intersect.IntersectDescriptor;
-import org.geotoolkit.processing.vector.nearest.NearestDescriptor;
+import org.geotoolkit.processing.vector.VectorProcessUtils;
 
 import org.opengis.feature.Feature;
 import org.opengis.feature.FeatureType;
@@ -38,18 +44,20 @@ import org.opengis.feature.PropertyType;
 import org.geotoolkit.processing.vector.VectorDescriptor;
 import org.opengis.parameter.ParameterValueGroup;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.referencing.operation.TransformException;
+import org.opengis.util.FactoryException;
 
 import org.geotoolkit.feature.FeatureExt;
 import org.apache.sis.feature.builder.FeatureTypeBuilder;
 import org.apache.sis.internal.feature.AttributeConvention;
-import org.apache.sis.parameter.Parameters;
-import org.apache.sis.util.logging.Logging;
 
 
 
 /**
  * Process return the target FeatureCollection with source FeatureCollection attributes.
  * The link between target and source depend of method used (Intersect or Nearest).
+ * Source features are indexed once in an R-Tree, each target feature is then
+ * only compared with the source features whose envelope intersects its own.
  *
  * @author Quentin Boileau
  */
@@ -65,19 +73,80 @@ public class SpatialJoinProcess extends AbstractProcess {
      *  {@inheritDoc }
      */
     @Override
-    protected void execute() {
+    protected void execute() throws ProcessException {
         final FeatureCollection sourceFeatureList = inputParameters.getValue(VectorDescriptor.FEATURE_IN);
         final FeatureCollection targetFeatureList = inputParameters.getValue(SpatialJoinDescriptor.FEATURE_TARGET);
         final boolean method = inputParameters.getValue(SpatialJoinDescriptor.INTERSECT);
+        final Integer threadCount = inputParameters.getValue(SpatialJoinDescriptor.THREAD_COUNT);
 
-        final FeatureCollection resultFeatureList =
-                new SpatialJoinFeatureCollection(sourceFeatureList, targetFeatureList, method);
+        final FeatureCollection resultFeatureList;
+        if (threadCount == null) {
+            resultFeatureList = new SpatialJoinFeatureCollection(sourceFeatureList, targetFeatureList, method);
+        } else {
+            final int nbThread = (threadCount > 0) ? threadCount : Runtime.getRuntime().availableProcessors();
+            resultFeatureList = parallelJoin(sourceFeatureList, targetFeatureList, method, nbThread);
+        }
 
         outputParameters.getOrCreate(VectorDescriptor.FEATURE_OUT).setValue(resultFeatureList);
     }
 
     /**
-     * This function join target Feature with another Feature form a source FeatureCollection.
+     * Join all target features, the target collection is split in contiguous
+     * ranges, each one being processed by a different thread.
+     * Resulting features keep the target collection order.
+     *
+     * @param sourceFC the source FeatureCollection
+     * @param targetFC the target FeatureCollection
+     * @param method the used method. True -> Intersect, False -> Nearest
+     * @param nbThread number of threads
+     * @return joined features
+     */
+    private FeatureCollection parallelJoin(final FeatureCollection sourceFC, final FeatureCollection targetFC,
+            final boolean method, final int nbThread) throws ProcessException {
+
+        final FeatureType newType = concatType(targetFC.getType(), sourceFC.getType());
+        final List<Feature> targets = new ArrayList<>();
+        try (final FeatureIterator ite = targetFC.iterator()) {
+            while (ite.hasNext()) {
+                targets.add(ite.next());
+            }
+        } catch (FeatureStoreRuntimeException ex) {
+            throw new ProcessException(ex.getMessage(), this, ex);
+        }
+
+        final Feature[] results = new Feature[targets.size()];
+        final ExecutorService exec = Executors.newFixedThreadPool(nbThread);
+        try (final SpatialJoinIndex index = new SpatialJoinIndex(sourceFC, FeatureExt.getCRS(targetFC.getType()))) {
+            final int step = Math.max(1, (targets.size() + nbThread - 1) / nbThread);
+            final List<Future<?>> tasks = new ArrayList<>();
+            for (int start = 0; start < targets.size(); start += step) {
+                final int from = start;
+                final int to = Math.min(start + step, targets.size());
+                tasks.add(exec.submit(() -> {
+                    for (int i = from; i < to && !isCanceled(); i++) {
+                        results[i] = join(targets.get(i), newType, index, method);
+                    }
+                    return null;
+                }));
+            }
+            for (final Future<?> task : tasks) {
+                task.get();
+            }
+        } catch (InterruptedException | ExecutionException | IOException ex) {
+            final Throwable cause = (ex instanceof ExecutionException) ? ex.getCause() : ex;
+            throw new ProcessException(cause.getMessage(), this, cause);
+        } finally {
+            exec.shutdownNow();
+        }
+        if (isCanceled()) {
+            throw new CancellationException();
+        }
+
+        return FeatureStoreUtilities.collection(newType, Arrays.asList(results));
+    }
+
+    /**
+     * This function join target Feature with another Feature form the indexed source FeatureCollection.
      *
      * If boolean <code>method</code> is true, the method used is Intersect, else it's Nearest.
      *
@@ -85,19 +154,20 @@ public class SpatialJoinProcess extends AbstractProcess {
      * will have "joined attributes" set to null.
      *
      * If there is more than one result for Nearest method
-     * (many Feature at the same distance), we use the first returned.
+     * (many Feature at the same distance), we use the first in source order.
      *
      * If there is more than one result for Intersect method , we use the Feature
      * with the biggest intersection area with target Geometry.
      *
      * @param target the target Feature
      * @param newType the concatenated FeatureType
-     * @param sourceFC the source FeatureCollection
+     * @param index the source FeatureCollection index
      * @param method the used method. True -> Intersect, False -> Nearest
      * @return the joined feature
+     * @throws ProcessException if target geometry can not be reprojected or index search failed
      */
     static Feature join(final Feature target, final FeatureType newType,
-            final FeatureCollection sourceFC, final boolean method) {
+            final SpatialJoinIndex index, final boolean method) throws ProcessException {
 
         Feature resultFeature = newType.newInstance();
         FeatureExt.setId(resultFeature, FeatureExt.getId(target));
@@ -110,64 +180,28 @@ public class SpatialJoinProcess extends AbstractProcess {
             }
         }
 
-        ProcessDescriptor desc;
-        org.geotoolkit.process.Process proc;
-        Parameters in;
-        ArrayList<Feature> featureOutArray;
-
         //for each target feature geometry
         for (final PropertyType property : target.getType().getProperties(true)) {
             if (AttributeConvention.isGeometryAttribute(property)) {
-                final Geometry targetGeometry = (Geometry) target.getPropertyValue(property.getName().toString());
-                final CoordinateReferenceSystem geomCRS = FeatureExt.getCRS(property);
-
-                JTS.setCRS(targetGeometry, geomCRS);        //add CRS to the used data geometry
-                //use intersect method
-                if (method) {
-                    desc = IntersectDescriptor.INSTANCE;
-                    in = Parameters.castOrWrap(desc.getInputDescriptor().createValue());
-                    in.getOrCreate(IntersectDescriptor.FEATURE_IN ).setValue(sourceFC);
-                    in.getOrCreate(IntersectDescriptor.GEOMETRY_IN).setValue(targetGeometry);
-                    proc = desc.createProcess(in);
-
-                } else {    //use nearest method
-                    desc = NearestDescriptor.INSTANCE;
-                    in = Parameters.castOrWrap(desc.getInputDescriptor().createValue());
-                    in.getOrCreate(NearestDescriptor.FEATURE_IN ).setValue(sourceFC);
-                    in.getOrCreate(NearestDescriptor.GEOMETRY_IN).setValue(targetGeometry);
-                    proc = desc.createProcess(in);
-                }
+                Geometry targetGeometry = (Geometry) target.getPropertyValue(property.getName().toString());
+                if (targetGeometry == null || targetGeometry.isEmpty()) continue;
 
-                //run it
-                final FeatureCollection featureOut;
-                try {
-                    featureOut = (FeatureCollection) proc.call().parameter("feature_out").getValue();
-                } catch (ProcessException ex) {
-                    Logging.getLogger("org.geotoolkit.processing.vector.spatialjoin").log(Level.WARNING, null, ex);
-                    return null;
+                //express target geometry in the index CRS
+                final CoordinateReferenceSystem geomCRS = FeatureExt.getCRS(property);
+                final CoordinateReferenceSystem indexCRS = index.getCoordinateReferenceSystem();
+                if (geomCRS != null && indexCRS != null) {
+                    try {
+                        targetGeometry = VectorProcessUtils.repojectGeometry(indexCRS, geomCRS, targetGeometry);
+                    } catch (TransformException | FactoryException ex) {
+                        throw new ProcessException(ex.getMessage(), null, ex);
+                    }
                 }
 
-                featureOutArray = new ArrayList<>(featureOut);
-
-                if (method) {   //intersect method
-
-                    if (featureOutArray.isEmpty()) { //no intersection
-                        return resultFeature;
-                    } else {
-                        if (featureOutArray.size() > 1) { //more than one intersection
-                            final Feature biggestFeature = biggestIntersection(featureOut, targetGeometry);
-                            resultFeature = copyAttributes(target, biggestFeature, newType);
-                        } else {// only one intersection
-                            resultFeature = copyAttributes(target, featureOutArray.get(0), newType);
-                        }
-                    }
-                } else {    //nearest method
-                    if (featureOutArray.isEmpty()) {
-                        return resultFeature;
-                    } else {
-                        resultFeature = copyAttributes(target, featureOutArray.get(0), newType);
-                    }
+                final Feature joined = method ? index.intersect(targetGeometry) : index.nearest(targetGeometry);
+                if (joined == null) {
+                    return resultFeature;
                 }
+                resultFeature = copyAttributes(target, joined, newType);
             }
         }
         return resultFeature;
@@ -207,39 +241,6 @@ public class SpatialJoinProcess extends AbstractProcess {
         return resultFeature;
     }
 
-    /**
-     * Return the Feature with the biggest intersection area with the geometry.
-     * If there is many Feature with the same area, the function return th first founded.
-     * @param outFC
-     * @param intersectGeometry
-     * @return the Feature
-     */
-    static Feature biggestIntersection(final FeatureCollection outFC, final Geometry intersectGeometry) {
-        double area = 0.0;
-        final ArrayList<Feature> listID = new ArrayList<>();
-        try (final FeatureIterator iter = outFC.iterator(null)) {
-            while (iter.hasNext()) {
-                final Feature feature = iter.next();
-                for (final PropertyType property : feature.getType().getProperties(true)) {
-                    if (AttributeConvention.isGeometryAttribute(property)) {
-                        final Geometry geom = (Geometry) feature.getPropertyValue(property.getName().toString());
-                        final double computeArea = intersectGeometry.intersection(geom).getArea();
-                        if (computeArea > area) {
-                            listID.clear();
-                            area = computeArea;
-                            listID.add(feature);
-                        } else {
-                            if (computeArea == area) {
-                                listID.add(feature);
-                            }
-                        }
-                    }
-                }
-            }
-        }
-        return listID.get(0);
-    }
-
     /**
      * Create a new FeatureType with the target FeatureType and adding
      * source attributes except the geometry descriptor.
@@ -228,6 +228,51 @@ public class MathCalcTest extends org.geotoolkit.test.TestBase {
 
     }
 
+    /**
+     * This test is expected to compute a mosaic of several tiles, with all arithmetic operators.
+     */
+    @Test
+    public void multiTileTest() throws Exception{
+        final int width = 300;
+        final int height = 150;
+
+        final CoordinateReferenceSystem crs = CommonCRS.WGS84.defaultGeographic();
+        final GeneralEnvelope env = new GeneralEnvelope(crs);
+        env.setRange(0, 0, 30.0);
+        env.setRange(1, 0, 15.0);
+
+        //create base coverage
+        final GridCoverage2D baseCoverage1 = createCoverage2D(env, width, height, 15.5f,  3.0f);
+        final GridCoverage2D baseCoverage2 = createCoverage2D(env, width, height, -9.0f, 20.0f);
+
+        //create output coverage ref, 3x2 tiles
+        final GenericName n = NamesExt.create("test");
+        final MPCoverageStore store = new MPCoverageStore();
+        final PyramidalCoverageResource outRef = (PyramidalCoverageResource) store.add(new DefiningCoverageResource(n));
+        outRef.setPackMode(ViewType.GEOPHYSICS);
+        outRef.setSampleDimensions(Collections.singletonList(new SampleDimension(Names.createLocalName(null, null, "data"), null, Collections.emptyList())));
+        outRef.setSampleModel(baseCoverage1.getRenderedImage().getSampleModel());
+        outRef.setColorModel(baseCoverage1.getRenderedImage().getColorModel());
+        final Pyramid pyramid = (Pyramid) outRef.createModel(new DefiningPyramid(crs));
+        final GeneralDirectPosition corner = new GeneralDirectPosition(crs);
+        corner.setCoordinate(env.getMinimum(0), env.getMaximum(1));
+        pyramid.createMosaic(
+                new DefiningMosaic(null, corner, 0.1, new Dimension(width/3, height/2), new Dimension(3, 2)));
+
+        //run math calc process
+        final MathCalcProcess process = new MathCalcProcess(
+                new Coverage[]{baseCoverage1, baseCoverage2},
+                "A*2-B/4+1",
+                new String[]{"A","B"},
+                outRef);
+        process.call();
+
+        final GridCoverageReader reader = outRef.acquireReader();
+        final GridCoverage2D result = (GridCoverage2D)reader.read(null);
+        outRef.recycle(reader);
+        testImageContent(result.getRenderedImage(), width, height, 34.25f, 2.0f);
+    }
+
     /**
      * 4D calc test
      */
@@ -111,6 +111,62 @@ public class SpatialJoinTest extends AbstractProcessTest {
         compare(featureListOut, featureListResult);
     }
 
+    /**
+     * Test SpatialJoin process with Intersection method, target features split between threads
+     */
+    @Test
+    public void testSpacialJoinIntersectionParallel() throws ProcessException, NoSuchIdentifierException, FactoryException {
+
+        // Inputs
+        final FeatureCollection targetFeatures = buildFeatureListInter1();
+        final FeatureCollection sourceFeatures = buildFeatureListInter2();
+
+        // Process
+        ProcessDescriptor desc = ProcessFinder.getProcessDescriptor(GeotkProcessingRegistry.NAME,"vector:spatialjoin");
+
+        ParameterValueGroup in = desc.getInputDescriptor().createValue();
+        in.parameter("feature_in").setValue(sourceFeatures);
+        in.parameter("feature_target").setValue(targetFeatures);
+        in.parameter("intersect").setValue(true);
+        in.parameter("threadCount").setValue(2);
+        org.geotoolkit.process.Process proc = desc.createProcess(in);
+
+        //Features out
+        final FeatureCollection featureListOut = (FeatureCollection) proc.call().parameter("feature_out").getValue();
+
+        //Expected Features out
+        final FeatureCollection featureListResult = buildResultInter();
+        compare(featureListOut, featureListResult);
+    }
+
+    /**
+     * Test SpatialJoin process with Nearest method, target features split between threads
+     */
+    @Test
+    public void testSpacialJoinParallel() throws ProcessException, NoSuchIdentifierException, FactoryException {
+
+        // Inputs
+        final FeatureCollection targetFeatures = buildFeatureList1();
+        final FeatureCollection sourceFeatures = buildFeatureList2();
+
+        // Process
+        ProcessDescriptor desc = ProcessFinder.getProcessDescriptor(GeotkProcessingRegistry.NAME,"vector:spatialjoin");
+
+        ParameterValueGroup in = desc.getInputDescriptor().createValue();
+        in.parameter("feature_in").setValue(sourceFeatures);
+        in.parameter("feature_target").setValue(targetFeatures);
+        in.parameter("intersect").setValue(false);
+        in.parameter("threadCount").setValue(0);
+        org.geotoolkit.process.Process proc = desc.createProcess(in);
+
+        //Features out
+        final FeatureCollection featureListOut = (FeatureCollection) proc.call().parameter("feature_out").getValue();
+
+        //Expected Features out
+        final FeatureCollection featureListResult = buildResultNear();
+        compare(featureListResult,featureListOut);
+    }
+
     /**
      * Test SpatialJoin process with Intersection method and no intersection
      */
@@ -0,0 +1,152 @@
+/*
+ *    Geotoolkit.org - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2018, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.image.io.plugin;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+
+/**
+ * Decoder of LZW compressed data (tag value 5), as defined in TIFF 6.0 specification.<br>
+ * Codes are read from the current position of an {@link ImageInputStream},
+ * each call to {@link #next()} returns the bytes of the next code.
+ *
+ * @module
+ */
+final class LZWDecoder {
+
+    /**
+     * Particularity code LZW.
+     */
+    private final static short LZW_CLEAR_CODE = 256;
+    private final static short LZW_EOI_CODE   = 257;
+
+    /**
+     * Stream where LZW codes are read.
+     */
+    private final ImageInputStream input;
+
+    //-- length in bit of lzw data --//
+    private int currentLZWCodeLength = 9;
+    //-- byte array map use to decompresse LZW datas --//
+    private byte[][] lzwTab          = new byte[LZW_CLEAR_CODE][];
+    //-- current LZW array index --//
+    private int idLZWTab             = 0;
+    private int maxIDLZWTab          = 511; //--> (1 << currentLZWCodeLength) - 1
+    //-- precedently iteration LZW code --//
+    private byte[] oldCodeLZW        = null;
+
+    /**
+     * @param input stream positioned at the beginning of LZW compressed data.
+     */
+    LZWDecoder(final ImageInputStream input) {
+        this.input = input;
+    }
+
+    /**
+     * Decompresses LZW compressed data in the given array.
+     * Decompression stops when the end of information code is read or when the destination array is full.
+     *
+     * @param compressed LZW compressed data
+     * @param decompressed destination array
+     * @throws IOException if compressed data ends without end of information code.
+     */
+    static void decode(final byte[] compressed, final byte[] decompressed) throws IOException {
+        try (ImageInputStream input = new MemoryCacheImageInputStream(new ByteArrayInputStream(compressed))) {
+            final LZWDecoder decoder = new LZWDecoder(input);
+            int pos = 0;
+            byte[] entree;
+            while (pos < decompressed.length && (entree = decoder.next()) != null) {
+                final int length = Math.min(entree.length, decompressed.length - pos);
+                System.arraycopy(entree, 0, decompressed, pos, length);
+                pos += length;
+            }
+        }
+    }
+
+    /**
+     * Returns the bytes of the next LZW code.
+     * Returned array is shared with the decoding table and must not be modified.
+     *
+     * @return decoded bytes, or {@code null} if end of information code is reached.
+     * @throws IOException if problem during reading from input.
+     */
+    byte[] next() throws IOException {
+        while (true) {
+            final short codeLZW = (short) input.readBits(currentLZWCodeLength);
+            if (codeLZW == LZW_EOI_CODE) return null;
+
+            if ((idLZWTab + 258) == 4095)
+                assert codeLZW == 256 : "when LZW map array reach its maximum index value the next value in file should be clear code 256.";
+
+            if (codeLZW == LZW_CLEAR_CODE) {
+                currentLZWCodeLength = 9;
+                lzwTab               = new byte[LZW_CLEAR_CODE][];
+                idLZWTab             = 0;
+                maxIDLZWTab          = 511;
+                oldCodeLZW           = null;
+                continue;
+            }
+
+            assert (oldCodeLZW != null || (oldCodeLZW == null && codeLZW < LZW_CLEAR_CODE)) : "After a clear code, next code should be smaller than 256";
+
+            final byte[] entree;
+            if (codeLZW >= 258) {
+                if (lzwTab[codeLZW - 258] != null) {
+                    entree = lzwTab[codeLZW - 258];
+                } else {
+                    // w + w[0]
+                    final int oldCLen = oldCodeLZW.length;
+                    entree            = Arrays.copyOf(oldCodeLZW, oldCLen + 1);
+                    entree[oldCLen]   = oldCodeLZW[0];
+                }
+            } else {
+                entree = new byte[] { (byte) codeLZW };
+            }
+
+            if (oldCodeLZW == null) {
+                assert idLZWTab == 0 : "With old code null : lzw tab must be equals to zero.";
+                oldCodeLZW = entree;
+                return entree;
+            }
+
+            //-- add in LZW map array --//
+            final int oldLen      = oldCodeLZW.length;
+            final byte[] addedTab = Arrays.copyOf(oldCodeLZW, oldLen + 1);
+            addedTab[oldLen]      = entree[0];
+            lzwTab[idLZWTab++]    = addedTab;
+
+            //-- if current map index reach the maximum value permit by bit number --//
+            if (((idLZWTab + 258) & 0xFFFF) == maxIDLZWTab) {
+                /*
+                 * When LZW algorithm reach its maximum index value 4095, to don't exceed 12 bits capacity
+                 * a clear code 256 is normaly written in the CURRENT bit length.
+                 * Return to force next read in current bit length.
+                 */
+                if (maxIDLZWTab == 4095) return entree;
+                currentLZWCodeLength++;
+                final int nextLZWMapLength = 1 << currentLZWCodeLength;
+                maxIDLZWTab                = nextLZWMapLength - 1;
+                lzwTab                     = Arrays.copyOf(lzwTab, nextLZWMapLength);
+            }
+            oldCodeLZW = entree;
+            return entree;
+        }
+    }
+}
@@ -28,6 +28,7 @@ import java.awt.image.DataBufferInt;
 import java.awt.image.DataBufferShort;
 import java.awt.image.DataBufferUShort;
 import java.awt.image.IndexColorModel;
+import java.awt.image.PixelInterleavedSampleModel;
 import java.awt.image.SampleModel;
 import java.awt.image.WritableRaster;
 import java.io.*;
@@ -35,6 +36,7 @@ import java.lang.reflect.Array;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.SeekableByteChannel;
 import java.nio.file.Files;
@@ -50,6 +52,9 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.stream.Collectors;
 import java.util.zip.DataFormatException;
@@ -77,6 +82,7 @@ import org.geotoolkit.image.io.SpatialImageReader;
 import org.geotoolkit.image.io.UnsupportedImageFormatException;
 import org.geotoolkit.image.io.metadata.SpatialMetadata;
 import org.geotoolkit.image.io.metadata.SpatialMetadataFormat;
+import org.geotoolkit.internal.SharedWork;
 import org.geotoolkit.internal.image.io.DimensionAccessor;
 import org.geotoolkit.lang.SystemOverride;
 import org.geotoolkit.metadata.geotiff.GeoTiffConstants;
@@ -186,13 +192,6 @@ public class TiffImageReader extends SpatialImageReader {
         size[TYPE_URATIONAL] = size[TYPE_RATIONAL]             = (Integer.SIZE << 1) / Byte.SIZE; //rational = Integer / Integer. 2 Integer values red.
     }
 
-    /**
-     * Particularity code LZW.
-     * Only use in readFromStripLZW() method.
-     */
-    private final static short LZW_CLEAR_CODE = 256;
-    private final static short LZW_EOI_CODE   = 257;
-
     /**
      * Reading channel initialized from input, used for imageStream and reverse reading channels creation.
      */
@@ -343,6 +342,24 @@ public class TiffImageReader extends SpatialImageReader {
      */
     private int noDataTemporaryKey = 1000000;
 
+    /**
+     * System property enabling concurrent tile decoding with the {@linkplain TiffTileCache#getDefault() default cache}
+     * for all new readers.
+     *
+     * @see #setTileDecoding(java.util.concurrent.Executor, org.geotoolkit.image.io.plugin.TiffTileCache)
+     */
+    public static final String CONCURRENT_TILES_KEY = "geotk.tiff.tiles.concurrent";
+
+    /**
+     * Executor used to decode tiles concurrently, or {@code null} to decode them on the calling thread.
+     */
+    private Executor tileExecutor;
+
+    /**
+     * Cache of decoded tiles, or {@code null} if decoded tiles are not kept.
+     */
+    private TiffTileCache tileCache;
+
     /**
      * Creates a new reader.
      *
@@ -356,6 +373,41 @@ public class TiffImageReader extends SpatialImageReader {
         metaDatas    = new SpatialMetadata[4];
         roots        = new IIOMetadataNode[4];
         currentImage = -1;
+        if (Boolean.getBoolean(CONCURRENT_TILES_KEY)) {
+            tileExecutor = ForkJoinPool.commonPool();
+            tileCache    = TiffTileCache.getDefault();
+        }
+    }
+
+    /**
+     * Configures the decoding of tiled images.<br>
+     * When an executor or a cache is given, the tiles intersecting the read region are read with
+     * positional reads on the file channel and decompressed independently, concurrently if an executor is given.
+     * Decoded tiles are kept in the given cache, so that overlapping reads skip both reading and decompression.
+     * <br>
+     * This mode applies to tiled images stored in a file, uncompressed, LZW or Deflate compressed,
+     * with 8, 16, 32 or 64 bits per sample. Other images are read as usual.
+     *
+     * @param executor executor used to decode tiles concurrently, or {@code null} to decode tiles on the calling thread.
+     * @param cache cache of decoded tiles, or {@code null} for none.
+     */
+    public void setTileDecoding(final Executor executor, final TiffTileCache cache) {
+        this.tileExecutor = executor;
+        this.tileCache    = cache;
+    }
+
+    /**
+     * @return executor used to decode tiles concurrently, or {@code null} if none.
+     */
+    public Executor getTileExecutor() {
+        return tileExecutor;
+    }
+
+    /**
+     * @return cache of decoded tiles, or {@code null} if none.
+     */
+    public TiffTileCache getTileCache() {
+        return tileCache;
     }
 
     /**
@@ -1856,7 +1908,12 @@ public class TiffImageReader extends SpatialImageReader {
         final Rectangle srcRegion = new Rectangle();
         final Rectangle dstRegion = new Rectangle();
         computeRegions(sparam, imageWidth, imageHeight, image, srcRegion, dstRegion);// calculer une region de l'image sur le fichier que l'on doit lire
-        if (compression == 32773) {
+        //-- floating point predictor is only supported when decoding whole tiles --//
+        final Map<String, Object> predictor = headProperties.get(Predictor);
+        final boolean floatingPredictor = compression != 1 && predictor != null && ((long[]) predictor.get(ATT_VALUE)) [0] == 3;
+        if ((tileExecutor != null || tileCache != null || floatingPredictor) && canDecodeTiles(raster, sparam)) {
+            readFromDecodedTiles(raster, sparam, srcRegion, dstRegion);
+        } else if (compression == 32773) {
             assert stripOffsets != null : "with compression 32773 (packbits) : image should be writen in strip offset use case.";
             readFromStrip32773(raster, sparam, srcRegion, dstRegion);
         } else if (compression == 5) {
@@ -2395,17 +2452,8 @@ public class TiffImageReader extends SpatialImageReader {
                 long currentBuffPos        = stripOffsets[cSO];
                 inputLZW.seek(currentBuffPos);
 
-                //-- initialize LZW attributs --//
-                //-- length in bit of lzw data --//
-                int currentLZWCodeLength = 9;
-                //-- byte array map use to decompresse LZW datas --//
-                byte[][] lzwTab          = new byte[LZW_CLEAR_CODE][];
-
-                //-- current LZW array index --//
-                int idLZWTab         = 0;
-                int maxIDLZWTab      = 511; //--> (1 << currentLZWCodeLength) - 1
-                //-- precedently iteration LZW code --//
-                byte[] oldCodeLZW    = null;
+                //-- LZW decoder, reading from current position --//
+                final LZWDecoder lzw = new LZWDecoder(inputLZW);
                 int hdb              = 0;
                 Arrays.fill(prediPix, 0);
                 /*
@@ -2429,40 +2477,10 @@ public class TiffImageReader extends SpatialImageReader {
                 //-- bytePos must read throught all file byte per byte --//
                 int bytePos = 0;
                 int b       = 0;
-                short codeLZW;
+                byte[] entree;
 
                 //-- work sample by sample --//
-                while (LZW_EOI_CODE != (codeLZW = readLZWCode(inputLZW, currentLZWCodeLength))) {
-                    if ((idLZWTab + 258) == 4095)
-                        assert codeLZW == 256 : "when LZW map array reach its maximum index value the next value in file should be clear code 256.";
-
-                    if (codeLZW == LZW_CLEAR_CODE) {
-                        currentLZWCodeLength = 9;
-                        lzwTab               = new byte[LZW_CLEAR_CODE][];
-                        idLZWTab             = 0;
-                        maxIDLZWTab          = 511;
-                        oldCodeLZW           = null;
-                        continue;
-                    }
-
-                    assert (oldCodeLZW != null || (oldCodeLZW == null && codeLZW < LZW_CLEAR_CODE)) : "After a clear code, next code should be smaller than 256";
-
-                    byte[] entree;
-                    if (codeLZW >= 258) {
-                        if (lzwTab[codeLZW - 258] != null) {
-                            entree = lzwTab[codeLZW - 258];
-                        } else {
-                            // w + w[0]
-                            final int oldCLen = oldCodeLZW.length;
-                            entree            = Arrays.copyOf(oldCodeLZW, oldCLen + 1);
-                            entree[oldCLen]   = oldCodeLZW[0];
-                        }
-                    } else {
-                        entree = new byte[] { (byte) codeLZW };
-                    }
-
-                    assert entree != null;
-
+                while ((entree = lzw.next()) != null) {
                     //-- write entree --//
                     for (int i = 0; i < entree.length; i++) {
                         //-- build sample in relation with bits per samples --//
@@ -2526,36 +2544,6 @@ public class TiffImageReader extends SpatialImageReader {
                             bytePos = 0;
                         }
                     }
-
-                    if (oldCodeLZW == null) {
-                        assert idLZWTab == 0 : "With old code null : lzw tab must be equals to zero.";
-                        assert entree.length == 1;
-                        oldCodeLZW = entree;
-                        continue;
-                    }
-
-                    //-- add in LZW map array --//
-                    final int oldLen      = oldCodeLZW.length;
-                    final byte[] addedTab = Arrays.copyOf(oldCodeLZW, oldLen + 1);
-                    addedTab[oldLen]      = entree[0];
-                    lzwTab[idLZWTab++]    = addedTab;
-
-                    //-- if current map index reach the maximum value permit by bit number --//
-                    if (((idLZWTab + 258) & 0xFFFF) == maxIDLZWTab) {
-                        /*
-                         * When LZW algorithm reach its maximum index value 4095, to don't exceed 12 bits capacity
-                         * a clear code 256 is normaly written in the CURRENT bit length.
-                         * Continue to force next read in current bit length.
-                         * Moreover after this continue an assertion verify this expected comportement.
-                         */
-                        if (maxIDLZWTab == 4095) continue;
-                        currentLZWCodeLength++;
-                        final int nextLZWMapLength = 1 << currentLZWCodeLength;
-                        maxIDLZWTab                = nextLZWMapLength - 1;
-                        lzwTab                     = Arrays.copyOf(lzwTab, nextLZWMapLength);
-                    }
-                    oldCodeLZW = entree;
-                    //---------------------------------------------------------//
                 }
                 assert samplePos == maxSamplePos : "pos = "+samplePos+" Expected pos = "+maxSamplePos;
             }
@@ -2579,19 +2567,6 @@ public class TiffImageReader extends SpatialImageReader {
         throw new IOException("Deflate strip tiff not supported.");
     }
 
-    /**
-     * Read next data of {@code codeLZWLength} bits length from current {@code ImageInputStream input}.
-     *
-     * @param input ImageInputStream where to read datas.
-     * @param codeLZWLength current bits length of read data.
-     * @return data value.
-     * @throws IOException if problem during reading from input.
-     * @see #readFromStripLZW(java.awt.image.WritableRaster, javax.imageio.ImageReadParam, java.awt.Rectangle, java.awt.Rectangle)
-     */
-    private static short readLZWCode(final ImageInputStream input, final int codeLZWLength) throws IOException {
-        return ((short) (input.readBits(codeLZWLength)));
-    }
-
     /**
      * Process to the image reading, and stores the pixels in the given raster.<br/>
      * Process fill raster from informations stored in stripOffset made.<br/>
@@ -3174,24 +3149,15 @@ public class TiffImageReader extends SpatialImageReader {
                         final int maxSamplePos = (interMaxY - ty * tileHeight - 1) * sourceScanTileStride + maxSampleXPos;
                         int samplePos          = 0;
 
-                        //-- initialize LZW attributs --//
-                        //-- length in bit of lzw data --//
-                        int currentLZWCodeLength = 9;
-                        //-- byte array map use to decompresse LZW datas --//
-                        byte[][] lzwTab          = new byte[LZW_CLEAR_CODE][];
-
-                        //-- current LZW array index --//
-                        int idLZWTab         = 0;
-                        int maxIDLZWTab      = 511; //--> (1 << currentLZWCodeLength) - 1
-                        //-- precedently iteration LZW code --//
-                        byte[] oldCodeLZW    = null;
+                        //-- LZW decoder, reading from current position --//
+                        final LZWDecoder lzw = new LZWDecoder(rasterLZWReader);
                         int hdb              = 0;
                         Arrays.fill(prediPix, 0);
 
                         //-- bytePos must read throught all file byte per byte --//
                         int bytePos = 0;
                         int b       = 0;
-                        short codeLZW;
+                        byte[] entree;
 
                        /*
                         * Long container use to build a sample,
@@ -3201,37 +3167,7 @@ public class TiffImageReader extends SpatialImageReader {
                        int maskCount      = 0;
 
                         //-- work sample by sample --//
-                        while (LZW_EOI_CODE != (codeLZW = readLZWCode(rasterLZWReader, currentLZWCodeLength))) {
-                            if ((idLZWTab + 258) == 4095)
-                                assert codeLZW == 256 : "when LZW map array reach its maximum index value the next value in file should be clear code 256.";
-
-                            if (codeLZW == LZW_CLEAR_CODE) {
-                                currentLZWCodeLength = 9;
-                                lzwTab               = new byte[LZW_CLEAR_CODE][];
-                                idLZWTab             = 0;
-                                maxIDLZWTab          = 511;
-                                oldCodeLZW           = null;
-                                continue;
-                            }
-
-                            assert (oldCodeLZW != null || (oldCodeLZW == null && codeLZW < LZW_CLEAR_CODE)) :"After a clear code, next code should be smaller than 256";
-
-                            byte[] entree;
-                            if (codeLZW >= 258) {
-                                if (lzwTab[codeLZW - 258] != null) {
-                                    entree = lzwTab[codeLZW - 258];
-                                } else {
-                                    // w + w[0]
-                                    final int oldCLen = oldCodeLZW.length;
-                                    entree            = Arrays.copyOf(oldCodeLZW, oldCLen + 1);
-                                    entree[oldCLen]   = oldCodeLZW[0];
-                                }
-                            } else {
-                                entree = new byte[] { (byte) codeLZW };
-                            }
-
-                            assert entree != null;
-
+                        while ((entree = lzw.next()) != null) {
                             //-- write entree --//
                             for (int i = 0; i < entree.length; i++) {
                                 //-- build sample in relation with bits per samples --//
@@ -3299,36 +3235,6 @@ public class TiffImageReader extends SpatialImageReader {
                                     bytePos = 0;
                                 }
                             }
-
-                            if (oldCodeLZW == null) {
-                                assert idLZWTab == 0 : "With old code null : lzw tab must be equals to zero.";
-                                assert entree.length == 1;
-                                oldCodeLZW = entree;
-                                continue;
-                            }
-
-                            //-- add in LZW map array --//
-                            final int oldLen      = oldCodeLZW.length;
-                            final byte[] addedTab = Arrays.copyOf(oldCodeLZW, oldLen + 1);
-                            addedTab[oldLen]      = entree[0];
-                            lzwTab[idLZWTab++]    = addedTab;
-
-                            //-- if current map index reach the maximum value permit by bit number --//
-                            if (((idLZWTab + 258) & 0xFFFF) == (maxIDLZWTab)) {
-                               /*
-                                * When LZW algorithm reach its maximum index value 4095, to don't exceed 12 bits capacity
-                                * a clear code 256 is normaly written in the CURRENT (12) bit length.
-                                * Continue to force next read in current bit length.
-                                * Moreover after this continue an assertion verify this expected comportement.
-                                */
-                               if (maxIDLZWTab == 4095) continue;
-                               currentLZWCodeLength++;
-                               final int nextLZWMapLength = 1 << currentLZWCodeLength;
-                               maxIDLZWTab                = nextLZWMapLength - 1;
-                               lzwTab                     = Arrays.copyOf(lzwTab, nextLZWMapLength);
-                            }
-                            oldCodeLZW = entree;
-                            //---------------------------------------------------------//
                         }
 //                        assert samplePos == maxSamplePos : "pos = "+samplePos+" Expected pos+tx+", "+ty+")";
                     }
@@ -3586,6 +3492,389 @@ public class TiffImageReader extends SpatialImageReader {
         inflater.end();
     }
 
+    /**
+     * Returns the file of current input if it can be read with positional reads, or {@code null}.
+     */
+    private Path getInputFile() {
+        if (IOUtilities.canProcessAsPath(currentInput)) {
+            try {
+                final Path path = IOUtilities.toPath(currentInput);
+                if (Files.isRegularFile(path)) return path;
+            } catch (IOException | RuntimeException ex) {
+                //-- not a file, read image as a stream
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns {@code true} if current image can be read by
+     * {@link #readFromDecodedTiles(java.awt.image.WritableRaster, javax.imageio.ImageReadParam, java.awt.Rectangle, java.awt.Rectangle) }.
+     */
+    private boolean canDecodeTiles(final WritableRaster raster, final ImageReadParam param) {
+        if (tileOffsets == null || tileByteCounts == null) return false;
+        if (compression != 1 && compression != 5 && compression != 8) return false;
+        if (param != null && (param.getSourceBands() != null || param.getDestinationBands() != null)) return false;
+        if (raster.getDataBuffer().getNumBanks() != 1) return false;
+
+        //-- decoded samples are copied in target array as interleaved pixels of samplesPerPixel samples --//
+        final SampleModel sampleModel = raster.getSampleModel();
+        if (!(sampleModel instanceof PixelInterleavedSampleModel)) return false;
+        final PixelInterleavedSampleModel pixelModel = (PixelInterleavedSampleModel) sampleModel;
+        if (pixelModel.getNumBands() != samplesPerPixel || pixelModel.getPixelStride() != samplesPerPixel) return false;
+        final int[] bandOffsets = pixelModel.getBandOffsets();
+        for (int b = 0; b < bandOffsets.length; b++) {
+            if (bandOffsets[b] != b) return false;
+        }
+
+        final Map<String, Object> fillOrder = headProperties.get(FillOrder);
+        if (fillOrder != null && ((long[]) fillOrder.get(ATT_VALUE)) [0] != 1) return false;
+        final Map<String, Object> predictor = headProperties.get(Predictor);
+        if (compression != 1 && predictor != null) {
+            final long predic = ((long[]) predictor.get(ATT_VALUE)) [0];
+            if (predic < 1 || predic > 3) return false;
+        }
+
+        final long bitpersampl = bitsPerSample[0];
+        for (long bits : bitsPerSample) {
+            if (bits != bitpersampl) return false;
+        }
+        final boolean sampleSizeMatch;
+        switch (raster.getDataBuffer().getDataType()) {
+            case DataBuffer.TYPE_BYTE   : sampleSizeMatch = (bitpersampl == Byte.SIZE);    break;
+            case DataBuffer.TYPE_SHORT  :
+            case DataBuffer.TYPE_USHORT : sampleSizeMatch = (bitpersampl == Short.SIZE);   break;
+            case DataBuffer.TYPE_INT    :
+            case DataBuffer.TYPE_FLOAT  : sampleSizeMatch = (bitpersampl == Integer.SIZE); break;
+            case DataBuffer.TYPE_DOUBLE : sampleSizeMatch = (bitpersampl == Double.SIZE);  break;
+            default : sampleSizeMatch = false;
+        }
+        return sampleSizeMatch && getInputFile() != null;
+    }
+
+    /**
+     * Processes to the image reading, and stores the pixels in the given raster.<br>
+     * Each tile intersecting source region is read with a single positional read on the file channel,
+     * decompressed in its own array and copied in the raster. Tiles are decoded concurrently
+     * if an {@linkplain #getTileExecutor() executor} is defined, and kept in the
+     * {@linkplain #getTileCache() tile cache} if any.
+     *
+     * @param  raster    The raster where to store the pixel values.
+     * @param  param     Parameters used to control the reading process, or {@code null}.
+     * @param  srcRegion The region to read in source image.
+     * @param  dstRegion The region to write in the given raster.
+     * @throws IOException If an error occurred while reading the image.
+     * @see #canDecodeTiles(java.awt.image.WritableRaster, javax.imageio.ImageReadParam)
+     */
+    private void readFromDecodedTiles(final WritableRaster raster, final ImageReadParam param,
+            final Rectangle srcRegion, final Rectangle dstRegion) throws IOException
+    {
+        clearAbortRequest();
+        checkReadParamBandSettings(param, samplesPerPixel, raster.getNumBands());
+        final int sourceXSubsampling = (param != null) ? param.getSourceXSubsampling() : 1;
+        final int sourceYSubsampling = (param != null) ? param.getSourceYSubsampling() : 1;
+
+        //-- planar configuration --//
+        final Map<String, Object> planarConfig = headProperties.get(PlanarConfiguration);
+        short pC = 1;
+        if (planarConfig != null && samplesPerPixel > 1) {
+            pC = ((short[]) planarConfig.get(ATT_VALUE)) [0];
+        }
+        final int pixelLength = (pC == 1) ? samplesPerPixel : 1;
+
+        //-- tile index from source area --//
+        final int minTileX = srcRegion.x / tileWidth;
+        final int minTileY = srcRegion.y / tileHeight;
+        final int maxTileX = (srcRegion.x + srcRegion.width  + tileWidth  - 1) / tileWidth;
+        final int maxTileY = (srcRegion.y + srcRegion.height + tileHeight - 1) / tileHeight;
+
+        //-- tile number from source image dimension --//
+        final int numXTile = (imageWidth + tileWidth - 1) / tileWidth;
+        final int numYTile = (imageHeight + tileHeight - 1) / tileHeight;
+
+        //-- tiles containing at least one read pixel : {tile index, tile x, tile y, sample} --//
+        final List<int[]> tiles = new ArrayList<>();
+        for (int s = 0; s < samplesPerPixel; s += pixelLength) {
+            for (int ty = minTileY; ty < maxTileY; ty++) {
+                final int interMinY = Math.max(srcRegion.y, ty * tileHeight);
+                final int interMaxY = Math.min(srcRegion.y + srcRegion.height, (ty + 1) * tileHeight);
+                if (interMinY + subsamplingOffset(interMinY - srcRegion.y, sourceYSubsampling) >= interMaxY) continue;
+                for (int tx = minTileX; tx < maxTileX; tx++) {
+                    final int interMinX = Math.max(srcRegion.x, tx * tileWidth);
+                    final int interMaxX = Math.min(srcRegion.x + srcRegion.width, (tx + 1) * tileWidth);
+                    if (interMinX + subsamplingOffset(interMinX - srcRegion.x, sourceXSubsampling) >= interMaxX) continue;
+                    tiles.add(new int[]{s * numXTile * numYTile + ty * numXTile + tx, tx, ty, s});
+                }
+            }
+        }
+        if (tiles.isEmpty()) return;
+
+        final Path file = getInputFile();
+        try (FileChannel fileChannel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final TileDecoding decoding = new TileDecoding(fileChannel, file, tiles, raster, pixelLength,
+                    srcRegion, dstRegion, sourceXSubsampling, sourceYSubsampling);
+
+            //-- calling thread decodes tiles too --//
+            int nbWorkers = 0;
+            if (tileExecutor != null) {
+                nbWorkers = Math.min(tiles.size(), Runtime.getRuntime().availableProcessors()) - 1;
+            }
+            final Throwable error = SharedWork.run(tileExecutor, nbWorkers, decoding::decodeTiles);
+            if (error instanceof IOException)      throw (IOException) error;
+            if (error instanceof RuntimeException) throw (RuntimeException) error;
+            if (error instanceof Error)            throw (Error) error;
+            if (error != null) throw new IIOException(error.getMessage(), error);
+        }
+    }
+
+    /**
+     * Returns the offset of the first subsampled pixel from a position, relative to region start.
+     */
+    private static int subsamplingOffset(final int fromRegionStart, final int subsampling) {
+        final int r = fromRegionStart % subsampling;
+        return (r == 0) ? 0 : subsampling - r;
+    }
+
+    /**
+     * Decoding of the tiles intersecting a read region, shared by decoding threads.
+     * Each tile is copied in a distinct area of the target array.
+     */
+    private final class TileDecoding {
+
+        private final FileChannel fileChannel;
+        private final List<int[]> tiles;
+        private final AtomicInteger next = new AtomicInteger();
+
+        private final TiffTileCache cache;
+        private final String file;
+        private final long modified;
+        private final long length;
+        private final long ifd;
+
+        private final ByteOrder order;
+        private final int compression;
+        private final int predictor;
+        private final long[] tileOffsets, tileByteCounts;
+        private final int tileWidth, tileHeight, samplesPerPixel, pixelLength, bytesPerSample;
+
+        private final int dataType;
+        private final Object targetArray;
+        private final int targetRegionOffset, targetScanlineStride;
+        private final Rectangle srcRegion;
+        private final int sourceXSubsampling, sourceYSubsampling;
+
+        TileDecoding(final FileChannel fileChannel, final Path file, final List<int[]> tiles,
+                final WritableRaster raster, final int pixelLength, final Rectangle srcRegion,
+                final Rectangle dstRegion, final int sourceXSubsampling, final int sourceYSubsampling) throws IOException {
+            this.fileChannel     = fileChannel;
+            this.tiles           = tiles;
+            this.cache           = tileCache;
+            this.file            = file.toAbsolutePath().toString();
+            this.modified        = Files.getLastModifiedTime(file).toMillis();
+            this.length          = Files.size(file);
+            this.ifd             = positionIFD[currentImage];
+            this.order           = imageStream.getByteOrder();
+            this.compression     = TiffImageReader.this.compression;
+            this.tileOffsets     = TiffImageReader.this.tileOffsets;
+            this.tileByteCounts  = TiffImageReader.this.tileByteCounts;
+            this.tileWidth       = TiffImageReader.this.tileWidth;
+            this.tileHeight      = TiffImageReader.this.tileHeight;
+            this.samplesPerPixel = TiffImageReader.this.samplesPerPixel;
+            this.pixelLength     = pixelLength;
+            this.bytesPerSample  = (int) bitsPerSample[0] / Byte.SIZE;
+            final Map<String, Object> predictor = headProperties.get(Predictor);
+            this.predictor       = (compression != 1 && predictor != null) ? (int) ((long[]) predictor.get(ATT_VALUE)) [0] : 1;
+
+            final DataBuffer dataBuffer = raster.getDataBuffer();
+            this.dataType = dataBuffer.getDataType();
+            switch (dataType) {
+                case DataBuffer.TYPE_BYTE   : targetArray = ((DataBufferByte)   dataBuffer).getData(); break;
+                case DataBuffer.TYPE_USHORT : targetArray = ((DataBufferUShort) dataBuffer).getData(); break;
+                case DataBuffer.TYPE_SHORT  : targetArray = ((DataBufferShort)  dataBuffer).getData(); break;
+                case DataBuffer.TYPE_INT    : targetArray = ((DataBufferInt)    dataBuffer).getData(); break;
+                case DataBuffer.TYPE_FLOAT  : targetArray = ((DataBufferFloat)  dataBuffer).getData(); break;
+                case DataBuffer.TYPE_DOUBLE : targetArray = ((DataBufferDouble) dataBuffer).getData(); break;
+                default: throw new AssertionError(dataType);
+            }
+            this.targetScanlineStride = SampleModels.getScanlineStride(raster.getSampleModel());
+            this.targetRegionOffset   = dataBuffer.getOffset() + dstRegion.y * targetScanlineStride + dstRegion.x * samplesPerPixel;
+            this.srcRegion            = srcRegion;
+            this.sourceXSubsampling   = sourceXSubsampling;
+            this.sourceYSubsampling   = sourceYSubsampling;
+        }
+
+        /**
+         * Decode tiles until all tiles are taken.
+         */
+        void decodeTiles() throws IOException {
+            final Inflater inflater = (compression == 8) ? new Inflater(false) : null;
+            try {
+                int i;
+                while ((i = next.getAndIncrement()) < tiles.size()) {
+                    if (abortRequested()) {
+                        next.set(tiles.size());
+                        return;
+                    }
+                    final int[] tile = tiles.get(i);
+                    copy(getSamples(tile[0], inflater), tile[1], tile[2], tile[3]);
+                }
+            } catch (IOException | RuntimeException | Error ex) {
+                //-- stop other threads
+                next.set(tiles.size());
+                throw ex;
+            } finally {
+                if (inflater != null) inflater.end();
+            }
+        }
+
+        /**
+         * Returns decoded samples of a tile, from cache if possible.
+         */
+        private Object getSamples(final int tileIndex, final Inflater inflater) throws IOException {
+            final TiffTileCache.Key key = (cache != null) ? new TiffTileCache.Key(file, modified, length, ifd, tileIndex, dataType) : null;
+            if (key != null) {
+                final Object samples = cache.get(key);
+                if (samples != null) return samples;
+            }
+            final int byteSize = tileWidth * tileHeight * pixelLength * bytesPerSample;
+            final byte[] decompressed = new byte[byteSize];
+            if (compression == 1) {
+                readFully(decompressed, tileOffsets[tileIndex]);
+            } else {
+                final byte[] compressed = new byte[(int) tileByteCounts[tileIndex]];
+                readFully(compressed, tileOffsets[tileIndex]);
+                if (compression == 8) {
+                    inflate(inflater, compressed, decompressed);
+                } else {
+                    LZWDecoder.decode(compressed, decompressed);
+                }
+            }
+            final Object samples = toSamples(decompressed);
+            if (key != null) cache.put(key, samples, byteSize);
+            return samples;
+        }
+
+        private void readFully(final byte[] target, long position) throws IOException {
+            final ByteBuffer buffer = ByteBuffer.wrap(target);
+            while (buffer.hasRemaining()) {
+                final int nb = fileChannel.read(buffer, position);
+                if (nb < 0) throw new EOFException("Unexpected end of file while reading tile at position " + position);
+                position += nb;
+            }
+        }
+
+        /**
+         * Converts decompressed bytes in samples of the raster data type, and reverses horizontal differencing.
+         */
+        private Object toSamples(final byte[] bytes) {
+            final int rowLength = tileWidth * pixelLength;
+            final boolean differencing = (predictor == 2);
+            final ByteOrder order;
+            if (predictor == 3) {
+                decodeFloatingPointPredictor(bytes);
+                order = ByteOrder.BIG_ENDIAN;
+            } else {
+                order = this.order;
+            }
+            switch (dataType) {
+                case DataBuffer.TYPE_BYTE : {
+                    if (differencing) {
+                        for (int r = 0; r < bytes.length; r += rowLength) {
+                            for (int i = r + pixelLength, end = r + rowLength; i < end; i++) bytes[i] += bytes[i - pixelLength];
+                        }
+                    }
+                    return bytes;
+                }
+                case DataBuffer.TYPE_SHORT :
+                case DataBuffer.TYPE_USHORT : {
+                    final short[] samples = new short[bytes.length / Short.BYTES];
+                    ByteBuffer.wrap(bytes).order(order).asShortBuffer().get(samples);
+                    if (differencing) {
+                        for (int r = 0; r < samples.length; r += rowLength) {
+                            for (int i = r + pixelLength, end = r + rowLength; i < end; i++) samples[i] += samples[i - pixelLength];
+                        }
+                    }
+                    return samples;
+                }
+                case DataBuffer.TYPE_INT :
+                case DataBuffer.TYPE_FLOAT : {
+                    final int[] samples = new int[bytes.length / Integer.BYTES];
+                    ByteBuffer.wrap(bytes).order(order).asIntBuffer().get(samples);
+                    if (differencing) {
+                        for (int r = 0; r < samples.length; r += rowLength) {
+                            for (int i = r + pixelLength, end = r + rowLength; i < end; i++) samples[i] += samples[i - pixelLength];
+                        }
+                    }
+                    if (dataType == DataBuffer.TYPE_INT) return samples;
+                    final float[] floats = new float[samples.length];
+                    for (int i = 0; i < floats.length; i++) floats[i] = Float.intBitsToFloat(samples[i]);
+                    return floats;
+                }
+                case DataBuffer.TYPE_DOUBLE : {
+                    final long[] samples = new long[bytes.length / Long.BYTES];
+                    ByteBuffer.wrap(bytes).order(order).asLongBuffer().get(samples);
+                    if (differencing) {
+                        for (int r = 0; r < samples.length; r += rowLength) {
+                            for (int i = r + pixelLength, end = r + rowLength; i < end; i++) samples[i] += samples[i - pixelLength];
+                        }
+                    }
+                    final double[] doubles = new double[samples.length];
+                    for (int i = 0; i < doubles.length; i++) doubles[i] = Double.longBitsToDouble(samples[i]);
+                    return doubles;
+                }
+                default: throw new AssertionError(dataType);
+            }
+        }
+
+        /**
+         * Reverses floating point predictor (TIFF technical note 3) : bytes of each row are differenced,
+         * then grouped by significance, most significant bytes of all samples first.
+         * Samples are restored in big endian byte order.
+         */
+        private void decodeFloatingPointPredictor(final byte[] bytes) {
+            final int rowSamples = tileWidth * pixelLength;
+            final int rowLength  = rowSamples * bytesPerSample;
+            final byte[] row     = new byte[rowLength];
+            for (int r = 0; r < bytes.length; r += rowLength) {
+                for (int i = r + pixelLength, end = r + rowLength; i < end; i++) bytes[i] += bytes[i - pixelLength];
+                System.arraycopy(bytes, r, row, 0, rowLength);
+                for (int i = 0; i < rowSamples; i++) {
+                    for (int b = 0; b < bytesPerSample; b++) {
+                        bytes[r + i * bytesPerSample + b] = row[b * rowSamples + i];
+                    }
+                }
+            }
+        }
+
+        /**
+         * Copies the read part of a decoded tile in target array.
+         */
+        private void copy(final Object samples, final int tx, final int ty, final int s) {
+            final int interMinX = Math.max(srcRegion.x, tx * tileWidth);
+            final int interMaxX = Math.min(srcRegion.x + srcRegion.width, (tx + 1) * tileWidth);
+            final int interMinY = Math.max(srcRegion.y, ty * tileHeight);
+            final int interMaxY = Math.min(srcRegion.y + srcRegion.height, (ty + 1) * tileHeight);
+            final int startX    = interMinX + subsamplingOffset(interMinX - srcRegion.x, sourceXSubsampling);
+            final int startY    = interMinY + subsamplingOffset(interMinY - srcRegion.y, sourceYSubsampling);
+            //-- whole tile rows are copied at once if pixels are contiguous in source and target --//
+            final boolean contiguous = (sourceXSubsampling == 1 && pixelLength == samplesPerPixel);
+
+            for (int srcY = startY; srcY < interMaxY; srcY += sourceYSubsampling) {
+                final int srcRow    = (srcY - ty * tileHeight) * tileWidth - tx * tileWidth;
+                final int targetRow = targetRegionOffset + ((srcY - srcRegion.y) / sourceYSubsampling) * targetScanlineStride + s;
+                if (contiguous) {
+                    System.arraycopy(samples, (srcRow + startX) * pixelLength,
+                            targetArray, targetRow + (startX - srcRegion.x) * samplesPerPixel, (interMaxX - startX) * pixelLength);
+                } else {
+                    for (int srcX = startX; srcX < interMaxX; srcX += sourceXSubsampling) {
+                        System.arraycopy(samples, (srcRow + srcX) * pixelLength,
+                                targetArray, targetRow + ((srcX - srcRegion.x) / sourceXSubsampling) * samplesPerPixel, pixelLength);
+                    }
+                }
+            }
+        }
+    }
+
     /**
      * Use {@link Inflater} to uncompress data from {@code inputCompressedDatas}
      * and store results into destination {@code unCompressedDatas} byte array.<br>
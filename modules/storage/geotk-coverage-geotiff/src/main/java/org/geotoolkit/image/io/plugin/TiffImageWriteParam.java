@@ -29,6 +29,11 @@ import org.geotoolkit.image.io.SpatialImageWriteParam;
  */
 public class TiffImageWriteParam extends SpatialImageWriteParam {
 
+    /**
+     * {@code true} if image is written with cloud optimized GeoTIFF layout.
+     */
+    private boolean cloudOptimized;
+
     public TiffImageWriteParam(ImageWriter writer) {
         super(writer);
         canOffsetTiles      = false;
@@ -37,4 +42,29 @@ public class TiffImageWriteParam extends SpatialImageWriteParam {
         canWriteTiles       = true;
         compressionTypes    = new String[]{"LZW", "PackBits"};
     }
+
+    /**
+     * Returns {@code true} if image is written with cloud optimized GeoTIFF layout.
+     *
+     * @return {@code true} for cloud optimized layout.
+     * @see #setCloudOptimized(boolean)
+     */
+    public boolean isCloudOptimized() {
+        return cloudOptimized;
+    }
+
+    /**
+     * Sets whether image is written with cloud optimized GeoTIFF layout : tiled image compressed with
+     * Deflate algorithm and a predictor, with reduced resolution images, all image file directories
+     * at the beginning of the file followed by tile data from smallest to full resolution image.
+     * A reader can then get any resolution by reading a few contiguous byte ranges.<br>
+     * Tiles are 256 x 256 pixels unless an explicit tiling is set, compression type is ignored.
+     * Cloud optimized layout can only be used for the first image written in a file. Reduced resolution images
+     * are built in memory, about a third of the full resolution image size, larger images are rejected.
+     *
+     * @param cloudOptimized {@code true} for cloud optimized layout.
+     */
+    public void setCloudOptimized(final boolean cloudOptimized) {
+        this.cloudOptimized = cloudOptimized;
+    }
 }
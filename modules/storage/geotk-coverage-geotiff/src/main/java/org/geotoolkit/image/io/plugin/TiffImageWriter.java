@@ -16,6 +16,7 @@
  */
 package org.geotoolkit.image.io.plugin;
 
+import java.awt.Dimension;
 import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
@@ -31,6 +32,7 @@ import java.awt.image.IndexColorModel;
 import java.awt.image.Raster;
 import java.awt.image.RenderedImage;
 import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -44,6 +46,7 @@ import java.nio.channels.WritableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
@@ -51,6 +54,7 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.TreeMap;
 import java.util.logging.Level;
+import java.util.zip.Deflater;
 
 import javax.imageio.IIOException;
 import javax.imageio.IIOImage;
@@ -120,6 +124,13 @@ public class TiffImageWriter extends SpatialImageWriter {
      */
     private final static String packbits = "PackBits";
 
+    /**
+     * Default tile size of images written with cloud optimized layout.
+     *
+     * @see TiffImageWriteParam#setCloudOptimized(boolean)
+     */
+    private static final int COG_TILE_SIZE = 256;
+
     /**
      * Size of data structures in standard TIFF files ({@code SIZE_*}) and in big TIFF files
      * ({@code SIZE_BIG_*}). In standard TIFF, the size of structures for counting the number
@@ -1008,6 +1019,10 @@ public class TiffImageWriter extends SpatialImageWriter {
      */
     private void write(final RenderedImage image, final Map<Integer, Map> headProperties,
                        final ImageWriteParam param, final long[] ifdPosition) throws IOException {
+        if (param instanceof TiffImageWriteParam && ((TiffImageWriteParam) param).isCloudOptimized()) {
+            writeCloudOptimized(image, headProperties, param, ifdPosition);
+            return;
+        }
         if (channel != null) {
             //-- We authorize to write none big tiff image after big tiff already writen but not the inverse --//
             if (isBigTIFF != isBigTiff(image)) {
@@ -1030,16 +1045,7 @@ public class TiffImageWriter extends SpatialImageWriter {
                 ifdPosition[0] = offset;
             }
         } else {
-            isBigTIFF = isBigTiff(image);
-            if (isBigTIFF) {
-                currentSizeEntry     = SIZE_BIG_ENTRY;
-                currentSizeTagNumber = Long.SIZE / Byte.SIZE; // long
-                currentSizeNextIFD   = Long.SIZE / Byte.SIZE; // long
-            } else {
-                currentSizeEntry     = SIZE_ENTRY;
-                currentSizeTagNumber = Short.SIZE / Byte.SIZE; // short
-                currentSizeNextIFD   = Integer.SIZE / Byte.SIZE; // int
-            }
+            setBigTIFF(isBigTiff(image));
         }
         /*
          * Open channel if its necessary else do nothing.
@@ -1061,6 +1067,416 @@ public class TiffImageWriter extends SpatialImageWriter {
         this.headProperties = null;
     }
 
+    /**
+     * Define if file is written with bigTiff specification or standard tiff specification,
+     * and the size of the structures which depend on it.
+     *
+     * @param bigTIFF {@code true} for bigTiff specification.
+     */
+    private void setBigTIFF(final boolean bigTIFF) {
+        isBigTIFF = bigTIFF;
+        if (isBigTIFF) {
+            currentSizeEntry     = SIZE_BIG_ENTRY;
+            currentSizeTagNumber = Long.SIZE / Byte.SIZE; // long
+            currentSizeNextIFD   = Long.SIZE / Byte.SIZE; // long
+        } else {
+            currentSizeEntry     = SIZE_ENTRY;
+            currentSizeTagNumber = Short.SIZE / Byte.SIZE; // short
+            currentSizeNextIFD   = Integer.SIZE / Byte.SIZE; // int
+        }
+    }
+
+    /**
+     * Write image with cloud optimized GeoTIFF layout.<br/>
+     * Image is tiled and compressed with Deflate algorithm, after horizontal differencing for integer samples
+     * or floating point predictor for floating point samples. Reduced resolution images (overviews) are computed
+     * by averaging 2 x 2 pixels (or keeping the upper left pixel for indexed color images) until an image fits in a single tile.<br/>
+     * All image file directories are written at the beginning of the file, full resolution image first,
+     * with their tile offsets and byte counts. Tile data follow, from the smallest overview to the full resolution image,
+     * each image tiles in row order. BigTIFF specification is used when the file may exceed 4 GB.<br/>
+     * Overviews are computed in memory and need about a third of the full resolution image size.
+     *
+     * @param image {@link RenderedImage} which will be write.
+     * @param headProperties image properties, written in full resolution image file directory.
+     * @param param properties to write image, source region, subsampling and tile size are used.
+     * @param ifdPosition see {@link #write(java.awt.image.RenderedImage, java.util.Map, javax.imageio.ImageWriteParam, long[]) }.
+     * @throws IOException if problem during writing.
+     * @throws IllegalStateException if an image has already been written.
+     * @throws IllegalArgumentException if image sample size is not 8, 16, 32 or 64 bits,
+     *         or if image overviews are too large to be built in memory.
+     */
+    private void writeCloudOptimized(final RenderedImage image, final Map<Integer, Map> headProperties,
+                       final ImageWriteParam param, final long[] ifdPosition) throws IOException {
+        if (channel != null) {
+            throw new IllegalStateException("Cloud optimized layout can only be used to write the first image of a file.");
+        }
+        final SampleModel sm     = image.getSampleModel();
+        final int numBands       = sm.getNumBands();
+        final int[] sampleSize   = sm.getSampleSize();
+        final int bitsPerSample  = sampleSize[0];
+        for (int size : sampleSize) {
+            if (size != bitsPerSample || (size != Byte.SIZE && size != Short.SIZE && size != Integer.SIZE && size != Long.SIZE)) {
+                throw new IllegalArgumentException("Cloud optimized layout expects same sample size of 8, 16, 32 or 64 bits for all bands. Found : "+Arrays.toString(sampleSize));
+            }
+        }
+        final int bytesPerSample = bitsPerSample / Byte.SIZE;
+        final boolean floating   = sm.getDataType() == DataBuffer.TYPE_FLOAT || sm.getDataType() == DataBuffer.TYPE_DOUBLE;
+        final boolean nearest    = image.getColorModel() instanceof IndexColorModel;
+
+        //-- written area of source image --//
+        final Rectangle region = new Rectangle(image.getMinX(), image.getMinY(), image.getWidth(), image.getHeight());
+        int srcXsubsampling = 1, srcYsubsampling = 1;
+        int tileWidth = COG_TILE_SIZE, tileHeight = COG_TILE_SIZE;
+        if (param != null) {
+            if (param.getSourceRegion() != null) {
+                Rectangle.intersect(region, param.getSourceRegion(), region);
+            }
+            region.translate(param.getSubsamplingXOffset(), param.getSubsamplingYOffset());
+            region.width  -= param.getSubsamplingXOffset();
+            region.height -= param.getSubsamplingYOffset();
+            if (region.isEmpty()) {
+                throw new IllegalStateException("src region from ImageWriterParam must intersect image boundary.");
+            }
+            srcXsubsampling = param.getSourceXSubsampling();
+            srcYsubsampling = param.getSourceYSubsampling();
+            if (param.canWriteTiles() && param.getTilingMode() == ImageWriteParam.MODE_EXPLICIT) {
+                //-- tile size must be multiple of 16 (tiff spec).
+                tileWidth  = (param.getTileWidth()  + 15) / 16 * 16;
+                tileHeight = (param.getTileHeight() + 15) / 16 * 16;
+            }
+        }
+
+        //-- image dimensions of each level, full resolution first --//
+        final List<Dimension> levels = new ArrayList<>();
+        levels.add(new Dimension((region.width  + srcXsubsampling - 1) / srcXsubsampling,
+                                 (region.height + srcYsubsampling - 1) / srcYsubsampling));
+        for (Dimension level = levels.get(0); level.width > tileWidth || level.height > tileHeight;) {
+            level = new Dimension((level.width + 1) / 2, (level.height + 1) / 2);
+            levels.add(level);
+        }
+
+        //-- overviews are built in memory before being written, reject images whose overviews can not fit --//
+        long overviewLength = 0;
+        for (int l = 1; l < levels.size(); l++) {
+            final Dimension level = levels.get(l);
+            final long numSamples = (long) level.width * level.height * numBands;
+            if (numSamples > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Cloud optimized layout can not build overview of "+level.width+"x"+level.height
+                        +" pixels in memory, image of "+levels.get(0).width+"x"+levels.get(0).height+" pixels is too large.");
+            }
+            overviewLength += numSamples * bytesPerSample;
+        }
+        final Runtime runtime = Runtime.getRuntime();
+        final long availableMemory = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+        if (overviewLength > availableMemory) {
+            throw new IllegalArgumentException("Cloud optimized layout needs "+overviewLength+" bytes to build overviews in memory, only "
+                    +availableMemory+" bytes are available. Image of "+levels.get(0).width+"x"+levels.get(0).height+" pixels is too large.");
+        }
+
+        //-- bigTiff is needed if file may exceed 4Go, in the worst case Deflate slightly increases data size --//
+        final long tileLength = (long) tileWidth * tileHeight * numBands * bytesPerSample;
+        long maxFileLength = 0;
+        for (Dimension level : levels) {
+            final long numTiles = (long) ((level.width + tileWidth - 1) / tileWidth) * ((level.height + tileHeight - 1) / tileHeight);
+            maxFileLength += numTiles * (tileLength + tileLength / 1000 + 64) + 4096;
+        }
+        setBigTIFF(maxFileLength > 0xFFFFFFFFL);
+
+        open(ifdPosition);
+
+        //-- tags shared by all levels --//
+        final Map<Integer, Map> baseProperties = new TreeMap<>();
+        addImageProperties(image, baseProperties, null);
+        addProperty(Compression, TYPE_USHORT, 1, new short[]{8}, baseProperties);
+        addProperty(Predictor, TYPE_USHORT, 1, new short[]{(short) (floating ? 3 : 2)}, baseProperties);
+        addProperty(PlanarConfiguration, TYPE_USHORT, 1, new short[]{1}, baseProperties);
+
+        //-- write all image file directories, with space for tile offsets and byte counts --//
+        final short arrayType = (isBigTIFF) ? TYPE_ULONG : TYPE_UINT;
+        final long[] byteCountPositions = new long[levels.size()];
+        final long[] offsetPositions    = new long[levels.size()];
+        for (int l = 0; l < levels.size(); l++) {
+            final Dimension level = levels.get(l);
+            final Map<Integer, Map> properties = (l == 0) ? headProperties : new TreeMap<>();
+            properties.putAll(baseProperties);
+            properties.keySet().removeAll(Arrays.asList(StripOffsets, StripByteCounts, RowsPerStrip));
+            if (l > 0) {
+                //-- reduced resolution image --//
+                addProperty(NewSubfileType, TYPE_UINT, 1, new int[]{1}, properties);
+                final long position = channel.getStreamPosition();
+                channel.seek(ifdPosition[1]);
+                if (isBigTIFF) channel.writeLong(position);
+                else channel.writeInt((int) position);
+                channel.seek(position);
+                ifdPosition[0] = position;
+            }
+            if (level.width > 0xFFFF) {
+                addProperty(ImageWidth, TYPE_INT, 1, new int[]{level.width}, properties);
+            } else {
+                addProperty(ImageWidth, TYPE_USHORT, 1, new short[]{(short) level.width}, properties);
+            }
+            if (level.height > 0xFFFF) {
+                addProperty(ImageLength, TYPE_INT, 1, new int[]{level.height}, properties);
+            } else {
+                addProperty(ImageLength, TYPE_USHORT, 1, new short[]{(short) level.height}, properties);
+            }
+            final int numTiles = ((level.width + tileWidth - 1) / tileWidth) * ((level.height + tileHeight - 1) / tileHeight);
+            addTileOffsetsProperties(tileWidth, tileHeight, (level.width + tileWidth - 1) / tileWidth,
+                    (level.height + tileHeight - 1) / tileHeight, properties);
+            writeTags(properties, ifdPosition);
+
+            final int arrayLength = numTiles * TYPE_SIZE[arrayType];
+            if (arrayLength <= currentSizeNextIFD) {
+                byteCountPositions[l] = byteCountTagPosition;
+                offsetPositions[l]    = offsetTagPosition;
+            } else {
+                byteCountPositions[l] = reserveArray(byteCountTagPosition, arrayLength);
+                offsetPositions[l]    = reserveArray(offsetTagPosition, arrayLength);
+            }
+            if (metaIndex == metaHeads.length) {
+                metaHeads = Arrays.copyOf(metaHeads, metaHeads.length << 1);
+            }
+            metaHeads[metaIndex++] = properties;
+        }
+        this.headProperties = null;
+
+        //-- overviews --//
+        final WritableRaster[] overviews = new WritableRaster[levels.size()];
+        for (int l = 1; l < levels.size(); l++) {
+            overviews[l] = reduce(image, region, srcXsubsampling, srcYsubsampling, overviews[l - 1],
+                    levels.get(l - 1), levels.get(l), tileHeight, nearest);
+        }
+
+        //-- tile data, smallest overview first --//
+        final byte[] tile    = new byte[Math.toIntExact(tileLength)];
+        byte[] compressed    = new byte[tile.length + 64];
+        final Deflater deflater = new Deflater();
+        try {
+            for (int l = levels.size() - 1; l >= 0; l--) {
+                final Dimension level = levels.get(l);
+                final int numXTile = (level.width  + tileWidth  - 1) / tileWidth;
+                final int numYTile = (level.height + tileHeight - 1) / tileHeight;
+                final long[] offsets    = new long[numXTile * numYTile];
+                final long[] byteCounts = new long[offsets.length];
+                for (int ty = 0; ty < numYTile; ty++) {
+                    //-- a row of tiles is read at once from source image --//
+                    final Rectangle rowArea = new Rectangle(0, ty * tileHeight, level.width, Math.min(tileHeight, level.height - ty * tileHeight));
+                    final Raster raster = (l == 0) ? readSource(image, region, srcXsubsampling, srcYsubsampling, rowArea) : overviews[l];
+                    for (int tx = 0; tx < numXTile; tx++) {
+                        final Rectangle area = new Rectangle(tx * tileWidth, rowArea.y, Math.min(tileWidth, level.width - tx * tileWidth), rowArea.height);
+                        encodeTile(raster, area, tileWidth, bytesPerSample, floating, tile);
+
+                        deflater.reset();
+                        deflater.setInput(tile);
+                        deflater.finish();
+                        int length = 0;
+                        while (!deflater.finished()) {
+                            if (length == compressed.length) compressed = Arrays.copyOf(compressed, compressed.length * 2);
+                            length += deflater.deflate(compressed, length, compressed.length - length);
+                        }
+                        final int t = ty * numXTile + tx;
+                        offsets[t]    = channel.getStreamPosition();
+                        byteCounts[t] = length;
+                        channel.write(compressed, 0, length);
+                    }
+                }
+
+                //-- report tile positions in image file directory --//
+                final long end = channel.getStreamPosition();
+                channel.seek(byteCountPositions[l]);
+                writeArray((isBigTIFF) ? byteCounts : toInts(byteCounts), arrayType);
+                channel.seek(offsetPositions[l]);
+                writeArray((isBigTIFF) ? offsets : toInts(offsets), arrayType);
+                channel.seek(end);
+                overviews[l] = null;
+            }
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Reserve space at current channel position for an array of tag values, and write its position as tag value.
+     *
+     * @param tagValuePosition position in file of the tag value.
+     * @param length array length in bytes.
+     * @return position of the array in file.
+     * @throws IOException if problem during writing.
+     */
+    private long reserveArray(final long tagValuePosition, final int length) throws IOException {
+        final long position = channel.getStreamPosition();
+        channel.seek(tagValuePosition);
+        if (isBigTIFF) channel.writeLong(position);
+        else channel.writeInt((int) position);
+        channel.seek(position);
+        final byte[] zeros = new byte[Math.min(length, 8196)];
+        for (int remaining = length; remaining > 0; remaining -= zeros.length) {
+            channel.write(zeros, 0, Math.min(remaining, zeros.length));
+        }
+        return position;
+    }
+
+    /**
+     * Returns positions or byte counts as unsigned integers for standard tiff specification.
+     */
+    private static int[] toInts(final long[] values) {
+        final int[] ints = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            ints[i] = (int) values[i];
+        }
+        return ints;
+    }
+
+    /**
+     * Returns the pixels of an area of the written image, in destination image coordinates.
+     *
+     * @param image source image.
+     * @param region written region of source image.
+     * @param srcXsubsampling subsampling in X direction.
+     * @param srcYsubsampling subsampling in Y direction.
+     * @param area wanted area in destination image.
+     * @return raster whose bounds are the wanted area.
+     */
+    private static Raster readSource(final RenderedImage image, final Rectangle region,
+            final int srcXsubsampling, final int srcYsubsampling, final Rectangle area) {
+        final Rectangle source = new Rectangle(region.x + area.x * srcXsubsampling, region.y + area.y * srcYsubsampling,
+                (area.width - 1) * srcXsubsampling + 1, (area.height - 1) * srcYsubsampling + 1);
+        final Raster raster = image.getData(source);
+        if (srcXsubsampling == 1 && srcYsubsampling == 1) {
+            return raster.createChild(source.x, source.y, area.width, area.height, area.x, area.y, null);
+        }
+        final int numBands = raster.getNumBands();
+        final WritableRaster result = raster.createCompatibleWritableRaster(area.x, area.y, area.width, area.height);
+        final double[] sourceRow = new double[source.width * numBands];
+        final double[] row       = new double[area.width * numBands];
+        for (int y = 0; y < area.height; y++) {
+            raster.getPixels(source.x, source.y + y * srcYsubsampling, source.width, 1, sourceRow);
+            for (int x = 0; x < area.width; x++) {
+                System.arraycopy(sourceRow, x * srcXsubsampling * numBands, row, x * numBands, numBands);
+            }
+            result.setPixels(area.x, area.y + y, area.width, 1, row);
+        }
+        return result;
+    }
+
+    /**
+     * Compute a reduced resolution image, each pixel is the average of 2 x 2 pixels of the upper level.
+     *
+     * @param image source image, read if upper level is the full resolution image.
+     * @param region written region of source image.
+     * @param srcXsubsampling subsampling in X direction.
+     * @param srcYsubsampling subsampling in Y direction.
+     * @param upper upper level image, or {@code null} for the full resolution image.
+     * @param upperSize upper level image size.
+     * @param size reduced image size.
+     * @param blockHeight number of reduced rows computed at once.
+     * @param nearest {@code true} to keep upper left pixel instead of average, for indexed colors.
+     * @return reduced resolution image.
+     */
+    private static WritableRaster reduce(final RenderedImage image, final Rectangle region,
+            final int srcXsubsampling, final int srcYsubsampling, final Raster upper,
+            final Dimension upperSize, final Dimension size, final int blockHeight, final boolean nearest) {
+        final SampleModel sm     = image.getSampleModel();
+        final int numBands       = sm.getNumBands();
+        final boolean integral   = sm.getDataType() != DataBuffer.TYPE_FLOAT && sm.getDataType() != DataBuffer.TYPE_DOUBLE;
+        final WritableRaster reduced = Raster.createWritableRaster(sm.createCompatibleSampleModel(size.width, size.height), null);
+        final double[] row0 = new double[upperSize.width * numBands];
+        final double[] row1 = new double[upperSize.width * numBands];
+        final double[] row  = new double[size.width * numBands];
+        for (int by = 0; by < size.height; by += blockHeight) {
+            final int endY = Math.min(by + blockHeight, size.height);
+            final int upperY = by * 2;
+            final Raster source = (upper != null) ? upper : readSource(image, region, srcXsubsampling, srcYsubsampling,
+                    new Rectangle(0, upperY, upperSize.width, Math.min(endY * 2, upperSize.height) - upperY));
+            for (int y = by; y < endY; y++) {
+                source.getPixels(0, 2 * y, upperSize.width, 1, row0);
+                source.getPixels(0, Math.min(2 * y + 1, upperSize.height - 1), upperSize.width, 1, row1);
+                for (int x = 0; x < size.width; x++) {
+                    final int x0 = 2 * x * numBands;
+                    final int x1 = Math.min(2 * x + 1, upperSize.width - 1) * numBands;
+                    for (int b = 0; b < numBands; b++) {
+                        double value = row0[x0 + b];
+                        if (!nearest) {
+                            value = (value + row0[x1 + b] + row1[x0 + b] + row1[x1 + b]) / 4;
+                            if (integral) value = Math.floor(value + 0.5);
+                        }
+                        row[x * numBands + b] = value;
+                    }
+                }
+                reduced.setPixels(0, y, size.width, 1, row);
+            }
+        }
+        return reduced;
+    }
+
+    /**
+     * Write samples of an image area in a tile array, in file byte order, then apply predictor on each row :
+     * horizontal differencing for integer samples, floating point predictor (TIFF technical note 3) for floating point samples.
+     * Tile part outside of area is filled with 0.
+     *
+     * @param raster raster containing area.
+     * @param area area of the tile inside image.
+     * @param tileWidth tile width.
+     * @param bytesPerSample sample size in bytes.
+     * @param floating {@code true} for floating point samples.
+     * @param tile destination tile array.
+     */
+    private void encodeTile(final Raster raster, final Rectangle area, final int tileWidth,
+            final int bytesPerSample, final boolean floating, final byte[] tile) {
+        Arrays.fill(tile, (byte) 0);
+        final int numBands   = raster.getNumBands();
+        final int rowSamples = tileWidth * numBands;
+        final int rowLength  = rowSamples * bytesPerSample;
+        final ByteBuffer buffer = ByteBuffer.wrap(tile).order((floating) ? ByteOrder.BIG_ENDIAN : currentBO);
+        if (floating) {
+            final double[] samples = new double[rowSamples];
+            final double[] band    = new double[area.width];
+            final byte[] shuffled  = new byte[rowLength];
+            for (int y = 0; y < area.height; y++) {
+                for (int b = 0; b < numBands; b++) {
+                    raster.getSamples(area.x, area.y + y, area.width, 1, b, band);
+                    for (int x = 0; x < area.width; x++) samples[x * numBands + b] = band[x];
+                }
+                final int offset = y * rowLength;
+                for (int i = 0; i < rowSamples; i++) {
+                    if (bytesPerSample == Float.BYTES) buffer.putFloat(offset + i * Float.BYTES, (float) samples[i]);
+                    else buffer.putDouble(offset + i * Double.BYTES, samples[i]);
+                }
+                //-- bytes grouped by significance, then differenced --//
+                for (int i = 0; i < rowSamples; i++) {
+                    for (int s = 0; s < bytesPerSample; s++) {
+                        shuffled[s * rowSamples + i] = tile[offset + i * bytesPerSample + s];
+                    }
+                }
+                for (int i = rowLength - 1; i >= numBands; i--) {
+                    shuffled[i] -= shuffled[i - numBands];
+                }
+                System.arraycopy(shuffled, 0, tile, offset, rowLength);
+            }
+        } else {
+            final int[] samples = new int[rowSamples];
+            final int[] band    = new int[area.width];
+            for (int y = 0; y < area.height; y++) {
+                for (int b = 0; b < numBands; b++) {
+                    raster.getSamples(area.x, area.y + y, area.width, 1, b, band);
+                    for (int x = 0; x < area.width; x++) samples[x * numBands + b] = band[x];
+                }
+                //-- horizontal differencing --//
+                for (int i = rowSamples - 1; i >= numBands; i--) {
+                    samples[i] -= samples[i - numBands];
+                }
+                final int offset = y * rowLength;
+                for (int i = 0; i < rowSamples; i++) {
+                    switch (bytesPerSample) {
+                        case Byte.BYTES    : tile[offset + i] = (byte) samples[i]; break;
+                        case Short.BYTES   : buffer.putShort(offset + i * Short.BYTES, (short) samples[i]); break;
+                        default            : buffer.putInt(offset + i * Integer.BYTES, samples[i]); break;
+                    }
+                }
+            }
+        }
+    }
+
     /**
      * Check tagsProperties {@link Map} and define if image will be written by stripOffsets or by tiles.
      *
@@ -3565,7 +3981,7 @@ public class TiffImageWriter extends SpatialImageWriter {
                 case TYPE_INT  :
                 case TYPE_UINT : {
                     final int dataCount = dataSize / Integer.SIZE;
-                    assert count == dataCount;
+                    assert count <= dataCount;
                     for (int i = 0; i < dataCount; i++) {
                         if (i < count) {
                             final int in = Array.getInt(value, i);
@@ -0,0 +1,193 @@
+/*
+ *    Geotoolkit.org - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2018, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.image.io.plugin;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Objects;
+import org.apache.sis.util.ArgumentChecks;
+
+/**
+ * Size bounded cache of decoded TIFF tiles, shared by {@link TiffImageReader} instances.<br>
+ * Tiles are identified by file, image file directory (IFD) position, tile index and sample data type, a tile
+ * of a file whose modification time or size changed since it was cached is not reused. When the total size of cached tiles
+ * exceeds the capacity, least recently used tiles are released.
+ *
+ * @see TiffImageReader#setTileDecoding(java.util.concurrent.Executor, org.geotoolkit.image.io.plugin.TiffTileCache)
+ * @module
+ */
+public final class TiffTileCache {
+
+    /**
+     * System property giving the capacity of the default cache, in megabytes.
+     */
+    public static final String CAPACITY_KEY = "geotk.tiff.tile.cache.size";
+
+    private static final long DEFAULT_CAPACITY = 64;
+
+    private static volatile TiffTileCache DEFAULT;
+
+    /**
+     * Identifier of a decoded tile.
+     */
+    static final class Key {
+        private final String file;
+        private final long modified;
+        private final long length;
+        private final long ifd;
+        private final int tile;
+        private final int dataType;
+
+        /**
+         * @param dataType {@link java.awt.image.DataBuffer} type of the samples, which gives the cached array class.
+         */
+        Key(final String file, final long modified, final long length, final long ifd, final int tile, final int dataType) {
+            this.file     = file;
+            this.modified = modified;
+            this.length   = length;
+            this.ifd      = ifd;
+            this.tile     = tile;
+            this.dataType = dataType;
+        }
+
+        @Override
+        public int hashCode() {
+            return file.hashCode() + 31 * (Long.hashCode(ifd) + 31 * (tile + 31 * dataType));
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (obj instanceof Key) {
+                final Key other = (Key) obj;
+                return tile == other.tile && dataType == other.dataType && ifd == other.ifd
+                    && modified == other.modified && length == other.length && file.equals(other.file);
+            }
+            return false;
+        }
+    }
+
+    /**
+     * A decoded tile, primitive array of samples and its size in bytes.
+     */
+    private static final class Entry {
+        final Object samples;
+        final long size;
+
+        Entry(final Object samples, final long size) {
+            this.samples = samples;
+            this.size    = size;
+        }
+    }
+
+    private final long capacity;
+    private final LinkedHashMap<Key,Entry> tiles = new LinkedHashMap<>(16, 0.75f, true);
+    private long size;
+
+    /**
+     * @param capacity maximum size of cached tiles, in bytes.
+     */
+    public TiffTileCache(final long capacity) {
+        ArgumentChecks.ensurePositive("capacity", capacity);
+        this.capacity = capacity;
+    }
+
+    /**
+     * Returns the cache shared by readers, its capacity is given in megabytes by
+     * the {@value #CAPACITY_KEY} system property, 64 megabytes by default.
+     *
+     * @return default cache, never null
+     */
+    public static TiffTileCache getDefault() {
+        if (DEFAULT == null) {
+            synchronized (TiffTileCache.class) {
+                if (DEFAULT == null) {
+                    long megabytes = DEFAULT_CAPACITY;
+                    final String property = System.getProperty(CAPACITY_KEY);
+                    if (property != null) {
+                        megabytes = Long.parseLong(property.trim());
+                    }
+                    DEFAULT = new TiffTileCache(megabytes << 20);
+                }
+            }
+        }
+        return DEFAULT;
+    }
+
+    /**
+     * @return maximum size of cached tiles, in bytes.
+     */
+    public long getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return current size of cached tiles, in bytes.
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    /**
+     * @return number of cached tiles.
+     */
+    public synchronized int getTileCount() {
+        return tiles.size();
+    }
+
+    /**
+     * Returns the samples of a decoded tile.
+     * Returned array is shared and must not be modified.
+     *
+     * @return tile samples, or null if tile is not cached.
+     */
+    synchronized Object get(final Key key) {
+        final Entry entry = tiles.get(key);
+        return (entry != null) ? entry.samples : null;
+    }
+
+    /**
+     * Add a decoded tile, cached array must not be modified afterward.
+     *
+     * @param samples primitive array of samples
+     * @param byteSize size of samples, in bytes
+     */
+    synchronized void put(final Key key, final Object samples, final long byteSize) {
+        Objects.requireNonNull(samples);
+        if (byteSize > capacity) return;
+        final Entry previous = tiles.put(key, new Entry(samples, byteSize));
+        if (previous != null) size -= previous.size;
+        size += byteSize;
+        final Iterator<Entry> ite = tiles.values().iterator();
+        while (size > capacity && ite.hasNext()) {
+            size -= ite.next().size;
+            ite.remove();
+        }
+    }
+
+    /**
+     * Remove all cached tiles.
+     */
+    public synchronized void clear() {
+        tiles.clear();
+        size = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "TiffTileCache[" + tiles.size() + " tiles, " + size + "/" + capacity + " bytes]";
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ *    Geotoolkit.org - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2018, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.image.io.plugin;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageWriteParam;
+import org.geotoolkit.nio.IOUtilities;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test {@link TiffImageReader} reading with decoded tiles kept in a {@link TiffTileCache}.
+ */
+public class TiffTileCacheTest extends org.geotoolkit.test.TestBase {
+
+    private static final int TILE_SIZE = 32;
+
+    private Path tempDir;
+    private Path file;
+
+    @Before
+    public void writeImage() throws IOException {
+        tempDir = Files.createTempDirectory("tiffCache");
+        file = tempDir.resolve("image.tiff");
+
+        final BufferedImage image = new BufferedImage(200, 150, BufferedImage.TYPE_USHORT_GRAY);
+        final WritableRaster raster = image.getRaster();
+        final Random random = new Random(42);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                raster.setSample(x, y, 0, random.nextInt(1 << 16));
+            }
+        }
+
+        final TiffImageWriter writer = new TiffImageWriter(null);
+        final ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionType("LZW");
+        param.setTilingMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setTiling(TILE_SIZE, TILE_SIZE, 0, 0);
+        writer.setOutput(file.toFile());
+        writer.write(null, new javax.imageio.IIOImage(image, null, null), param);
+        writer.dispose();
+    }
+
+    @After
+    public void deleteImage() {
+        IOUtilities.deleteSilently(tempDir);
+    }
+
+    private BufferedImage read(final TiffTileCache cache, final ImageReadParam param) throws IOException {
+        final TiffImageReader reader = new TiffImageReader(null);
+        try {
+            if (cache != null) {
+                reader.setTileDecoding(ForkJoinPool.commonPool(), cache);
+            }
+            reader.setInput(file.toFile());
+            return reader.read(0, param);
+        } finally {
+            reader.dispose();
+        }
+    }
+
+    private static void assertRasterEquals(final Raster expected, final Raster result) {
+        assertEquals(expected.getWidth(),  result.getWidth());
+        assertEquals(expected.getHeight(), result.getHeight());
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                assertEquals(expected.getSample(x, y, 0), result.getSample(x, y, 0));
+            }
+        }
+    }
+
+    /**
+     * Reads using the cache should give the same image, second read should not decode tiles again.
+     */
+    @Test
+    public void cachedReadTest() throws IOException {
+        final TiffTileCache cache = new TiffTileCache(1 << 24);
+        final BufferedImage expected = read(null, null);
+
+        assertRasterEquals(expected.getRaster(), read(cache, null).getRaster());
+        //-- 7 x 5 tiles of 32x32 unsigned shorts
+        assertEquals(35, cache.getTileCount());
+        assertEquals(35 * TILE_SIZE * TILE_SIZE * 2, cache.getSize());
+        assertRasterEquals(expected.getRaster(), read(cache, null).getRaster());
+        assertEquals(35, cache.getTileCount());
+
+        //-- overlapping region with subsampling
+        final ImageReadParam param = new ImageReadParam();
+        param.setSourceRegion(new Rectangle(17, 40, 120, 70));
+        param.setSourceSubsampling(3, 2, 0, 0);
+        assertRasterEquals(read(null, param).getRaster(), read(cache, param).getRaster());
+        assertEquals(35, cache.getTileCount());
+    }
+
+    /**
+     * Cache should never exceed its capacity.
+     */
+    @Test
+    public void capacityTest() throws IOException {
+        final long tileSize = TILE_SIZE * TILE_SIZE * 2;
+        final TiffTileCache cache = new TiffTileCache(4 * tileSize);
+        final BufferedImage expected = read(null, null);
+        assertRasterEquals(expected.getRaster(), read(cache, null).getRaster());
+        assertEquals(4, cache.getTileCount());
+        assertEquals(4 * tileSize, cache.getSize());
+        cache.clear();
+        assertEquals(0, cache.getTileCount());
+        assertEquals(0, cache.getSize());
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ *    Geotoolkit.org - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2018, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.image.io.plugin.TiffWriter;
+
+import java.awt.Transparency;
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageWriteParam;
+import org.geotoolkit.image.io.plugin.TiffImageReader;
+import org.geotoolkit.image.io.plugin.TiffImageWriteParam;
+import org.geotoolkit.image.io.plugin.TiffImageWriter;
+import org.geotoolkit.nio.IOUtilities;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test {@link TiffImageWriter} writing with cloud optimized layout.
+ */
+public class CloudOptimizedWriterTest extends org.geotoolkit.test.TestBase {
+
+    private Path tempDir;
+    private Path file;
+
+    @Before
+    public void createDirectory() throws IOException {
+        tempDir = Files.createTempDirectory("cogWriter");
+        file = tempDir.resolve("image.tiff");
+    }
+
+    @After
+    public void deleteDirectory() {
+        IOUtilities.deleteSilently(tempDir);
+    }
+
+    private void write(final BufferedImage image, final TiffImageWriteParam param) throws IOException {
+        param.setCloudOptimized(true);
+        param.setTilingMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setTiling(128, 128, 0, 0);
+        final TiffImageWriter writer = new TiffImageWriter(null);
+        try {
+            writer.setOutput(file.toFile());
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    private List<BufferedImage> read() throws IOException {
+        final TiffImageReader reader = new TiffImageReader(null);
+        try {
+            reader.setInput(file.toFile());
+            final List<BufferedImage> images = new ArrayList<>();
+            for (int i = 0, n = reader.getNumImages(true); i < n; i++) {
+                images.add(reader.read(i));
+            }
+            return images;
+        } finally {
+            reader.dispose();
+        }
+    }
+
+    private static void assertRasterEquals(final Raster expected, final Raster result) {
+        assertEquals(expected.getWidth(),    result.getWidth());
+        assertEquals(expected.getHeight(),   result.getHeight());
+        assertEquals(expected.getNumBands(), result.getNumBands());
+        for (int b = 0; b < expected.getNumBands(); b++) {
+            for (int y = 0; y < expected.getHeight(); y++) {
+                for (int x = 0; x < expected.getWidth(); x++) {
+                    assertEquals(expected.getSampleDouble(x, y, b), result.getSampleDouble(x, y, b), 0);
+                }
+            }
+        }
+    }
+
+    /**
+     * Full resolution image and overviews of an integer image.
+     */
+    @Test
+    public void integerTest() throws IOException {
+        final BufferedImage image = new BufferedImage(600, 500, BufferedImage.TYPE_USHORT_GRAY);
+        final WritableRaster raster = image.getRaster();
+        final Random random = new Random(12);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                raster.setSample(x, y, 0, x * 50 + y + random.nextInt(64));
+            }
+        }
+        write(image, new TiffImageWriteParam(null));
+
+        final List<BufferedImage> images = read();
+        //-- 600x500, 300x250, 150x125, 75x63 --//
+        assertEquals(4, images.size());
+        assertRasterEquals(raster, images.get(0).getRaster());
+        final Raster overview = images.get(1).getRaster();
+        assertEquals(300, overview.getWidth());
+        assertEquals(250, overview.getHeight());
+        for (int y = 0; y < overview.getHeight(); y++) {
+            for (int x = 0; x < overview.getWidth(); x++) {
+                final double sum = raster.getSample(2*x, 2*y,   0) + raster.getSample(2*x+1, 2*y,   0)
+                                 + raster.getSample(2*x, 2*y+1, 0) + raster.getSample(2*x+1, 2*y+1, 0);
+                assertEquals(Math.floor(sum / 4 + 0.5), overview.getSample(x, y, 0), 0);
+            }
+        }
+        assertEquals(75, images.get(3).getWidth());
+        assertEquals(63, images.get(3).getHeight());
+        checkLayout(4);
+    }
+
+    /**
+     * Floating point samples with floating point predictor.
+     */
+    @Test
+    public void floatTest() throws IOException {
+        final ComponentColorModel cm = new ComponentColorModel(ColorSpace.getInstance(ColorSpace.CS_GRAY),
+                false, false, Transparency.OPAQUE, DataBuffer.TYPE_FLOAT);
+        final WritableRaster raster = cm.createCompatibleWritableRaster(300, 200);
+        final Random random = new Random(5);
+        for (int y = 0; y < raster.getHeight(); y++) {
+            for (int x = 0; x < raster.getWidth(); x++) {
+                raster.setSample(x, y, 0, random.nextGaussian() * 1000);
+            }
+        }
+        write(new BufferedImage(cm, raster, false, null), new TiffImageWriteParam(null));
+
+        final List<BufferedImage> images = read();
+        assertEquals(3, images.size());
+        assertRasterEquals(raster, images.get(0).getRaster());
+        checkLayout(3);
+    }
+
+    /**
+     * Source region and subsampling of full resolution image.
+     */
+    @Test
+    public void subsamplingTest() throws IOException {
+        final BufferedImage image = new BufferedImage(400, 300, BufferedImage.TYPE_3BYTE_BGR);
+        final WritableRaster raster = image.getRaster();
+        final Random random = new Random(3);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, random.nextInt());
+            }
+        }
+        final TiffImageWriteParam param = new TiffImageWriteParam(null);
+        param.setSourceRegion(new java.awt.Rectangle(10, 20, 301, 200));
+        param.setSourceSubsampling(3, 2, 0, 0);
+        write(image, param);
+
+        final Raster result = read().get(0).getRaster();
+        assertEquals(101, result.getWidth());
+        assertEquals(100, result.getHeight());
+        for (int b = 0; b < 3; b++) {
+            for (int y = 0; y < result.getHeight(); y++) {
+                for (int x = 0; x < result.getWidth(); x++) {
+                    assertEquals(raster.getSample(10 + 3*x, 20 + 2*y, b), result.getSample(x, y, b));
+                }
+            }
+        }
+    }
+
+    /**
+     * Check that all image file directories are written before tile data,
+     * and tile data are written from the smallest to the full resolution image.
+     */
+    private void checkLayout(final int numImages) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        buffer.order(buffer.get(0) == 'I' ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+        assertEquals("Standard tiff expected", 42, buffer.getShort(2));
+        final List<long[]> tileOffsets = new ArrayList<>();
+        long maxIFDEnd = 0;
+        for (long ifd = buffer.getInt(4); ifd != 0; ifd = buffer.getInt((int) ifd + 2 + 12 * buffer.getShort((int) ifd)) & 0xFFFFFFFFL) {
+            final int numEntries = buffer.getShort((int) ifd);
+            maxIFDEnd = Math.max(maxIFDEnd, ifd + 6 + 12 * numEntries);
+            for (int e = 0; e < numEntries; e++) {
+                final int entry = (int) ifd + 2 + 12 * e;
+                if ((buffer.getShort(entry) & 0xFFFF) == 324) { // TileOffsets
+                    final int count = buffer.getInt(entry + 4);
+                    final long[] offsets = new long[count];
+                    final int position = (count == 1) ? entry + 8 : buffer.getInt(entry + 8);
+                    for (int i = 0; i < count; i++) {
+                        offsets[i] = buffer.getInt(position + 4 * i) & 0xFFFFFFFFL;
+                        maxIFDEnd  = Math.max(maxIFDEnd, position + 4 * (i + 1));
+                    }
+                    tileOffsets.add(offsets);
+                }
+            }
+        }
+        assertEquals(numImages, tileOffsets.size());
+        long previousMin = Long.MAX_VALUE;
+        for (long[] offsets : tileOffsets) {
+            long min = Long.MAX_VALUE, max = 0;
+            for (long offset : offsets) {
+                min = Math.min(min, offset);
+                max = Math.max(max, offset);
+            }
+            assertTrue("Tile data expected after image file directories", min >= maxIFDEnd);
+            assertTrue("Overview tiles expected before upper level tiles", max < previousMin || previousMin == Long.MAX_VALUE);
+            previousMin = min;
+        }
+    }
+}
@@ -21,6 +21,10 @@ import java.awt.geom.AffineTransform;
 import java.awt.image.DataBuffer;
 import java.awt.image.RenderedImage;
 import java.awt.image.WritableRenderedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.sis.geometry.Envelope2D;
 import org.apache.sis.geometry.GeneralEnvelope;
 import org.apache.sis.util.ArgumentChecks;
@@ -28,6 +32,7 @@ import org.apache.sis.geometry.Envelopes;
 import org.geotoolkit.image.io.large.WritableLargeRenderedImage;
 import org.geotoolkit.image.iterator.PixelIterator;
 import org.geotoolkit.image.iterator.PixelIteratorFactory;
+import org.geotoolkit.internal.SharedWork;
 import org.geotoolkit.math.XMath;
 import org.opengis.referencing.datum.PixelInCell;
 import org.opengis.referencing.operation.MathTransform;
@@ -49,6 +54,11 @@ public class Resample {
     private static final double[] CLAMP_USHORT = new double[]{0,                 0xFFFF};
     private static final double[] CLAMP_INT    = new double[]{Integer.MIN_VALUE, Integer.MAX_VALUE};
 
+    /**
+     * Maximum number of destination rows resampled by a single task, when tiles are split between threads.
+     */
+    private static final int BLOCK_HEIGHT = 64;
+
     /**
      * Transform multi-dimensional point (in our case pixel coordinate) from target image
      * {@code CoordinateReferenceSystem} to source image {@code CoordinateReferenceSystem}.
@@ -112,6 +122,24 @@ public class Resample {
      */
     ResampleGrid theGrid;
 
+    /**
+     * Source image, used to create an {@link Interpolation} for each resampling thread.
+     * {@code null} if resample has been built from an {@link Interpolation}, in which case
+     * resampling is done in the calling thread.
+     */
+    private final RenderedImage imageSrc;
+
+    /**
+     * Interpolation case and lanczos window, used to create an {@link Interpolation} for each resampling thread.
+     */
+    private final InterpolationCase interpolationCase;
+    private final int lanczosWindow;
+
+    /**
+     * Executor used to resample destination blocks concurrently.
+     */
+    private Executor executor;
+
     /**
      * <p>Fill destination image from interpolation of source pixels.<br/>
      * Source pixel coordinate is obtained from invert transformation of destination pixel coordinates.<br/>
@@ -282,6 +310,9 @@ public class Resample {
         //-- interpolation creation --//
         PixelIterator pix = PixelIteratorFactory.createDefaultIterator(imageSrc);
         interpol          = Interpolation.create(pix, interpolation, lanczosWindow, rbc, fillValue);
+        this.imageSrc          = imageSrc;
+        this.interpolationCase = interpolation;
+        this.lanczosWindow     = lanczosWindow;
 
         this.rbc   = rbc;
         this.clamp = getClamp(imageDest.getSampleModel().getDataType());
@@ -336,6 +367,9 @@ public class Resample {
         this.destIterator              = PixelIteratorFactory.createDefaultWriteableIterator(this.imageDest, this.imageDest, resampleArea);
         this.destToSourceMathTransform = mathTransform;
         this.interpol                  = interpol;
+        this.imageSrc                  = null;
+        this.interpolationCase         = null;
+        this.lanczosWindow             = 0;
         srcCoords  = new double[2];
         destCoords = new double[2];
         this.rbc   = rbc;
@@ -599,72 +633,143 @@ public class Resample {
         }
     }
 
+    /**
+     * Fill image without any grid, all pixels coordinates are transform by given {@link AffineTransform}.
+     *
+     * @throws TransformException
+     */
+    private void fillImageByAffineTransform(final AffineTransform destCoordToSource) throws TransformException {
+        fillImageByBlocks((double[] destRow, double[] srcRow, int length) -> destCoordToSource.transform(destRow, 0, srcRow, 0, length));
+    }
+
     /**
      * Fill image without any grid, all pixels coordinates are transform by given {@link MathTransform}.
      *
      * @throws TransformException
      */
-    private void fillImageByAffineTransform(AffineTransform destCoordToSource) throws TransformException {
-        int band;
-        while (destIterator.next()) {
-            band = 0;
-            //-- Compute source coordinate from destination coordinate and mathtransform.
-            destCoords[0] = destIterator.getX();
-            destCoords[1] = destIterator.getY();
-            destCoordToSource.transform(destCoords, 0, srcCoords, 0, 1);
+    private void fillImageByTransform() throws TransformException {
+        fillImageByBlocks((double[] destRow, double[] srcRow, int length) -> destToSourceMathTransform.transform(destRow, 0, srcRow, 0, length));
+    }
 
-            //-- if destination coordinate transformation is out of source boundary.
-            if (!interpol.checkInterpolate(srcCoords[0], srcCoords[1])) {
+    /**
+     * Transform a row of destination pixel coordinates to source pixel coordinates.
+     */
+    @FunctionalInterface
+    private interface RowTransform {
+        void transform(double[] destRow, double[] srcRow, int length) throws TransformException;
+    }
 
-                if (fillValue != null) destIterator.setSampleDouble(fillValue[band]); //Todo : find a way to avoid code duplication
-                while (++band < numBands) {
-                    destIterator.next();
-                    if (fillValue != null) destIterator.setSampleDouble(fillValue[band]);
+    /**
+     * Split resampled area in blocks, each block is contained in a single destination tile.
+     * Blocks are resampled by the calling thread and by the {@linkplain #getExecutor() executor} threads,
+     * each thread using its own {@link Interpolation}.
+     *
+     * @param transform destination to source pixel coordinate transform.
+     * @throws TransformException
+     */
+    private void fillImageByBlocks(final RowTransform transform) throws TransformException {
+        final int parallelism = (executor != null && imageSrc != null) ? Runtime.getRuntime().availableProcessors() : 1;
+        final List<Rectangle> blocks = createBlocks(destIterator.getBoundary(true), parallelism);
+        final AtomicInteger next = new AtomicInteger();
+
+        //-- one interpolation per thread, calling thread use the resample interpolation.
+        final int nbWorkers = Math.min(blocks.size(), parallelism) - 1;
+        final Thread caller = Thread.currentThread();
+        final Throwable error = SharedWork.run(executor, nbWorkers, () -> {
+            final Interpolation threadInterpol = (Thread.currentThread() == caller) ? interpol
+                    : Interpolation.create(PixelIteratorFactory.createDefaultIterator(imageSrc),
+                                           interpolationCase, lanczosWindow, rbc, fillValue);
+            fillBlocks(blocks, next, transform, threadInterpol);
+        });
+        if (error instanceof TransformException) throw (TransformException) error;
+        if (error instanceof RuntimeException)   throw (RuntimeException) error;
+        if (error instanceof Error)              throw (Error) error;
+        if (error != null) throw new TransformException(error.getMessage(), error);
+    }
+
+    /**
+     * Split area on destination tile boundaries, one block per tile.
+     * If there are less tiles than threads, tiles are further split in bands of at most
+     * {@link #BLOCK_HEIGHT} rows so that all threads have work.
+     */
+    private List<Rectangle> createBlocks(final Rectangle area, final int parallelism) {
+        final List<Rectangle> blocks = new ArrayList<>();
+        if (area.isEmpty()) return blocks;
+        final int tileWidth  = imageDest.getTileWidth();
+        final int tileHeight = imageDest.getTileHeight();
+        final int offsetX    = imageDest.getTileGridXOffset();
+        final int offsetY    = imageDest.getTileGridYOffset();
+        final int minTX = Math.floorDiv(area.x - offsetX, tileWidth);
+        final int minTY = Math.floorDiv(area.y - offsetY, tileHeight);
+        final int maxTX = Math.floorDiv(area.x + area.width  - 1 - offsetX, tileWidth);
+        final int maxTY = Math.floorDiv(area.y + area.height - 1 - offsetY, tileHeight);
+        final boolean split = (long) (maxTX - minTX + 1) * (maxTY - minTY + 1) < parallelism;
+        for (int ty = minTY; ty <= maxTY; ty++) {
+            for (int tx = minTX; tx <= maxTX; tx++) {
+                final Rectangle tile = new Rectangle(offsetX + tx * tileWidth, offsetY + ty * tileHeight, tileWidth, tileHeight)
+                        .intersection(area);
+                if (tile.isEmpty()) continue;
+                if (!split) {
+                    blocks.add(tile);
+                    continue;
                 }
-            } else {
-                double sample = interpol.interpolate(srcCoords[0], srcCoords[1], band);//Todo : find a way to avoid code duplication
-                if (clamp != null) sample = XMath.clamp(sample, clamp[0], clamp[1]);
-                destIterator.setSampleDouble(sample);
-                while (++band < numBands) {
-                    destIterator.next();
-                    sample = interpol.interpolate(srcCoords[0], srcCoords[1], band);
-                    if (clamp != null) sample = XMath.clamp(sample, clamp[0], clamp[1]);
-                    destIterator.setSampleDouble(sample);
+                for (int y = tile.y, maxY = tile.y + tile.height; y < maxY; y += BLOCK_HEIGHT) {
+                    blocks.add(new Rectangle(tile.x, y, tile.width, Math.min(BLOCK_HEIGHT, maxY - y)));
                 }
             }
         }
+        return blocks;
     }
 
     /**
-     * Fill image without any grid, all pixels coordinates are transform by given {@link MathTransform}.
-     *
-     * @throws TransformException
+     * Resample blocks until all blocks are taken.
      */
-    private void fillImageByTransform() throws TransformException {
-        int band;
-        while (destIterator.next()) {
-            band = 0;
-            //-- Compute source coordinate from destination coordinate and mathtransform.
-            destCoords[0] = destIterator.getX();
-            destCoords[1] = destIterator.getY();
-            destToSourceMathTransform.transform(destCoords, 0, srcCoords, 0, 1);
+    private void fillBlocks(final List<Rectangle> blocks, final AtomicInteger next,
+            final RowTransform transform, final Interpolation interpolation) throws TransformException {
+        final double[] destRow = new double[imageDest.getTileWidth() << 1];
+        final double[] srcRow  = new double[destRow.length];
+        try {
+            int i;
+            while ((i = next.getAndIncrement()) < blocks.size()) {
+                fillBlock(blocks.get(i), transform, interpolation, destRow, srcRow);
+            }
+        } catch (TransformException | RuntimeException | Error ex) {
+            //-- stop other threads
+            next.set(blocks.size());
+            throw ex;
+        }
+    }
 
-            //-- if destination coordinate transformation is out of source boundary.
-            if (!interpol.checkInterpolate(srcCoords[0], srcCoords[1])) {
-                if (fillValue != null) destIterator.setSampleDouble(fillValue[band]);  //Todo : find a way to avoid code duplication
-                while (++band < numBands) {
-                    destIterator.next();
-                    if (fillValue != null) destIterator.setSampleDouble(fillValue[band]);
-                }
-            } else {
-                double sample = interpol.interpolate(srcCoords[0], srcCoords[1], band);  //Todo : find a way to avoid code duplication
-                if (clamp != null) sample = XMath.clamp(sample, clamp[0], clamp[1]);
-                destIterator.setSampleDouble(sample);
-                while (++band < numBands) {
-                    destIterator.next();
-                    sample = interpol.interpolate(srcCoords[0], srcCoords[1], band);
-                    if (clamp != null) sample = XMath.clamp(sample, clamp[0], clamp[1]);
-                    destIterator.setSampleDouble(sample);
+    /**
+     * Resample a block, source coordinates are computed one row at a time.
+     */
+    private void fillBlock(final Rectangle block, final RowTransform transform, final Interpolation interpolation,
+            final double[] destRow, final double[] srcRow) throws TransformException {
+        final PixelIterator blockIterator = PixelIteratorFactory.createDefaultWriteableIterator(imageDest, imageDest, block);
+        final int length = block.width << 1;
+        for (int y = block.y, maxY = block.y + block.height; y < maxY; y++) {
+            for (int k = 0, x = block.x; k < length; k += 2, x++) {
+                destRow[k]     = x;
+                destRow[k + 1] = y;
+            }
+            transform.transform(destRow, srcRow, block.width);
+
+            for (int k = 0; k < length; k += 2) {
+                final double srcX = srcRow[k];
+                final double srcY = srcRow[k + 1];
+                //-- if destination coordinate transformation is out of source boundary.
+                if (!interpolation.checkInterpolate(srcX, srcY)) {
+                    for (int band = 0; band < numBands; band++) {
+                        blockIterator.next();
+                        if (fillValue != null) blockIterator.setSampleDouble(fillValue[band]);
+                    }
+                } else {
+                    for (int band = 0; band < numBands; band++) {
+                        blockIterator.next();
+                        double sample = interpolation.interpolate(srcX, srcY, band);
+                        if (clamp != null) sample = XMath.clamp(sample, clamp[0], clamp[1]);
+                        blockIterator.setSampleDouble(sample);
+                    }
                 }
             }
         }
@@ -735,6 +840,27 @@ public class Resample {
         }
     }
 
+    /**
+     * Returns executor used to resample destination image blocks concurrently.
+     * By default {@code null}, resampling is done in the calling thread.
+     *
+     * @return executor used to resample, or {@code null} if resampling is done in the calling thread.
+     */
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Set executor used to resample destination image blocks concurrently.<br>
+     * The calling thread always takes part to the resampling, executor tasks only help it.
+     * Resampling built from an {@link Interpolation} instance is always done in the calling thread.
+     *
+     * @param executor executor used to resample, or {@code null} to resample in the calling thread.
+     */
+    public void setExecutor(final Executor executor) {
+        this.executor = executor;
+    }
+
     /**
      * Returns {@link Interpolation} object use to resample.
      *
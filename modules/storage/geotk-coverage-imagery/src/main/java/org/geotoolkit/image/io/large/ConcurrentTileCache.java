@@ -0,0 +1,604 @@
+/*
+ *    Geotoolkit.org - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2018, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.image.io.large;
+
+import java.awt.Point;
+import java.awt.image.ImagingOpException;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import javax.media.jai.TileCache;
+
+import org.apache.sis.util.ArgumentChecks;
+import org.apache.sis.util.logging.Logging;
+import org.geotoolkit.image.io.large.ImageTilesCache.Candidate;
+
+/**
+ * Concurrent {@link TileCache} keeping tiles of many {@link RenderedImage} within a global memory capacity.
+ *
+ * <p>Tiles of each image are stored in an {@link ImageTilesCache} which spills released tiles on disk
+ * when swap is enabled, like {@link LargeCache}. Contrary to {@link LargeCache}, there is no global lock :</p>
+ * <ul>
+ *   <li>images are found in a concurrent map, reading a tile in memory does not lock,</li>
+ *   <li>tile loading, writing and removal lock only a stripe of the tiles of the image,</li>
+ *   <li>when memory capacity is exceeded, a single thread releases the least recently used
+ *       tiles of all images until memory usage falls below the memory threshold,
+ *       other threads continue without waiting.</li>
+ * </ul>
+ *
+ * <p>Hit, miss, eviction and spill counters are published by JMX under the
+ * {@value #OBJECT_NAME} name.</p>
+ *
+ * @module
+ * @see ImageCacheConfiguration#getDefaultTileCache()
+ */
+public final class ConcurrentTileCache implements TileCache, ConcurrentTileCacheMBean {
+
+    private static final Logger LOGGER = Logging.getLogger("org.geotoolkit.image.io.large");
+
+    /**
+     * Name of the cache managed bean.
+     */
+    public static final String OBJECT_NAME = "org.geotoolkit.image.io.large:type=ConcurrentTileCache";
+
+    /**
+     * Default fraction of the memory capacity kept after releasing tiles.
+     */
+    private static final float DEFAULT_MEMORY_THRESHOLD = 0.75f;
+
+    /**
+     * Tile weight used to convert a tile capacity to a memory capacity when the cache is empty :
+     * a 256x256 tile with 4 bytes per pixel.
+     */
+    private static final long NOMINAL_TILE_WEIGHT = 256 * 256 * 4;
+
+    private static ConcurrentTileCache INSTANCE;
+
+    private final ReferenceQueue<RenderedImage> phantomQueue = new ReferenceQueue<>();
+
+    /**
+     * Tile managers of each image. Keys are weak references on the images, compared by identity.
+     * Values are the tile managers, which are themselves phantom references on the same images :
+     * when an image is collected its manager is enqueued in {@link #phantomQueue}, then the
+     * cleaner thread removes it from this map and deletes its tiles.
+     */
+    private final ConcurrentHashMap<ImageKey, ImageTilesCache> tileManagers = new ConcurrentHashMap<>();
+
+    private final boolean enableSwap;
+    private volatile long memoryCapacity;
+    private volatile float memoryThreshold = DEFAULT_MEMORY_THRESHOLD;
+
+    /**
+     * Order in which tiles are released, null for least recently used first.
+     */
+    private volatile Comparator tileComparator;
+    private final AtomicLong memoryUsage = new AtomicLong();
+
+    /**
+     * Only one thread releases tiles at a time.
+     */
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    private final LongAdder hits      = new LongAdder();
+    private final LongAdder misses    = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder spills    = new LongAdder();
+    private final LongAdder restores  = new LongAdder();
+
+    private final TileCacheOwner owner = new TileCacheOwner() {
+        @Override
+        public boolean isEnableSwap() {
+            return enableSwap;
+        }
+
+        @Override
+        public long getCacheSizePerImage() {
+            return memoryCapacity;
+        }
+
+        @Override
+        public void checkCapacity(final ImageTilesCache source) throws IOException {
+            if (memoryUsage.get() > memoryCapacity) {
+                release();
+            }
+        }
+
+        @Override
+        public void memoryChanged(final long delta) {
+            memoryUsage.addAndGet(delta);
+        }
+
+        @Override
+        public void tileHit() {
+            hits.increment();
+        }
+
+        @Override
+        public void tileMissed() {
+            misses.increment();
+        }
+
+        @Override
+        public void tileEvicted(final boolean spilled) {
+            evictions.increment();
+            if (spilled) spills.increment();
+        }
+
+        @Override
+        public void tileRestored() {
+            restores.increment();
+        }
+    };
+
+    /**
+     * Create a new cache.
+     *
+     * @param memoryCapacity memory capacity in bytes.
+     * @param enableSwap true to write released tiles on disk.
+     */
+    ConcurrentTileCache(final long memoryCapacity, final boolean enableSwap) {
+        this.memoryCapacity = memoryCapacity;
+        this.enableSwap = enableSwap;
+        final Thread phantomCleaner = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (true) {
+                    try {
+                        final ImageTilesCache removed = (ImageTilesCache) phantomQueue.remove();
+                        tileManagers.values().remove(removed);
+                        removed.removeTiles();
+                    } catch (InterruptedException e) {
+                        LOGGER.log(Level.WARNING, "Reference cleaner has been interrupted ! It could cause severe memory leaks.");
+                        return;
+                    } catch (Throwable t) {
+                        LOGGER.log(Level.WARNING, "An image reference cannot be released. It's likely to cause memory leaks !");
+                    }
+                }
+            }
+        });
+        phantomCleaner.setName("ConcurrentTileCache cleaner deamon");
+        phantomCleaner.setDaemon(true);
+        phantomCleaner.start();
+    }
+
+    /**
+     * Get the shared cache instance, configured by {@link ImageCacheConfiguration}.
+     * The instance is registered in the platform MBean server.
+     *
+     * @return TileCache
+     */
+    public static synchronized ConcurrentTileCache getInstance() {
+        if (INSTANCE == null) {
+            final long memoryCapacity = ImageCacheConfiguration.getCacheMemorySize();
+            final boolean enableSwap  = ImageCacheConfiguration.isCacheSwapEnable();
+            INSTANCE = new ConcurrentTileCache(memoryCapacity, enableSwap);
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE, new ObjectName(OBJECT_NAME));
+            } catch (JMException | SecurityException ex) {
+                LOGGER.log(Level.INFO, "Tile cache statistics will not be available in JMX : " + ex.getMessage(), ex);
+            }
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * Return the cache system associated to the given rendered image. If there's no
+     * such thing, it will be created / referenced then returned.
+     */
+    private ImageTilesCache getOrCreateTileManager(final RenderedImage source) {
+        final ImageKey key = new ImageKey(source);
+        ImageTilesCache manager = tileManagers.get(key);
+        if (manager == null) {
+            manager = tileManagers.computeIfAbsent(key, (ImageKey k) -> {
+                try {
+                    return new ImageTilesCache(source, phantomQueue, owner);
+                } catch (IOException ex) {
+                    throw new RuntimeException("impossible to create cache list", ex);
+                }
+            });
+        }
+        return manager;
+    }
+
+    /**
+     * Return the cache system associated to the given rendered image.
+     *
+     * @throws IllegalArgumentException if the image is not in this cache.
+     */
+    private ImageTilesCache getTileManager(final RenderedImage source) {
+        final ImageTilesCache manager = tileManagers.get(new ImageKey(source));
+        if (manager == null) {
+            throw new IllegalArgumentException("renderedImage doesn't exist in this "+ConcurrentTileCache.class.getName());
+        }
+        return manager;
+    }
+
+    /**
+     * Release least recently used tiles of all images until memory usage is below the threshold.
+     * If another thread is already releasing tiles, this method returns immediately.
+     */
+    private void release() throws IOException {
+        if (!evictionLock.tryLock()) return;
+        try {
+            final long target = (long) (memoryCapacity * memoryThreshold);
+            if (memoryUsage.get() <= target) return;
+
+            final List<Candidate> candidates = new ArrayList<>();
+            for (Map.Entry<ImageKey, ImageTilesCache> entry : tileManagers.entrySet()) {
+                entry.getValue().collectCandidates(entry.getKey().get(), candidates);
+            }
+            final Comparator comparator = tileComparator;
+            Collections.sort(candidates, comparator != null ? comparator : Candidate.OLDEST_FIRST);
+            for (int i = 0, n = candidates.size(); i < n && memoryUsage.get() > target; i++) {
+                final Candidate candidate = candidates.get(i);
+                candidate.manager.evict(candidate.tile);
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc }.
+     */
+    @Override
+    public void add(RenderedImage ri, int tileX, int tileY, Raster raster) {
+        if (!(raster instanceof WritableRaster)) {
+            throw new IllegalArgumentException("raster must be WritableRaster instance");
+        }
+        try {
+            getOrCreateTileManager(ri).add(tileX, tileY, (WritableRaster) raster);
+        } catch (IOException ex) {
+            throw new RuntimeException("impossible to add raster (write raster on disk)", ex);
+        }
+    }
+
+    /**
+     * {@inheritDoc }.
+     */
+    @Override
+    public void add(RenderedImage ri, int tileX, int tileY, Raster raster, Object tileCacheMetric) {
+        add(ri, tileX, tileY, raster);
+    }
+
+    /**
+     * {@inheritDoc }.
+     */
+    @Override
+    public void addTiles(RenderedImage ri, Point[] points, Raster[] rasters, Object tileCacheMetric) {
+        if (points.length != rasters.length)
+            throw new IllegalArgumentException("point and raster tables must have same length.");
+
+        final ImageTilesCache manager = getOrCreateTileManager(ri);
+        for (int id = 0, l = points.length; id < l; id++) {
+            if (!(rasters[id] instanceof WritableRaster))
+                throw new IllegalArgumentException("raster must be WritableRaster instance");
+            try {
+                manager.add(points[id].x, points[id].y, (WritableRaster) rasters[id]);
+            } catch (IOException ex) {
+                throw new RuntimeException("impossible to add raster (write raster on disk)", ex);
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc }.
+     */
+    @Override
+    public void remove(RenderedImage ri, int tileX, int tileY) {
+        getTileManager(ri).remove(tileX, tileY);
+    }
+
+    /**
+     * {@inheritDoc }.
+     * @throws java.lang.IllegalArgumentException if TileCache is in memoryMode only and the
+     * requested raster is not found on cache.
+     * @throws java.lang.RuntimeException if raster can't be retrieve from cache (nested IOException).
+     */
+    @Override
+    public Raster getTile(RenderedImage ri, int tileX, int tileY) {
+        final ImageTilesCache manager = getTileManager(ri);
+        try {
+            return manager.getRaster(tileX, tileY);
+        } catch (IOException ex) {
+            throw (RuntimeException)(new ImagingOpException(ex.getMessage()).initCause(ex));
+        }
+    }
+
+    /**
+     * {@inheritDoc }.
+     */
+    @Override
+    public Raster[] getTiles(RenderedImage ri, Point[] points) {
+        final ImageTilesCache manager = getTileManager(ri);
+        final int l = points.length;
+        final Raster[] rasters = new Raster[l];
+        for (int id = 0; id < l; id++) {
+            try {
+                rasters[id] = manager.getRaster(points[id].x, points[id].y);
+            } catch (IOException ex) {
+                LOGGER.log(Level.WARNING, "Unreadable tile : "+points[id], ex);
+            }
+        }
+        return rasters;
+    }
+
+    /**
+     * {@inheritDoc }.
+     */
+    @Override
+    public void removeTiles(RenderedImage ri) {
+        final ImageTilesCache manager = tileManagers.remove(new ImageKey(ri));
+        if (manager != null) {
+            try {
+                manager.removeTiles();
+            } catch (IOException ex) {
+                throw new RuntimeException("Raster too large for remaining memory capacity", ex);
+            }
+        }
+    }
+
+    /**
+     * Release all tiles from memory, writing them on disk if swap is enabled.
+     */
+    @Override
+    public void flush() {
+        evictionLock.lock();
+        try {
+            final List<Candidate> candidates = new ArrayList<>();
+            for (ImageTilesCache manager : tileManagers.values()) {
+                manager.collectCandidates(null, candidates);
+            }
+            for (Candidate candidate : candidates) {
+                candidate.manager.evict(candidate.tile);
+            }
+        } catch (IOException ex) {
+            throw new RuntimeException("impossible to write raster on disk", ex);
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Release least recently used tiles until memory usage is below the memory threshold.
+     */
+    @Override
+    public void memoryControl() {
+        try {
+            release();
+        } catch (IOException ex) {
+            throw new RuntimeException("impossible to write raster on disk", ex);
+        }
+    }
+
+    /**
+     * {@inheritDoc }.
+     */
+    @Override
+    public void setMemoryCapacity(long memoryCapacity) {
+        ArgumentChecks.ensurePositive("memoryCapacity", memoryCapacity);
+        this.memoryCapacity = memoryCapacity;
+        if (memoryUsage.get() > memoryCapacity) {
+            memoryControl();
+        }
+    }
+
+    /**
+     * {@inheritDoc }.
+     */
+    @Override
+    public long getMemoryCapacity() {
+        return memoryCapacity;
+    }
+
+    /**
+     * Set the fraction of the memory capacity kept when tiles are released.
+     *
+     * @param memoryThreshold value between 0 and 1.
+     */
+    @Override
+    public void setMemoryThreshold(float memoryThreshold) {
+        ArgumentChecks.ensureBetween("memoryThreshold", 0f, 1f, memoryThreshold);
+        this.memoryThreshold = memoryThreshold;
+    }
+
+    /**
+     * {@inheritDoc }.
+     */
+    @Override
+    public float getMemoryThreshold() {
+        return memoryThreshold;
+    }
+
+    /**
+     * {@inheritDoc }.
+     */
+    @Override
+    public long getMemoryUsage() {
+        return memoryUsage.get();
+    }
+
+    /**
+     * {@inheritDoc }.
+     */
+    @Override
+    public int getImageCount() {
+        return tileManagers.size();
+    }
+
+    /**
+     * {@inheritDoc }.
+     */
+    @Override
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * {@inheritDoc }.
+     */
+    @Override
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * {@inheritDoc }.
+     */
+    @Override
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * {@inheritDoc }.
+     */
+    @Override
+    public long getSpillCount() {
+        return spills.sum();
+    }
+
+    /**
+     * {@inheritDoc }.
+     */
+    @Override
+    public long getRestoreCount() {
+        return restores.sum();
+    }
+
+    /**
+     * {@inheritDoc }.
+     */
+    @Override
+    public void resetStatistics() {
+        hits.reset();
+        misses.reset();
+        evictions.reset();
+        spills.reset();
+        restores.reset();
+    }
+
+
+    /**
+     * Get the tiles of the image currently held in memory, tiles written on disk are not read back.
+     *
+     * @return tiles of the image in memory, or null if the image is not in this cache.
+     */
+    @Override
+    public Raster[] getTiles(RenderedImage ri) {
+        final ImageTilesCache manager = tileManagers.get(new ImageKey(ri));
+        return (manager != null) ? manager.getRasters() : null;
+    }
+
+    /**
+     * Set the order in which tiles are released when memory capacity is exceeded.
+     * The comparator receives {@link javax.media.jai.CachedTile} instances, whose time stamp
+     * is the tile access order, and the first tiles in this order are released first.
+     *
+     * @param comparator tile order, or null to release least recently used tiles first.
+     */
+    @Override
+    public void setTileComparator(Comparator comparator) {
+        this.tileComparator = comparator;
+    }
+
+    /**
+     * {@inheritDoc }.
+     */
+    @Override
+    public Comparator getTileComparator() {
+        return tileComparator;
+    }
+
+    /**
+     * Set the memory capacity for the given number of tiles, using the mean weight of the tiles in memory.
+     *
+     * @param tileCapacity number of tiles.
+     */
+    @Override
+    @Deprecated
+    public void setTileCapacity(int tileCapacity) {
+        ArgumentChecks.ensurePositive("tileCapacity", tileCapacity);
+        setMemoryCapacity(tileCapacity * getMeanTileWeight());
+    }
+
+    /**
+     * Get the number of tiles fitting in memory capacity, using the mean weight of the tiles in memory.
+     *
+     * @return tile capacity.
+     */
+    @Override
+    @Deprecated
+    public int getTileCapacity() {
+        return (int) Math.min(Integer.MAX_VALUE, memoryCapacity / getMeanTileWeight());
+    }
+
+    /**
+     * Mean weight of the tiles in memory, or {@link #NOMINAL_TILE_WEIGHT} if there is no tile.
+     */
+    private long getMeanTileWeight() {
+        long count = 0;
+        for (ImageTilesCache manager : tileManagers.values()) {
+            count += manager.getTileCount();
+        }
+        final long usage = memoryUsage.get();
+        return (count > 0 && usage > 0) ? Math.max(1, usage / count) : NOMINAL_TILE_WEIGHT;
+    }
+
+    /**
+     * Weak reference on an image, compared by identity.
+     */
+    private static final class ImageKey extends WeakReference<RenderedImage> {
+
+        private final int hash;
+
+        ImageKey(final RenderedImage image) {
+            super(image);
+            hash = System.identityHashCode(image);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) return true;
+            if (!(obj instanceof ImageKey)) return false;
+            final RenderedImage image = get();
+            return image != null && image == ((ImageKey) obj).get();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ *    Geotoolkit.org - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2018, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.image.io.large;
+
+/**
+ * JMX management interface of {@link ConcurrentTileCache}.
+ *
+ * @module
+ */
+public interface ConcurrentTileCacheMBean {
+
+    /**
+     * @return maximum amount of memory used by tiles, in bytes.
+     */
+    long getMemoryCapacity();
+
+    /**
+     * @return estimated amount of memory currently used by tiles, in bytes.
+     */
+    long getMemoryUsage();
+
+    /**
+     * @return number of images having tiles in the cache.
+     */
+    int getImageCount();
+
+    /**
+     * @return number of tile requests answered from memory.
+     */
+    long getHitCount();
+
+    /**
+     * @return number of tile requests for tiles which were not in memory.
+     */
+    long getMissCount();
+
+    /**
+     * @return number of tiles released from memory.
+     */
+    long getEvictionCount();
+
+    /**
+     * @return number of released tiles written on disk.
+     */
+    long getSpillCount();
+
+    /**
+     * @return number of tiles read back from disk.
+     */
+    long getRestoreCount();
+
+    /**
+     * Reset all counters to zero.
+     */
+    void resetStatistics();
+}
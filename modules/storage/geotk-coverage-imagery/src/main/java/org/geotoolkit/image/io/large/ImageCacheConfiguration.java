@@ -22,9 +22,11 @@ import org.apache.sis.util.logging.Logging;
 import java.util.Arrays;
 import java.util.IllegalFormatException;
 import java.util.logging.Logger;
+import javax.media.jai.TileCache;
 
 /**
- * Class that control {@link org.geotoolkit.image.io.large.LargeCache LargeCache} configuration
+ * Class that control {@link org.geotoolkit.image.io.large.LargeCache LargeCache} and
+ * {@link org.geotoolkit.image.io.large.ConcurrentTileCache ConcurrentTileCache} configuration
  *
  * @author Quentin Boileau (Geomatys)
  */
@@ -53,6 +55,25 @@ public final class ImageCacheConfiguration extends Static {
      */
     public static final String KEY_CACHE_SWAP = "geotk.image.cache.swap";
 
+    /**
+     *  The {@linkplain System#getProperties() system properties} key which control
+     *  the default tile cache implementation.
+     *  Valid values : "true", "false"
+     *  If true the {@link ConcurrentTileCache} is used by default, otherwise the {@link LargeCache}.
+     *  The {@link LargeCache} is used if the property is not set.
+     */
+    public static final String KEY_CACHE_CONCURRENT = "geotk.image.cache.concurrent";
+
+    /**
+     *  The {@linkplain System#getProperties() system properties} key which control
+     *  the format of tiles written on filesystem.
+     *  Valid values : "true", "false"
+     *  If true tiles data buffers are written without codec in one memory mapped file per image,
+     *  otherwise each tile is written as a TIFF file in a QuadTreeDirectory.
+     *  Tiles which data buffer type is not supported by the raw format are always written as TIFF.
+     */
+    public static final String KEY_CACHE_SWAP_RAW = "geotk.image.cache.swap.raw";
+
     /**
      * Default memory size used if {@linkplain System#getProperties() system properties} {@linkplain #KEY_CACHE_MEMORY_SIZE}
      * property is not defined.
@@ -161,4 +182,52 @@ public final class ImageCacheConfiguration extends Static {
     public static void setCacheSwapEnable(boolean allowSwap) {
         System.setProperty(KEY_CACHE_SWAP, String.valueOf(allowSwap));
     }
+
+    /**
+     * Check in {@linkplain System#getProperties() system properties} for raw swap format configuration.
+     *
+     * @return return property value or {@code true} if property not found.
+     */
+    public static boolean isRawSwapEnable() {
+        final String raw = System.getProperty(KEY_CACHE_SWAP_RAW);
+        return raw == null || Boolean.parseBoolean(raw);
+    }
+
+    /**
+     * Set raw swap format in {@linkplain System#getProperties() system properties}.
+     * Only images added in cache after this call are affected.
+     *
+     * @param raw true to write tiles without codec in a memory mapped file, false to write TIFF files.
+     */
+    public static void setRawSwapEnable(boolean raw) {
+        System.setProperty(KEY_CACHE_SWAP_RAW, String.valueOf(raw));
+    }
+
+    /**
+     * Check in {@linkplain System#getProperties() system properties} for concurrent cache configuration.
+     *
+     * @return return property value or {@code false} if property not found.
+     */
+    public static boolean isConcurrentCacheEnable() {
+        return Boolean.parseBoolean(System.getProperty(KEY_CACHE_CONCURRENT));
+    }
+
+    /**
+     * Set concurrent cache usage in {@linkplain System#getProperties() system properties}.
+     * <b>This flag should be set during application startup not during his life-cycle.</b>
+     *
+     * @param concurrent true to use {@link ConcurrentTileCache} by default, false for {@link LargeCache}.
+     */
+    public static void setConcurrentCacheEnable(boolean concurrent) {
+        System.setProperty(KEY_CACHE_CONCURRENT, String.valueOf(concurrent));
+    }
+
+    /**
+     * Get the tile cache to use by default for large images.
+     *
+     * @return {@link ConcurrentTileCache} or {@link LargeCache} instance.
+     */
+    public static TileCache getDefaultTileCache() {
+        return isConcurrentCacheEnable() ? ConcurrentTileCache.getInstance() : LargeCache.getInstance();
+    }
 }
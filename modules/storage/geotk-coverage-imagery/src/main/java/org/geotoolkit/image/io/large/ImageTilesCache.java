@@ -21,6 +21,7 @@ import javax.imageio.ImageIO;
 import javax.imageio.ImageReader;
 import javax.imageio.ImageWriter;
 import javax.imageio.stream.ImageOutputStream;
+import javax.media.jai.CachedTile;
 import javax.media.jai.RasterFactory;
 import java.awt.*;
 import java.awt.image.*;
@@ -31,9 +32,12 @@ import java.lang.ref.ReferenceQueue;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
-import java.util.Map;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -42,13 +46,12 @@ import java.util.logging.Level;
 import javax.imageio.spi.ImageReaderSpi;
 import javax.imageio.spi.ImageWriterSpi;
 import org.apache.sis.util.ArgumentChecks;
-import org.apache.sis.util.collection.WeakValueHashMap;
 import org.apache.sis.util.logging.Logging;
 import org.geotoolkit.nio.IOUtilities;
 
 /**
  * Stock all {@link java.awt.image.Raster} contained from define {@link java.awt.image.RenderedImage}. It's a map whose key
- * is tile location, and value is the value the tile data. We use a {@link java.util.LinkedHashMap}, so when we need to
+ * is tile location, and value is the value the tile data. Each tile keeps its last access time, so when we need to
  * remove an element, we will take the oldest one.
  *
  * @author Rémi Maréchal (Geomatys).
@@ -77,13 +80,21 @@ final class ImageTilesCache extends PhantomReference<RenderedImage> {
     }
     private static final Point WPOINT = new Point(0, 0);
 
-    private final LargeCache cache;
+    /**
+     * Number of locks shared by the tiles of an image.
+     */
+    private static final int LOCK_STRIPES = 32;
+
+    private final TileCacheOwner cache;
     private ColorModel cm;
     private final int minTileX;
     private final int minTileY;
     private final int numTilesX;
     private final int numTilesY;
-    private final QuadTreeDirectory qTD;
+    private final boolean swap;
+    private final boolean rawSwap;
+    private volatile RawTileStore rawStore;
+    private volatile QuadTreeDirectory qTD;
     private final int riMinX;
     private final int riMinY;
     private final int riTileWidth;
@@ -93,76 +104,79 @@ final class ImageTilesCache extends PhantomReference<RenderedImage> {
     private final boolean isWritableRenderedImage;
 
     /**
-     * Tile by Tile locks.
+     * Striped tile locks, a tile uses the lock at index {@code hash(tile) % LOCK_STRIPES}.
+     * Locks guard tile loading, writing and removal. Reading a tile in memory does not lock.
      */
-    private final WeakValueHashMap<Point,ReadWriteLock> locks = new WeakValueHashMap<>(Point.class);
+    private final ReadWriteLock[] locks = new ReadWriteLock[LOCK_STRIPES];
 
     /**
      * Contains tiles of pointed image.
-     * TODO : Replace LargeRaster type with simple raster ? (Raster weight will be embed in {@link org.geotoolkit.image.io.large.CachedTile}
-     *
-     * accesOrder = true : this ensure the must used element are at the top
-     * This behavior is used by the flush to remove the oldest used tiles first
-     *
-     * We subclass the map to keep track of the used memory.
+     * Each tile keeps its last access time, used to remove the oldest used tiles first.
      */
     private final AtomicLong usedCapacity = new AtomicLong(0);
-    private final Map<Point, TileRasterCache> tiles = new LinkedHashMap<Point, TileRasterCache>(16, 0.75f, true){
-        @Override
-        public TileRasterCache put(Point key, TileRasterCache value) {
-            final TileRasterCache last = super.put(key, value);
-            if(last!=null) usedCapacity.addAndGet(-last.getWeight());
-            if(value!=null) usedCapacity.addAndGet(value.getWeight());
-            return last;
-        }
-        @Override
-        public void clear() {
-            super.clear();
-            usedCapacity.set(0);
-        }
-        @Override
-        public TileRasterCache remove(Object key) {
-            final TileRasterCache last = super.remove(key);
-            if(last!=null) usedCapacity.addAndGet(-last.getWeight());
-            return last;
-        }
-    };
-
+    private final ConcurrentHashMap<Point, TileRasterCache> tiles = new ConcurrentHashMap<>();
 
     /**
-     * when you use the lock keep it until release
+     * Get the lock of a tile.
      *
-     * @param key
-     * @return
+     * @param key tile position
+     * @return tile lock
      */
     private ReadWriteLock getLock(final Point key){
-        ReadWriteLock lock;
-        synchronized(locks){
-            lock = locks.get(key);
-            if (lock == null) {
-                lock = new ReentrantReadWriteLock();
-                locks.put(key, lock);
-            }
+        return locks[(key.hashCode() & 0x7FFFFFFF) % LOCK_STRIPES];
+    }
+
+    /**
+     * Store a tile and update used memory.
+     */
+    private void putTile(final Point key, final TileRasterCache value) {
+        final TileRasterCache last = tiles.put(key, value);
+        long delta = value.getWeight();
+        if (last != null) delta -= last.getWeight();
+        usedCapacity.addAndGet(delta);
+        cache.memoryChanged(delta);
+    }
+
+    /**
+     * Remove a tile and update used memory.
+     *
+     * @param expected tile to remove, or null to remove any tile at given position.
+     * @return removed tile or null
+     */
+    private TileRasterCache removeTile(final Point key, final TileRasterCache expected) {
+        final TileRasterCache last;
+        if (expected == null) {
+            last = tiles.remove(key);
+        } else {
+            last = tiles.remove(key, expected) ? expected : null;
+        }
+        if (last != null) {
+            usedCapacity.addAndGet(-last.getWeight());
+            cache.memoryChanged(-last.getWeight());
         }
-        return lock;
+        return last;
     }
 
     /**
      * <p>List which contain {@link java.awt.image.Raster} from {@link java.awt.image.RenderedImage} owner.<br/>
      * If some of {@link java.awt.image.Raster} weight within list exceed memory capacity, {@link java.awt.image.Raster} are stored
-     * on hard disk at appropriate quad tree emplacement in temporary system directory.<br/><br/>
+     * on hard disk in temporary system directory.<br/><br/>
      *
-     * Note : {@link java.awt.image.Raster} are stored in tiff format to avoid onerous, compression decompression, cost during disk writing reading.</p>
+     * Note : {@link java.awt.image.Raster} data buffers are stored without codec in a memory mapped file, see {@link RawTileStore}.
+     * Rasters not supported by this format are stored in tiff format at appropriate quad tree emplacement.</p>
      *
      * @param ri {@link java.awt.image.RenderedImage} which contain all raster in list.
      * @param memoryCapacity storage capacity in Byte.
      * @param enableSwap flag that enable memory swapping on filesystem.
      * @throws java.io.IOException if impossible to create {@link javax.imageio.ImageReader} or {@link javax.imageio.ImageWriter}.
      */
-    ImageTilesCache(RenderedImage ri, ReferenceQueue queue, LargeCache cache) throws IOException {
+    ImageTilesCache(RenderedImage ri, ReferenceQueue queue, TileCacheOwner cache) throws IOException {
         super(ri, queue);
         //cache properties.
         this.cache = cache;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantReadWriteLock();
+        }
         this.isWritableRenderedImage = ri instanceof WritableRenderedImage;
 
         if (ri instanceof WritableLargeRenderedImage ) {
@@ -180,15 +194,9 @@ final class ImageTilesCache extends PhantomReference<RenderedImage> {
         this.minTileX      = ri.getMinTileX();
         this.minTileY      = ri.getMinTileY();
 
-        //quad tree directory architecture.
-        if (cache.isEnableSwap()) {
-            ArgumentChecks.ensureNonNull("READER_SPI", READER_SPI);
-            ArgumentChecks.ensureNonNull("WRITER_SPI", WRITER_SPI);
-            final Path dirPath = Files.createTempDirectory(TEMPORARY_PATH, "img");
-            this.qTD = new QuadTreeDirectory(dirPath, numTilesX, numTilesY, FORMAT, true);
-        } else {
-            this.qTD = null;
-        }
+        //raw tile file and quad tree directory are created on first spill.
+        this.swap = cache.isEnableSwap();
+        this.rawSwap = swap && ImageCacheConfiguration.isRawSwapEnable();
 
         final int datatype = ri.getSampleModel().getDataType();
         switch (datatype) {
@@ -232,14 +240,12 @@ final class ImageTilesCache extends PhantomReference<RenderedImage> {
         final ReadWriteLock tileLock = getLock(tileCorner);
         tileLock.writeLock().lock();
         try {
-            synchronized(tiles){
-                tiles.put(tileCorner, new TileRasterCache(tileCorner.x, tileCorner.y, rasterWeight, raster));
-            }
+            putTile(tileCorner, new TileRasterCache(tileCorner.x, tileCorner.y, rasterWeight, raster));
         } finally {
             tileLock.writeLock().unlock();
         }
         //remove or cache on disk oldest raster
-        checkMap();
+        cache.checkCapacity(this);
     }
 
     /**
@@ -254,10 +260,13 @@ final class ImageTilesCache extends PhantomReference<RenderedImage> {
         final ReadWriteLock tileLock = getLock(tileCorner);
         tileLock.writeLock().lock();
         try {
-            synchronized(tiles){
-                tiles.remove(tileCorner);
-            }
+            removeTile(tileCorner, null);
 
+            final RawTileStore rawStore = this.rawStore;
+            if (rawStore != null) {
+                rawStore.remove(tileCorner.x, tileCorner.y);
+            }
+            final QuadTreeDirectory qTD = this.qTD;
             if (qTD != null) {
                 //quad tree
                 final Path removeFile = Paths.get(qTD.getPath(tileCorner.x, tileCorner.y));
@@ -288,22 +297,17 @@ final class ImageTilesCache extends PhantomReference<RenderedImage> {
      */
     Raster getRaster(int tileX, int tileY) throws IOException, IllegalArgumentException {
         final Point tileCorner = new Point(tileX - minTileX, tileY - minTileY);
-        // Check if queried raster is cached.
-        final ReadWriteLock tileLock = getLock(tileCorner);
-        tileLock.readLock().lock();
-        try {
-            final TileRasterCache lRaster;
-            synchronized(tiles){
-                lRaster= tiles.get(tileCorner);
-            }
-            if (lRaster != null) {
-                return lRaster.getRaster();
-            }
-        } finally {
-            tileLock.readLock().unlock();
+        // Check if queried raster is cached, without locking.
+        final TileRasterCache cached = tiles.get(tileCorner);
+        if (cached != null) {
+            cached.touch();
+            cache.tileHit();
+            return cached.getRaster();
         }
+        cache.tileMissed();
 
-        if (qTD == null) {
+        final ReadWriteLock tileLock = getLock(tileCorner);
+        if (!swap) {
             // raster not found in memory
             throw new IllegalArgumentException("Tile (" + tileX + ", " + tileY + ") not found in memory.");
         } else {
@@ -314,17 +318,29 @@ final class ImageTilesCache extends PhantomReference<RenderedImage> {
 
                 //-- asked again getRaster() in case another thread already enter
                 //-- into this scope and has loaded tile from file system.
-                final TileRasterCache lRaster;
-                synchronized (tiles) {
-                    lRaster= tiles.get(tileCorner);
-                }
+                final TileRasterCache lRaster = tiles.get(tileCorner);
                 if (lRaster != null) {
+                    lRaster.touch();
                     return lRaster.getRaster();
                 }
 
-                // If not, we must take it from input quad-tree.
-                final Path tileFile = Paths.get(qTD.getPath(tileCorner.x, tileCorner.y));
-                if (Files.exists(tileFile)) {
+                // If not, we must take it from raw tile file.
+                final RawTileStore rawStore = this.rawStore;
+                if (rawStore != null) {
+                    final int mx = riTileWidth  * tileCorner.x + riMinX;
+                    final int my = riTileHeight * tileCorner.y + riMinY;
+                    final WritableRaster raster = rawStore.read(tileCorner.x, tileCorner.y, new Point(mx, my));
+                    if (raster != null) {
+                        cache.tileRestored();
+                        add(tileCorner, raster);
+                        return raster;
+                    }
+                }
+
+                // Or from input quad-tree.
+                final QuadTreeDirectory qTD = this.qTD;
+                final Path tileFile = (qTD != null) ? Paths.get(qTD.getPath(tileCorner.x, tileCorner.y)) : null;
+                if (tileFile != null && Files.exists(tileFile)) {
                     // TODO : Use a "pool" of readers, instead of creating one each time ?
                     final ImageReader imgReader = READER_SPI.createReaderInstance();
                     final BufferedImage buff;
@@ -338,6 +354,7 @@ final class ImageTilesCache extends PhantomReference<RenderedImage> {
                     }
                     //add in cache list.
                     final WritableRaster checkedRaster = checkRaster(buff.getRaster(), tileCorner);
+                    cache.tileRestored();
                     add(tileCorner, checkedRaster);
                     return checkedRaster;
                 }
@@ -353,11 +370,40 @@ final class ImageTilesCache extends PhantomReference<RenderedImage> {
      */
     void removeTiles() throws IOException {
         //rendered image won't be used after this
-        synchronized(tiles){
-            tiles.clear();
-            if (qTD != null) {
-                qTD.cleanDirectory();
+        for (Point key : tiles.keySet()) {
+            removeTile(key, null);
+        }
+        final RawTileStore rawStore = this.rawStore;
+        if (rawStore != null) {
+            rawStore.close();
+        }
+        final QuadTreeDirectory qTD = this.qTD;
+        if (qTD != null) {
+            qTD.cleanDirectory();
+        }
+    }
+
+    /**
+     * Release a tile from memory, writing it on disk if swap is enabled.
+     * Nothing is done if the tile is being used by another thread or has been replaced.
+     *
+     * @param tile tile to release
+     * @return true if tile has been released
+     * @throws IOException if tile can not be written on disk.
+     */
+    boolean evict(final TileRasterCache tile) throws IOException {
+        final Point key = new Point(tile.getGridX(), tile.getGridY());
+        final ReadWriteLock rwl = getLock(key);
+        if (!rwl.writeLock().tryLock()) return false;
+        try {
+            if (removeTile(key, tile) == null) return false;
+            if (swap) {
+                writeRaster(tile);
             }
+            cache.tileEvicted(swap);
+            return true;
+        } finally {
+            rwl.writeLock().unlock();
         }
     }
 
@@ -369,7 +415,7 @@ final class ImageTilesCache extends PhantomReference<RenderedImage> {
      * @throws java.io.IOException if cache capacity is too low from raster weight, or if impossible to write raster on disk.
      */
     void capacityChanged() throws IOException {
-        checkMap();
+        cache.checkCapacity(this);
     }
 
     /**
@@ -385,13 +431,67 @@ final class ImageTilesCache extends PhantomReference<RenderedImage> {
     }
 
     /**
-     * Write {@link java.awt.image.Raster} within {@link org.geotoolkit.image.io.large.TileRasterCache} object on hard disk at appropriate quad tree emplacement.
+     * Get the raw tile file, create it if needed.
+     *
+     * @return raw tile file, or null if raw swap is disabled.
+     * @throws java.io.IOException if file can not be created.
+     */
+    private RawTileStore getRawStore() throws IOException {
+        if (!rawSwap) return null;
+        RawTileStore rawStore = this.rawStore;
+        if (rawStore == null) {
+            synchronized (this) {
+                rawStore = this.rawStore;
+                if (rawStore == null) {
+                    this.rawStore = rawStore = new RawTileStore(TEMPORARY_PATH, numTilesX, numTilesY);
+                }
+            }
+        }
+        return rawStore;
+    }
+
+    /**
+     * Get the quad tree directory where tiles not supported by raw tile file are written, create it if needed.
+     *
+     * @return quad tree directory, never null.
+     * @throws java.io.IOException if directory can not be created.
+     */
+    private QuadTreeDirectory getQuadTree() throws IOException {
+        QuadTreeDirectory qTD = this.qTD;
+        if (qTD == null) {
+            synchronized (this) {
+                qTD = this.qTD;
+                if (qTD == null) {
+                    //tiff codec is only needed for tiles not supported by raw tile file
+                    ArgumentChecks.ensureNonNull("READER_SPI", READER_SPI);
+                    ArgumentChecks.ensureNonNull("WRITER_SPI", WRITER_SPI);
+                    final Path dirPath = Files.createTempDirectory(TEMPORARY_PATH, "img");
+                    this.qTD = qTD = new QuadTreeDirectory(dirPath, numTilesX, numTilesY, FORMAT, true);
+                }
+            }
+        }
+        return qTD;
+    }
+
+    /**
+     * Write {@link java.awt.image.Raster} within {@link org.geotoolkit.image.io.large.TileRasterCache} object on hard disk,
+     * in raw tile file if possible, otherwise at appropriate quad tree emplacement.
      *
      * @param lRaster object which contain raster.
      * @throws java.io.IOException if impossible to write raster on disk.
      */
     private void writeRaster(final TileRasterCache lRaster) throws IOException {
-        final Path tileFile = Paths.get(qTD.getPath(lRaster.getGridX(), lRaster.getGridY()));
+        final int gridX = lRaster.getGridX();
+        final int gridY = lRaster.getGridY();
+        final RawTileStore rawStore = getRawStore();
+        if (rawStore != null) {
+            if (!isWritableRenderedImage && rawStore.contains(gridX, gridY)) return;
+            if (rawStore.write(gridX, gridY, lRaster.getRaster())) return;
+            //unsupported raster layout, forget previous raw copy and use tiff format.
+            rawStore.remove(gridX, gridY);
+        }
+
+        final Path tileFile = Paths.get(getQuadTree().getPath(gridX, gridY));
         if (isWritableRenderedImage || !Files.exists(tileFile)) {
             final BufferedImage toWrite = new BufferedImage(
                     cm, RasterFactory.createWritableRaster(lRaster.getRaster().getSampleModel(), lRaster.getRaster().getDataBuffer(), WPOINT),
@@ -480,39 +580,107 @@ final class ImageTilesCache extends PhantomReference<RenderedImage> {
      * <p>Check that cache weight do not exceed memory capacity.<br/>
      * If memory capacity is exceeded, write as many {@link java.awt.image.Raster} objects needed to not exceed memory capacity anymore.</p>
      */
-    private void checkMap() throws IOException {
+    void checkMap() throws IOException {
         final long maxCacheSize = cache.getCacheSizePerImage();
         if (usedCapacity.get() < maxCacheSize) return;
 
-        final boolean swap = cache.isEnableSwap();
+        final List<Candidate> candidates = new ArrayList<>();
+        collectCandidates(null, candidates);
+        Collections.sort(candidates, Candidate.OLDEST_FIRST);
 
-        Point[] pts;
-        synchronized(tiles){
-            pts = tiles.keySet().toArray(new Point[0]);
+        for (int i = 0, n = candidates.size(); usedCapacity.get() > maxCacheSize && i < n; i++) {
+            evict(candidates.get(i).tile);
         }
+    }
 
-        int i=0;
-        for(long currentCapacity = usedCapacity.get(); currentCapacity>maxCacheSize && i<pts.length; currentCapacity = usedCapacity.get(),i++){
+    /**
+     * Add the tiles currently in memory in given list.
+     *
+     * @param owner image of the tiles, may be null.
+     * @param candidates list where to add tiles which may be released.
+     */
+    void collectCandidates(final RenderedImage owner, final List<Candidate> candidates) {
+        for (TileRasterCache tile : tiles.values()) {
+            candidates.add(new Candidate(this, owner, tile));
+        }
+    }
 
-            Point key = pts[i];
-            if(key==null) continue;
+    /**
+     * Get the tiles currently in memory, tiles written on disk are not read back.
+     *
+     * @return tiles in memory, in no particular order.
+     */
+    Raster[] getRasters() {
+        final List<Raster> rasters = new ArrayList<>();
+        for (TileRasterCache tile : tiles.values()) {
+            rasters.add(tile.getRaster());
+        }
+        return rasters.toArray(new Raster[rasters.size()]);
+    }
 
-            final ReadWriteLock rwl = getLock(key);
-            if (rwl.writeLock().tryLock()) {
-                try {
-                    final TileRasterCache tr;
-                    synchronized (tiles) {
-                        tr = tiles.remove(key);
-                    }
+    /**
+     * @return number of tiles currently in memory.
+     */
+    int getTileCount() {
+        return tiles.size();
+    }
 
-                    if (tr != null && swap) {
-                        writeRaster(tr);
-                    }
-                } finally {
-                    rwl.writeLock().unlock();
-                }
+    /**
+     * A tile which may be released.
+     * Candidates are given to the {@link javax.media.jai.TileCache#setTileComparator(Comparator) tile comparator},
+     * the time stamp is the tile access order.
+     */
+    static final class Candidate implements CachedTile {
+
+        /**
+         * Sort tiles from the least recently used to the most recently used.
+         */
+        static final Comparator<Candidate> OLDEST_FIRST = new Comparator<Candidate>() {
+            @Override
+            public int compare(Candidate c1, Candidate c2) {
+                return Long.compare(c1.lastAccess, c2.lastAccess);
             }
+        };
+
+        final ImageTilesCache manager;
+        final RenderedImage owner;
+        final TileRasterCache tile;
+
+        /**
+         * Access time when the candidate was collected, the tile time may change during sort.
+         */
+        final long lastAccess;
+
+        Candidate(final ImageTilesCache manager, final RenderedImage owner, final TileRasterCache tile) {
+            this.manager = manager;
+            this.owner = owner;
+            this.tile = tile;
+            this.lastAccess = tile.getLastAccess();
+        }
+
+        @Override
+        public RenderedImage getOwner() {
+            return owner;
         }
 
+        @Override
+        public long getTileTimeStamp() {
+            return lastAccess;
+        }
+
+        @Override
+        public Object getTileCacheMetric() {
+            return null;
+        }
+
+        @Override
+        public long getTileSize() {
+            return tile.getWeight();
+        }
+
+        @Override
+        public Raster getTile() {
+            return tile.getRaster();
+        }
     }
 }
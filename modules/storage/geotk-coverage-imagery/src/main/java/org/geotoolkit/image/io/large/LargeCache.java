@@ -39,8 +39,12 @@ import org.apache.sis.util.logging.Logging;
  * Maybe a priority system would be useful to determine which tile to release first (based on the number
  * of times a tile has been queried ?)
  *
+ * All operations are synchronized on a single map of images, {@link ConcurrentTileCache} should
+ * be preferred when tiles are accessed by many threads.
+ *
  * @author Rémi Maréchal (Geomatys)
  * @author Alexis Manin  (Geomatys)
+ * @see ImageCacheConfiguration#getDefaultTileCache()
  */
 public final class LargeCache implements TileCache {
 
@@ -92,15 +96,27 @@ public final class LargeCache implements TileCache {
         phantomCleaner.start();
     }
 
-    boolean isEnableSwap() {
-        return enableSwap;
-    }
+    /**
+     * Each image releases its own oldest tiles when it exceeds its share of memory.
+     */
+    private final TileCacheOwner owner = new TileCacheOwner() {
+        @Override
+        public boolean isEnableSwap() {
+            return enableSwap;
+        }
 
-    long getCacheSizePerImage(){
-        synchronized(tileManagers){
-            return memoryCapacity / (tileManagers.size() + 1);
+        @Override
+        public long getCacheSizePerImage() {
+            synchronized(tileManagers){
+                return memoryCapacity / (tileManagers.size() + 1);
+            }
         }
-    }
+
+        @Override
+        public void checkCapacity(ImageTilesCache source) throws IOException {
+            source.checkMap();
+        }
+    };
 
     /**
      * <p>Construct tile cache mechanic.<br/>
@@ -133,7 +149,7 @@ public final class LargeCache implements TileCache {
 
             if (lL == null) {
                 try {
-                    lL = new ImageTilesCache(source, phantomQueue, this);
+                    lL = new ImageTilesCache(source, phantomQueue, owner);
                 } catch (IOException ex) {
                     throw new RuntimeException("impossible to create cache list", ex);
                 }
@@ -224,7 +224,7 @@ public class LargeRenderedImage implements RenderedImage, Disposable {
         }
 
 
-        this.tilecache = (tilecache != null) ? tilecache : LargeCache.getInstance();
+        this.tilecache = (tilecache != null) ? tilecache : ImageCacheConfiguration.getDefaultTileCache();
         this.tileGridXOffset = 0;
         this.tileGridYOffset = 0;
         if (tileSize != null) {
@@ -0,0 +1,408 @@
+/*
+ *    Geotoolkit.org - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2018, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.image.io.large;
+
+import java.awt.Point;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferDouble;
+import java.awt.image.DataBufferFloat;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DataBufferShort;
+import java.awt.image.DataBufferUShort;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.apache.sis.util.logging.Logging;
+import org.geotoolkit.nio.IOUtilities;
+
+/**
+ * Store tiles data buffers of an image without any codec, in a single memory mapped file.
+ *
+ * The file is divided in fixed size slots, one for each tile of the image, indexed by the
+ * tile coordinates. The slot size is defined by the first written tile : all tiles must have
+ * the same sample model and data buffer layout, tiles which do not match it are refused and
+ * must be stored by another way. The file is allocated once, its content is mapped by
+ * segments of at most {@value #MAX_SEGMENT_SIZE} bytes.
+ *
+ * Callers must ensure a tile is not written and read concurrently,
+ * different tiles can be accessed concurrently.
+ *
+ * @module
+ */
+final class RawTileStore implements Closeable {
+
+    private static final Logger LOGGER = Logging.getLogger("org.geotoolkit.image.io.large");
+
+    /**
+     * Maximum size of a mapped region of the file.
+     */
+    private static final long MAX_SEGMENT_SIZE = 1L << 30;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final int numTilesX;
+    private final int numTilesY;
+
+    /**
+     * Tiles layout, defined by the first written tile.
+     */
+    private SampleModel sampleModel;
+    private int dataType;
+    private int size;
+    private int[] offsets;
+    private int[] bankLengths;
+    private int slotSize;
+    private int slotsPerSegment;
+    private MappedByteBuffer[] segments;
+
+    /**
+     * Tiles stored in the file.
+     */
+    private final BitSet written = new BitSet();
+    private boolean closed;
+
+    /**
+     * Create the file of a new store.
+     *
+     * @param directory directory where the file is created.
+     * @param numTilesX number of tiles of the image in X direction.
+     * @param numTilesY number of tiles of the image in Y direction.
+     * @throws IOException if file can not be created.
+     */
+    RawTileStore(final Path directory, final int numTilesX, final int numTilesY) throws IOException {
+        this.numTilesX = numTilesX;
+        this.numTilesY = numTilesY;
+        this.file = Files.createTempFile(directory, "img", ".raw");
+        IOUtilities.deleteOnExit(file);
+        this.channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Write tile data.
+     *
+     * @param tileX tile index in X direction, starting at 0.
+     * @param tileY tile index in Y direction, starting at 0.
+     * @param raster tile to write.
+     * @return false if tile layout does not match the store layout, nothing is written in this case.
+     * @throws IOException if tile can not be written.
+     */
+    boolean write(final int tileX, final int tileY, final Raster raster) throws IOException {
+        final int index = index(tileX, tileY);
+        final ByteBuffer slot;
+        synchronized (this) {
+            if (sampleModel == null) {
+                if (!initLayout(raster)) return false;
+            } else if (!isCompatible(raster)) {
+                return false;
+            }
+            slot = slot(index);
+        }
+
+        final DataBuffer buffer = raster.getDataBuffer();
+        switch (dataType) {
+            case DataBuffer.TYPE_BYTE : {
+                for (byte[] bank : ((DataBufferByte) buffer).getBankData()) slot.put(bank);
+                break;
+            }
+            case DataBuffer.TYPE_USHORT : {
+                final ShortBuffer view = slot.asShortBuffer();
+                for (short[] bank : ((DataBufferUShort) buffer).getBankData()) view.put(bank);
+                break;
+            }
+            case DataBuffer.TYPE_SHORT : {
+                final ShortBuffer view = slot.asShortBuffer();
+                for (short[] bank : ((DataBufferShort) buffer).getBankData()) view.put(bank);
+                break;
+            }
+            case DataBuffer.TYPE_INT : {
+                final IntBuffer view = slot.asIntBuffer();
+                for (int[] bank : ((DataBufferInt) buffer).getBankData()) view.put(bank);
+                break;
+            }
+            case DataBuffer.TYPE_FLOAT : {
+                final FloatBuffer view = slot.asFloatBuffer();
+                for (float[] bank : ((DataBufferFloat) buffer).getBankData()) view.put(bank);
+                break;
+            }
+            case DataBuffer.TYPE_DOUBLE : {
+                final DoubleBuffer view = slot.asDoubleBuffer();
+                for (double[] bank : ((DataBufferDouble) buffer).getBankData()) view.put(bank);
+                break;
+            }
+            default : throw new IllegalStateException("Unexpected data type " + dataType);
+        }
+
+        synchronized (this) {
+            written.set(index);
+        }
+        return true;
+    }
+
+    /**
+     * Read tile data.
+     *
+     * @param tileX tile index in X direction, starting at 0.
+     * @param tileY tile index in Y direction, starting at 0.
+     * @param location tile upper left corner in image.
+     * @return tile raster or null if the tile is not stored.
+     * @throws IOException if tile can not be read.
+     */
+    WritableRaster read(final int tileX, final int tileY, final Point location) throws IOException {
+        final int index = index(tileX, tileY);
+        final ByteBuffer slot;
+        synchronized (this) {
+            if (!written.get(index)) return null;
+            slot = slot(index);
+        }
+
+        final int nbBanks = bankLengths.length;
+        final DataBuffer buffer;
+        switch (dataType) {
+            case DataBuffer.TYPE_BYTE : {
+                final byte[][] banks = new byte[nbBanks][];
+                for (int b = 0; b < nbBanks; b++) slot.get(banks[b] = new byte[bankLengths[b]]);
+                buffer = new DataBufferByte(banks, size, offsets);
+                break;
+            }
+            case DataBuffer.TYPE_USHORT : {
+                final ShortBuffer view = slot.asShortBuffer();
+                final short[][] banks = new short[nbBanks][];
+                for (int b = 0; b < nbBanks; b++) view.get(banks[b] = new short[bankLengths[b]]);
+                buffer = new DataBufferUShort(banks, size, offsets);
+                break;
+            }
+            case DataBuffer.TYPE_SHORT : {
+                final ShortBuffer view = slot.asShortBuffer();
+                final short[][] banks = new short[nbBanks][];
+                for (int b = 0; b < nbBanks; b++) view.get(banks[b] = new short[bankLengths[b]]);
+                buffer = new DataBufferShort(banks, size, offsets);
+                break;
+            }
+            case DataBuffer.TYPE_INT : {
+                final IntBuffer view = slot.asIntBuffer();
+                final int[][] banks = new int[nbBanks][];
+                for (int b = 0; b < nbBanks; b++) view.get(banks[b] = new int[bankLengths[b]]);
+                buffer = new DataBufferInt(banks, size, offsets);
+                break;
+            }
+            case DataBuffer.TYPE_FLOAT : {
+                final FloatBuffer view = slot.asFloatBuffer();
+                final float[][] banks = new float[nbBanks][];
+                for (int b = 0; b < nbBanks; b++) view.get(banks[b] = new float[bankLengths[b]]);
+                buffer = new DataBufferFloat(banks, size, offsets);
+                break;
+            }
+            case DataBuffer.TYPE_DOUBLE : {
+                final DoubleBuffer view = slot.asDoubleBuffer();
+                final double[][] banks = new double[nbBanks][];
+                for (int b = 0; b < nbBanks; b++) view.get(banks[b] = new double[bankLengths[b]]);
+                buffer = new DataBufferDouble(banks, size, offsets);
+                break;
+            }
+            default : throw new IllegalStateException("Unexpected data type " + dataType);
+        }
+        return Raster.createWritableRaster(sampleModel, buffer, location);
+    }
+
+    /**
+     * @return true if given tile is stored.
+     */
+    synchronized boolean contains(final int tileX, final int tileY) {
+        return written.get(index(tileX, tileY));
+    }
+
+    /**
+     * Forget given tile, its slot will be overwritten by next write.
+     */
+    synchronized void remove(final int tileX, final int tileY) {
+        written.clear(index(tileX, tileY));
+    }
+
+    /**
+     * Release mapped buffers and delete the file.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        written.clear();
+        segments = null;
+        channel.close();
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ex) {
+            //mapped files can not be deleted on some platforms until buffers are garbage collected
+            LOGGER.log(Level.FINE, "Tile store delete failed : " + ex.getLocalizedMessage(), ex);
+        }
+    }
+
+    private int index(final int tileX, final int tileY) {
+        if (tileX < 0 || tileY < 0 || tileX >= numTilesX || tileY >= numTilesY) {
+            throw new IllegalArgumentException("Tile (" + tileX + ", " + tileY + ") is out of bounds.");
+        }
+        return tileY * numTilesX + tileX;
+    }
+
+    /**
+     * Define store layout from the first written tile and allocate the file.
+     *
+     * @return false if the raster data buffer type is not supported.
+     */
+    private boolean initLayout(final Raster raster) throws IOException {
+        final DataBuffer buffer = raster.getDataBuffer();
+        final int elementSize;
+        final int[] lengths = new int[buffer.getNumBanks()];
+        if (buffer instanceof DataBufferByte) {
+            elementSize = Byte.BYTES;
+            final byte[][] banks = ((DataBufferByte) buffer).getBankData();
+            for (int b = 0; b < lengths.length; b++) lengths[b] = banks[b].length;
+        } else if (buffer instanceof DataBufferUShort) {
+            elementSize = Short.BYTES;
+            final short[][] banks = ((DataBufferUShort) buffer).getBankData();
+            for (int b = 0; b < lengths.length; b++) lengths[b] = banks[b].length;
+        } else if (buffer instanceof DataBufferShort) {
+            elementSize = Short.BYTES;
+            final short[][] banks = ((DataBufferShort) buffer).getBankData();
+            for (int b = 0; b < lengths.length; b++) lengths[b] = banks[b].length;
+        } else if (buffer instanceof DataBufferInt) {
+            elementSize = Integer.BYTES;
+            final int[][] banks = ((DataBufferInt) buffer).getBankData();
+            for (int b = 0; b < lengths.length; b++) lengths[b] = banks[b].length;
+        } else if (buffer instanceof DataBufferFloat) {
+            elementSize = Float.BYTES;
+            final float[][] banks = ((DataBufferFloat) buffer).getBankData();
+            for (int b = 0; b < lengths.length; b++) lengths[b] = banks[b].length;
+        } else if (buffer instanceof DataBufferDouble) {
+            elementSize = Double.BYTES;
+            final double[][] banks = ((DataBufferDouble) buffer).getBankData();
+            for (int b = 0; b < lengths.length; b++) lengths[b] = banks[b].length;
+        } else {
+            return false;
+        }
+
+        long slot = 0;
+        for (int length : lengths) slot += length;
+        slot *= elementSize;
+        if (slot == 0 || slot > MAX_SEGMENT_SIZE) return false;
+
+        final int nbSlots = numTilesX * numTilesY;
+        this.sampleModel     = raster.getSampleModel();
+        this.dataType        = buffer.getDataType();
+        this.size            = buffer.getSize();
+        this.offsets         = buffer.getOffsets();
+        this.bankLengths     = lengths;
+        this.slotSize        = (int) slot;
+        this.slotsPerSegment = (int) Math.min(nbSlots, MAX_SEGMENT_SIZE / slotSize);
+        this.segments        = new MappedByteBuffer[(nbSlots + slotsPerSegment - 1) / slotsPerSegment];
+
+        //allocate the whole file, most file systems create it sparse.
+        channel.write(ByteBuffer.allocate(1), (long) nbSlots * slotSize - 1);
+        return true;
+    }
+
+    /**
+     * @return true if the raster has the same layout as the store.
+     */
+    private boolean isCompatible(final Raster raster) {
+        final DataBuffer buffer = raster.getDataBuffer();
+        if (buffer.getDataType() != dataType
+                || buffer.getNumBanks() != bankLengths.length
+                || buffer.getSize() != size
+                || !Arrays.equals(buffer.getOffsets(), offsets)
+                || !sampleModel.equals(raster.getSampleModel())) {
+            return false;
+        }
+        switch (dataType) {
+            case DataBuffer.TYPE_BYTE : {
+                if (!(buffer instanceof DataBufferByte)) return false;
+                final byte[][] banks = ((DataBufferByte) buffer).getBankData();
+                for (int b = 0; b < banks.length; b++) if (banks[b].length != bankLengths[b]) return false;
+                return true;
+            }
+            case DataBuffer.TYPE_USHORT : {
+                if (!(buffer instanceof DataBufferUShort)) return false;
+                final short[][] banks = ((DataBufferUShort) buffer).getBankData();
+                for (int b = 0; b < banks.length; b++) if (banks[b].length != bankLengths[b]) return false;
+                return true;
+            }
+            case DataBuffer.TYPE_SHORT : {
+                if (!(buffer instanceof DataBufferShort)) return false;
+                final short[][] banks = ((DataBufferShort) buffer).getBankData();
+                for (int b = 0; b < banks.length; b++) if (banks[b].length != bankLengths[b]) return false;
+                return true;
+            }
+            case DataBuffer.TYPE_INT : {
+                if (!(buffer instanceof DataBufferInt)) return false;
+                final int[][] banks = ((DataBufferInt) buffer).getBankData();
+                for (int b = 0; b < banks.length; b++) if (banks[b].length != bankLengths[b]) return false;
+                return true;
+            }
+            case DataBuffer.TYPE_FLOAT : {
+                if (!(buffer instanceof DataBufferFloat)) return false;
+                final float[][] banks = ((DataBufferFloat) buffer).getBankData();
+                for (int b = 0; b < banks.length; b++) if (banks[b].length != bankLengths[b]) return false;
+                return true;
+            }
+            case DataBuffer.TYPE_DOUBLE : {
+                if (!(buffer instanceof DataBufferDouble)) return false;
+                final double[][] banks = ((DataBufferDouble) buffer).getBankData();
+                for (int b = 0; b < banks.length; b++) if (banks[b].length != bankLengths[b]) return false;
+                return true;
+            }
+            default : return false;
+        }
+    }
+
+    /**
+     * Get the region of the file where a tile is stored, mapping it if needed.
+     * The returned buffer is independent from other threads buffers.
+     */
+    private ByteBuffer slot(final int index) throws IOException {
+        if (closed) throw new IOException("Tile store is closed.");
+        final int segmentIndex = index / slotsPerSegment;
+        MappedByteBuffer segment = segments[segmentIndex];
+        if (segment == null) {
+            final int nbSlots = numTilesX * numTilesY;
+            final int first = segmentIndex * slotsPerSegment;
+            final int count = Math.min(slotsPerSegment, nbSlots - first);
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, (long) first * slotSize, (long) count * slotSize);
+            segments[segmentIndex] = segment;
+        }
+        final ByteBuffer slot = segment.duplicate();
+        final int start = (index % slotsPerSegment) * slotSize;
+        slot.limit(start + slotSize).position(start);
+        return slot.slice().order(ByteOrder.nativeOrder());
+    }
+}
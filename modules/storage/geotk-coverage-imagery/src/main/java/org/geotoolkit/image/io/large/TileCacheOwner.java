@@ -0,0 +1,77 @@
+/*
+ *    Geotoolkit.org - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2018, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.image.io.large;
+
+import java.io.IOException;
+
+/**
+ * Tile cache managing {@link ImageTilesCache} instances.
+ * {@link ImageTilesCache} notifies its owner of memory changes and tile events,
+ * the owner decides when tiles must be released.
+ *
+ * @module
+ */
+interface TileCacheOwner {
+
+    /**
+     * @return true if released tiles must be written on disk.
+     */
+    boolean isEnableSwap();
+
+    /**
+     * @return maximum memory in bytes a single image may use.
+     */
+    long getCacheSizePerImage();
+
+    /**
+     * Called after a tile has been added in given image cache,
+     * release tiles if memory capacity is exceeded.
+     *
+     * @param source image cache where a tile has been added.
+     * @throws IOException if released tiles can not be written on disk.
+     */
+    void checkCapacity(ImageTilesCache source) throws IOException;
+
+    /**
+     * Called when the amount of memory used by an image cache changes.
+     *
+     * @param delta memory difference in bytes.
+     */
+    default void memoryChanged(long delta) {}
+
+    /**
+     * Called when a requested tile is in memory.
+     */
+    default void tileHit() {}
+
+    /**
+     * Called when a requested tile is not in memory.
+     */
+    default void tileMissed() {}
+
+    /**
+     * Called when a tile has been released from memory.
+     *
+     * @param spilled true if the tile has been written on disk.
+     */
+    default void tileEvicted(boolean spilled) {}
+
+    /**
+     * Called when a tile has been read back from disk.
+     */
+    default void tileRestored() {}
+}
@@ -1,6 +1,7 @@
 package org.geotoolkit.image.io.large;
 
 import java.awt.image.Raster;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Contain {@link java.awt.image.Raster} and different raster properties.
@@ -13,6 +14,17 @@ final class TileRasterCache {
     private final long weight;
     private final Raster raster;
 
+    /**
+     * Global access counter, incremented on each tile access.
+     * A counter gives a strict order even when accesses happen within the timer resolution.
+     */
+    private static final AtomicLong ACCESS_COUNTER = new AtomicLong();
+
+    /**
+     * Value of the access counter when this tile was last used, used to release least recently used tiles first.
+     */
+    private volatile long lastAccess = ACCESS_COUNTER.incrementAndGet();
+
     /**
      * Object to wrap {@link java.awt.image.Raster} and different raster properties.
      *
@@ -64,6 +76,23 @@ final class TileRasterCache {
         return weight;
     }
 
+    /**
+     * Mark this tile as used now.
+     */
+    void touch() {
+        lastAccess = ACCESS_COUNTER.incrementAndGet();
+    }
+
+    /**
+     * Return the access counter value when this tile was last used.
+     * Greater values are more recent accesses.
+     *
+     * @return last access order.
+     */
+    long getLastAccess() {
+        return lastAccess;
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (!(obj instanceof TileRasterCache)) return false;
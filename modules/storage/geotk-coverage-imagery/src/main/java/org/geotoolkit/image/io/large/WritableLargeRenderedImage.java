@@ -24,6 +24,7 @@ import java.awt.image.*;
 import java.util.Arrays;
 import java.util.Vector;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import javax.media.jai.TileCache;
 import org.apache.sis.util.ArgumentChecks;
 import org.geotoolkit.image.iterator.PixelIterator;
 import org.geotoolkit.image.iterator.PixelIteratorFactory;
@@ -35,7 +36,7 @@ import org.geotoolkit.image.iterator.PixelIteratorFactory;
  */
 public class WritableLargeRenderedImage implements WritableRenderedImage {
 
-    private final LargeCache tilecache;
+    private final TileCache tilecache;
 
     /**
      * Default tile size.
@@ -106,7 +107,7 @@ public class WritableLargeRenderedImage implements WritableRenderedImage {
         ArgumentChecks.ensureNonNull("ColorModel", colorModel);
         ArgumentChecks.ensureStrictlyPositive("image width", width);
         ArgumentChecks.ensureStrictlyPositive("image height", height);
-        this.tilecache = LargeCache.getInstance();
+        this.tilecache = ImageCacheConfiguration.getDefaultTileCache();
         this.minX      = minX;
         this.minY      = minY;
         this.width     = width;
@@ -427,6 +427,45 @@ public class ResampleTest extends org.geotoolkit.test.TestBase {
         return feedBack;
     }
 
+    /**
+     * Resampling on several threads should give exactly the same result as resampling in the calling thread.
+     */
+    @Test
+    public void concurrentResampleTest() throws TransformException {
+        final ColorSpace cs = ColorSpace.getInstance(ColorSpace.CS_GRAY);
+        final ColorModel cm = new ComponentColorModel(cs, new int[]{Double.SIZE}, false, false, Transparency.OPAQUE, DataBuffer.TYPE_DOUBLE);
+        final ImageTypeSpecifier imgTypeSpec = new ImageTypeSpecifier(cm, cm.createCompatibleSampleModel(1, 1));
+        final WritableRenderedImage source = imgTypeSpec.createBufferedImage(60, 45);
+        final java.util.Random random = new java.util.Random(5);
+        final PixelIterator pix = PixelIteratorFactory.createDefaultWriteableIterator(source, source);
+        while (pix.next()) {
+            pix.setSampleDouble(random.nextDouble() * 100);
+        }
+
+        final MathTransform trs = MathTransforms.concatenate(pixelInCellCenter,
+                new AffineTransform2D(0.17, 0.02, -0.03, 0.16, 1.3, 0.7), pixelInCellCenter.inverse());
+        for (InterpolationCase interpolation : new InterpolationCase[]{InterpolationCase.NEIGHBOR,
+                InterpolationCase.BILINEAR, InterpolationCase.BICUBIC, InterpolationCase.LANCZOS}) {
+            for (boolean canUseGrid : new boolean[]{true, false}) {
+                final WritableRenderedImage expected = imgTypeSpec.createBufferedImage(320, 270);
+                final Resample single = new Resample(trs, expected, source,
+                        interpolation, ResampleBorderComportement.FILL_VALUE, new double[]{-1});
+                single.setExecutor(null);
+                single.fillImage(canUseGrid);
+
+                final WritableRenderedImage result = imgTypeSpec.createBufferedImage(320, 270);
+                final Resample multi = new Resample(trs, result, source,
+                        interpolation, ResampleBorderComportement.FILL_VALUE, new double[]{-1});
+                multi.setExecutor(java.util.concurrent.ForkJoinPool.commonPool());
+                multi.fillImage(canUseGrid);
+
+                final double[] expectedData = ((DataBufferDouble) expected.getTile(0, 0).getDataBuffer()).getData(0);
+                final double[] resultData   = ((DataBufferDouble) result.getTile(0, 0).getDataBuffer()).getData(0);
+                assertArrayEquals(interpolation.name(), expectedData, resultData, 0.0);
+            }
+        }
+    }
+
     /**
      * Bilinear interpolation.
      *
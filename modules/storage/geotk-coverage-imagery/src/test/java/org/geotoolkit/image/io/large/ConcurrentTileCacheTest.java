@@ -0,0 +1,243 @@
+package org.geotoolkit.image.io.large;
+
+import java.awt.image.DataBuffer;
+import java.awt.image.PixelInterleavedSampleModel;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.media.jai.CachedTile;
+import javax.media.jai.TiledImage;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test {@link ConcurrentTileCache}.
+ */
+public class ConcurrentTileCacheTest extends org.geotoolkit.test.TestBase {
+
+    private static final int TILE_SIZE = 64;
+
+    /**
+     * One byte per sample, one band.
+     */
+    private static final long TILE_WEIGHT = TILE_SIZE * TILE_SIZE;
+
+    private static TiledImage createImage(final int numTiles) {
+        final SampleModel sm = new PixelInterleavedSampleModel(DataBuffer.TYPE_BYTE, TILE_SIZE, TILE_SIZE, 1, TILE_SIZE, new int[]{0});
+        return new TiledImage(0, 0, TILE_SIZE * numTiles, TILE_SIZE, 0, 0, sm, null);
+    }
+
+    private static WritableRaster createTile(final TiledImage image, final int tileX) {
+        return Raster.createWritableRaster(image.getSampleModel(), new java.awt.Point(tileX * TILE_SIZE, 0));
+    }
+
+    private static WritableRaster createTile(final TiledImage image, final int tileX, final int value) {
+        final WritableRaster raster = createTile(image, tileX);
+        final int[] samples = new int[TILE_SIZE * TILE_SIZE];
+        Arrays.fill(samples, value);
+        raster.setSamples(raster.getMinX(), raster.getMinY(), TILE_SIZE, TILE_SIZE, 0, samples);
+        return raster;
+    }
+
+    @Test
+    public void evictLeastRecentlyUsed() {
+        final ConcurrentTileCache cache = new ConcurrentTileCache(TILE_WEIGHT * 4, false);
+        cache.setMemoryThreshold(0.5f);
+        final TiledImage image = createImage(8);
+
+        for (int x = 0; x < 4; x++) {
+            cache.add(image, x, 0, createTile(image, x));
+        }
+        assertEquals(TILE_WEIGHT * 4, cache.getMemoryUsage());
+        assertEquals(0, cache.getEvictionCount());
+
+        // tile 0 is now the most recently used
+        assertNotNull(cache.getTile(image, 0, 0));
+        assertEquals(1, cache.getHitCount());
+
+        // exceed capacity : oldest tiles are released until half of the capacity is used
+        cache.add(image, 4, 0, createTile(image, 4));
+        assertEquals(TILE_WEIGHT * 2, cache.getMemoryUsage());
+        assertEquals(3, cache.getEvictionCount());
+        assertEquals(0, cache.getSpillCount());
+
+        assertNotNull(cache.getTile(image, 0, 0));
+        assertNotNull(cache.getTile(image, 4, 0));
+        try {
+            cache.getTile(image, 1, 0);
+            fail("Tile should have been released.");
+        } catch (IllegalArgumentException ex) {
+            //ok
+        }
+        assertEquals(1, cache.getMissCount());
+
+        cache.removeTiles(image);
+        assertEquals(0, cache.getMemoryUsage());
+        assertEquals(0, cache.getImageCount());
+    }
+
+    /**
+     * Released tiles are written on disk and read back when requested.
+     */
+    @Test
+    public void spillToDisk() {
+        final String raw = System.getProperty(ImageCacheConfiguration.KEY_CACHE_SWAP_RAW);
+        ImageCacheConfiguration.setRawSwapEnable(true);
+        final ConcurrentTileCache cache;
+        try {
+            cache = new ConcurrentTileCache(TILE_WEIGHT * 4, true);
+            cache.setMemoryThreshold(0.5f);
+        } finally {
+            if (raw == null) System.clearProperty(ImageCacheConfiguration.KEY_CACHE_SWAP_RAW);
+            else System.setProperty(ImageCacheConfiguration.KEY_CACHE_SWAP_RAW, raw);
+        }
+        final TiledImage image = createImage(8);
+        try {
+            for (int x = 0; x < 5; x++) {
+                cache.add(image, x, 0, createTile(image, x, x + 1));
+            }
+            assertEquals(TILE_WEIGHT * 2, cache.getMemoryUsage());
+            assertEquals(3, cache.getEvictionCount());
+            assertEquals(3, cache.getSpillCount());
+
+            final Raster restored = cache.getTile(image, 1, 0);
+            assertEquals(1, cache.getMissCount());
+            assertEquals(1, cache.getRestoreCount());
+            assertEquals(TILE_SIZE, restored.getMinX());
+            assertEquals(0, restored.getMinY());
+            for (int y = 0; y < TILE_SIZE; y++) {
+                for (int x = 0; x < TILE_SIZE; x++) {
+                    assertEquals(2, restored.getSample(TILE_SIZE + x, y, 0));
+                }
+            }
+            // restored tile is in memory again
+            assertNotNull(cache.getTile(image, 1, 0));
+            assertEquals(1, cache.getMissCount());
+        } finally {
+            cache.removeTiles(image);
+        }
+        assertEquals(0, cache.getMemoryUsage());
+    }
+
+    /**
+     * Tile comparator replaces the least recently used order.
+     */
+    @Test
+    public void tileComparator() {
+        final ConcurrentTileCache cache = new ConcurrentTileCache(TILE_WEIGHT * 4, false);
+        cache.setMemoryThreshold(0.5f);
+        assertNull(cache.getTileComparator());
+        // release most recently used tiles first
+        final Comparator<CachedTile> newestFirst = new Comparator<CachedTile>() {
+            @Override
+            public int compare(CachedTile t1, CachedTile t2) {
+                return Long.compare(t2.getTileTimeStamp(), t1.getTileTimeStamp());
+            }
+        };
+        cache.setTileComparator(newestFirst);
+        assertSame(newestFirst, cache.getTileComparator());
+
+        final TiledImage image = createImage(8);
+        for (int x = 0; x < 5; x++) {
+            cache.add(image, x, 0, createTile(image, x));
+        }
+        assertEquals(TILE_WEIGHT * 2, cache.getMemoryUsage());
+        assertNotNull(cache.getTile(image, 0, 0));
+        assertNotNull(cache.getTile(image, 1, 0));
+        cache.removeTiles(image);
+    }
+
+    @Test
+    public void getTilesAndCapacity() {
+        final ConcurrentTileCache cache = new ConcurrentTileCache(TILE_WEIGHT * 8, false);
+        final TiledImage image = createImage(4);
+        assertNull(cache.getTiles(image));
+        for (int x = 0; x < 3; x++) {
+            cache.add(image, x, 0, createTile(image, x));
+        }
+        final Raster[] tiles = cache.getTiles(image);
+        assertEquals(3, tiles.length);
+        final Set<Integer> positions = new HashSet<>();
+        for (Raster tile : tiles) {
+            positions.add(tile.getMinX() / TILE_SIZE);
+        }
+        assertEquals(new HashSet<>(Arrays.asList(0, 1, 2)), positions);
+
+        // tile capacity is expressed with the mean weight of the tiles in memory
+        assertEquals(8, cache.getTileCapacity());
+        cache.setTileCapacity(2);
+        assertEquals(TILE_WEIGHT * 2, cache.getMemoryCapacity());
+        assertTrue(cache.getMemoryUsage() <= TILE_WEIGHT * 2);
+        cache.removeTiles(image);
+    }
+
+    @Test
+    public void capacityIsSharedBetweenImages() {
+        final ConcurrentTileCache cache = new ConcurrentTileCache(TILE_WEIGHT * 4, false);
+        final TiledImage image1 = createImage(4);
+        final TiledImage image2 = createImage(4);
+
+        for (int x = 0; x < 4; x++) {
+            cache.add(image1, x, 0, createTile(image1, x));
+        }
+        for (int x = 0; x < 2; x++) {
+            cache.add(image2, x, 0, createTile(image2, x));
+        }
+        assertEquals(2, cache.getImageCount());
+        assertTrue(cache.getMemoryUsage() <= TILE_WEIGHT * 4);
+        // oldest tiles belong to the first image
+        assertNotNull(cache.getTile(image2, 0, 0));
+        assertNotNull(cache.getTile(image2, 1, 0));
+        try {
+            cache.getTile(image1, 0, 0);
+            fail("Tile should have been released.");
+        } catch (IllegalArgumentException ex) {
+            //ok
+        }
+    }
+
+    @Test
+    public void concurrentAccess() throws Exception {
+        final ConcurrentTileCache cache = new ConcurrentTileCache(TILE_WEIGHT * 1000, false);
+        final TiledImage image = createImage(64);
+        for (int x = 0; x < 64; x++) {
+            cache.add(image, x, 0, createTile(image, x));
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<Integer>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                futures.add(executor.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() {
+                        int found = 0;
+                        for (int i = 0; i < 1000; i++) {
+                            final Raster tile = cache.getTile(image, i % 64, 0);
+                            if (tile.getMinX() == (i % 64) * TILE_SIZE) found++;
+                        }
+                        return found;
+                    }
+                }));
+            }
+            for (Future<Integer> future : futures) {
+                assertEquals(1000, future.get().intValue());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(4000, cache.getHitCount());
+        assertEquals(0, cache.getMissCount());
+    }
+}
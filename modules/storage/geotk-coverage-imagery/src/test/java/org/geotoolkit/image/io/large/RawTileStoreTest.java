@@ -0,0 +1,111 @@
+package org.geotoolkit.image.io.large;
+
+import java.awt.Point;
+import java.awt.image.BandedSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.PixelInterleavedSampleModel;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.geotoolkit.nio.IOUtilities;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test {@link RawTileStore} tile writing and reading.
+ */
+public class RawTileStoreTest extends org.geotoolkit.test.TestBase {
+
+    private static final int TILE_SIZE = 32;
+
+    private static WritableRaster createTile(final SampleModel sm, final Point location) {
+        final WritableRaster raster = Raster.createWritableRaster(sm, location);
+        for (int y = 0; y < TILE_SIZE; y++) {
+            for (int x = 0; x < TILE_SIZE; x++) {
+                for (int b = 0; b < sm.getNumBands(); b++) {
+                    raster.setSample(location.x + x, location.y + y, b, x + y * 3 + b * 7 + location.x);
+                }
+            }
+        }
+        return raster;
+    }
+
+    private static void assertRasterEquals(final Raster expected, final Raster result) {
+        assertEquals(expected.getMinX(), result.getMinX());
+        assertEquals(expected.getMinY(), result.getMinY());
+        assertEquals(expected.getNumBands(), result.getNumBands());
+        for (int y = expected.getMinY(); y < expected.getMinY() + TILE_SIZE; y++) {
+            for (int x = expected.getMinX(); x < expected.getMinX() + TILE_SIZE; x++) {
+                for (int b = 0; b < expected.getNumBands(); b++) {
+                    assertEquals(expected.getSampleDouble(x, y, b), result.getSampleDouble(x, y, b), 0.0);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void writeReadByte() throws Exception {
+        final Path dir = Files.createTempDirectory("rawtiles");
+        try {
+            final SampleModel sm = new PixelInterleavedSampleModel(DataBuffer.TYPE_BYTE, TILE_SIZE, TILE_SIZE, 3, TILE_SIZE * 3, new int[]{0, 1, 2});
+            try (RawTileStore store = new RawTileStore(dir, 4, 2)) {
+                assertNull(store.read(1, 1, new Point(0, 0)));
+
+                final WritableRaster tile11 = createTile(sm, new Point(TILE_SIZE, TILE_SIZE));
+                final WritableRaster tile30 = createTile(sm, new Point(3 * TILE_SIZE, 0));
+                assertTrue(store.write(1, 1, tile11));
+                assertTrue(store.write(3, 0, tile30));
+                assertTrue(store.contains(1, 1));
+                assertFalse(store.contains(0, 0));
+
+                assertRasterEquals(tile11, store.read(1, 1, new Point(TILE_SIZE, TILE_SIZE)));
+                assertRasterEquals(tile30, store.read(3, 0, new Point(3 * TILE_SIZE, 0)));
+
+                store.remove(1, 1);
+                assertFalse(store.contains(1, 1));
+                assertNull(store.read(1, 1, new Point(TILE_SIZE, TILE_SIZE)));
+            }
+        } finally {
+            IOUtilities.deleteRecursively(dir);
+        }
+    }
+
+    @Test
+    public void writeReadFloatBanded() throws Exception {
+        final Path dir = Files.createTempDirectory("rawtiles");
+        try {
+            final SampleModel sm = new BandedSampleModel(DataBuffer.TYPE_FLOAT, TILE_SIZE, TILE_SIZE, 2);
+            try (RawTileStore store = new RawTileStore(dir, 2, 2)) {
+                final WritableRaster tile = createTile(sm, new Point(0, TILE_SIZE));
+                assertTrue(store.write(0, 1, tile));
+                assertRasterEquals(tile, store.read(0, 1, new Point(0, TILE_SIZE)));
+
+                //overwrite
+                tile.setSample(0, TILE_SIZE, 1, -12.5f);
+                assertTrue(store.write(0, 1, tile));
+                assertEquals(-12.5f, store.read(0, 1, new Point(0, TILE_SIZE)).getSampleFloat(0, TILE_SIZE, 1), 0f);
+            }
+        } finally {
+            IOUtilities.deleteRecursively(dir);
+        }
+    }
+
+    @Test
+    public void refuseIncompatibleLayout() throws Exception {
+        final Path dir = Files.createTempDirectory("rawtiles");
+        try {
+            final SampleModel sm = new PixelInterleavedSampleModel(DataBuffer.TYPE_BYTE, TILE_SIZE, TILE_SIZE, 1, TILE_SIZE, new int[]{0});
+            final SampleModel other = new PixelInterleavedSampleModel(DataBuffer.TYPE_USHORT, TILE_SIZE, TILE_SIZE, 1, TILE_SIZE, new int[]{0});
+            try (RawTileStore store = new RawTileStore(dir, 2, 1)) {
+                assertTrue(store.write(0, 0, createTile(sm, new Point(0, 0))));
+                assertFalse(store.write(1, 0, createTile(other, new Point(TILE_SIZE, 0))));
+                assertFalse(store.contains(1, 0));
+            }
+        } finally {
+            IOUtilities.deleteRecursively(dir);
+        }
+    }
+}
@@ -52,6 +52,7 @@ import org.geotoolkit.coverage.io.GridCoverageReader;
 import org.geotoolkit.coverage.io.GridCoverageWriter;
 import org.geotoolkit.coverage.postgresql.epsg.PGEPSGWriter;
 import org.geotoolkit.coverage.wkb.WKBRasterConstants;
+import org.geotoolkit.data.multires.Mosaic;
 import org.geotoolkit.data.multires.MultiResolutionModel;
 import org.geotoolkit.data.multires.Pyramid;
 import org.geotoolkit.data.multires.Pyramids;
@@ -94,6 +95,21 @@ public class PGCoverageResource extends AbstractPyramidalCoverageResource {
         updated = false;
     }
 
+    /**
+     * Reload pyramids and forget cached tile existence of mosaics.
+     * To be called when the database content is changed by another process or store instance.
+     */
+    public synchronized void refreshMetaModel() {
+        for (Pyramid pyramid : pyramids) {
+            for (Mosaic mosaic : pyramid.getMosaics()) {
+                if (mosaic instanceof PGGridMosaic) {
+                    ((PGGridMosaic) mosaic).invalidate();
+                }
+            }
+        }
+        mustUpdate();
+    }
+
     @Override
     public GridGeometry getGridGeometry() throws DataStoreException {
         final GridCoverageReader reader = acquireReader();
@@ -24,8 +24,15 @@ import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.logging.Level;
 import java.util.stream.Stream;
 import net.iharder.Base64;
 import org.apache.sis.storage.DataStoreException;
@@ -46,14 +53,37 @@ import org.opengis.geometry.DirectPosition;
  */
 public class PGGridMosaic extends AbstractMosaic{
 
+    /**
+     * Maximum number of tiles in the grid for which an existence bitmap is kept.
+     * Bigger grids query the database for each tile.
+     */
+    private static final long MAX_BITMAP_SIZE = 1L << 27;
+
+    /**
+     * Maximum number of tiles fetched by one query.
+     */
+    private static final int FETCH_BATCH = 1000;
+
     private final PGCoverageResource ref;
     private final long id;
+    private final int gridWidth;
+    private final int gridHeight;
+
+    /**
+     * Tiles present in the database, indexed by row*width+col.
+     * Loaded on first use, updated when tiles are written or deleted through this mosaic.
+     * Tiles written by other processes or store instances are not seen until
+     * {@link PGCoverageResource#refreshMetaModel()} is called.
+     */
+    private BitSet existence;
 
     public PGGridMosaic(final PGCoverageResource ref, final long id,
             Pyramid pyramid, DirectPosition upperLeft, Dimension gridSize, Dimension tileSize, double scale) {
         super(String.valueOf(id),pyramid, upperLeft, gridSize, tileSize, scale);
         this.ref = ref;
         this.id = id;
+        this.gridWidth = gridSize.width;
+        this.gridHeight = gridSize.height;
     }
 
     @Override
@@ -63,6 +93,19 @@ public class PGGridMosaic extends AbstractMosaic{
 
     @Override
     public boolean isMissing(int col, int row) {
+        if (hasBitmap()) {
+            if (col < 0 || row < 0 || col >= gridWidth || row >= gridHeight) {
+                return true;
+            }
+            try {
+                synchronized (this) {
+                    return !getExistence().get(row * gridWidth + col);
+                }
+            } catch (SQLException ex) {
+                throw new RuntimeException(ex);
+            }
+        }
+
         Connection cnx = null;
         Statement stmt = null;
         ResultSet rs = null;
@@ -90,6 +133,64 @@ public class PGGridMosaic extends AbstractMosaic{
         }
     }
 
+    /**
+     * @return true if the grid is small enough to keep an existence bitmap.
+     */
+    private boolean hasBitmap() {
+        return (long) gridWidth * gridHeight <= MAX_BITMAP_SIZE;
+    }
+
+    /**
+     * Returns the existence bitmap, loading it with one query if needed.
+     * Caller must hold the lock on this mosaic.
+     */
+    private BitSet getExistence() throws SQLException {
+        if (existence != null) {
+            return existence;
+        }
+        final PGCoverageStore pgstore = ref.getStore();
+        final BitSet bitmap = new BitSet();
+        Connection cnx = null;
+        Statement stmt = null;
+        ResultSet rs = null;
+        try{
+            cnx = pgstore.getDataSource().getConnection();
+            stmt = cnx.createStatement();
+            final StringBuilder query = new StringBuilder();
+            query.append("SELECT \"positionX\",\"positionY\" FROM ");
+            query.append(pgstore.encodeTableName("Tile"));
+            query.append(" WHERE \"mosaicId\"=").append(id);
+            rs = stmt.executeQuery(query.toString());
+            while (rs.next()) {
+                final int col = rs.getInt(1);
+                final int row = rs.getInt(2);
+                if (col >= 0 && row >= 0 && col < gridWidth && row < gridHeight) {
+                    bitmap.set(row * gridWidth + col);
+                }
+            }
+        }finally{
+            pgstore.closeSafe(cnx, stmt, rs);
+        }
+        existence = bitmap;
+        return bitmap;
+    }
+
+    /**
+     * Forget the existence bitmap, it is reloaded on next use.
+     */
+    synchronized void invalidate() {
+        existence = null;
+    }
+
+    /**
+     * Update the existence bitmap if already loaded.
+     */
+    private synchronized void setExists(int col, int row, boolean exists) {
+        if (existence != null && col >= 0 && row >= 0 && col < gridWidth && row < gridHeight) {
+            existence.set(row * gridWidth + col, exists);
+        }
+    }
+
     public long getDatabaseId() {
         return id;
     }
@@ -104,6 +205,76 @@ public class PGGridMosaic extends AbstractMosaic{
         return tile;
     }
 
+    /**
+     * Fetch the requested tiles with one query per batch of positions.
+     * Missing tiles are skipped without querying the database.
+     * All tiles are fetched before this method returns, the returned queue is complete.
+     */
+    @Override
+    public BlockingQueue<Object> getTiles(Collection<? extends Point> positions, Map hints) throws DataStoreException {
+        final List<Point> candidates = new ArrayList<>(positions.size());
+        final boolean bitmap = hasBitmap();
+        for (Point p : positions) {
+            if (!bitmap || !isMissing(p.x, p.y)) {
+                candidates.add(p);
+            }
+        }
+
+        final ArrayBlockingQueue<Object> queue = new ArrayBlockingQueue<>(candidates.size() + 1);
+        final PGCoverageStore pgstore = ref.getStore();
+        for (int i = 0, n = candidates.size(); i < n; i += FETCH_BATCH) {
+            final List<Point> batch = candidates.subList(i, Math.min(n, i + FETCH_BATCH));
+            Connection cnx = null;
+            Statement stmt = null;
+            ResultSet rs = null;
+            try{
+                final StringBuilder query = new StringBuilder();
+                query.append("SELECT \"positionX\",\"positionY\",encode(st_asbinary(\"raster\"),'base64') FROM ");
+                query.append(pgstore.encodeTableName("Tile"));
+                query.append(" WHERE \"mosaicId\"=").append(id);
+                query.append(" AND (\"positionX\",\"positionY\") IN (");
+                for (int k = 0, kn = batch.size(); k < kn; k++) {
+                    final Point p = batch.get(k);
+                    if (k > 0) query.append(',');
+                    query.append('(').append(p.x).append(',').append(p.y).append(')');
+                }
+                query.append(')');
+
+                cnx = pgstore.getDataSource().getConnection();
+                //rows are streamed with a cursor only outside auto-commit mode
+                cnx.setAutoCommit(false);
+                stmt = cnx.createStatement();
+                stmt.setFetchSize(16);
+                rs = stmt.executeQuery(query.toString());
+                while (rs.next()) {
+                    final Point position = new Point(rs.getInt(1), rs.getInt(2));
+                    final byte[] data;
+                    try {
+                        data = Base64.decode(rs.getBytes(3));
+                    } catch (IOException ex) {
+                        throw new DataStoreException("Failed to uncompressed base64 : "+ex.getMessage(),ex);
+                    }
+                    queue.offer(new PGTileReference(this, position, data));
+                }
+            }catch(SQLException ex){
+                throw new DataStoreException(ex.getMessage(), ex);
+            }finally{
+                pgstore.closeSafe(rs);
+                pgstore.closeSafe(stmt);
+                if (cnx != null) {
+                    try {
+                        cnx.setAutoCommit(true);
+                    } catch (SQLException ex) {
+                        pgstore.getLogger().log(Level.WARNING, ex.getMessage(), ex);
+                    }
+                }
+                pgstore.closeSafe(cnx);
+            }
+        }
+        queue.offer(END_OF_QUEUE);
+        return queue;
+    }
+
     @Override
     public void writeTiles(Stream<Tile> tiles, final Monitor monitor) throws DataStoreException {
 
@@ -173,6 +344,7 @@ public class PGGridMosaic extends AbstractMosaic{
 
             insertStmt = cnx.createStatement();
             insertStmt.executeUpdate(query.toString());
+            setExists(col, row, true);
 
             final CoverageStoreContentEvent event = ref.fireTileUpdated(getPyramid().getIdentifier(), getIdentifier(), Collections.singletonList(new Point(col,row)));
             pgstore.forwardEvent(event);
@@ -204,6 +376,7 @@ public class PGGridMosaic extends AbstractMosaic{
             sql.append(" AND \"positionX\" = ").append(col);
             sql.append(" AND \"positionY\" = ").append(row);
             stmt.executeUpdate(sql.toString());
+            setExists(col, row, false);
         }catch(SQLException ex){
             throw new DataStoreException(ex.getMessage(), ex);
         }finally{
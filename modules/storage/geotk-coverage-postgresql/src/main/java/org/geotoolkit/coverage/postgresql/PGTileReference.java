@@ -48,6 +48,17 @@ public class PGTileReference extends AbstractResource implements ImageTile{
         this.position = position;
     }
 
+    /**
+     * Tile reference with an already fetched raster.
+     *
+     * @param data WKB raster bytes
+     */
+    PGTileReference(final PGGridMosaic mosaic, final Point position, final byte[] data) {
+        this.mosaic = mosaic;
+        this.position = position;
+        this.data = new SoftReference<>(data);
+    }
+
     @Override
     public ImageReader getImageReader() throws IOException {
         final ImageReader reader = SPI.createReaderInstance();
@@ -27,6 +27,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.BlockingQueue;
 import java.util.stream.Stream;
 import org.apache.sis.geometry.GeneralDirectPosition;
 import org.apache.sis.measure.NumberRange;
@@ -172,6 +173,51 @@ public class PGPyramidTest extends org.geotoolkit.test.TestBase {
 
     }
 
+    @Test
+    public void testBatchedTiles() throws DataStoreException, VersioningException, IOException, InterruptedException {
+        reload();
+
+        final GeneralDirectPosition upperLeft = new GeneralDirectPosition(CommonCRS.WGS84.geographic());
+        final Dimension dimension = new Dimension(20, 20);
+        upperLeft.setOrdinate(0, -90);
+        upperLeft.setOrdinate(1, +180);
+
+        final GenericName name = NamesExt.create(null, "batchLayer");
+        store.add(new DefiningCoverageResource(name));
+        final PyramidalCoverageResource cref = (PyramidalCoverageResource) store.findResource(name.toString());
+        final Pyramid pyramid = (Pyramid) cref.createModel(new DefiningPyramid(CommonCRS.WGS84.geographic()));
+        final Mosaic mosaic = pyramid.createMosaic(
+                new DefiningMosaic(null, upperLeft, 1, dimension, new Dimension(3, 3)));
+
+        mosaic.writeTiles(Stream.of(
+                new DefaultImageTile(createImage(dimension, Color.RED),   new Point(0, 0)),
+                new DefaultImageTile(createImage(dimension, Color.GREEN), new Point(1, 2)),
+                new DefaultImageTile(createImage(dimension, Color.BLUE),  new Point(2, 1)))
+                , null);
+        assertFalse(mosaic.isMissing(0, 0));
+        assertFalse(mosaic.isMissing(1, 2));
+        assertTrue(mosaic.isMissing(1, 1));
+        assertTrue(mosaic.isMissing(5, 5));
+
+        //missing tiles are not returned
+        final Map<Point,Color> expected = new HashMap<>();
+        expected.put(new Point(0, 0), Color.RED);
+        expected.put(new Point(1, 2), Color.GREEN);
+        expected.put(new Point(2, 1), Color.BLUE);
+        final BlockingQueue<Object> queue = mosaic.getTiles(Arrays.asList(
+                new Point(0, 0), new Point(1, 1), new Point(1, 2), new Point(2, 1)), null);
+        for (Object obj = queue.take(); obj != Mosaic.END_OF_QUEUE; obj = queue.take()) {
+            final ImageTile tile = (ImageTile) obj;
+            assertImageColor(tile.getImage(), expected.remove(tile.getPosition()));
+        }
+        assertTrue(expected.isEmpty());
+
+        mosaic.deleteTile(1, 2);
+        assertTrue(mosaic.isMissing(1, 2));
+
+        cref.removeModel(pyramid.getIdentifier());
+    }
+
     @Test
     public void testSampleDimensions() throws DataStoreException, VersioningException, IOException, TransformException {
         reload();
@@ -141,17 +141,33 @@ public class ProcessedRenderedImage extends AbstractRenderedImage {
         return tileGridYOffset;
     }
 
+    /**
+     * {@inheritDoc }
+     * <p>
+     * Tiles are computed concurrently if evaluator is a {@link TileEvaluator},
+     * otherwise tile computation is synchronized.
+     * </p>
+     */
     @Override
-    public synchronized Raster getTile(int tileX, int tileY) {
+    public Raster getTile(int tileX, int tileY) {
 
         final SampleModel sm = getSampleModel().createCompatibleSampleModel(getTileWidth(), getTileHeight());
         final WritableRaster raster = Raster.createWritableRaster(sm, null);
-        final int nbBand = sm.getNumBands();
-        final double[] sampleBuffer = new double[nbBand];
 
         //TODO take in consideration other values
         final int offsetX = tileX * tileWidth;
         final int offsetY = tileY * tileHeight;
+        if (evaluator instanceof TileEvaluator) {
+            ((TileEvaluator) evaluator).evaluate(raster, offsetX, offsetY);
+        } else {
+            evaluate(raster, offsetX, offsetY);
+        }
+        return raster;
+    }
+
+    private synchronized void evaluate(WritableRaster raster, int offsetX, int offsetY) {
+        final int nbBand = raster.getNumBands();
+        final double[] sampleBuffer = new double[nbBand];
         for(int y=0;y<tileHeight;y++){
             for(int x=0;x<tileWidth;x++){
                 evaluator.evaluate(x+offsetX, y+offsetY, sampleBuffer);
@@ -160,8 +176,6 @@ public class ProcessedRenderedImage extends AbstractRenderedImage {
                 }
             }
         }
-
-        return raster;
     }
 
     public static interface Evaluator {
@@ -170,4 +184,21 @@ public class ProcessedRenderedImage extends AbstractRenderedImage {
 
     }
 
+    /**
+     * Evaluator computing all samples of a tile at once.
+     * Implementations must be thread safe, tiles may be requested concurrently.
+     */
+    public static interface TileEvaluator extends Evaluator {
+
+        /**
+         * Compute tile samples.
+         *
+         * @param raster tile raster, with origin at (0,0)
+         * @param offsetX image x coordinate of the first raster column
+         * @param offsetY image y coordinate of the first raster row
+         */
+        void evaluate(WritableRaster raster, int offsetX, int offsetY);
+
+    }
+
 }
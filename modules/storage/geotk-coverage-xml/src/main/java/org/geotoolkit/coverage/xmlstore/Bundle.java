@@ -43,31 +43,42 @@ public final class Bundle extends IndexedResourceBundle {
          */
         public static final short coverageXMLDescription = 1;
 
+        /**
+         * Packed tiles
+         */
+        public static final short coverageXMLPackedTiles = 2;
+
+        /**
+         * True to store tiles of new mosaics in a single container file with a tile index, instead
+         * of one file per tile.
+         */
+        public static final short coverageXMLPackedTilesRemarks = 3;
+
         /**
          * URL
          */
-        public static final short coverageXMLPath = 2;
+        public static final short coverageXMLPath = 4;
 
         /**
          * "Path to the folder which contains pyramid set description files (.xml)."
          */
-        public static final short coverageXMLPathRemarks = 3;
+        public static final short coverageXMLPathRemarks = 5;
 
         /**
          * Cache tile state
          */
-        public static final short coverageXMLTileState = 4;
+        public static final short coverageXMLTileState = 6;
 
         /**
          * True if we want to check tile state (missing, empty or filled) at tile file accesses.
          * Otherwise, it will be read/written from/to pyramid set description file.
          */
-        public static final short coverageXMLTileStateRemarks = 5;
+        public static final short coverageXMLTileStateRemarks = 7;
 
         /**
          * XML coverage
          */
-        public static final short coverageXMLTitle = 6;
+        public static final short coverageXMLTitle = 8;
     }
 
     /**
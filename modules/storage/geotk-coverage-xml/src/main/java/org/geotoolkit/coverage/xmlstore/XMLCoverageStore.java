@@ -61,6 +61,8 @@ public class XMLCoverageStore extends AbstractCoverageStore implements WritableA
 
     final boolean cacheTileState;
 
+    final boolean packedTiles;
+
     @Deprecated
     public XMLCoverageStore(File root) throws URISyntaxException, IOException {
         this(root.toPath(),true);
@@ -93,6 +95,8 @@ public class XMLCoverageStore extends AbstractCoverageStore implements WritableA
         root = Paths.get(rootPath);
         Boolean tmpCacheState = Parameters.castOrWrap(params).getValue(XMLCoverageStoreFactory.CACHE_TILE_STATE);
         cacheTileState = (tmpCacheState == null)? true : tmpCacheState;
+        Boolean tmpPacked = Parameters.castOrWrap(params).getValue(XMLCoverageStoreFactory.PACKED_TILES);
+        packedTiles = (tmpPacked == null)? false : tmpPacked;
         explore();
     }
 
@@ -219,8 +223,45 @@ public class XMLCoverageStore extends AbstractCoverageStore implements WritableA
         return ref;
     }
 
+    /**
+     * Release unused bytes in all packed mosaics of the store.
+     *
+     * @return number of released bytes.
+     * @throws DataStoreException if a tile container can not be compacted.
+     * @see XMLMosaic#compact()
+     */
+    public long compact() throws DataStoreException {
+        long released = 0;
+        for (Resource resource : resources) {
+            if (resource instanceof XMLCoverageResource) {
+                for (XMLPyramid pyramid : ((XMLCoverageResource) resource).getPyramidSet().pyramids()) {
+                    for (XMLMosaic mosaic : pyramid.mosaics()) {
+                        released += mosaic.compact();
+                    }
+                }
+            }
+        }
+        return released;
+    }
+
     @Override
-    public void close() {
+    public void close() throws DataStoreException {
+        DataStoreException error = null;
+        for (Resource resource : resources) {
+            if (resource instanceof XMLCoverageResource) {
+                for (XMLPyramid pyramid : ((XMLCoverageResource) resource).getPyramidSet().pyramids()) {
+                    for (XMLMosaic mosaic : pyramid.mosaics()) {
+                        try {
+                            mosaic.close();
+                        } catch (DataStoreException ex) {
+                            if (error == null) error = ex;
+                            else error.addSuppressed(ex);
+                        }
+                    }
+                }
+            }
+        }
+        if (error != null) throw error;
     }
 
     @Override
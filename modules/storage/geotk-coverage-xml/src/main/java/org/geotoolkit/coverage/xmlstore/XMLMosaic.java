@@ -140,8 +140,17 @@ public class XMLMosaic implements Mosaic {
     @XmlElement
     Boolean cacheTileState;
 
+    /**
+     * True if tiles are packed in a {@link XMLTileContainer} instead of one file per tile.
+     * Always written, a missing element means one file per tile.
+     */
+    @XmlElement
+    Boolean packedTiles;
+
     Path folder;
 
+    private volatile XMLTileContainer container;
+
     final ReentrantReadWriteLock bitsetLock = new ReentrantReadWriteLock();
 
     /**
@@ -182,6 +191,18 @@ public class XMLMosaic implements Mosaic {
             }
         }
 
+        // Tile storage is chosen at mosaic creation, mosaics without this element store one file per tile.
+        if (packedTiles == null) {
+            packedTiles = false;
+        }
+        if (packedTiles) {
+            // Tile states are stored in container index.
+            cacheTileState = true;
+            tileExist = null;
+            tileEmpty = null;
+            return;
+        }
+
         bitsetLock.writeLock().lock();
         try {
             if (existMask != null && !existMask.isEmpty()) {
@@ -230,6 +251,65 @@ public class XMLMosaic implements Mosaic {
         }
     }
 
+    /**
+     * @return true if tiles are packed in a single container instead of one file per tile.
+     */
+    public boolean isPacked() {
+        return Boolean.TRUE.equals(packedTiles);
+    }
+
+    /**
+     * Open the tile container on first call.
+     */
+    private XMLTileContainer getContainer() throws DataStoreException {
+        if (container == null) {
+            synchronized (this) {
+                //double check
+                if (container == null) {
+                    try {
+                        container = XMLTileContainer.open(getFolder(), gridWidth, gridHeight);
+                    } catch (IOException ex) {
+                        throw new DataStoreException("Unable to open mosaic tile container "+ex.getLocalizedMessage(), ex);
+                    }
+                }
+            }
+        }
+        return container;
+    }
+
+    /**
+     * Release unused bytes of replaced or deleted tiles.
+     * Only packed mosaics need compaction, this method does nothing on other mosaics.
+     *
+     * @return number of released bytes.
+     * @throws DataStoreException if tile container can not be compacted.
+     */
+    public long compact() throws DataStoreException {
+        if (!isPacked() || !XMLTileContainer.exists(getFolder())) {
+            return 0;
+        }
+        try {
+            return getContainer().compact();
+        } catch (IOException ex) {
+            throw new DataStoreException(ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Close tile container if it has been opened.
+     */
+    synchronized void close() throws DataStoreException {
+        if (container != null) {
+            try {
+                container.close();
+            } catch (IOException ex) {
+                throw new DataStoreException(ex.getMessage(), ex);
+            } finally {
+                container = null;
+            }
+        }
+    }
+
     private Cache<Point, Boolean> getIsMissingCache() {
         if (isMissingCache == null) {
             synchronized (this) {
@@ -406,6 +486,18 @@ public class XMLMosaic implements Mosaic {
 
     @Override
     public boolean isMissing(int col, int row) throws PointOutsideCoverageException {
+        if (isPacked()) {
+            checkPosition(col, row);
+            if (container == null && !XMLTileContainer.exists(getFolder())) {
+                return true;
+            }
+            try {
+                return getContainer().isMissing(col, row);
+            } catch (IOException | DataStoreException e) {
+                LOGGER.log(Level.FINE, e.getLocalizedMessage(), e);
+                return true;
+            }
+        }
         bitsetLock.readLock().lock();
         try {
             if (tileExist == null || tileExist.isEmpty()) {
@@ -457,7 +549,22 @@ public class XMLMosaic implements Mosaic {
     public ImageTile getTile(int col, int row, Map hints) throws DataStoreException {
 
         final ImageTile tile;
-        if (isEmpty(col, row)) {
+        if (isPacked()) {
+            checkPosition(col, row);
+            if (container == null && !XMLTileContainer.exists(getFolder())) {
+                return null;
+            }
+            try {
+                final byte[] encoded = getContainer().read(col, row);
+                if (encoded == null) {
+                    return null;
+                }
+                tile = new DefaultImageTile(pyramid.getPyramidSet().getReaderSpi(),
+                        ImageIO.createImageInputStream(new ByteArrayInputStream(encoded)), 0, new Point(col, row));
+            } catch (IOException ex) {
+                throw new DataStoreException(ex);
+            }
+        } else if (isEmpty(col, row)) {
             try {
                 tile = new DefaultImageTile(pyramid.getPyramidSet().getReaderSpi(),
                         ImageIO.createImageInputStream(new ByteArrayInputStream(createEmptyTile())), 0, new Point(col, row));
@@ -643,6 +750,11 @@ public class XMLMosaic implements Mosaic {
 
     void createTile(final int col, final int row, final RenderedImage image, final ImageWriter writer) throws DataStoreException {
 
+        if (isPacked()) {
+            createPackedTile(col, row, image, writer);
+            return;
+        }
+
         try {
             checkMosaicFolderExist();
         } catch (IOException e) {
@@ -707,11 +819,58 @@ public class XMLMosaic implements Mosaic {
         }
     }
 
+    /**
+     * Encode tile in memory and append it to the mosaic tile container.
+     * Empty tiles reuse the encoded empty tile, empty and uniform tiles are shared
+     * by the container so identical ones are stored once.
+     */
+    private void createPackedTile(final int col, final int row, final RenderedImage image, final ImageWriter writer) throws DataStoreException {
+        checkPosition(col, row);
+        final Raster raster = image.getData();
+        final boolean uniform = isUniform(raster);
+        final byte[] encoded;
+        if (uniform && isEmpty(raster)) {
+            encoded = createEmptyTile();
+        } else {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ImageOutputStream out = ImageIO.createImageOutputStream(bytes)) {
+                writer.setOutput(out);
+                writer.write(image);
+            } catch (IOException ex) {
+                throw new DataStoreException(ex.getMessage(), ex);
+            } finally {
+                writer.setOutput(null);
+            }
+            encoded = bytes.toByteArray();
+        }
+        try {
+            if (uniform) {
+                getContainer().writeShared(col, row, encoded);
+            } else {
+                getContainer().write(col, row, encoded);
+            }
+        } catch (IOException ex) {
+            throw new DataStoreException(ex.getMessage(), ex);
+        }
+    }
+
     /**
      * {@inheritDoc }.
      */
     @Override
     public void deleteTile(int col, int row) throws DataStoreException {
+        if (isPacked()) {
+            checkPosition(col, row);
+            if (container == null && !XMLTileContainer.exists(getFolder())) {
+                return;
+            }
+            try {
+                getContainer().delete(col, row);
+            } catch (IOException ex) {
+                throw new DataStoreException(ex.getMessage(), ex);
+            }
+            return;
+        }
         throw new DataStoreException("Not supported yet.");
     }
 
@@ -815,6 +974,23 @@ public class XMLMosaic implements Mosaic {
         return true;
     }
 
+    /**
+     * check if all pixels of the raster have the same value
+     */
+    private static boolean isUniform(Raster raster) {
+        final double[] first = raster.getPixel(raster.getMinX(), raster.getMinY(), (double[]) null);
+        double[] array = null;
+        for (int y=raster.getMinY(),maxY=y+raster.getHeight(); y<maxY; y++) {
+            for (int x=raster.getMinX(),maxX=x+raster.getWidth(); x<maxX; x++) {
+                array = raster.getPixel(x, y, array);
+                if (!Arrays.equals(first, array)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
     private class TileWriter implements Runnable{
 
         private final Path tilePath;
@@ -32,6 +32,7 @@ import org.apache.sis.geometry.GeneralEnvelope;
 import org.apache.sis.io.wkt.*;
 import org.apache.sis.referencing.CRS;
 import org.apache.sis.referencing.IdentifiedObjects;
+import org.apache.sis.storage.DataStore;
 import org.apache.sis.storage.DataStoreException;
 import org.apache.sis.util.ArgumentChecks;
 import org.apache.sis.util.Classes;
@@ -270,6 +271,12 @@ public class XMLPyramid implements Pyramid {
         mosaic.upperLeft = template.getUpperLeftCorner().getCoordinate();
         mosaic.dataPixelWidth = template.getDataExtent().width;
         mosaic.dataPixelHeight = template.getDataExtent().height;
+        // Tile storage of new mosaics is defined by store parameters.
+        final DataStore store = set.getRef().getStore();
+        if (!(store instanceof XMLCoverageStore)) {
+            throw new DataStoreException("Mosaic can not be created : pyramid is not attached to an XML coverage store.");
+        }
+        mosaic.packedTiles = ((XMLCoverageStore) store).packedTiles;
         mosaics.add(mosaic);
         mosaic.initialize(this);
         set.getRef().save();
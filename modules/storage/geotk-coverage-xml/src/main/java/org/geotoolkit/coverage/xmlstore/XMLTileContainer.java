@@ -0,0 +1,537 @@
+/*
+ *    Geotoolkit - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2018, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.coverage.xmlstore;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.apache.sis.util.ArgumentChecks;
+
+/**
+ * Packed storage of the encoded tiles of a mosaic.<br>
+ * <br>
+ * Tiles are appended to a single data file ({@value #DATA_FILE}), a tile offset index
+ * ({@value #INDEX_FILE}) gives for each tile the position and length of its encoded bytes.
+ * The index is memory mapped by segments, so reading a tile only costs one positional read
+ * in the data file. Index file is sparse, segments are created when a tile is first written in them.
+ * <br>
+ * Empty or uniform tiles written with {@link #writeShared(int, int, byte[]) } are stored only once
+ * and shared by all index entries. Only the most recently used shared tiles are remembered, the lookup
+ * table is not persisted. Replaced or deleted tiles leave unused bytes in the data file,
+ * they can be released with {@link #compact() }.
+ * <br>
+ * Data file layout : a header (magic number, version) followed by records, each record is
+ * the payload length (int), the payload SHA-256 digest (32 bytes, zeros for tiles which are not shared)
+ * and the encoded tile.<br>
+ * Index file layout : a header (magic number, version, grid width, grid height) followed by
+ * one entry for each tile in row major order : payload offset (long), payload length (int).
+ * A zero length entry is a missing tile.
+ *
+ * @module
+ */
+public final class XMLTileContainer implements Closeable {
+
+    /** Name of the data file in the mosaic folder. */
+    public static final String DATA_FILE = "tiles.bin";
+    /** Name of the index file in the mosaic folder. */
+    public static final String INDEX_FILE = "tiles.idx";
+
+    private static final int DATA_MAGIC = 0x474B5444;  // GKTD
+    private static final int INDEX_MAGIC = 0x474B5449; // GKTI
+    private static final int VERSION = 1;
+
+    private static final int DATA_HEADER_SIZE = 8;
+    private static final int INDEX_HEADER_SIZE = 16;
+    private static final int DIGEST_SIZE = 32;
+    private static final int RECORD_HEADER_SIZE = 4 + DIGEST_SIZE;
+    private static final int ENTRY_SIZE = 12;
+
+    /**
+     * Number of index entries in a mapped segment, 2^20 entries makes 12Mb segments.
+     */
+    private static final int SEGMENT_SHIFT = 20;
+    private static final int SEGMENT_MASK = (1 << SEGMENT_SHIFT) - 1;
+
+    /**
+     * Maximum number of shared tiles remembered for deduplication.
+     */
+    static final int MAX_SHARED_TILES = 256;
+
+    private final Path folder;
+    private final int gridWidth;
+    private final int gridHeight;
+    private final FileChannel data;
+    private final FileChannel index;
+    /**
+     * Mapped index segments, created lazily while holding the array monitor.
+     */
+    private final AtomicReferenceArray<MappedByteBuffer> segments;
+
+    /**
+     * Guards index entries and the data they point to, compaction moves data while holding the write lock.
+     */
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Digest of shared payloads to their offset, most recently used last.
+     * Guarded by the data monitor.
+     */
+    private final Map<ByteBuffer,Long> shared = new LinkedHashMap<ByteBuffer,Long>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<ByteBuffer,Long> eldest) {
+            return size() > MAX_SHARED_TILES;
+        }
+    };
+
+    /**
+     * End of data file, next record position.
+     */
+    private long end;
+
+    private XMLTileContainer(final Path folder, final int gridWidth, final int gridHeight) throws IOException {
+        ArgumentChecks.ensureStrictlyPositive("gridWidth", gridWidth);
+        ArgumentChecks.ensureStrictlyPositive("gridHeight", gridHeight);
+        this.folder = folder;
+        this.gridWidth = gridWidth;
+        this.gridHeight = gridHeight;
+        final long nbTiles = (long) gridWidth * gridHeight;
+        final long nbSegments = ((nbTiles - 1) >>> SEGMENT_SHIFT) + 1;
+        if (nbSegments > Integer.MAX_VALUE) {
+            throw new IOException("Mosaic grid is too large : " + gridWidth + "x" + gridHeight);
+        }
+        this.segments = new AtomicReferenceArray<>((int) nbSegments);
+
+        Files.createDirectories(folder);
+        data = FileChannel.open(folder.resolve(DATA_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            index = FileChannel.open(folder.resolve(INDEX_FILE),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                checkOrWriteHeaders();
+            } catch (IOException ex) {
+                index.close();
+                throw ex;
+            }
+        } catch (IOException ex) {
+            data.close();
+            throw ex;
+        }
+        end = data.size();
+    }
+
+    /**
+     * Open or create the tile container in given folder.
+     *
+     * @param folder mosaic folder, created if it does not exist.
+     * @param gridWidth mosaic grid width
+     * @param gridHeight mosaic grid height
+     * @return opened container, must be closed after use.
+     * @throws IOException if files can not be created or do not match the grid size.
+     */
+    public static XMLTileContainer open(final Path folder, final int gridWidth, final int gridHeight) throws IOException {
+        ArgumentChecks.ensureNonNull("folder", folder);
+        return new XMLTileContainer(folder, gridWidth, gridHeight);
+    }
+
+    /**
+     * Test if a tile container exists in given folder.
+     *
+     * @param folder mosaic folder
+     * @return true if folder contains container files
+     */
+    public static boolean exists(final Path folder) {
+        return Files.isRegularFile(folder.resolve(INDEX_FILE)) && Files.isRegularFile(folder.resolve(DATA_FILE));
+    }
+
+    /**
+     * Release unused bytes of the container in given folder.
+     *
+     * @param folder mosaic folder
+     * @return number of released bytes
+     * @throws IOException if container can not be read or written
+     * @see #compact()
+     */
+    public static long compact(final Path folder) throws IOException {
+        final int[] size;
+        try (FileChannel channel = FileChannel.open(folder.resolve(INDEX_FILE), StandardOpenOption.READ)) {
+            final ByteBuffer header = ByteBuffer.allocate(INDEX_HEADER_SIZE);
+            readFully(channel, header, 0);
+            header.flip();
+            if (header.getInt() != INDEX_MAGIC) {
+                throw new IOException("Not a tile index file : " + folder.resolve(INDEX_FILE));
+            }
+            header.getInt();
+            size = new int[]{header.getInt(), header.getInt()};
+        }
+        try (XMLTileContainer container = open(folder, size[0], size[1])) {
+            return container.compact();
+        }
+    }
+
+    private void checkOrWriteHeaders() throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(INDEX_HEADER_SIZE);
+        if (index.size() == 0) {
+            buffer.putInt(INDEX_MAGIC).putInt(VERSION).putInt(gridWidth).putInt(gridHeight).flip();
+            writeFully(index, buffer, 0);
+        } else {
+            readFully(index, buffer, 0);
+            buffer.flip();
+            if (buffer.getInt() != INDEX_MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("Not a tile index file : " + folder.resolve(INDEX_FILE));
+            }
+            final int width = buffer.getInt();
+            final int height = buffer.getInt();
+            if (width != gridWidth || height != gridHeight) {
+                throw new IOException("Tile index grid size " + width + "x" + height
+                        + " does not match mosaic grid size " + gridWidth + "x" + gridHeight);
+            }
+        }
+        buffer.clear().limit(DATA_HEADER_SIZE);
+        if (data.size() == 0) {
+            buffer.putInt(DATA_MAGIC).putInt(VERSION).flip();
+            writeFully(data, buffer, 0);
+        } else {
+            readFully(data, buffer, 0);
+            buffer.flip();
+            if (buffer.getInt() != DATA_MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("Not a tile data file : " + folder.resolve(DATA_FILE));
+            }
+        }
+    }
+
+    /**
+     * @return mosaic folder
+     */
+    public Path getFolder() {
+        return folder;
+    }
+
+    private long tileIndex(final int col, final int row) {
+        if (col < 0 || row < 0 || col >= gridWidth || row >= gridHeight) {
+            throw new IndexOutOfBoundsException("Tile position is outside the grid : " + col + " " + row);
+        }
+        return (long) row * gridWidth + col;
+    }
+
+    /**
+     * Get the mapped segment of the index entry.
+     *
+     * @param create true to create segment if it does not exist yet
+     * @return segment, null if it does not exist and create is false
+     */
+    private MappedByteBuffer segment(final long tileIndex, final boolean create) throws IOException {
+        final int s = (int) (tileIndex >>> SEGMENT_SHIFT);
+        MappedByteBuffer segment = segments.get(s);
+        if (segment == null) {
+            synchronized (segments) {
+                segment = segments.get(s);
+                if (segment == null) {
+                    final long start = INDEX_HEADER_SIZE + ((long) s << SEGMENT_SHIFT) * ENTRY_SIZE;
+                    final long nbTiles = (long) gridWidth * gridHeight;
+                    final long length = Math.min(1L << SEGMENT_SHIFT, nbTiles - ((long) s << SEGMENT_SHIFT)) * ENTRY_SIZE;
+                    if (!create && index.size() < start + length) {
+                        //segment has never been written, all its tiles are missing
+                        return null;
+                    }
+                    //mapping beyond file size extends the file, unwritten parts are zeros
+                    segment = index.map(FileChannel.MapMode.READ_WRITE, start, length);
+                    segments.set(s, segment);
+                }
+            }
+        }
+        return segment;
+    }
+
+    private static int entryPosition(final long tileIndex) {
+        return (int) (tileIndex & SEGMENT_MASK) * ENTRY_SIZE;
+    }
+
+    /**
+     * Must be called while holding the read lock, until the payload has been read.
+     *
+     * @return {offset, length} of tile payload, null if tile is missing.
+     */
+    private long[] entry(final long tileIndex) throws IOException {
+        final MappedByteBuffer segment = segment(tileIndex, false);
+        if (segment == null) return null;
+        final int pos = entryPosition(tileIndex);
+        final int length = segment.getInt(pos + 8);
+        if (length == 0) return null;
+        return new long[]{segment.getLong(pos), length};
+    }
+
+    private void setEntry(final long tileIndex, final long offset, final int length) throws IOException {
+        final MappedByteBuffer segment = segment(tileIndex, true);
+        final int pos = entryPosition(tileIndex);
+        lock.writeLock().lock();
+        try {
+            segment.putLong(pos, offset);
+            segment.putInt(pos + 8, length);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Test if a tile has been written.
+     *
+     * @param col tile column
+     * @param row tile row
+     * @return true if tile does not exist
+     * @throws IOException if index can not be read
+     */
+    public boolean isMissing(final int col, final int row) throws IOException {
+        lock.readLock().lock();
+        try {
+            return entry(tileIndex(col, row)) == null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Read encoded tile bytes, with a single positional read in the data file.
+     *
+     * @param col tile column
+     * @param row tile row
+     * @return encoded tile, null if tile is missing.
+     * @throws IOException if tile can not be read
+     */
+    public byte[] read(final int col, final int row) throws IOException {
+        //compaction must not move the payload between index lookup and read
+        lock.readLock().lock();
+        try {
+            final long[] entry = entry(tileIndex(col, row));
+            if (entry == null) return null;
+            final byte[] bytes = new byte[(int) entry[1]];
+            readFully(data, ByteBuffer.wrap(bytes), entry[0]);
+            return bytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Store encoded tile bytes.
+     *
+     * @param col tile column
+     * @param row tile row
+     * @param bytes encoded tile, not empty
+     * @throws IOException if tile can not be written
+     */
+    public void write(final int col, final int row, final byte[] bytes) throws IOException {
+        write(col, row, bytes, false);
+    }
+
+    /**
+     * Store encoded bytes of an empty or uniform tile. If the same bytes have recently been stored
+     * for another tile they are shared instead of being appended again.
+     *
+     * @param col tile column
+     * @param row tile row
+     * @param bytes encoded tile, not empty
+     * @throws IOException if tile can not be written
+     */
+    public void writeShared(final int col, final int row, final byte[] bytes) throws IOException {
+        write(col, row, bytes, true);
+    }
+
+    private void write(final int col, final int row, final byte[] bytes, final boolean share) throws IOException {
+        ArgumentChecks.ensureNonNull("bytes", bytes);
+        if (bytes.length == 0) {
+            throw new IllegalArgumentException("Encoded tile is empty.");
+        }
+        final long tileIndex = tileIndex(col, row);
+        final byte[] digest = share ? digest(bytes) : new byte[DIGEST_SIZE];
+        final ByteBuffer key = ByteBuffer.wrap(digest);
+
+        final long offset;
+        synchronized (data) {
+            if (share) {
+                final Long existing = shared.get(key);
+                if (existing != null) {
+                    setEntry(tileIndex, existing, bytes.length);
+                    return;
+                }
+            }
+            final ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + bytes.length);
+            record.putInt(bytes.length).put(digest).put(bytes).flip();
+            writeFully(data, record, end);
+            offset = end + RECORD_HEADER_SIZE;
+            end += record.capacity();
+            if (share) {
+                shared.put(key, offset);
+            }
+            //entry is only visible once payload is written, before any compaction
+            setEntry(tileIndex, offset, bytes.length);
+        }
+    }
+
+    /**
+     * Remove a tile, its bytes will be released by next compaction.
+     *
+     * @param col tile column
+     * @param row tile row
+     * @throws IOException if index can not be written
+     */
+    public void delete(final int col, final int row) throws IOException {
+        final long tileIndex = tileIndex(col, row);
+        if (segment(tileIndex, false) != null) {
+            setEntry(tileIndex, 0, 0);
+        }
+    }
+
+    /**
+     * Release unused bytes of replaced or deleted tiles.<br>
+     * Used records are moved toward the beginning of the data file, in their current order,
+     * then the file is truncated. Each index entry is updated as soon as its record has been moved,
+     * so an interrupted compaction leaves a readable container.
+     * Concurrent reads and writes are blocked until compaction ends.
+     *
+     * @return number of released bytes
+     * @throws IOException if container can not be read or written
+     */
+    public long compact() throws IOException {
+        synchronized (data) {
+            lock.writeLock().lock();
+            try {
+                //group tiles by used record, deduplicated records are shared by several tiles
+                final TreeMap<Long,List<Long>> records = new TreeMap<>();
+                final long nbTiles = (long) gridWidth * gridHeight;
+                for (long t = 0; t < nbTiles; t++) {
+                    final MappedByteBuffer segment = segment(t, false);
+                    if (segment == null) {
+                        //skip whole segment
+                        t |= SEGMENT_MASK;
+                        continue;
+                    }
+                    final int pos = entryPosition(t);
+                    if (segment.getInt(pos + 8) != 0) {
+                        records.computeIfAbsent(segment.getLong(pos), (Long k) -> new ArrayList<>()).add(t);
+                    }
+                }
+
+                long target = DATA_HEADER_SIZE;
+                final ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+                for (Map.Entry<Long,List<Long>> record : records.entrySet()) {
+                    final long source = record.getKey() - RECORD_HEADER_SIZE;
+                    header.clear();
+                    readFully(data, header, source);
+                    final int recordSize = RECORD_HEADER_SIZE + header.getInt(0);
+                    if (source != target) {
+                        //target is always before source, copied bytes are unused or already moved
+                        final ByteBuffer buffer = ByteBuffer.allocate(recordSize);
+                        readFully(data, buffer, source);
+                        buffer.flip();
+                        writeFully(data, buffer, target);
+                        for (Long t : record.getValue()) {
+                            segment(t, false).putLong(entryPosition(t), target + RECORD_HEADER_SIZE);
+                        }
+                    }
+                    target += recordSize;
+                }
+                forceSegments();
+                final long released = end - target;
+                data.truncate(target);
+                end = target;
+                //shared records have moved
+                shared.clear();
+                return released;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * @return size of data file in bytes
+     */
+    public long getDataSize() {
+        synchronized (data) {
+            return end;
+        }
+    }
+
+    /**
+     * Write pending index changes on disk.
+     *
+     * @throws IOException if index can not be written
+     */
+    public void flush() throws IOException {
+        forceSegments();
+        data.force(false);
+    }
+
+    private void forceSegments() {
+        for (int i = 0, n = segments.length(); i < n; i++) {
+            final MappedByteBuffer segment = segments.get(i);
+            if (segment != null) segment.force();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            try {
+                data.close();
+            } finally {
+                index.close();
+            }
+        }
+    }
+
+    private static byte[] digest(final byte[] bytes) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(bytes);
+        } catch (NoSuchAlgorithmException ex) {
+            //SHA-256 is required on all java platforms
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static void readFully(final FileChannel channel, final ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            final int nb = channel.read(buffer, position);
+            if (nb < 0) throw new EOFException("Unexpected end of tile container file.");
+            position += nb;
+        }
+    }
+
+    private static void writeFully(final FileChannel channel, final ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+}
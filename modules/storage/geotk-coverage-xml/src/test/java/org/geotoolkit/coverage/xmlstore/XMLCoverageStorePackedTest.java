@@ -0,0 +1,54 @@
+/*
+ *    Geotoolkit - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2018, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.coverage.xmlstore;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.sis.parameter.Parameters;
+import org.geotoolkit.coverage.AbstractPyramidalModelStoreTest;
+import org.geotoolkit.nio.IOUtilities;
+import org.geotoolkit.storage.coverage.CoverageStore;
+import org.junit.AfterClass;
+
+/**
+ * Same tests as {@link XMLCoverageStoreTest}, with tiles packed in container files.
+ */
+public class XMLCoverageStorePackedTest extends AbstractPyramidalModelStoreTest {
+
+    private static final List<Path> folders = new ArrayList<>();
+
+    @Override
+    protected CoverageStore createStore() throws Exception {
+        final Path tempFolder = Files.createTempDirectory("mosaic");
+        folders.add(tempFolder);
+        final Parameters params = Parameters.castOrWrap(XMLCoverageStoreFactory.PARAMETERS_DESCRIPTOR.createValue());
+        params.getOrCreate(XMLCoverageStoreFactory.PATH).setValue(tempFolder.toUri());
+        params.getOrCreate(XMLCoverageStoreFactory.PACKED_TILES).setValue(true);
+        return new XMLCoverageStore(params);
+    }
+
+    @AfterClass
+    public static void cleanup() {
+        for (Path f : folders) {
+            IOUtilities.deleteSilently(f);
+        }
+        folders.clear();
+    }
+
+}
@@ -0,0 +1,164 @@
+/*
+ *    Geotoolkit - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2018, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.coverage.xmlstore;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import org.geotoolkit.nio.IOUtilities;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test {@link XMLTileContainer}.
+ */
+public class XMLTileContainerTest extends org.geotoolkit.test.TestBase {
+
+    private Path folder;
+
+    @Before
+    public void createFolder() throws IOException {
+        folder = Files.createTempDirectory("tiles");
+    }
+
+    @After
+    public void deleteFolder() {
+        IOUtilities.deleteSilently(folder);
+    }
+
+    private static byte[] bytes(final int value, final int length) {
+        final byte[] bytes = new byte[length];
+        Arrays.fill(bytes, (byte) value);
+        return bytes;
+    }
+
+    @Test
+    public void readWriteTest() throws IOException {
+        try (XMLTileContainer container = XMLTileContainer.open(folder, 3, 2)) {
+            assertTrue(container.isMissing(0, 0));
+            assertNull(container.read(2, 1));
+            container.write(2, 1, bytes(5, 100));
+            container.write(0, 0, bytes(6, 50));
+            assertFalse(container.isMissing(2, 1));
+            assertTrue(container.isMissing(1, 1));
+        }
+        //reopen
+        try (XMLTileContainer container = XMLTileContainer.open(folder, 3, 2)) {
+            assertArrayEquals(bytes(5, 100), container.read(2, 1));
+            assertArrayEquals(bytes(6, 50), container.read(0, 0));
+            assertNull(container.read(1, 0));
+            container.delete(2, 1);
+            assertTrue(container.isMissing(2, 1));
+        }
+        try {
+            XMLTileContainer.open(folder, 4, 2).close();
+            fail("Grid size does not match index.");
+        } catch (IOException ex) {
+            //ok
+        }
+    }
+
+    /**
+     * Identical shared tiles should be stored once, other tiles are always appended.
+     */
+    @Test
+    public void deduplicateTest() throws IOException {
+        final long oneTile;
+        try (XMLTileContainer container = XMLTileContainer.open(folder, 10, 10)) {
+            final long initial = container.getDataSize();
+            container.writeShared(0, 0, bytes(1, 200));
+            oneTile = container.getDataSize() - initial;
+            for (int i = 1; i < 10; i++) {
+                container.writeShared(i, i, bytes(1, 200));
+            }
+            assertEquals(initial + oneTile, container.getDataSize());
+            container.write(5, 0, bytes(1, 200));
+            assertEquals(initial + 2 * oneTile, container.getDataSize());
+        }
+        try (XMLTileContainer container = XMLTileContainer.open(folder, 10, 10)) {
+            //shared tiles are not remembered between sessions
+            final long size = container.getDataSize();
+            container.writeShared(6, 0, bytes(1, 200));
+            container.writeShared(7, 0, bytes(1, 200));
+            assertEquals(size + oneTile, container.getDataSize());
+            for (int i = 0; i < 10; i++) {
+                assertArrayEquals(bytes(1, 200), container.read(i, i));
+            }
+            assertArrayEquals(bytes(1, 200), container.read(5, 0));
+            assertArrayEquals(bytes(1, 200), container.read(7, 0));
+        }
+    }
+
+    /**
+     * Only the most recently used shared tiles are remembered.
+     */
+    @Test
+    public void sharedLimitTest() throws IOException {
+        final int nb = XMLTileContainer.MAX_SHARED_TILES + 1;
+        try (XMLTileContainer container = XMLTileContainer.open(folder, nb, 2)) {
+            for (int i = 0; i < nb; i++) {
+                container.writeShared(i, 0, bytes(i, 10 + i));
+            }
+            final long size = container.getDataSize();
+            //most recent tile is still shared, first one has been forgotten
+            container.writeShared(nb - 1, 1, bytes(nb - 1, 10 + nb - 1));
+            assertEquals(size, container.getDataSize());
+            container.writeShared(0, 1, bytes(0, 10));
+            assertEquals(size + 36 + 10, container.getDataSize());
+            assertArrayEquals(bytes(0, 10), container.read(0, 0));
+            assertArrayEquals(bytes(0, 10), container.read(0, 1));
+        }
+    }
+
+    /**
+     * Compaction should release replaced and deleted tiles and keep other tiles readable.
+     */
+    @Test
+    public void compactTest() throws IOException {
+        final int large = 20000;
+        try (XMLTileContainer container = XMLTileContainer.open(folder, 4, 4)) {
+            container.write(0, 0, bytes(1, large));
+            container.writeShared(1, 0, bytes(2, 300));
+            container.writeShared(2, 0, bytes(2, 300));
+            container.write(0, 0, bytes(3, 100));
+            container.write(3, 3, bytes(4, 500));
+            container.write(1, 1, bytes(5, large));
+            container.delete(1, 1);
+        }
+        final long released = XMLTileContainer.compact(folder);
+        assertEquals(2 * (large + 36), released);
+
+        try (XMLTileContainer container = XMLTileContainer.open(folder, 4, 4)) {
+            assertArrayEquals(bytes(3, 100), container.read(0, 0));
+            assertArrayEquals(bytes(2, 300), container.read(1, 0));
+            assertArrayEquals(bytes(2, 300), container.read(2, 0));
+            assertArrayEquals(bytes(4, 500), container.read(3, 3));
+            assertTrue(container.isMissing(1, 1));
+            assertEquals(0, container.compact());
+            //deduplication still works after compaction
+            container.writeShared(2, 2, bytes(2, 300));
+            final long size = container.getDataSize();
+            container.writeShared(3, 2, bytes(2, 300));
+            assertEquals(size, container.getDataSize());
+            assertArrayEquals(bytes(2, 300), container.read(3, 2));
+        }
+    }
+}
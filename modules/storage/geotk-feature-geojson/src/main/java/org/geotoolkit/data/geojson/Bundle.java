@@ -67,6 +67,16 @@ public final class Bundle extends IndexedResourceBundle {
          * GeoJSON
          */
         public static final short datastoreTitle = 6;
+
+        /**
+         * Spatial index
+         */
+        public static final short spatial_index = 7;
+
+        /**
+         * Index features position and bounding box in a file next to the GeoJSON file (default true).
+         */
+        public static final short spatial_index_remarks = 8;
     }
 
     /**
@@ -31,11 +31,14 @@ import java.util.logging.Logger;
 import org.apache.sis.feature.builder.AttributeRole;
 import org.apache.sis.feature.builder.AttributeTypeBuilder;
 import org.apache.sis.feature.builder.FeatureTypeBuilder;
+import org.apache.sis.geometry.Envelopes;
+import org.apache.sis.geometry.GeneralEnvelope;
 import org.apache.sis.internal.storage.ResourceOnFileSystem;
 import org.apache.sis.parameter.Parameters;
 import org.apache.sis.storage.DataStoreException;
 import org.apache.sis.storage.Query;
 import org.apache.sis.storage.UnsupportedQueryException;
+import org.apache.sis.util.Utilities;
 import org.apache.sis.util.logging.Logging;
 import org.geotoolkit.data.*;
 import static org.geotoolkit.data.AbstractFileFeatureStoreFactory.PATH;
@@ -49,6 +52,7 @@ import org.geotoolkit.data.geojson.binding.GeoJSONGeometry.GeoJSONMultiPolygon;
 import org.geotoolkit.data.geojson.binding.GeoJSONGeometry.GeoJSONPoint;
 import org.geotoolkit.data.geojson.binding.GeoJSONGeometry.GeoJSONPolygon;
 import org.geotoolkit.data.geojson.utils.FeatureTypeUtils;
+import org.geotoolkit.data.geojson.utils.GeoJSONIndex;
 import org.geotoolkit.data.geojson.utils.GeoJSONParser;
 import org.geotoolkit.data.geojson.utils.GeoJSONUtils;
 import org.geotoolkit.data.query.DefaultQueryCapabilities;
@@ -56,17 +60,34 @@ import org.geotoolkit.data.query.QueryCapabilities;
 import org.geotoolkit.data.query.QueryUtilities;
 import org.geotoolkit.factory.Hints;
 import org.geotoolkit.factory.HintsPending;
+import org.geotoolkit.feature.FeatureExt;
+import org.geotoolkit.geometry.jts.JTS;
+import org.geotoolkit.geometry.jts.JTSEnvelope2D;
 import org.geotoolkit.storage.DataStoreFactory;
 import org.geotoolkit.storage.DataStores;
 import org.geotoolkit.util.NamesExt;
 import org.locationtech.jts.geom.*;
 import org.opengis.feature.Feature;
 import org.opengis.feature.FeatureType;
+import org.opengis.filter.And;
 import org.opengis.filter.Filter;
+import org.opengis.filter.expression.Expression;
+import org.opengis.filter.expression.Literal;
 import org.opengis.filter.identity.FeatureId;
+import org.opengis.filter.spatial.BBOX;
+import org.opengis.filter.spatial.BinarySpatialOperator;
+import org.opengis.filter.spatial.Contains;
+import org.opengis.filter.spatial.Crosses;
+import org.opengis.filter.spatial.Equals;
+import org.opengis.filter.spatial.Intersects;
+import org.opengis.filter.spatial.Overlaps;
+import org.opengis.filter.spatial.Touches;
+import org.opengis.filter.spatial.Within;
 import org.opengis.geometry.Envelope;
 import org.opengis.parameter.ParameterValueGroup;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.referencing.operation.TransformException;
+import org.opengis.util.FactoryException;
 import org.opengis.util.GenericName;
 
 /**
@@ -77,6 +98,12 @@ public class GeoJSONFeatureStore extends AbstractFeatureStore implements Resourc
 
     private static final Logger LOGGER = Logging.getLogger("org.geotoolkit.data.geojson");
     private static final String DESC_FILE_SUFFIX = "_Type.json";
+    private static final String INDEX_FILE_SUFFIX = ".idx";
+
+    /**
+     * Files smaller than this size are read without index.
+     */
+    private static final long INDEX_MIN_SIZE = 1 << 20;
 
     private final ReadWriteLock rwLock = new ReentrantReadWriteLock();
 
@@ -85,8 +112,15 @@ public class GeoJSONFeatureStore extends AbstractFeatureStore implements Resourc
     private FeatureType featureType;
     private Path descFile;
     private Path jsonFile;
+    private Path indexFile;
     private Integer coordAccuracy;
     private boolean isLocal = true;
+    private final boolean useIndex;
+    private GeoJSONIndex index;
+    /**
+     * Modification time of the json file when index creation failed, it is not retried until the file changes.
+     */
+    private long indexFailure = Long.MIN_VALUE;
 
     public GeoJSONFeatureStore(final Path path, Integer coordAccuracy)
             throws DataStoreException {
@@ -101,6 +135,7 @@ public class GeoJSONFeatureStore extends AbstractFeatureStore implements Resourc
     public GeoJSONFeatureStore (final ParameterValueGroup params) throws DataStoreException {
         super(params);
         this.coordAccuracy = (Integer) params.parameter(COORDINATE_ACCURACY.getName().toString()).getValue();
+        this.useIndex = !Boolean.FALSE.equals(Parameters.castOrWrap(params).getValue(SPATIAL_INDEX));
 
         final URI uri = (URI) params.parameter(PATH.getName().toString()).getValue();
 
@@ -124,6 +159,7 @@ public class GeoJSONFeatureStore extends AbstractFeatureStore implements Resourc
             String typeName = GeoJSONUtils.getNameWithoutExt(jsonFile);
             this.descFile = jsonFile.resolveSibling(typeName + DESC_FILE_SUFFIX);
         }
+        this.indexFile = jsonFile.resolveSibling(jsonFile.getFileName().toString() + INDEX_FILE_SUFFIX);
     }
 
     private static ParameterValueGroup toParameter(final URI uri, Integer coordAccuracy){
@@ -332,6 +368,18 @@ public class GeoJSONFeatureStore extends AbstractFeatureStore implements Resourc
         typeCheck(gquery.getTypeName());
 
         if (QueryUtilities.queryAll(gquery)) {
+            final GeoJSONIndex index = getIndex();
+            if (index != null) {
+                final org.locationtech.jts.geom.Envelope bounds = index.getBounds();
+                if (bounds != null) {
+                    final CoordinateReferenceSystem crs = FeatureExt.getCRS(featureType);
+                    final GeneralEnvelope envelope = (crs != null) ? new GeneralEnvelope(crs) : new GeneralEnvelope(2);
+                    envelope.setRange(0, bounds.getMinX(), bounds.getMaxX());
+                    envelope.setRange(1, bounds.getMinY(), bounds.getMaxY());
+                    return envelope;
+                }
+            }
+
             rwLock.readLock().lock();
             try {
                 final GeoJSONObject obj = GeoJSONParser.parse(jsonFile, true);
@@ -362,10 +410,117 @@ public class GeoJSONFeatureStore extends AbstractFeatureStore implements Resourc
         final org.geotoolkit.data.query.Query gquery = (org.geotoolkit.data.query.Query) query;
         typeCheck(gquery.getTypeName());
 
-        final FeatureReader fr = new GeoJSONReader(jsonFile, featureType, rwLock);
+        FeatureReader fr = null;
+        final GeoJSONIndex index = getIndex();
+        if (index != null) {
+            try {
+                fr = new GeoJSONIndexReader(jsonFile, featureType, rwLock, index, searchIndex(index, gquery.getFilter()));
+            } catch (IOException ex) {
+                LOGGER.log(Level.WARNING, ex.getMessage(), ex);
+            }
+        }
+        if (fr == null) {
+            fr = new GeoJSONReader(jsonFile, featureType, rwLock);
+        }
+        //-- index only selects candidates, filter is still evaluated
         return FeatureStreams.subset(fr, gquery);
     }
 
+    /**
+     * Get the index of the json file, it is created or rebuilt if the file changed.
+     *
+     * @return index or null if the store does not use an index for this file
+     */
+    private synchronized GeoJSONIndex getIndex() {
+        if (!useIndex || !isLocal) return null;
+        try {
+            if (!Files.isRegularFile(jsonFile) || Files.size(jsonFile) < INDEX_MIN_SIZE) {
+                return null;
+            }
+            if (index == null || !index.isValid(jsonFile)) {
+                index = null;
+                final long modified = Files.getLastModifiedTime(jsonFile).toMillis();
+                if (modified == indexFailure) return null;
+                rwLock.readLock().lock();
+                try {
+                    index = GeoJSONIndex.open(jsonFile, indexFile);
+                } catch (IOException ex) {
+                    indexFailure = modified;
+                    throw ex;
+                } finally {
+                    rwLock.readLock().unlock();
+                }
+            }
+        } catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "Can not use index of " + jsonFile, ex);
+            return null;
+        }
+        return index.isFeatureCollection() ? index : null;
+    }
+
+    /**
+     * Search the features which may match given filter.
+     *
+     * @return ordinals of candidate features in file order, null for all features
+     */
+    private int[] searchIndex(final GeoJSONIndex index, final Filter filter) {
+        final org.locationtech.jts.geom.Envelope bounds;
+        try {
+            bounds = searchBounds(filter, FeatureExt.getCRS(featureType));
+        } catch (FactoryException | TransformException ex) {
+            LOGGER.log(Level.FINE, ex.getMessage(), ex);
+            return null;
+        }
+        return (bounds == null) ? null : index.query(bounds);
+    }
+
+    /**
+     * Get the area where features must intersect to match given filter.
+     * Only spatial operators implying an intersection with a literal are used.
+     *
+     * @param filter query filter
+     * @param dataCrs coordinate reference system of the json file
+     * @return area in file coordinate reference system, null if filter does not restrict the area
+     */
+    private static org.locationtech.jts.geom.Envelope searchBounds(final Filter filter,
+            final CoordinateReferenceSystem dataCrs) throws FactoryException, TransformException {
+        if (filter == Filter.EXCLUDE) {
+            return new org.locationtech.jts.geom.Envelope();
+        } else if (filter instanceof And) {
+            org.locationtech.jts.geom.Envelope result = null;
+            for (Filter child : ((And) filter).getChildren()) {
+                final org.locationtech.jts.geom.Envelope bounds = searchBounds(child, dataCrs);
+                if (bounds != null) {
+                    result = (result == null) ? bounds : result.intersection(bounds);
+                }
+            }
+            return result;
+        } else if (filter instanceof BBOX || filter instanceof Intersects || filter instanceof Contains
+                || filter instanceof Within || filter instanceof Overlaps || filter instanceof Touches
+                || filter instanceof Crosses || filter instanceof Equals) {
+            final BinarySpatialOperator op = (BinarySpatialOperator) filter;
+            final Expression exp = (op.getExpression2() instanceof Literal) ? op.getExpression2() : op.getExpression1();
+            if (!(exp instanceof Literal)) return null;
+            final Object value = ((Literal) exp).getValue();
+            Envelope env;
+            if (value instanceof Envelope) {
+                env = (Envelope) value;
+            } else if (value instanceof Geometry) {
+                final Geometry geom = (Geometry) value;
+                env = new JTSEnvelope2D(geom.getEnvelopeInternal(), JTS.findCoordinateReferenceSystem(geom));
+            } else {
+                return null;
+            }
+            final CoordinateReferenceSystem crs = env.getCoordinateReferenceSystem();
+            if (dataCrs != null && crs != null && !Utilities.equalsIgnoreMetadata(dataCrs, crs)) {
+                env = Envelopes.transform(env, dataCrs);
+            }
+            return new org.locationtech.jts.geom.Envelope(
+                    env.getMinimum(0), env.getMaximum(0), env.getMinimum(1), env.getMaximum(1));
+        }
+        return null;
+    }
+
     /**
      * {@inheritDoc }
      */
@@ -458,6 +613,7 @@ public class GeoJSONFeatureStore extends AbstractFeatureStore implements Resourc
         rwLock.writeLock().lock();
         try {
             Files.deleteIfExists(descFile);
+            Files.deleteIfExists(indexFile);
             Files.deleteIfExists(jsonFile);
             Files.createFile(jsonFile);
         } catch (IOException e) {
@@ -515,6 +671,9 @@ public class GeoJSONFeatureStore extends AbstractFeatureStore implements Resourc
         if (Files.exists(descFile)) {
             files.add(descFile);
         }
+        if (Files.exists(indexFile)) {
+            files.add(indexFile);
+        }
         return files.toArray(new Path[files.size()]);
     }
 }
@@ -0,0 +1,200 @@
+/*
+ *    Geotoolkit - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2018, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.data.geojson;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReadWriteLock;
+import org.geotoolkit.data.FeatureStoreRuntimeException;
+import org.geotoolkit.data.geojson.binding.GeoJSONFeature;
+import org.geotoolkit.data.geojson.binding.GeoJSONObject;
+import org.geotoolkit.data.geojson.utils.GeoJSONIndex;
+import org.geotoolkit.data.geojson.utils.GeoJSONParser;
+import org.opengis.feature.Feature;
+import org.opengis.feature.FeatureType;
+
+/**
+ * Reader of the features of an indexed GeoJSON FeatureCollection.<br>
+ * Features are read at their indexed position in the file, by chunks parsed
+ * concurrently in the common fork join pool. Features are returned in file order.
+ *
+ * @module
+ */
+final class GeoJSONIndexReader extends GeoJSONReader {
+
+    /**
+     * Number of features parsed by a single task.
+     */
+    private static final int CHUNK_SIZE = 256;
+
+    /**
+     * Maximum number of unused bytes between two features read at once.
+     */
+    private static final int MAX_GAP = 4096;
+
+    private final GeoJSONIndex index;
+    /**
+     * Ordinals of the features to read in ascending order, null for all features.
+     */
+    private final int[] ordinals;
+    private final int count;
+    private final int maxPending;
+    private final FileChannel channel;
+    private final Deque<Future<GeoJSONFeature[]>> pending = new ArrayDeque<>();
+    private int nextChunk = 0;
+    private GeoJSONFeature[] chunk;
+    private int chunkStart;
+    private int chunkPosition;
+
+    /**
+     * @param index index of the GeoJSON file
+     * @param ordinals ordinals of the features to read in ascending order, null for all features.
+     */
+    GeoJSONIndexReader(Path jsonFile, FeatureType featureType, ReadWriteLock rwLock,
+            GeoJSONIndex index, int[] ordinals) throws IOException {
+        super(jsonFile, featureType, rwLock);
+        this.index = index;
+        this.ordinals = ordinals;
+        this.count = (ordinals != null) ? ordinals.length : index.getFeatureCount();
+        this.maxPending = Math.max(2, ForkJoinPool.getCommonPoolParallelism() + 1);
+        this.channel = FileChannel.open(jsonFile, StandardOpenOption.READ);
+    }
+
+    private int ordinal(final int i) {
+        return (ordinals != null) ? ordinals[i] : i;
+    }
+
+    @Override
+    public boolean hasNext() throws FeatureStoreRuntimeException {
+        read();
+        return current != null;
+    }
+
+    @Override
+    public Feature next() throws FeatureStoreRuntimeException {
+        read();
+        final Feature ob = current;
+        current = null;
+        if (ob == null) {
+            throw new FeatureStoreRuntimeException("No more records.");
+        }
+        return ob;
+    }
+
+    private void read() throws FeatureStoreRuntimeException {
+        while (current == null) {
+            if (chunk == null || chunkPosition == chunk.length) {
+                //-- keep a few chunks ahead of the consumer
+                while (pending.size() < maxPending && nextChunk < count) {
+                    final int start = nextChunk;
+                    final int end = Math.min(start + CHUNK_SIZE, count);
+                    pending.add(ForkJoinPool.commonPool().submit(() -> parse(start, end)));
+                    nextChunk = end;
+                }
+                if (pending.isEmpty()) return;
+                chunkStart = (chunk == null) ? 0 : chunkStart + CHUNK_SIZE;
+                try {
+                    chunk = pending.poll().get();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new FeatureStoreRuntimeException(ex);
+                } catch (ExecutionException ex) {
+                    throw new FeatureStoreRuntimeException(ex.getCause());
+                }
+                chunkPosition = 0;
+            }
+            final GeoJSONFeature feature = chunk[chunkPosition];
+            currentFeatureIdx = ordinal(chunkStart + chunkPosition);
+            chunkPosition++;
+            if (feature != null) {
+                current = toFeature(feature);
+            }
+        }
+    }
+
+    /**
+     * Read and parse features from position start (inclusive) to end (exclusive).
+     * Close features are read in a single file access.
+     */
+    private GeoJSONFeature[] parse(final int start, final int end) throws IOException {
+        final GeoJSONFeature[] features = new GeoJSONFeature[end - start];
+        rwlock.readLock().lock();
+        try {
+            int i = start;
+            while (i < end) {
+                final long offset = index.getOffset(ordinal(i));
+                long limit = offset + index.getLength(ordinal(i));
+                int j = i + 1;
+                while (j < end) {
+                    final long next = index.getOffset(ordinal(j));
+                    if (next - limit > MAX_GAP) break;
+                    limit = next + index.getLength(ordinal(j));
+                    j++;
+                }
+                final byte[] bytes = new byte[Math.toIntExact(limit - offset)];
+                final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, offset + buffer.position()) < 0) {
+                        throw new EOFException("Unexpected end of file " + jsonFile + ", index may be outdated.");
+                    }
+                }
+                for (; i < j; i++) {
+                    final int position = (int) (index.getOffset(ordinal(i)) - offset);
+                    try (JsonParser p = GeoJSONParser.FACTORY.createParser(bytes, position, index.getLength(ordinal(i)))) {
+                        if (p.nextToken() != JsonToken.START_OBJECT) {
+                            throw new IOException("Invalid feature position in " + jsonFile + ", index may be outdated.");
+                        }
+                        final GeoJSONObject obj = GeoJSONParser.parseGeoJSONObject(p);
+                        if (obj instanceof GeoJSONFeature) {
+                            features[i - start] = (GeoJSONFeature) obj;
+                        }
+                    }
+                }
+            }
+        } finally {
+            rwlock.readLock().unlock();
+        }
+        return features;
+    }
+
+    @Override
+    public void close() {
+        //-- running tasks end on closed channel, their result is ignored
+        for (Future<GeoJSONFeature[]> future : pending) {
+            future.cancel(false);
+        }
+        pending.clear();
+        try {
+            channel.close();
+        } catch (IOException ex) {
+            throw new FeatureStoreRuntimeException(ex);
+        } finally {
+            super.close();
+        }
+    }
+}
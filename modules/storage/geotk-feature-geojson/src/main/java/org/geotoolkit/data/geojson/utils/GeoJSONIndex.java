@@ -0,0 +1,444 @@
+/*
+ *    Geotoolkit - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2018, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.data.geojson.utils;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.logging.Level;
+import org.geotoolkit.data.geojson.binding.GeoJSONFeature;
+import org.geotoolkit.data.geojson.binding.GeoJSONGeometry;
+import org.geotoolkit.data.geojson.binding.GeoJSONGeometry.GeoJSONGeometryCollection;
+import org.geotoolkit.data.geojson.binding.GeoJSONGeometry.GeoJSONLineString;
+import org.geotoolkit.data.geojson.binding.GeoJSONGeometry.GeoJSONMultiLineString;
+import org.geotoolkit.data.geojson.binding.GeoJSONGeometry.GeoJSONMultiPoint;
+import org.geotoolkit.data.geojson.binding.GeoJSONGeometry.GeoJSONMultiPolygon;
+import org.geotoolkit.data.geojson.binding.GeoJSONGeometry.GeoJSONPoint;
+import org.geotoolkit.data.geojson.binding.GeoJSONGeometry.GeoJSONPolygon;
+import org.geotoolkit.data.geojson.binding.GeoJSONObject;
+import org.locationtech.jts.geom.Envelope;
+import static org.geotoolkit.data.geojson.utils.GeoJSONMembres.*;
+import static org.geotoolkit.data.geojson.utils.GeoJSONTypes.*;
+
+/**
+ * Index of the features of a GeoJSON FeatureCollection file, stored in a file next to it.<br>
+ * For each feature in file order, the index records the byte offset and length of the feature
+ * object in the file. Feature bounding boxes are packed in a R-tree (Sort-Tile-Recursive bulk
+ * loading), features without geometry are not part of the tree.
+ * <p>
+ * The index remembers the modification time and size of the indexed file, {@link #open(Path, Path) }
+ * rebuilds it when they changed.
+ * </p>
+ * Index file layout, big endian :
+ * <ul>
+ *   <li>header : magic, version, flags, file modification time, file size, feature count, leaf count</li>
+ *   <li>features : offset (long) and length (int) of each feature</li>
+ *   <li>leaves : minX, minY, maxX, maxY (doubles) and ordinal (int) of each feature with a geometry</li>
+ *   <li>nodes : minX, minY, maxX, maxY (doubles) of each node, level by level up to the root</li>
+ * </ul>
+ *
+ * @module
+ */
+public final class GeoJSONIndex {
+
+    private static final int MAGIC = 0x474A4958; // GJIX
+    private static final int VERSION = 1;
+    private static final int FLAG_COLLECTION = 1;
+    private static final int HEADER_SIZE = 4 + 4 + 4 + 8 + 8 + 4 + 4;
+    private static final int FEATURE_SIZE = 8 + 4;
+    private static final int LEAF_SIZE = 4 * 8 + 4;
+    private static final int NODE_SIZE = 4 * 8;
+
+    /**
+     * Maximum number of children of a tree node.
+     */
+    static final int NODE_CAPACITY = 16;
+
+    private final MappedByteBuffer buffer;
+    private final boolean collection;
+    private final long modified;
+    private final long size;
+    private final int featureCount;
+    private final int leafCount;
+    /**
+     * Number of elements and buffer position of each tree level, leaves first.
+     */
+    private final int[] levelCounts;
+    private final int[] levelPositions;
+
+    private GeoJSONIndex(final MappedByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Invalid GeoJSON index file.");
+        }
+        collection   = (buffer.getInt(8) & FLAG_COLLECTION) != 0;
+        modified     = buffer.getLong(12);
+        size         = buffer.getLong(20);
+        featureCount = buffer.getInt(28);
+        leafCount    = buffer.getInt(32);
+
+        int levels = 1;
+        for (int n = leafCount; n > 1; n = ceilDiv(n, NODE_CAPACITY)) levels++;
+        levelCounts = new int[levels];
+        levelPositions = new int[levels];
+        long position = HEADER_SIZE + (long) featureCount * FEATURE_SIZE;
+        int n = leafCount;
+        for (int i = 0; i < levels; i++) {
+            levelCounts[i] = n;
+            levelPositions[i] = (int) position;
+            position += (long) n * (i == 0 ? LEAF_SIZE : NODE_SIZE);
+            n = ceilDiv(n, NODE_CAPACITY);
+        }
+        if (position > buffer.capacity()) {
+            throw new IOException("Truncated GeoJSON index file.");
+        }
+    }
+
+    /**
+     * Open the index of a GeoJSON file, the index is created or rebuilt if it does not
+     * match the current modification time and size of the GeoJSON file.
+     *
+     * @param jsonFile indexed GeoJSON file
+     * @param indexFile index file
+     * @return index, never null
+     * @throws IOException if GeoJSON file can not be parsed or index file can not be written
+     */
+    public static GeoJSONIndex open(final Path jsonFile, final Path indexFile) throws IOException {
+        if (Files.isRegularFile(indexFile)) {
+            try {
+                final GeoJSONIndex index = map(indexFile);
+                if (index.isValid(jsonFile)) {
+                    return index;
+                }
+            } catch (IOException ex) {
+                //corrupted index file, rebuild it
+                GeoJSONParser.LOGGER.log(Level.FINE, ex.getMessage(), ex);
+            }
+        }
+        build(jsonFile, indexFile);
+        return map(indexFile);
+    }
+
+    private static GeoJSONIndex map(final Path indexFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.BIG_ENDIAN);
+            return new GeoJSONIndex(buffer);
+        }
+    }
+
+    /**
+     * @param jsonFile indexed GeoJSON file
+     * @return true if the file did not change since index creation
+     * @throws IOException if file attributes can not be read
+     */
+    public boolean isValid(final Path jsonFile) throws IOException {
+        return Files.getLastModifiedTime(jsonFile).toMillis() == modified
+            && Files.size(jsonFile) == size;
+    }
+
+    /**
+     * @return true if the indexed file root object is a FeatureCollection, otherwise
+     *         the index is empty.
+     */
+    public boolean isFeatureCollection() {
+        return collection;
+    }
+
+    /**
+     * @return number of features in the file.
+     */
+    public int getFeatureCount() {
+        return featureCount;
+    }
+
+    /**
+     * @param ordinal feature index in file order
+     * @return byte offset of the feature object in the file
+     */
+    public long getOffset(final int ordinal) {
+        return buffer.getLong(HEADER_SIZE + ordinal * FEATURE_SIZE);
+    }
+
+    /**
+     * @param ordinal feature index in file order
+     * @return length in bytes of the feature object in the file
+     */
+    public int getLength(final int ordinal) {
+        return buffer.getInt(HEADER_SIZE + ordinal * FEATURE_SIZE + 8);
+    }
+
+    /**
+     * @return bounding box of all feature geometries, null if there is no geometry.
+     */
+    public Envelope getBounds() {
+        if (leafCount == 0) return null;
+        final int top = levelCounts.length - 1;
+        final int p = levelPositions[top];
+        return new Envelope(buffer.getDouble(p), buffer.getDouble(p + 16),
+                            buffer.getDouble(p + 8), buffer.getDouble(p + 24));
+    }
+
+    /**
+     * Search features whose bounding box intersects given envelope.
+     *
+     * @param bbox searched area, in the file coordinate system
+     * @return ordinals of features, in file order
+     */
+    public int[] query(final Envelope bbox) {
+        if (leafCount == 0 || bbox.isNull()) return new int[0];
+        final Search search = new Search(bbox);
+        search.visit(levelCounts.length - 1, 0);
+        final int[] ordinals = Arrays.copyOf(search.ordinals, search.count);
+        Arrays.sort(ordinals);
+        return ordinals;
+    }
+
+    /**
+     * Recursive tree traversal state.
+     */
+    private final class Search {
+        private final double minX, minY, maxX, maxY;
+        private int[] ordinals = new int[64];
+        private int count;
+
+        Search(final Envelope bbox) {
+            minX = bbox.getMinX();
+            minY = bbox.getMinY();
+            maxX = bbox.getMaxX();
+            maxY = bbox.getMaxY();
+        }
+
+        private boolean intersects(final int p) {
+            return buffer.getDouble(p)      <= maxX && buffer.getDouble(p + 16) >= minX
+                && buffer.getDouble(p + 8)  <= maxY && buffer.getDouble(p + 24) >= minY;
+        }
+
+        void visit(final int level, final int index) {
+            if (level == 0) {
+                final int p = levelPositions[0] + index * LEAF_SIZE;
+                if (intersects(p)) {
+                    if (count == ordinals.length) {
+                        ordinals = Arrays.copyOf(ordinals, count * 2);
+                    }
+                    ordinals[count++] = buffer.getInt(p + 4 * 8);
+                }
+            } else if (intersects(levelPositions[level] + index * NODE_SIZE)) {
+                final int end = Math.min((index + 1) * NODE_CAPACITY, levelCounts[level - 1]);
+                for (int i = index * NODE_CAPACITY; i < end; i++) {
+                    visit(level - 1, i);
+                }
+            }
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Index creation //////////////////////////////////////////////////////////
+    ////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Parse the GeoJSON file and write its index. Index is written in a temporary file
+     * then moved, concurrent readers never see a partial index.
+     */
+    private static void build(final Path jsonFile, final Path indexFile) throws IOException {
+        final long modified = Files.getLastModifiedTime(jsonFile).toMillis();
+        final long size = Files.size(jsonFile);
+
+        long[] offsets = new long[1024];
+        int[] lengths = new int[1024];
+        double[] bboxes = new double[4096];
+        int count = 0;
+        boolean collection = false;
+
+        try (InputStream in = Files.newInputStream(jsonFile);
+             JsonParser p = GeoJSONParser.FACTORY.createParser(in)) {
+            if (p.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Input File is not a JSON file " + jsonFile);
+            }
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                final String fieldName = p.getCurrentName();
+                final JsonToken token = p.nextToken();
+                if (TYPE.equals(fieldName)) {
+                    collection = FEATURE_COLLECTION.equals(p.getValueAsString());
+                } else if (FEATURES.equals(fieldName) && token == JsonToken.START_ARRAY) {
+                    while (p.nextToken() == JsonToken.START_OBJECT) {
+                        final long start = p.getTokenLocation().getByteOffset();
+                        final GeoJSONObject obj = GeoJSONParser.parseGeoJSONObject(p);
+                        final long end = p.getCurrentLocation().getByteOffset();
+                        if (start < 0 || end < 0) {
+                            throw new IOException("Byte offsets are not available for " + jsonFile);
+                        }
+                        if (count == offsets.length) {
+                            offsets = Arrays.copyOf(offsets, count * 2);
+                            lengths = Arrays.copyOf(lengths, count * 2);
+                            bboxes = Arrays.copyOf(bboxes, count * 8);
+                        }
+                        offsets[count] = start;
+                        lengths[count] = Math.toIntExact(end - start);
+                        final double[] bbox = {Double.NaN, Double.NaN, Double.NaN, Double.NaN};
+                        if (obj instanceof GeoJSONFeature) {
+                            expand(bbox, ((GeoJSONFeature) obj).getGeometry());
+                        }
+                        System.arraycopy(bbox, 0, bboxes, count * 4, 4);
+                        count++;
+                    }
+                } else {
+                    p.skipChildren();
+                }
+            }
+        }
+        if (!collection) count = 0;
+
+        //-- features with a geometry, sorted with Sort-Tile-Recursive algorithm
+        final double[] boxes = bboxes;
+        int leafCount = 0;
+        Integer[] leaves = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            if (!Double.isNaN(boxes[i * 4])) leaves[leafCount++] = i;
+        }
+        leaves = Arrays.copyOf(leaves, leafCount);
+        final Comparator<Integer> byX = (a, b) -> Double.compare(boxes[a*4] + boxes[a*4+2], boxes[b*4] + boxes[b*4+2]);
+        final Comparator<Integer> byY = (a, b) -> Double.compare(boxes[a*4+1] + boxes[a*4+3], boxes[b*4+1] + boxes[b*4+3]);
+        Arrays.sort(leaves, byX);
+        final int nbSlices = (int) Math.ceil(Math.sqrt(ceilDiv(leafCount, NODE_CAPACITY)));
+        final int sliceSize = Math.max(1, nbSlices * NODE_CAPACITY);
+        for (int i = 0; i < leafCount; i += sliceSize) {
+            Arrays.sort(leaves, i, Math.min(i + sliceSize, leafCount), byY);
+        }
+
+        final Path tmp = Files.createTempFile(indexFile.toAbsolutePath().getParent(), indexFile.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(collection ? FLAG_COLLECTION : 0);
+                out.writeLong(modified);
+                out.writeLong(size);
+                out.writeInt(count);
+                out.writeInt(leafCount);
+                for (int i = 0; i < count; i++) {
+                    out.writeLong(offsets[i]);
+                    out.writeInt(lengths[i]);
+                }
+                double[] level = new double[leafCount * 4];
+                for (int i = 0; i < leafCount; i++) {
+                    final int ordinal = leaves[i];
+                    for (int k = 0; k < 4; k++) {
+                        level[i*4+k] = boxes[ordinal*4+k];
+                        out.writeDouble(level[i*4+k]);
+                    }
+                    out.writeInt(ordinal);
+                }
+                //-- upper levels, until the root
+                for (int n = leafCount; n > 1;) {
+                    final int parents = ceilDiv(n, NODE_CAPACITY);
+                    final double[] upper = new double[parents * 4];
+                    for (int i = 0; i < parents; i++) {
+                        final double[] bbox = {Double.NaN, Double.NaN, Double.NaN, Double.NaN};
+                        final int end = Math.min((i + 1) * NODE_CAPACITY, n);
+                        for (int c = i * NODE_CAPACITY; c < end; c++) {
+                            add(bbox, level[c*4],   level[c*4+1]);
+                            add(bbox, level[c*4+2], level[c*4+3]);
+                        }
+                        for (int k = 0; k < 4; k++) {
+                            upper[i*4+k] = bbox[k];
+                            out.writeDouble(bbox[k]);
+                        }
+                    }
+                    level = upper;
+                    n = parents;
+                }
+            }
+            Files.move(tmp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private static int ceilDiv(final int a, final int b) {
+        return (a + b - 1) / b;
+    }
+
+    /**
+     * Expand bounding box (minX, minY, maxX, maxY) with a point.
+     */
+    private static void add(final double[] bbox, final double x, final double y) {
+        if (Double.isNaN(bbox[0])) {
+            bbox[0] = bbox[2] = x;
+            bbox[1] = bbox[3] = y;
+        } else {
+            if (x < bbox[0]) bbox[0] = x;
+            if (x > bbox[2]) bbox[2] = x;
+            if (y < bbox[1]) bbox[1] = y;
+            if (y > bbox[3]) bbox[3] = y;
+        }
+    }
+
+    private static void add(final double[] bbox, final double[][] coordinates) {
+        if (coordinates == null) return;
+        for (double[] coordinate : coordinates) {
+            if (coordinate != null && coordinate.length >= 2) add(bbox, coordinate[0], coordinate[1]);
+        }
+    }
+
+    /**
+     * Expand bounding box with all coordinates of a geometry.
+     */
+    private static void expand(final double[] bbox, final GeoJSONGeometry geometry) {
+        if (geometry instanceof GeoJSONPoint) {
+            add(bbox, new double[][]{((GeoJSONPoint) geometry).getCoordinates()});
+        } else if (geometry instanceof GeoJSONMultiPoint) {
+            add(bbox, ((GeoJSONMultiPoint) geometry).getCoordinates());
+        } else if (geometry instanceof GeoJSONLineString) {
+            add(bbox, ((GeoJSONLineString) geometry).getCoordinates());
+        } else if (geometry instanceof GeoJSONMultiLineString) {
+            final double[][][] lines = ((GeoJSONMultiLineString) geometry).getCoordinates();
+            if (lines != null) {
+                for (double[][] line : lines) add(bbox, line);
+            }
+        } else if (geometry instanceof GeoJSONPolygon) {
+            //-- exterior ring is enough
+            final double[][][] rings = ((GeoJSONPolygon) geometry).getCoordinates();
+            if (rings != null && rings.length > 0) add(bbox, rings[0]);
+        } else if (geometry instanceof GeoJSONMultiPolygon) {
+            final double[][][][] polygons = ((GeoJSONMultiPolygon) geometry).getCoordinates();
+            if (polygons != null) {
+                for (double[][][] rings : polygons) {
+                    if (rings != null && rings.length > 0) add(bbox, rings[0]);
+                }
+            }
+        } else if (geometry instanceof GeoJSONGeometryCollection) {
+            final List<GeoJSONGeometry> geometries = ((GeoJSONGeometryCollection) geometry).getGeometries();
+            if (geometries != null) {
+                for (GeoJSONGeometry geom : geometries) expand(bbox, geom);
+            }
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ *    Geotoolkit - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2018, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.data.geojson;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import org.geotoolkit.data.FeatureReader;
+import org.geotoolkit.data.query.QueryBuilder;
+import org.geotoolkit.factory.FactoryFinder;
+import org.junit.Test;
+import org.opengis.feature.Feature;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory2;
+import org.opengis.geometry.Envelope;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test GeoJSON store queries using the feature index.
+ *
+ * @module
+ */
+public class GeoJSONIndexTest extends org.geotoolkit.test.TestBase {
+
+    private static final FilterFactory2 FF = (FilterFactory2) FactoryFinder.getFilterFactory(null);
+
+    private static double x(final int i, final double shift) {
+        return i % 360 - 179.5 + shift;
+    }
+
+    private static double y(final int i) {
+        return i / 360 - 89.5;
+    }
+
+    /**
+     * Write a FeatureCollection of points large enough to be indexed.
+     */
+    private static void write(final Path file, final int nb, final double shift) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("{\"type\":\"FeatureCollection\",\n\"features\":[\n");
+            for (int i = 0; i < nb; i++) {
+                if (i > 0) writer.write(",\n");
+                writer.write("{\"type\":\"Feature\",\"geometry\":{\"type\":\"Point\",\"coordinates\":["
+                        + x(i, shift) + "," + y(i) + "]},\"properties\":{\"num\":" + i
+                        + ",\"label\":\"point n\u00b0" + i + "\"}}");
+            }
+            writer.write("]}\n");
+        }
+    }
+
+    private static List<Integer> read(final GeoJSONFeatureStore store, final Filter filter) throws Exception {
+        final String name = store.getNames().iterator().next().toString();
+        final List<Integer> nums = new ArrayList<>();
+        try (FeatureReader reader = store.getFeatureReader(QueryBuilder.filtered(name, filter))) {
+            while (reader.hasNext()) {
+                final Feature feature = reader.next();
+                nums.add(((Number) feature.getPropertyValue("num")).intValue());
+            }
+        }
+        return nums;
+    }
+
+    private static List<Integer> expected(final int nb, final double shift, final double minX,
+            final double minY, final double maxX, final double maxY) {
+        final List<Integer> nums = new ArrayList<>();
+        for (int i = 0; i < nb; i++) {
+            final double x = x(i, shift);
+            final double y = y(i);
+            if (x >= minX && x <= maxX && y >= minY && y <= maxY) nums.add(i);
+        }
+        return nums;
+    }
+
+    @Test
+    public void indexedQueryTest() throws Exception {
+        final Path dir = Files.createTempDirectory("geojsonIndex");
+        final Path file = dir.resolve("points.json");
+        final Path indexFile = dir.resolve("points.json.idx");
+        write(file, 15000, 0);
+        assertTrue(Files.size(file) > 1 << 20);
+
+        final GeoJSONFeatureStore store = new GeoJSONFeatureStore(file, 7);
+
+        //full scan, in file order
+        final List<Integer> all = read(store, Filter.INCLUDE);
+        assertEquals(15000, all.size());
+        for (int i = 0; i < all.size(); i++) {
+            assertEquals(i, all.get(i).intValue());
+        }
+        assertTrue(Files.isRegularFile(indexFile));
+
+        final Envelope env = store.getEnvelope(QueryBuilder.all(store.getNames().iterator().next()));
+        assertEquals(-179.5, env.getMinimum(0), 0.0);
+        assertEquals( 179.5, env.getMaximum(0), 0.0);
+        assertEquals( -89.5, env.getMinimum(1), 0.0);
+        assertEquals( -48.5, env.getMaximum(1), 0.0);
+
+        Filter filter = FF.bbox(FF.property("geometry"), 10, -80, 30, -70, "CRS:84");
+        assertEquals(expected(15000, 0, 10, -80, 30, -70), read(store, filter));
+
+        //combined with an attribute filter
+        filter = FF.and(filter, FF.less(FF.property("num"), FF.literal(5000)));
+        final List<Integer> expected = expected(15000, 0, 10, -80, 30, -70);
+        expected.removeIf((Integer i) -> i >= 5000);
+        assertEquals(expected, read(store, filter));
+
+        assertTrue(read(store, Filter.EXCLUDE).isEmpty());
+
+        //index must be rebuilt when file changes
+        write(file, 14000, 0.25);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 5000));
+        filter = FF.bbox(FF.property("geometry"), 10, -80, 30, -70, "CRS:84");
+        assertEquals(expected(14000, 0.25, 10, -80, 30, -70), read(store, filter));
+        assertEquals(14000, read(store, Filter.INCLUDE).size());
+
+        Files.deleteIfExists(indexFile);
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(dir);
+    }
+}
@@ -48,7 +48,7 @@ public class MySQLFeatureStoreFactory extends AbstractJDBCFeatureStoreFactory {
     public static final ParameterDescriptorGroup PARAMETERS_DESCRIPTOR =
             new ParameterBuilder().addName(NAME).addName("MySQLParameters").createGroup(
                 IDENTIFIER,HOST,PORT,DATABASE,TABLE,USER,PASSWORD,
-                DATASOURCE,MAXCONN,MINCONN,VALIDATECONN,FETCHSIZE,MAXWAIT,SIMPLETYPE);
+                DATASOURCE,MAXCONN,MINCONN,VALIDATECONN,FETCHSIZE,BATCHSIZE,MAXWAIT,SIMPLETYPE);
 
     @Override
     protected SQLDialect createSQLDialect(final JDBCFeatureStore featureStore) {
@@ -0,0 +1,329 @@
+/*
+ *    Geotoolkit - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2018, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.db.postgres;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.sis.storage.DataStoreException;
+import org.apache.sis.util.ObjectConverters;
+import org.apache.sis.util.UnconvertibleObjectException;
+import org.geotoolkit.db.JDBCFeatureStoreUtilities;
+import org.geotoolkit.db.dialect.SQLQueryBuilder;
+import org.geotoolkit.db.reverse.ColumnMetaModel;
+import org.geotoolkit.db.reverse.PrimaryKey;
+import org.locationtech.jts.geom.Geometry;
+import org.opengis.feature.Feature;
+import org.opengis.feature.FeatureType;
+import org.opengis.feature.PropertyType;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+
+/**
+ * Insert features using PostgreSQL {@code COPY ... FROM STDIN (FORMAT binary)}.
+ *
+ * Rows are streamed in the PostgreSQL binary copy format, geometries are
+ * encoded in EWKB. This avoids the SQL parsing and the per row round trip
+ * of INSERT statements. Only a limited set of column types can be encoded,
+ * tables with other column types must be inserted with the default batched
+ * statements.
+ *
+ * @module
+ */
+final class PostgresCopyInsert {
+
+    private static final byte[] SIGNATURE = {'P','G','C','O','P','Y','\n',(byte)0xFF,'\r','\n',0};
+
+    /**
+     * Column types which can be encoded in binary format.
+     */
+    private static final Set<String> SUPPORTED_TYPES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "bool","int2","int4","int8","float4","float8","text","varchar","bpchar","name",
+            "bytea","uuid","date","timestamp","timestamptz","geometry")));
+
+    /**
+     * PostgreSQL dates and timestamps are relative to 2000-01-01.
+     */
+    private static final LocalDateTime PG_EPOCH_LOCAL = LocalDateTime.of(2000, 1, 1, 0, 0);
+    private static final Instant PG_EPOCH = Instant.parse("2000-01-01T00:00:00Z");
+    private static final long PG_EPOCH_DAY = LocalDate.of(2000, 1, 1).toEpochDay();
+
+    private static final int BUFFER_SIZE = 65536;
+
+    private final PostgresFeatureStore store;
+
+    /**
+     * Cache of column types for each table, cleared when the store schema changes.
+     */
+    private final Map<String,Map<String,String>> columnTypes = new ConcurrentHashMap<>();
+
+    PostgresCopyInsert(final PostgresFeatureStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Forget cached column types, must be called after tables are created, modified or deleted.
+     */
+    void clearCache() {
+        columnTypes.clear();
+    }
+
+    /**
+     * Insert given features.
+     *
+     * @param features flat features to insert
+     * @param featureType table feature type
+     * @param cx database connection
+     * @return false if features can not be inserted with a binary copy, nothing has been written in this case
+     */
+    boolean insert(final Collection<? extends Feature> features, final FeatureType featureType,
+            final Connection cx) throws SQLException, IOException, DataStoreException {
+        if (features.isEmpty()) return true;
+        if (!cx.isWrapperFor(PGConnection.class)) return false;
+
+        final String tableName = featureType.getName().tip().toString();
+        final SQLQueryBuilder builder = store.getQueryBuilder();
+        final List<PropertyType> columns = builder.getInsertColumns(featureType);
+        final Map<String,String> types = getColumnTypes(tableName, cx);
+        final String[] pgTypes = new String[columns.size()];
+        for (int i = 0; i < pgTypes.length; i++) {
+            pgTypes[i] = types.get(columns.get(i).getName().tip().toString());
+            if (pgTypes[i] == null || !SUPPORTED_TYPES.contains(pgTypes[i])) return false;
+        }
+
+        //copy can not compute missing primary key values
+        final PrimaryKey key = store.getDatabaseModel().getPrimaryKey(featureType.getName().toString());
+        for (ColumnMetaModel col : key.getColumns()) {
+            if (col.getType() == ColumnMetaModel.Type.AUTO) continue;
+            for (Feature feature : features) {
+                if (feature.getPropertyValue(col.getName()) == null) return false;
+            }
+        }
+
+        final StringBuilder sql = new StringBuilder("COPY ");
+        final PostgresDialect dialect = (PostgresDialect) store.getDialect();
+        dialect.encodeSchemaAndTableName(sql, store.getDatabaseSchema(), tableName);
+        sql.append(" (");
+        for (int i = 0; i < pgTypes.length; i++) {
+            if (i > 0) sql.append(',');
+            dialect.encodeColumnName(sql, columns.get(i).getName().tip().toString());
+        }
+        sql.append(") FROM STDIN (FORMAT binary)");
+
+        final PGCopyOutputStream copy = new PGCopyOutputStream(cx.unwrap(PGConnection.class), sql.toString(), BUFFER_SIZE);
+        try {
+            final DataOutputStream out = new DataOutputStream(copy);
+            //header : signature, flags and header extension length
+            out.write(SIGNATURE);
+            out.writeInt(0);
+            out.writeInt(0);
+
+            for (Feature feature : features) {
+                out.writeShort(pgTypes.length);
+                for (int i = 0; i < pgTypes.length; i++) {
+                    final PropertyType desc = columns.get(i);
+                    final Object value = feature.getPropertyValue(desc.getName().tip().toString());
+                    writeValue(out, pgTypes[i], value, desc, dialect);
+                }
+            }
+            //trailer
+            out.writeShort(-1);
+            out.flush();
+            copy.close();
+        } catch (IOException | DataStoreException | RuntimeException ex) {
+            if (copy.isActive()) {
+                copy.cancelCopy();
+            }
+            throw ex;
+        }
+        return true;
+    }
+
+    /**
+     * Read table column types from the database metadata.
+     */
+    private Map<String,String> getColumnTypes(final String tableName, final Connection cx) throws SQLException {
+        Map<String,String> types = columnTypes.get(tableName);
+        if (types == null) {
+            types = new HashMap<>();
+            ResultSet rs = null;
+            try {
+                //names are patterns, '_' and '%' must not match other tables
+                final DatabaseMetaData metadata = cx.getMetaData();
+                final String escape = metadata.getSearchStringEscape();
+                rs = metadata.getColumns(null, escapePattern(store.getDatabaseSchema(), escape),
+                        escapePattern(tableName, escape), null);
+                while (rs.next()) {
+                    types.put(rs.getString("COLUMN_NAME"), rs.getString("TYPE_NAME"));
+                }
+            } finally {
+                JDBCFeatureStoreUtilities.closeSafe(store.getLogger(), rs);
+            }
+            columnTypes.put(tableName, types);
+        }
+        return types;
+    }
+
+    /**
+     * Escape wildcards of a metadata search pattern.
+     *
+     * @param name exact name, can be null
+     * @param escape search string escape
+     */
+    static String escapePattern(final String name, final String escape) {
+        if (name == null || escape == null || escape.isEmpty()) return name;
+        return name.replace(escape, escape + escape)
+                   .replace("_", escape + "_")
+                   .replace("%", escape + "%");
+    }
+
+    /**
+     * Write a field : value length followed by the value in PostgreSQL binary format.
+     */
+    private static void writeValue(final DataOutputStream out, final String pgType, final Object value,
+            final PropertyType desc, final PostgresDialect dialect) throws IOException, DataStoreException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        try {
+            switch (pgType) {
+                case "bool" :
+                    out.writeInt(1);
+                    out.writeByte(convert(value, Boolean.class) ? 1 : 0);
+                    break;
+                case "int2" :
+                    out.writeInt(2);
+                    out.writeShort((short) toLong(value));
+                    break;
+                case "int4" :
+                    out.writeInt(4);
+                    out.writeInt((int) toLong(value));
+                    break;
+                case "int8" :
+                    out.writeInt(8);
+                    out.writeLong(toLong(value));
+                    break;
+                case "float4" :
+                    out.writeInt(4);
+                    out.writeFloat(toNumber(value).floatValue());
+                    break;
+                case "float8" :
+                    out.writeInt(8);
+                    out.writeDouble(toNumber(value).doubleValue());
+                    break;
+                case "bytea" :
+                    writeBytes(out, (byte[]) value);
+                    break;
+                case "uuid" : {
+                    final UUID uuid = (value instanceof UUID) ? (UUID) value : UUID.fromString(value.toString());
+                    out.writeInt(16);
+                    out.writeLong(uuid.getMostSignificantBits());
+                    out.writeLong(uuid.getLeastSignificantBits());
+                    break;
+                }
+                case "date" :
+                    out.writeInt(4);
+                    out.writeInt((int) (toLocalDate(value).toEpochDay() - PG_EPOCH_DAY));
+                    break;
+                case "timestamp" :
+                    out.writeInt(8);
+                    out.writeLong(ChronoUnit.MICROS.between(PG_EPOCH_LOCAL, toLocalDateTime(value)));
+                    break;
+                case "timestamptz" :
+                    out.writeInt(8);
+                    out.writeLong(ChronoUnit.MICROS.between(PG_EPOCH, toInstant(value)));
+                    break;
+                case "geometry" : {
+                    final Geometry geom = (Geometry) value;
+                    final byte[] ewkb = dialect.encodeGeometryEWKB(geom, SQLQueryBuilder.getGeometrySRID(geom, desc));
+                    if (ewkb == null) {
+                        out.writeInt(-1);
+                    } else {
+                        writeBytes(out, ewkb);
+                    }
+                    break;
+                }
+                default :
+                    //text types
+                    writeBytes(out, value.toString().getBytes(StandardCharsets.UTF_8));
+            }
+        } catch (ClassCastException | IllegalArgumentException | UnconvertibleObjectException ex) {
+            throw new DataStoreException("Value "+value+" of property "+desc.getName()+" can not be encoded as "+pgType, ex);
+        }
+    }
+
+    private static void writeBytes(final DataOutputStream out, final byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static <T> T convert(final Object value, final Class<T> type) {
+        return ObjectConverters.convert(value, type);
+    }
+
+    private static Number toNumber(final Object value) {
+        return (value instanceof Number) ? (Number) value : convert(value, Double.class);
+    }
+
+    /**
+     * Integer values are not converted through double, which would lose precision above 2^53.
+     */
+    private static long toLong(final Object value) {
+        return (value instanceof Number) ? ((Number) value).longValue() : convert(value, Long.class);
+    }
+
+    private static LocalDate toLocalDate(final Object value) {
+        if (value instanceof LocalDate) return (LocalDate) value;
+        if (value instanceof java.sql.Date) return ((java.sql.Date) value).toLocalDate();
+        return toLocalDateTime(value).toLocalDate();
+    }
+
+    private static LocalDateTime toLocalDateTime(final Object value) {
+        if (value instanceof LocalDateTime) return (LocalDateTime) value;
+        if (value instanceof Timestamp) return ((Timestamp) value).toLocalDateTime();
+        return LocalDateTime.ofInstant(toInstant(value), ZoneId.systemDefault());
+    }
+
+    private static Instant toInstant(final Object value) {
+        if (value instanceof Instant) return (Instant) value;
+        if (value instanceof Timestamp) return ((Timestamp) value).toInstant();
+        if (value instanceof Date) return Instant.ofEpochMilli(((Date) value).getTime());
+        throw new IllegalArgumentException("Unsupported temporal value "+value.getClass());
+    }
+}
@@ -26,12 +26,16 @@ import org.locationtech.jts.geom.MultiPolygon;
 import org.locationtech.jts.geom.Point;
 import org.locationtech.jts.geom.Polygon;
 import org.locationtech.jts.io.ParseException;
+import org.locationtech.jts.io.ByteOrderValues;
 import org.locationtech.jts.io.WKBReader;
+import org.locationtech.jts.io.WKBWriter;
 import java.io.IOException;
 import java.lang.reflect.Array;
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
 import java.sql.Connection;
 import java.sql.Date;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
@@ -78,6 +82,7 @@ import org.geotoolkit.filter.capability.DefaultTemporalOperators;
 import org.apache.sis.referencing.CRS;
 import org.apache.sis.referencing.IdentifiedObjects;
 import org.apache.sis.util.ObjectConverters;
+import org.apache.sis.util.UnconvertibleObjectException;
 import org.geotoolkit.coverage.Coverage;
 import org.opengis.filter.Filter;
 import org.opengis.filter.PropertyIsBetween;
@@ -677,6 +682,134 @@ final class PostgresDialect extends AbstractSQLDialect{
         }
     }
 
+    /**
+     * Set a prepared insertion parameter value.
+     * Values are converted like {@link PostgresFilterToSQL#writeValue(java.lang.StringBuilder, java.lang.Object, int) }
+     * does for literals : dates as timestamps, byte arrays as bytea, and arrays
+     * or unknown types as text, casted by the server to the column type.
+     */
+    void setValue(PreparedStatement stmt, int index, Object value, Class type) throws SQLException {
+        if (value instanceof java.util.Date && !(value instanceof Date || value instanceof Time || value instanceof Timestamp)) {
+            //convert it to a timestamp, like literal encoding
+            value = new Timestamp(((java.util.Date) value).getTime());
+        }
+
+        if (value == null) {
+            stmt.setNull(index, Types.OTHER);
+        } else if (value instanceof byte[]) {
+            stmt.setBytes(index, (byte[]) value);
+        } else if (value instanceof String) {
+            stmt.setString(index, (String) value);
+        } else if (value instanceof Number || value instanceof Boolean
+                || value instanceof Date || value instanceof Time || value instanceof Timestamp) {
+            stmt.setObject(index, value);
+        } else if (value.getClass().isArray()) {
+            final StringBuilder sb = new StringBuilder();
+            encodeArrayText(sb, value);
+            stmt.setObject(index, sb.toString(), Types.OTHER);
+        } else {
+            stmt.setObject(index, toText(value), Types.OTHER);
+        }
+    }
+
+    /**
+     * Encode an array in PostgreSQL array input syntax.
+     * Unlike literal encoding, the text is not quoted for SQL since it is sent as a parameter.
+     */
+    private static void encodeArrayText(final StringBuilder sb, final Object array) {
+        final int size = Array.getLength(array);
+        sb.append('{');
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            final Object o = Array.get(array, i);
+            if (o == null) {
+                sb.append("NULL");
+            } else if (o.getClass().isArray()) {
+                encodeArrayText(sb, o);
+            } else if (o instanceof Number || o instanceof Boolean) {
+                sb.append(o);
+            } else {
+                final String text = toText(o instanceof java.util.Date ? new Timestamp(((java.util.Date) o).getTime()) : o);
+                sb.append('"').append(text.replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+            }
+        }
+        sb.append('}');
+    }
+
+    /**
+     * Convert a value to its text representation.
+     */
+    private static String toText(final Object value) {
+        String text = null;
+        try {
+            text = ObjectConverters.convert(value, String.class);
+        } catch (UnconvertibleObjectException | UnsupportedOperationException ex) {
+            //unconvertible value, use the default representation
+        }
+        return (text != null) ? text : value.toString();
+    }
+
+    /**
+     * Set a prepared insertion geometry parameter, geometries are sent as EWKB
+     * which holds the geometry srid.
+     */
+    void setGeometryValue(PreparedStatement stmt, int index, Geometry value, int srid) throws SQLException, DataStoreException {
+        final byte[] ewkb = encodeGeometryEWKB(value, srid);
+        if (ewkb == null) {
+            stmt.setNull(index, Types.BINARY);
+        } else {
+            stmt.setBytes(index, ewkb);
+        }
+    }
+
+    /**
+     * Encode geometry in PostGIS EWKB, as expected by geometry_recv.
+     * Geometries are written in 2D, like the WKT encoding.
+     *
+     * @param value geometry, can be null
+     * @param srid geometry srid, ignored if not strictly positive
+     * @return EWKB bytes or null if geometry must be stored as NULL
+     */
+    byte[] encodeGeometryEWKB(Geometry value, int srid) throws DataStoreException {
+        if (value == null) {
+            return null;
+        }
+        if(value.isEmpty() && ((Comparable)getVersion(null).getMajor()).compareTo((Comparable)Integer.valueOf(2)) < 0){
+            //empty geometries are interpreted as Geometrycollection in postgis < 2
+            //this breaks the column geometry type constraint so we replace those by null
+            return null;
+        }
+        return toEWKB(value, srid);
+    }
+
+    /**
+     * Encode a geometry in big endian 2D EWKB, independently of the database version.
+     *
+     * @param value geometry, not null
+     * @param srid geometry srid, ignored if not strictly positive
+     */
+    static byte[] toEWKB(Geometry value, int srid) {
+        if (value instanceof LinearRing) {
+            //postgis does not handle linear rings, convert to just a line string
+            value = value.getFactory().createLineString(((LinearRing) value).getCoordinateSequence());
+        }
+
+        final byte[] wkb = new WKBWriter(2, ByteOrderValues.BIG_ENDIAN).write(value);
+        if (srid <= 0) {
+            return wkb;
+        }
+        //insert srid after the byte order and geometry type
+        final ByteBuffer wkbBuffer = ByteBuffer.wrap(wkb);
+        final ByteBuffer ewkb = ByteBuffer.allocate(wkb.length + 4);
+        ewkb.put(wkbBuffer.get());
+        ewkb.putInt(wkbBuffer.getInt() | 0x20000000);
+        ewkb.putInt(srid);
+        ewkb.put(wkbBuffer);
+        return ewkb.array();
+    }
+
     @Override
     public void encodeCoverageValue(StringBuilder sql, Coverage value) throws DataStoreException {
         try{
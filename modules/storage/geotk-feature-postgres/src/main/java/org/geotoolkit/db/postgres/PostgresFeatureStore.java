@@ -18,25 +18,37 @@ package org.geotoolkit.db.postgres;
 
 import java.io.IOException;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.Collection;
+import java.util.List;
 import org.apache.sis.parameter.Parameters;
+import org.apache.sis.storage.IllegalNameException;
+import org.geotoolkit.coverage.Coverage;
 import org.geotoolkit.data.query.DefaultQueryCapabilities;
 import org.geotoolkit.data.query.Query;
 import org.geotoolkit.data.query.QueryCapabilities;
 import org.geotoolkit.db.DefaultJDBCFeatureStore;
 import org.geotoolkit.db.JDBCFeatureStoreUtilities;
 import org.geotoolkit.db.dialect.SQLQueryBuilder;
+import org.geotoolkit.db.reverse.ColumnMetaModel;
+import org.geotoolkit.db.reverse.PrimaryKey;
 import org.geotoolkit.internal.sql.ScriptRunner;
 import org.apache.sis.storage.DataStoreException;
 import org.geotoolkit.version.VersionControl;
 import org.geotoolkit.version.VersioningException;
+import org.locationtech.jts.geom.Geometry;
+import org.opengis.feature.AttributeType;
+import org.opengis.feature.Feature;
 import org.opengis.feature.FeatureType;
+import org.opengis.feature.PropertyType;
 import org.opengis.parameter.ParameterValueGroup;
 
 /**
  * Extends default jdbc feature store with versioning and subsampling capabilities.
+ * Batch insertions use PostgreSQL binary COPY.
  *
  * @author Johann Sorel (Geomatys)
  */
@@ -47,6 +59,7 @@ public class PostgresFeatureStore extends DefaultJDBCFeatureStore{
     //historisation informations
     private Boolean hasHSFunctions;
     private PostgresQueryBuilder querybuilder = null;
+    private final PostgresCopyInsert copyInsert = new PostgresCopyInsert(this);
 
     public PostgresFeatureStore(String host, int port, String database, String schema, String user, String password) throws DataStoreException {
         super(toParameters(host,port,database,schema,user,password), PostgresFeatureStoreFactory.NAME);
@@ -82,6 +95,139 @@ public class PostgresFeatureStore extends DefaultJDBCFeatureStore{
         return querybuilder;
     }
 
+    /**
+     * Batch insertions are streamed with a binary COPY when the table column
+     * types allow it, otherwise it falls back on batched insert statements.
+     */
+    @Override
+    protected void insert(final Collection<? extends Feature> features, final FeatureType featureType,
+            final Connection cx) throws DataStoreException {
+        try {
+            if (copyInsert.insert(features, featureType, cx)) {
+                if (cx.getAutoCommit()) {
+                    fireFeaturesAdded(featureType.getName(), null);
+                }
+                return;
+            }
+        } catch (SQLException | IOException ex) {
+            throw new DataStoreException("Failed to copy features : " + ex.getMessage(), ex);
+        }
+
+        for (PropertyType pt : featureType.getProperties(true)) {
+            if (pt instanceof AttributeType && Coverage.class.isAssignableFrom(((AttributeType) pt).getValueClass())) {
+                //coverages can not be set as statement parameters
+                super.insert(features, featureType, cx);
+                return;
+            }
+        }
+        insertPrepared(features, featureType, cx);
+    }
+
+    /**
+     * Insert a group of features using a batched prepared statement.
+     * Rows are sent to the database every {@link #getBatchSize() } features.
+     */
+    private void insertPrepared(final Collection<? extends Feature> features, final FeatureType featureType,
+            final Connection cx) throws DataStoreException {
+        final PostgresDialect dialect = (PostgresDialect) getDialect();
+        final PostgresQueryBuilder builder = (PostgresQueryBuilder) getQueryBuilder();
+        final PrimaryKey key = getDatabaseModel().getPrimaryKey(featureType.getName().toString());
+        final List<ColumnMetaModel> keyColumns = key.getColumns();
+        final List<PropertyType> columns = builder.getInsertColumns(featureType);
+        final String sql = builder.insertPreparedSQL(featureType, columns);
+        final int batchSize = getBatchSize();
+
+        // we do this in a synchronized block because generated keys must be
+        // computed before the rows using them are sent
+        synchronized (this) {
+            PreparedStatement stmt = null;
+            try {
+                stmt = cx.prepareStatement(sql);
+                int nb = 0;
+                for (Feature feature : features) {
+                    Object[] nextKeyValues = null;
+                    for (int i = 0, n = columns.size(); i < n; i++) {
+                        final PropertyType desc = columns.get(i);
+                        final String attName = desc.getName().tip().toString();
+                        final Class binding = ((AttributeType) desc).getValueClass();
+                        Object value = feature.getPropertyValue(attName);
+
+                        if (value == null) {
+                            //maybe it's a generated value from a sequence
+                            for (int k = 0; k < keyColumns.size(); k++) {
+                                if (keyColumns.get(k).getName().equals(attName)) {
+                                    if (nextKeyValues == null) {
+                                        //send pending rows, next key may depend on table content
+                                        if (nb > 0) {
+                                            stmt.executeBatch();
+                                            nb = 0;
+                                        }
+                                        nextKeyValues = key.nextPrimaryKeyValues(this, cx);
+                                    }
+                                    value = nextKeyValues[k];
+                                    break;
+                                }
+                            }
+                        }
+
+                        if (Geometry.class.isAssignableFrom(binding)) {
+                            final Geometry g = (Geometry) value;
+                            dialect.setGeometryValue(stmt, i + 1, g, SQLQueryBuilder.getGeometrySRID(g, desc));
+                        } else {
+                            dialect.setValue(stmt, i + 1, value, binding);
+                        }
+                    }
+                    stmt.addBatch();
+                    if (++nb >= batchSize) {
+                        stmt.executeBatch();
+                        nb = 0;
+                    }
+                }
+                if (nb > 0) {
+                    stmt.executeBatch();
+                }
+
+                if (cx.getAutoCommit()) {
+                    fireFeaturesAdded(featureType.getName(), null);
+                }
+            } catch (SQLException ex) {
+                throw new DataStoreException("Failed to insert features : "+ex.getMessage()+"\nSQL Query :"+sql, ex);
+            } finally {
+                JDBCFeatureStoreUtilities.closeSafe(getLogger(),stmt);
+            }
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Schema manipulation /////////////////////////////////////////////////////
+    ////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Table column types used by binary copy are cached, they must be read again
+     * after schema changes.
+     */
+    @Override
+    public void refreshMetaModel() throws IllegalNameException {
+        copyInsert.clearCache();
+        super.refreshMetaModel();
+    }
+
+    @Override
+    public void createFeatureType(final FeatureType featureType) throws DataStoreException {
+        copyInsert.clearCache();
+        super.createFeatureType(featureType);
+    }
+
+    @Override
+    public void updateFeatureType(final FeatureType newft) throws DataStoreException {
+        copyInsert.clearCache();
+        try {
+            super.updateFeatureType(newft);
+        } finally {
+            copyInsert.clearCache();
+        }
+    }
+
     ////////////////////////////////////////////////////////////////////////////
     // Versioning control //////////////////////////////////////////////////////
     ////////////////////////////////////////////////////////////////////////////
@@ -174,6 +320,7 @@ public class PostgresFeatureStore extends DefaultJDBCFeatureStore{
         } catch (VersioningException ex) {
             throw new DataStoreException(ex);
         }
+        copyInsert.clearCache();
          super.deleteFeatureType(typeName);
 
     }
@@ -18,6 +18,7 @@ package org.geotoolkit.db.postgres;
 
 import java.sql.SQLException;
 import java.util.Date;
+import java.util.List;
 import org.geotoolkit.data.query.Query;
 import org.geotoolkit.db.DefaultJDBCFeatureStore;
 import org.geotoolkit.db.dialect.SQLQueryBuilder;
@@ -25,7 +26,10 @@ import org.geotoolkit.db.reverse.PrimaryKey;
 import org.geotoolkit.filter.visitor.SimplifyingFilterVisitor;
 import org.apache.sis.storage.DataStoreException;
 import org.geotoolkit.version.VersioningException;
+import org.locationtech.jts.geom.Geometry;
+import org.opengis.feature.AttributeType;
 import org.opengis.feature.FeatureType;
+import org.opengis.feature.PropertyType;
 import org.opengis.filter.Filter;
 import org.opengis.filter.FilterFactory;
 
@@ -100,4 +104,41 @@ public class PostgresQueryBuilder extends SQLQueryBuilder{
         return sql.toString();
     }
 
+    /**
+     * Generates a parameterized 'INSERT' sql statement, used for batch insertions.
+     * Geometries are sent as EWKB, see {@link PostgresDialect#setGeometryValue(java.sql.PreparedStatement, int, org.locationtech.jts.geom.Geometry, int) }.
+     *
+     * @param featureType inserted feature type
+     * @param columns inserted properties, see {@link #getInsertColumns(org.opengis.feature.FeatureType) }
+     * @return sql statement
+     */
+    String insertPreparedSQL(final FeatureType featureType, final List<PropertyType> columns) {
+        final StringBuilder sqlType = new StringBuilder();
+        sqlType.append("INSERT INTO ");
+        dialect.encodeSchemaAndTableName(sqlType, databaseSchema, featureType.getName().tip().toString());
+        sqlType.append(" ( ");
+
+        final StringBuilder sqlValues = new StringBuilder();
+        sqlValues.append(" ) VALUES ( ");
+
+        for(PropertyType desc : columns){
+            dialect.encodeColumnName(sqlType, desc.getName().tip().toString());
+            sqlType.append(',');
+
+            final Class binding = ((AttributeType)desc).getValueClass();
+            if (Geometry.class.isAssignableFrom(binding)) {
+                sqlValues.append("st_geomfromewkb(?)");
+            } else {
+                sqlValues.append('?');
+            }
+            sqlValues.append(',');
+        }
+
+        sqlType.setLength(sqlType.length() - 1);
+        sqlValues.setLength(sqlValues.length() - 1);
+        sqlValues.append(")");
+
+        return sqlType.toString() + sqlValues.toString();
+    }
+
 }
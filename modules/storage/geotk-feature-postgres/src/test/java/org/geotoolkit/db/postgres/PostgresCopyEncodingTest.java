@@ -0,0 +1,92 @@
+/*
+ *    Geotoolkit - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2018, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.db.postgres;
+
+import java.nio.ByteBuffer;
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.LinearRing;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.io.WKBReader;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test binary encodings used by batch insertions, no database needed.
+ *
+ * @module
+ */
+public class PostgresCopyEncodingTest extends org.geotoolkit.test.TestBase {
+
+    private static final GeometryFactory GF = new GeometryFactory();
+
+    @Test
+    public void testPointEWKB() throws Exception {
+        final Point point = GF.createPoint(new Coordinate(12.5, -3.25));
+        final byte[] ewkb = PostgresDialect.toEWKB(point, 4326);
+
+        final ByteBuffer buffer = ByteBuffer.wrap(ewkb);
+        assertEquals(1 + 4 + 4 + 16, ewkb.length);
+        //big endian, point type with srid flag
+        assertEquals(0, buffer.get());
+        assertEquals(0x20000001, buffer.getInt());
+        assertEquals(4326, buffer.getInt());
+        assertEquals(12.5, buffer.getDouble(), 0.0);
+        assertEquals(-3.25, buffer.getDouble(), 0.0);
+
+        final Geometry decoded = new WKBReader(GF).read(ewkb);
+        assertTrue(point.equalsExact(decoded));
+        assertEquals(4326, decoded.getSRID());
+    }
+
+    @Test
+    public void testNoSRID() throws Exception {
+        final Point point = GF.createPoint(new Coordinate(1, 2));
+        final byte[] ewkb = PostgresDialect.toEWKB(point, 0);
+        assertEquals(1 + 4 + 16, ewkb.length);
+        assertEquals(1, ByteBuffer.wrap(ewkb).getInt(1));
+        assertTrue(point.equalsExact(new WKBReader(GF).read(ewkb)));
+    }
+
+    /**
+     * Linear rings are written as line strings, 3D coordinates are written in 2D.
+     */
+    @Test
+    public void testLinearRingEWKB() throws Exception {
+        final LinearRing ring = GF.createLinearRing(new Coordinate[]{
+            new Coordinate(0, 0, 5), new Coordinate(10, 0, 5), new Coordinate(10, 10, 5), new Coordinate(0, 0, 5)});
+        final byte[] ewkb = PostgresDialect.toEWKB(ring, 3857);
+        assertEquals(0x20000002, ByteBuffer.wrap(ewkb).getInt(1));
+
+        final Geometry decoded = new WKBReader(GF).read(ewkb);
+        assertTrue(decoded instanceof LineString);
+        assertEquals(3857, decoded.getSRID());
+        assertEquals(4, decoded.getNumPoints());
+        assertTrue(Double.isNaN(decoded.getCoordinates()[0].z));
+    }
+
+    @Test
+    public void testEscapePattern() {
+        assertEquals("copy\\_table", PostgresCopyInsert.escapePattern("copy_table", "\\"));
+        assertEquals("a\\%b\\\\c", PostgresCopyInsert.escapePattern("a%b\\c", "\\"));
+        assertEquals("plain", PostgresCopyInsert.escapePattern("plain", "\\"));
+        assertNull(PostgresCopyInsert.escapePattern(null, "\\"));
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ *    Geotoolkit - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2018, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.db.postgres;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import org.apache.sis.feature.builder.FeatureTypeBuilder;
+import org.apache.sis.parameter.Parameters;
+import org.apache.sis.referencing.CommonCRS;
+import org.apache.sis.storage.DataStoreException;
+import org.geotoolkit.data.FeatureCollection;
+import org.geotoolkit.data.FeatureIterator;
+import org.geotoolkit.data.query.QueryBuilder;
+import org.geotoolkit.data.session.Session;
+import org.geotoolkit.factory.Hints;
+import org.geotoolkit.factory.HintsPending;
+import org.geotoolkit.storage.DataStores;
+import org.geotoolkit.version.VersionControl;
+import org.geotoolkit.version.VersioningException;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Point;
+import org.opengis.feature.AttributeType;
+import org.opengis.feature.Feature;
+import org.opengis.feature.FeatureType;
+import org.opengis.util.GenericName;
+
+import static org.geotoolkit.db.postgres.PostgresFeatureStoreFactory.*;
+import static org.junit.Assert.*;
+
+/**
+ * Test batch insertions with binary COPY, needs a database configured like
+ * {@link PostgresSimpleTypeTest}.
+ *
+ * @module
+ */
+public class PostgresCopyInsertTest extends org.geotoolkit.test.TestBase {
+
+    private static final GeometryFactory GF = new GeometryFactory();
+
+    /** Above 2^53, not representable as a double. */
+    private static final long BIG_LONG = (1L << 53) + 1;
+
+    private static Parameters params;
+
+    private PostgresFeatureStore store;
+
+    @BeforeClass
+    public static void beforeClass() throws IOException {
+        String path = System.getProperty("user.home");
+        path += "/.geotoolkit.org/test-pgfeature.properties";
+        final File f = new File(path);
+        Assume.assumeTrue(f.exists());
+        final Properties properties = new Properties();
+        properties.load(new FileInputStream(f));
+        params = Parameters.castOrWrap(org.geotoolkit.parameter.Parameters.toParameter((Map)properties, PARAMETERS_DESCRIPTOR, false));
+    }
+
+    private void reload() throws DataStoreException, VersioningException {
+        if (store != null) {
+            store.close();
+        }
+        params.getOrCreate(PostgresFeatureStoreFactory.SIMPLETYPE).setValue(true);
+        store = (PostgresFeatureStore) DataStores.open(params);
+        while (!store.getNames().isEmpty()) {
+            final GenericName n = store.getNames().iterator().next();
+            final VersionControl vc = store.getVersioning(n.toString());
+            vc.dropVersioning();
+            store.deleteFeatureType(n.toString());
+        }
+        assertTrue(store.getNames().isEmpty());
+    }
+
+    @After
+    public void disposeStore() {
+        if (store != null) {
+            store.close();
+        }
+    }
+
+    private static FeatureType type(final String name, final Class valueClass) {
+        final FeatureTypeBuilder ftb = new FeatureTypeBuilder();
+        ftb.setName(name);
+        ftb.addAttribute(Boolean.class).setName("boolean");
+        ftb.addAttribute(Integer.class).setName("integer");
+        ftb.addAttribute(valueClass).setName("value");
+        ftb.addAttribute(Double.class).setName("double");
+        ftb.addAttribute(String.class).setName("string");
+        ftb.addAttribute(Point.class).setName("geom").setCRS(CommonCRS.WGS84.normalizedGeographic());
+        return ftb.build();
+    }
+
+    /**
+     * Insert features in batch mode, which uses binary copy.
+     */
+    private List<Feature> insert(final String typeName, final int nb, final long valueOffset) throws DataStoreException {
+        final FeatureType type = store.getFeatureType(typeName);
+        final boolean isInt = ((AttributeType) type.getProperty("value")).getValueClass() == Integer.class;
+        final List<Feature> features = new ArrayList<>();
+        for (int i = 0; i < nb; i++) {
+            final Feature feature = type.newInstance();
+            feature.setPropertyValue("boolean", i % 2 == 0);
+            feature.setPropertyValue("integer", i);
+            feature.setPropertyValue("value", isInt ? (Object) (int) (valueOffset + i) : (Object) (valueOffset + i));
+            feature.setPropertyValue("double", i / 4.0);
+            feature.setPropertyValue("string", "feature " + i);
+            feature.setPropertyValue("geom", GF.createPoint(new Coordinate(i % 360 - 180, i % 180 - 90)));
+            features.add(feature);
+        }
+        store.addFeatures(typeName, features, new Hints(HintsPending.UPDATE_ID_ON_INSERT, Boolean.FALSE));
+        return features;
+    }
+
+    private void check(final String typeName, final int nb, final long valueOffset) throws DataStoreException {
+        final Session session = store.createSession(false);
+        final FeatureCollection col = session.getFeatureCollection(QueryBuilder.all(typeName));
+        assertEquals(nb, col.size());
+        final boolean[] found = new boolean[nb];
+        try (FeatureIterator ite = col.iterator()) {
+            while (ite.hasNext()) {
+                final Feature feature = ite.next();
+                final int i = (Integer) feature.getPropertyValue("integer");
+                assertFalse(found[i]);
+                found[i] = true;
+                assertEquals(i % 2 == 0, feature.getPropertyValue("boolean"));
+                assertEquals(valueOffset + i, feature.getPropertyValue("value"));
+                assertEquals(i / 4.0, (Double) feature.getPropertyValue("double"), 0.0);
+                assertEquals("feature " + i, feature.getPropertyValue("string"));
+                final Point pt = (Point) feature.getPropertyValue("geom");
+                assertEquals(i % 360 - 180, pt.getX(), 0.0);
+                assertEquals(i % 180 - 90, pt.getY(), 0.0);
+            }
+        }
+    }
+
+    @Test
+    public void testCopyInsert() throws Exception {
+        reload();
+        store.createFeatureType(type("copytest", Long.class));
+        //several batches, last one incomplete
+        insert("copytest", 2500, BIG_LONG);
+        check("copytest", 2500, BIG_LONG);
+    }
+
+    /**
+     * Column types must be read from the table itself, '_' matches any character in metadata patterns.
+     */
+    @Test
+    public void testTableNamePattern() throws Exception {
+        reload();
+        store.createFeatureType(type("copyXtable", String.class));
+        store.createFeatureType(type("copy_table", Long.class));
+        insert("copy_table", 10, BIG_LONG);
+        check("copy_table", 10, BIG_LONG);
+    }
+
+    /**
+     * Cached column types must not be used after the table is recreated.
+     */
+    @Test
+    public void testSchemaChange() throws Exception {
+        reload();
+        store.createFeatureType(type("copytest", Integer.class));
+        insert("copytest", 10, 0);
+        store.deleteFeatureType("copytest");
+
+        store.createFeatureType(type("copytest", Long.class));
+        insert("copytest", 10, BIG_LONG);
+        check("copytest", 10, BIG_LONG);
+    }
+}
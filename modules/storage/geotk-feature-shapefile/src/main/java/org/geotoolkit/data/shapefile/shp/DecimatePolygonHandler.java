@@ -16,15 +16,9 @@
  */
 package org.geotoolkit.data.shapefile.shp;
 
-import org.locationtech.jts.algorithm.CGAlgorithms;
-import org.locationtech.jts.geom.Coordinate;
+import java.util.Arrays;
 import org.locationtech.jts.geom.LinearRing;
 
-import java.nio.ByteBuffer;
-import java.nio.DoubleBuffer;
-import java.util.List;
-
-import org.geotoolkit.geometry.jts.JTS;
 import org.apache.sis.storage.DataStoreException;
 
 
@@ -51,139 +45,64 @@ public class DecimatePolygonHandler extends PolygonHandler {
         this.resY = res[1];
     }
 
+    /**
+     * Create the ring keeping only points which are more than a resolution step
+     * away from the previous retained point.
+     */
     @Override
-    public Object read(final ByteBuffer buffer, final ShapeType type) {
-        if (type == ShapeType.NULL) {
-            return createNull();
-        }
-
-        //clear from previous read
-        shells.clear();
-        holes.clear();
-
-        // skip the bounds
-        buffer.position(buffer.position() + 32);
-
-        final int numParts = buffer.getInt();
-        final int numPoints = buffer.getInt();
-        final int[] partOffsets = new int[numParts];
-
-        for (int i = 0; i < numParts; i++) {
-            partOffsets[i] = buffer.getInt();
-        }
-
-        final DoubleBuffer dbuffer = buffer.asDoubleBuffer();
-        final int dimensions = (read3D && shapeType == ShapeType.POLYGONZ)? 3:2;
-
-        //read everything in one round : +2 for minZ/maxZ
-        final double[] coords = new double[numPoints*dimensions + ((dimensions==2)?0:2)];
-        final int xySize = numPoints*2;
-        dbuffer.get(coords);
-
-        int coordIndex = 0;
-        for (int part = 0; part < numParts; part++) {
-
-            final int finish;
-            if (part == (numParts - 1)) {
-                finish = numPoints;
-            } else {
-                finish = partOffsets[part + 1];
-            }
-            final int length = finish - partOffsets[part];
-
-            // REVISIT: polyons with only 1 to 3 points are not polygons -
-            // geometryFactory will bomb so we skip if we find one.
-            if(length > 0 && length < 4){
-                coordIndex += length;
-                continue;
-            }
-
-            final Coordinate[] points = new Coordinate[length];
-            for (int i = 0; i < length; i++) {
-                if(dimensions==2){
-                    points[i] = new Coordinate(coords[coordIndex*2],coords[coordIndex*2+1]);
-                }else{
-                    points[i] = new Coordinate(coords[coordIndex*2],coords[coordIndex*2+1],coords[xySize+coordIndex+2]);
-                }
-                coordIndex++;
-            }
-
-            JTS.ensureClosed(points);
-
-            final LinearRing ring = GEOMETRY_FACTORY.createLinearRing(decimateRing(points));
-            if (CGAlgorithms.isCCW(points)) {
-                // counter-clockwise
-                holes.add(ring);
-            } else {
-                // clockwise
-                shells.add(ring);
+    protected LinearRing createRing(final double[] coords, final int start, final int length,
+            final int numPoints, final int dimensions) {
+        final int zOffset = numPoints*2 + 2 + start;
+        final double[] xy = new double[Math.max(length, 4)*2];
+        final double[] z = (dimensions == 3) ? new double[Math.max(length, 4)] : null;
+
+        xy[0] = coords[start*2];
+        xy[1] = coords[start*2+1];
+        if (z != null) z[0] = coords[zOffset];
+
+        int j = 0;
+        int i = 1;
+        for (; i < length-1; i++) {
+            final int k = (start+i)*2;
+            if (Math.abs(xy[j*2] - coords[k]) > resX || Math.abs(xy[j*2+1] - coords[k+1]) > resY) {
+                j++;
+                xy[j*2]   = coords[k];
+                xy[j*2+1] = coords[k+1];
+                if (z != null) z[j] = coords[zOffset+i];
             }
         }
 
-        // quick optimization: if there's only one shell no need to check
-        // for holes inclusion
-        if (shells.size() == 1) {
-            return createMulti(shells.get(0), holes);
+        //always include the last point, to preserve the ring
+        j++;
+        xy[j*2]   = coords[(start+i)*2];
+        xy[j*2+1] = coords[(start+i)*2+1];
+        if (z != null) z[j] = coords[zOffset+i];
+        int size = j+1;
+
+        //ensure we have the minimum number of points
+        for (; size < 4; size++) {
+            xy[size*2]   = xy[j*2];
+            xy[size*2+1] = xy[j*2+1];
+            if (z != null) z[size] = z[j];
         }
-        // if for some reason, there is only one hole, we just reverse it and
-        // carry on.
-        else if (holes.size() == 1 && shells.isEmpty()) {
-            //LOGGER.warning("only one hole in this polygon record");
-            return createMulti(JTS.reverseRing(holes.get(0)));
-        } else {
 
-            // build an association between shells and holes
-            final List<List<LinearRing>> holesForShells = assignHolesToShells(shells, holes);
-            return buildGeometries(shells, holes, holesForShells);
+        //ensure it forms a closed line string
+        final int last = size-1;
+        if (xy[0] != xy[last*2] || xy[1] != xy[last*2+1]) {
+            xy[last*2]   = xy[0];
+            xy[last*2+1] = xy[1];
+            if (z != null) z[last] = z[0];
         }
-    }
-
-    private Coordinate[] decimateRing(final Coordinate[] coords) {
-        int length = 1;
 
-        int i=1,j=0;
-        for(; i<coords.length-1; i++){
-            final double distX = Math.abs(coords[j].x - coords[i].x);
-            if(distX > resX){
-                length++;
-                j++;
-                coords[j] = coords[i];
-                continue;
-            }
-
-            final double distY = Math.abs(coords[j].y - coords[i].y);
-            if(distY > resY){
-                length++;
-                j++;
-                coords[j] = coords[i];
-                continue;
-            }
-        }
-
-        //always include the last point, to preserve the ring
-        length++; j++;
-        coords[j] = coords[i];
-
-        if (length == coords.length) {
-            //nothing to decimate
-            return coords;
+        if (z == null) {
+            //sequence copies ignore the size, trim the array
+            return GEOMETRY_FACTORY.createLinearRing(new ShapeCoordinateSequence2D(
+                    (xy.length == size*2) ? xy : Arrays.copyOf(xy, size*2)));
         } else {
-            //ensure we have the minimum number of points
-            if (length < 4) {
-                final Coordinate lastCoord = coords[coords.length-1];
-                for(i=length-1;i<4;i++){
-                    coords[i] = lastCoord;
-                }
-                length = 4;
-            }
-
-            //ensure it forms a closed line string if asked for
-            if (!coords[0].equals2D(coords[length-1])) {
-                coords[length-1] = new Coordinate(coords[0]);
-            }
-            final Coordinate[] cs = new Coordinate[length];
-            System.arraycopy(coords, 0, cs, 0, length);
-            return cs;
+            final double[] ring = new double[size*3];
+            System.arraycopy(xy, 0, ring, 0, size*2);
+            System.arraycopy(z, 0, ring, size*2, size);
+            return GEOMETRY_FACTORY.createLinearRing(new ShapeCoordinateSequence3D(ring));
         }
     }
 }
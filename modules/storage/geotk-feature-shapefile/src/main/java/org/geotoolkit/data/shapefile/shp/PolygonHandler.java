@@ -23,11 +23,13 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.locationtech.jts.algorithm.CGAlgorithms;
+import org.locationtech.jts.algorithm.RayCrossingCounter;
 import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.CoordinateSequence;
 import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.LinearRing;
+import org.locationtech.jts.geom.Location;
 import org.locationtech.jts.geom.MultiPolygon;
 import org.locationtech.jts.geom.Polygon;
 
@@ -165,10 +167,8 @@ public class PolygonHandler extends AbstractShapeHandler {
 
         //read everything in one round : +2 for minZ/maxZ
         final double[] coords = new double[numPoints*dimensions + ((dimensions==2)?0:2)];
-        final int xySize = numPoints*2;
         dbuffer.get(coords);
 
-        int coordIndex = 0;
         for (int part = 0; part < numParts; part++) {
 
             final int finish;
@@ -181,25 +181,12 @@ public class PolygonHandler extends AbstractShapeHandler {
 
             // REVISIT: polyons with only 1 to 3 points are not polygons -
             // geometryFactory will bomb so we skip if we find one.
-            if(length > 0 && length < 4){
-                coordIndex += length;
+            if(length < 4){
                 continue;
             }
 
-            final Coordinate[] points = new Coordinate[length];
-            for (int i = 0; i < length; i++) {
-                if(dimensions==2){
-                    points[i] = new Coordinate(coords[coordIndex*2],coords[coordIndex*2+1]);
-                }else{
-                    points[i] = new Coordinate(coords[coordIndex*2],coords[coordIndex*2+1],coords[xySize+coordIndex+2]);
-                }
-                coordIndex++;
-            }
-
-            JTS.ensureClosed(points);
-
-            final LinearRing ring = GEOMETRY_FACTORY.createLinearRing(points);
-            if (CGAlgorithms.isCCW(points)) {
+            final LinearRing ring = createRing(coords, partOffsets[part], length, numPoints, dimensions);
+            if (isCCW(ring.getCoordinateSequence())) {
                 // counter-clockwise
                 holes.add(ring);
             } else {
@@ -217,7 +204,7 @@ public class PolygonHandler extends AbstractShapeHandler {
         // carry on.
         else if (holes.size() == 1 && shells.isEmpty()) {
             //LOGGER.warning("only one hole in this polygon record");
-            return createMulti(JTS.reverseRing(holes.get(0)));
+            return createMulti(reverseRing(holes.get(0)));
         } else {
 
             // build an association between shells and holes
@@ -226,6 +213,112 @@ public class PolygonHandler extends AbstractShapeHandler {
         }
     }
 
+    /**
+     * Create a ring from the record coordinates, copied in a packed coordinate sequence.
+     * The ring is closed by replacing the last point by the first one if needed.
+     *
+     * @param coords record coordinates, x/y pairs followed by z range and values if dimension is 3
+     * @param start index of the ring first point
+     * @param length number of points in the ring
+     * @param numPoints number of points in the record
+     * @param dimensions 2 or 3
+     */
+    protected LinearRing createRing(final double[] coords, final int start, final int length,
+            final int numPoints, final int dimensions) {
+        final double[] ring = new double[length*dimensions];
+        System.arraycopy(coords, start*2, ring, 0, length*2);
+        if (dimensions == 3) {
+            System.arraycopy(coords, numPoints*2 + 2 + start, ring, length*2, length);
+        }
+
+        final int last = (length-1)*2;
+        if (ring[0] != ring[last] || ring[1] != ring[last+1]) {
+            ring[last] = ring[0];
+            ring[last+1] = ring[1];
+            if (dimensions == 3) {
+                ring[length*2 + length-1] = ring[length*2];
+            }
+        }
+        return GEOMETRY_FACTORY.createLinearRing((dimensions == 2) ?
+                new ShapeCoordinateSequence2D(ring) : new ShapeCoordinateSequence3D(ring));
+    }
+
+    /**
+     * Same test as {@link CGAlgorithms#isCCW(org.locationtech.jts.geom.Coordinate[]) }
+     * without creating a coordinate for each point.
+     */
+    static boolean isCCW(final CoordinateSequence ring) {
+        // # of points without closing endpoint
+        final int nPts = ring.size() - 1;
+
+        // find highest point
+        int hiIndex = 0;
+        double hiY = ring.getY(0);
+        for (int i = 1; i <= nPts; i++) {
+            final double y = ring.getY(i);
+            if (y > hiY) {
+                hiY = y;
+                hiIndex = i;
+            }
+        }
+        final double hiX = ring.getX(hiIndex);
+
+        // find distinct point before highest point
+        int iPrev = hiIndex;
+        do {
+            iPrev = iPrev - 1;
+            if (iPrev < 0) iPrev = nPts;
+        } while (ring.getX(iPrev) == hiX && ring.getY(iPrev) == hiY && iPrev != hiIndex);
+
+        // find distinct point after highest point
+        int iNext = hiIndex;
+        do {
+            iNext = (iNext + 1) % nPts;
+        } while (ring.getX(iNext) == hiX && ring.getY(iNext) == hiY && iNext != hiIndex);
+
+        final Coordinate hiPt = new Coordinate(hiX, hiY);
+        final Coordinate prev = new Coordinate(ring.getX(iPrev), ring.getY(iPrev));
+        final Coordinate next = new Coordinate(ring.getX(iNext), ring.getY(iNext));
+
+        // ring without 3 distinct points or with coincident segments
+        if (prev.equals2D(hiPt) || next.equals2D(hiPt) || prev.equals2D(next)) {
+            return false;
+        }
+
+        final int disc = CGAlgorithms.orientationIndex(prev, hiPt, next);
+        if (disc == 0) {
+            // poly is CCW if prev x is right of next x
+            return prev.x > next.x;
+        } else {
+            // if area is positive, points are ordered CCW
+            return disc > 0;
+        }
+    }
+
+    /**
+     * Reverse the ring points order, copied in a packed coordinate sequence.
+     */
+    protected static LinearRing reverseRing(final LinearRing ring) {
+        final CoordinateSequence cs = ring.getCoordinateSequence();
+        final int size = cs.size();
+        if (cs.getDimension() < 3) {
+            final double[] coords = new double[size*2];
+            for (int i = 0, j = (size-1)*2; i < size; i++, j -= 2) {
+                coords[j]   = cs.getX(i);
+                coords[j+1] = cs.getY(i);
+            }
+            return GEOMETRY_FACTORY.createLinearRing(new ShapeCoordinateSequence2D(coords));
+        } else {
+            final double[] coords = new double[size*3];
+            for (int i = 0, j = size-1; i < size; i++, j--) {
+                coords[j*2]      = cs.getX(i);
+                coords[j*2+1]    = cs.getY(i);
+                coords[size*2+j] = cs.getOrdinate(i, 2);
+            }
+            return GEOMETRY_FACTORY.createLinearRing(new ShapeCoordinateSequence3D(coords));
+        }
+    }
+
 
 //    @Override
 //    public Object read(ByteBuffer buffer, ShapeType type) {
@@ -355,7 +448,7 @@ public class PolygonHandler extends AbstractShapeHandler {
         if (shellSize == 0) {
             for (int i=0; i<holeSize; i++) {
                 final LinearRing hole = holes.get(i);
-                polygons[i] = GEOMETRY_FACTORY.createPolygon(JTS.reverseRing(hole),
+                polygons[i] = GEOMETRY_FACTORY.createPolygon(reverseRing(hole),
                         new LinearRing[0]);
             }
         }
@@ -382,44 +475,37 @@ public class PolygonHandler extends AbstractShapeHandler {
         // find homes
         for (final LinearRing testRing : holes) {
             final Envelope testEnv = testRing.getEnvelopeInternal();
-            final Coordinate testPt = testRing.getCoordinateN(0);
+            final CoordinateSequence testCs = testRing.getCoordinateSequence();
+            final Coordinate testPt = new Coordinate(testCs.getX(0), testCs.getY(0));
 
-            LinearRing minShell = null;
+            int minShell = -1;
             Envelope minEnv = null;
 
-            for (final LinearRing tryRing : shells) {
+            for (int i=0, n=shells.size(); i<n; i++) {
+                final LinearRing tryRing = shells.get(i);
+                final Envelope tryEnv = tryRing.getEnvelopeInternal();
 
-                Envelope tryEnv = tryRing.getEnvelopeInternal();
-                if (minShell != null) {
-                    minEnv = minShell.getEnvelopeInternal();
-                }
-
-                boolean isContained = false;
-                final Coordinate[] coordList = tryRing.getCoordinates();
-
-                if (tryEnv.contains(testEnv)
-                        && (CGAlgorithms.isPointInRing(testPt, coordList) || (pointInList(
-                                testPt, coordList)))) {
-                    isContained = true;
-                }
+                // point inside or on the ring boundary, which includes the ring vertices
+                final boolean isContained = tryEnv.contains(testEnv)
+                        && RayCrossingCounter.locatePointInRing(testPt, tryRing.getCoordinateSequence()) != Location.EXTERIOR;
 
                 // check if this new containing ring is smaller than the current
                 // minimum ring
                 if (isContained) {
-                    if ((minShell == null) || minEnv.contains(tryEnv)) {
-                        minShell = tryRing;
+                    if ((minShell < 0) || minEnv.contains(tryEnv)) {
+                        minShell = i;
+                        minEnv = tryEnv;
                     }
                 }
             }
 
-            if (minShell == null) {
+            if (minShell < 0) {
                 //LOGGER.warning("polygon found with a hole thats not inside a shell");
                 // now reverse this bad "hole" and turn it into a shell
-                shells.add(JTS.reverseRing(testRing));
+                shells.add(reverseRing(testRing));
                 holesForShells.add(new ArrayList());
             } else {
-                ((ArrayList) holesForShells.get(shells.indexOf(minShell)))
-                        .add(testRing);
+                holesForShells.get(minShell).add(testRing);
             }
         }
 
@@ -23,10 +23,13 @@ import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.sis.storage.DataStoreException;
 import org.geotoolkit.data.shapefile.shx.ShxReader;
 import org.geotoolkit.data.dbf.Closeable;
+import org.geotoolkit.internal.SharedWork;
 
 /**
  * The general use of this class is: <CODE><PRE>
@@ -53,6 +56,23 @@ public final class ShapefileReader implements Closeable{
      */
     private static final int UNKNOWN = Integer.MIN_VALUE;
 
+    /**
+     * Number of records decoded by a thread in one step of a {@link #scan(Executor, RecordConsumer) }.
+     */
+    private static final int SCAN_SLICE = 1024;
+
+    /**
+     * Receives the shapes decoded by {@link #scan(Executor, RecordConsumer) }.
+     * Implementations must be thread safe, records are given in no particular order.
+     */
+    public interface RecordConsumer {
+        /**
+         * @param index record index in the .shx file
+         * @param shape decoded shape
+         */
+        void accept(int index, Object shape);
+    }
+
     /**
      * The reader returns only one Record instance in its lifetime. The record
      * contains the current record information.
@@ -118,6 +138,8 @@ public final class ShapefileReader implements Closeable{
     private final Record record = new Record();
     private final boolean randomAccessEnabled;
     private final boolean useMemoryMappedBuffer;
+    private final boolean read3D;
+    private final double[] resample;
 
     private long currentOffset = 0L;
     private int currentShape = 0;
@@ -145,6 +167,8 @@ public final class ShapefileReader implements Closeable{
             final double[] resample) throws IOException, DataStoreException {
         this.channel = shpChannel;
         this.randomAccessEnabled = channel instanceof FileChannel;
+        this.read3D = read3D;
+        this.resample = resample;
 
         header = readHeader(channel, strict);
 
@@ -631,6 +655,151 @@ public final class ShapefileReader implements Closeable{
         throw new UnsupportedOperationException("Random Access not enabled");
     }
 
+    /**
+     * Decodes all the shapes of the file using the calling thread and the executor threads.
+     * Records are split in slices using the .shx offsets, each thread reads a slice
+     * bytes in one call and decodes it with its own shape handler.
+     * This method does not move the reader position.
+     *
+     * @param executor executor for additional decoding threads, or {@code null} to
+     *        decode everything in the calling thread
+     * @param consumer receives each decoded shape, possibly from several threads
+     * @throws IOException if a read error occurs
+     * @throws DataStoreException if no shape handler can be created
+     * @throws UnsupportedOperationException if the file is not random access or has no .shx
+     */
+    public void scan(final Executor executor, final RecordConsumer consumer)
+            throws IOException, DataStoreException, UnsupportedOperationException {
+        scan(executor, consumer, SCAN_SLICE, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Same as {@link #scan(Executor, RecordConsumer) } with given slice size and number of threads.
+     *
+     * @param sliceSize number of records decoded by a thread in one step
+     * @param maxThreads maximum number of decoding threads, including the calling thread
+     */
+    void scan(final Executor executor, final RecordConsumer consumer, final int sliceSize, final int maxThreads)
+            throws IOException, DataStoreException, UnsupportedOperationException {
+        if (!randomAccessEnabled || shxReader == null) {
+            throw new UnsupportedOperationException("Random Access not enabled");
+        }
+
+        final int count = shxReader.getRecordCount();
+        final int[] offsets = new int[count];
+        final int[] lengths = new int[count];
+        for (int i = 0; i < count; i++) {
+            offsets[i] = shxReader.getOffsetInBytes(i);
+            //record header + content, content length is in 16-bit words
+            lengths[i] = 8 + shxReader.getContentLength(i) * 2;
+        }
+        if (count == 0) return;
+
+        final RecordScan scan = new RecordScan(offsets, lengths, sliceSize, consumer);
+        final int nbSlices = (count + sliceSize - 1) / sliceSize;
+
+        //calling thread decodes records too
+        int nbWorkers = 0;
+        if (executor != null) {
+            nbWorkers = Math.min(nbSlices, maxThreads) - 1;
+        }
+        //the first error is thrown, following ones are suppressed.
+        final Throwable error = SharedWork.run(executor, nbWorkers, scan::decodeSlices);
+        if (error instanceof IOException)        throw (IOException) error;
+        if (error instanceof DataStoreException) throw (DataStoreException) error;
+        if (error instanceof RuntimeException)   throw (RuntimeException) error;
+        if (error instanceof Error)              throw (Error) error;
+        if (error != null) throw new IOException(error.getMessage(), error);
+    }
+
+    /**
+     * Decoding of record slices, shared by scanning threads.
+     */
+    private final class RecordScan {
+
+        private final int[] offsets;
+        private final int[] lengths;
+        private final int sliceSize;
+        private final RecordConsumer consumer;
+        private final AtomicInteger next = new AtomicInteger();
+
+        /**
+         * Set when a thread fails, other threads stop before their next record.
+         */
+        private volatile boolean stop;
+
+        private RecordScan(final int[] offsets, final int[] lengths, final int sliceSize, final RecordConsumer consumer) {
+            this.offsets = offsets;
+            this.lengths = lengths;
+            this.sliceSize = sliceSize;
+            this.consumer = consumer;
+        }
+
+        /**
+         * Decodes slices until all are taken or a thread failed.
+         */
+        void decodeSlices() throws IOException, DataStoreException {
+            try {
+                decodeSlicesUntilStop();
+            } catch (Throwable ex) {
+                stop = true;
+                throw ex;
+            }
+        }
+
+        private void decodeSlicesUntilStop() throws IOException, DataStoreException {
+            //handlers keep state between reads, one per thread
+            final ShapeHandler shapeHandler = fileShapeType.getShapeHandler(read3D, resample);
+            final FileChannel fc = (FileChannel) channel;
+            ByteBuffer slice = useMemoryMappedBuffer ? buffer.duplicate() : null;
+
+            int first;
+            while (!stop && (first = next.getAndAdd(sliceSize)) < offsets.length) {
+                final int last = Math.min(first + sliceSize, offsets.length);
+
+                //byte range of the slice, records may not be ordered in sparse files
+                long start = Long.MAX_VALUE;
+                long end = 0;
+                for (int i = first; i < last; i++) {
+                    start = Math.min(start, offsets[i]);
+                    end = Math.max(end, (long) offsets[i] + lengths[i]);
+                }
+
+                final int base;
+                if (useMemoryMappedBuffer) {
+                    base = 0;
+                } else {
+                    final int size = Math.toIntExact(end - start);
+                    if (slice == null || slice.capacity() < size) {
+                        slice = ByteBuffer.allocate(size);
+                    }
+                    slice.clear().limit(size);
+                    long position = start;
+                    while (slice.hasRemaining()) {
+                        if (fc.read(slice, position) < 0) {
+                            throw new EOFException("Premature end of file");
+                        }
+                        position = start + slice.position();
+                    }
+                    base = (int) start;
+                }
+
+                for (int i = first; i < last && !stop; i++) {
+                    slice.limit(offsets[i] - base + lengths[i]);
+                    //skip big endian record header
+                    slice.position(offsets[i] - base + 8);
+                    slice.order(ByteOrder.LITTLE_ENDIAN);
+                    final ShapeType recordType = ShapeType.forID(slice.getInt());
+                    if (recordType != ShapeType.NULL && recordType != fileShapeType) {
+                        throw new IllegalStateException("ShapeType changed illegally from "
+                                + fileShapeType + " to " + recordType);
+                    }
+                    consumer.accept(i, shapeHandler.read(slice, recordType));
+                }
+            }
+        }
+    }
+
     /**
      * Converts file offset to buffer offset
      *
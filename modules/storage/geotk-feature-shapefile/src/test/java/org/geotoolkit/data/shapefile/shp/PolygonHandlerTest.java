@@ -22,6 +22,7 @@ import java.util.ArrayList;
 
 import org.geotoolkit.data.shapefile.AbstractTestCaseSupport;
 
+import org.locationtech.jts.algorithm.CGAlgorithms;
 import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.GeometryFactory;
@@ -52,6 +53,27 @@ public class PolygonHandlerTest extends AbstractTestCaseSupport {
         }
     }
 
+    @Test
+    public void testRingOrientation() {
+        final GeometryFactory gf = new GeometryFactory();
+        final Coordinate[] ccw = new Coordinate[]{
+            new Coordinate(0, 0), new Coordinate(10, 0), new Coordinate(10, 10),
+            new Coordinate(10, 10), new Coordinate(0, 10), new Coordinate(0, 0)};
+        final LinearRing ring = gf.createLinearRing(ccw);
+        assertTrue(PolygonHandler.isCCW(ring.getCoordinateSequence()));
+        assertEquals(CGAlgorithms.isCCW(ccw), PolygonHandler.isCCW(ring.getCoordinateSequence()));
+
+        final LinearRing reversed = PolygonHandler.reverseRing(ring);
+        assertFalse(PolygonHandler.isCCW(reversed.getCoordinateSequence()));
+        assertTrue(ring.reverse().equalsExact(reversed));
+
+        //flat ring
+        final Coordinate[] flat = new Coordinate[]{
+            new Coordinate(0, 0), new Coordinate(5, 0), new Coordinate(10, 0), new Coordinate(0, 0)};
+        assertEquals(CGAlgorithms.isCCW(flat),
+                PolygonHandler.isCCW(gf.createLinearRing(flat).getCoordinateSequence()));
+    }
+
     @Test
     public void testHoleAssignment() {
         java.awt.Dimension ps = new java.awt.Dimension(500, 500);
@@ -0,0 +1,121 @@
+/*
+ *    Geotoolkit - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2018, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.data.shapefile.shp;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.geotoolkit.data.shapefile.AbstractTestCaseSupport;
+import org.geotoolkit.data.shapefile.lock.AccessManager;
+import org.geotoolkit.data.shapefile.lock.ShpFiles;
+import org.geotoolkit.test.TestData;
+import org.junit.Test;
+import org.locationtech.jts.geom.Geometry;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test {@link ShapefileReader#scan(java.util.concurrent.Executor, ShapefileReader.RecordConsumer) }.
+ *
+ * @module
+ */
+public class ShapefileReaderTest extends AbstractTestCaseSupport {
+
+    private static final String STATEPOP = "shapes/statepop.shp";
+
+    /**
+     * The 49 records are split in slices of 4 records, decoded by the calling thread and 3 workers.
+     */
+    @Test
+    public void testParallelScan() throws Exception {
+        copyShapefiles(STATEPOP);
+        final URL url = TestData.url(AbstractTestCaseSupport.class, STATEPOP);
+        final ExecutorService pool = Executors.newFixedThreadPool(4);
+        final AtomicInteger started = new AtomicInteger();
+        final Executor executor = (Runnable command) -> {
+            started.incrementAndGet();
+            pool.execute(command);
+        };
+        try {
+            for (boolean memoryMapped : new boolean[]{false, true}) {
+                final AccessManager locker = new ShpFiles(url).createLocker();
+                final List<Geometry> expected = new ArrayList<>();
+                ShapefileReader reader = locker.getSHPReader(false, memoryMapped, true, null);
+                try {
+                    while (reader.hasNext()) {
+                        expected.add((Geometry) reader.nextRecord().shape());
+                    }
+                } finally {
+                    reader.close();
+                }
+                assertEquals(49, expected.size());
+
+                started.set(0);
+                final Geometry[] scanned = new Geometry[expected.size()];
+                reader = locker.getSHPReader(false, memoryMapped, true, null);
+                try {
+                    reader.scan(executor, (int index, Object shape) -> scanned[index] = (Geometry) shape, 4, 4);
+                    assertEquals(3, started.get());
+                    //reader position is unchanged
+                    assertTrue(reader.hasNext());
+                    assertTrue(expected.get(0).equalsExact((Geometry) reader.nextRecord().shape()));
+                } finally {
+                    reader.close();
+                }
+
+                for (int i = 0; i < scanned.length; i++) {
+                    assertTrue(expected.get(i).equalsExact(scanned[i]));
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Calling thread error is thrown, worker errors are suppressed.
+     */
+    @Test
+    public void testScanError() throws Exception {
+        copyShapefiles(STATEPOP);
+        final URL url = TestData.url(AbstractTestCaseSupport.class, STATEPOP);
+        final ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            final ShapefileReader reader = new ShpFiles(url).createLocker().getSHPReader(false, false, true, null);
+            try {
+                reader.scan(pool, (int index, Object shape) -> {
+                    throw new IllegalStateException(Thread.currentThread().getName());
+                }, 4, 4);
+                fail("Consumer error should have been thrown.");
+            } catch (IllegalStateException ex) {
+                assertEquals(Thread.currentThread().getName(), ex.getMessage());
+                for (Throwable s : ex.getSuppressed()) {
+                    assertTrue(s instanceof IllegalStateException);
+                    assertNotSame(ex, s);
+                }
+            } finally {
+                reader.close();
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
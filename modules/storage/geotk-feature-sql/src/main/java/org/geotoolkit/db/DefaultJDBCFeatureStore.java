@@ -107,6 +107,8 @@ public class DefaultJDBCFeatureStore extends JDBCFeatureStore{
 
     //number of records to retrieve with each db call.
     private final int fetchSize;
+    //number of records to send with each insertion batch.
+    private int batchSize = 1000;
     private SQLQueryBuilder queryBuilder;
 
 
@@ -126,6 +128,15 @@ public class DefaultJDBCFeatureStore extends JDBCFeatureStore{
         }catch(ParameterNotFoundException ex){
             //parameter migth not exist on all database implementations
         }
+
+        try{
+            final Integer batch = parameters.getValue(AbstractJDBCFeatureStoreFactory.BATCHSIZE);
+            if (batch != null && batch > 0) {
+                batchSize = batch;
+            }
+        }catch(ParameterNotFoundException ex){
+            //parameter migth not exist on all database implementations
+        }
     }
 
     public FilterFactory getFilterFactory() {
@@ -165,6 +176,13 @@ public class DefaultJDBCFeatureStore extends JDBCFeatureStore{
         return fetchSize;
     }
 
+    /**
+     * @return number of records sent to the database with each insertion batch.
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
     public void setDialect(SQLDialect dialect) {
         ArgumentChecks.ensureNonNull("dialect", dialect);
         this.dialect = dialect;
@@ -324,6 +324,35 @@ public class SQLQueryBuilder {
         return sqlType.toString() + sqlValues.toString();
     }
 
+    /**
+     * List the properties written by batch insertions : all attributes
+     * except conventions and auto generated primary key columns.
+     *
+     * @param featureType inserted feature type
+     * @return inserted properties, in table column order
+     */
+    public List<PropertyType> getInsertColumns(final FeatureType featureType) throws DataStoreException{
+        final PrimaryKey key = store.getDatabaseModel().getPrimaryKey(featureType.getName().toString());
+        final List<ColumnMetaModel> keyColumns = key.getColumns();
+        final List<PropertyType> columns = new ArrayList<>();
+
+        fields :
+        for(PropertyType desc : featureType.getProperties(true)){
+            if (AttributeConvention.contains(desc.getName()) || !(desc instanceof AttributeType)) {
+                continue;
+            }
+            final String attName = desc.getName().tip().toString();
+
+            //remove the primary key attribut that wil be auto-generated
+            for (ColumnMetaModel col : keyColumns) {
+                if(col.getName().equals(attName) && col.getType() == ColumnMetaModel.Type.AUTO){
+                    continue fields;
+                }
+            }
+            columns.add(desc);
+        }
+        return columns;
+    }
 
     /**
      * Generates an 'UPDATE' sql statement.
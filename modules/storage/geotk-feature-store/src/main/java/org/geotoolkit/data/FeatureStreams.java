@@ -344,6 +344,19 @@ public final class FeatureStreams {
         return GenericSortByFeatureIterator.wrap(reader, orders);
     }
 
+    /**
+     * Wrap a FeatureReader will a sort by order, returning only the first features.
+     * Only the returned features are kept in memory.
+     *
+     * @param reader source reader
+     * @param limit maximum number of features returned
+     * @param orders sorting order
+     * @return sorted reader
+     */
+    public static FeatureReader sort(final FeatureReader reader, final long limit, final SortBy ... orders){
+        return GenericSortByFeatureIterator.wrap(reader, orders, limit, 0);
+    }
+
     /**
      * Wrap a FeatureCollection will a sort by order.
      *
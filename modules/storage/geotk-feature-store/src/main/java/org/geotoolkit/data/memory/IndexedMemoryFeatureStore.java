@@ -0,0 +1,798 @@
+/*
+ *    Geotoolkit - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2018, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.data.memory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import org.apache.sis.feature.AbstractOperation;
+import org.apache.sis.geometry.Envelopes;
+import org.apache.sis.geometry.GeneralEnvelope;
+import org.apache.sis.internal.feature.AttributeConvention;
+import org.apache.sis.referencing.CommonCRS;
+import org.apache.sis.storage.DataStoreException;
+import org.apache.sis.storage.IllegalNameException;
+import org.apache.sis.storage.Query;
+import org.apache.sis.storage.UnsupportedQueryException;
+import static org.apache.sis.util.ArgumentChecks.*;
+import org.apache.sis.util.UnconvertibleObjectException;
+import org.apache.sis.util.Utilities;
+import org.geotoolkit.data.AbstractFeatureStore;
+import org.geotoolkit.data.FeatureReader;
+import org.geotoolkit.data.FeatureStreams;
+import org.geotoolkit.data.FeatureWriter;
+import org.geotoolkit.data.query.DefaultQueryCapabilities;
+import org.geotoolkit.data.query.QueryBuilder;
+import org.geotoolkit.data.query.QueryCapabilities;
+import org.geotoolkit.factory.FactoryFinder;
+import org.geotoolkit.factory.Hints;
+import org.geotoolkit.feature.FeatureExt;
+import org.geotoolkit.filter.identity.DefaultFeatureId;
+import org.geotoolkit.geometry.jts.JTS;
+import org.geotoolkit.internal.data.GenericNameIndex;
+import org.geotoolkit.storage.DataStoreFactory;
+import org.locationtech.jts.geom.Geometry;
+import org.opengis.feature.Feature;
+import org.opengis.feature.FeatureType;
+import org.opengis.feature.PropertyNotFoundException;
+import org.opengis.feature.PropertyType;
+import org.opengis.filter.And;
+import org.opengis.filter.BinaryComparisonOperator;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory;
+import org.opengis.filter.Id;
+import org.opengis.filter.Or;
+import org.opengis.filter.PropertyIsBetween;
+import org.opengis.filter.PropertyIsEqualTo;
+import org.opengis.filter.PropertyIsGreaterThan;
+import org.opengis.filter.PropertyIsGreaterThanOrEqualTo;
+import org.opengis.filter.PropertyIsLessThan;
+import org.opengis.filter.PropertyIsLessThanOrEqualTo;
+import org.opengis.filter.expression.Expression;
+import org.opengis.filter.expression.Literal;
+import org.opengis.filter.expression.PropertyName;
+import org.opengis.filter.identity.FeatureId;
+import org.opengis.filter.identity.Identifier;
+import org.opengis.filter.spatial.BBOX;
+import org.opengis.geometry.Envelope;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.referencing.operation.TransformException;
+import org.opengis.util.FactoryException;
+import org.opengis.util.GenericName;
+
+/**
+ * Memory feature store keeping attribute values in columns and maintaining indexes.
+ * <p>
+ * Numbers and dates are stored in primitive arrays and geometries with packed coordinates,
+ * features are created on each read. A quadtree references geometry envelopes and sorted
+ * indexes are created for number, date and string attributes the first time a filter
+ * uses them. BBOX, equality, comparison, between and identifier filters, combined with
+ * and/or, are answered with those indexes, other filters are evaluated on all features.
+ * </p>
+ * <p>
+ * Each feature type has its own read/write lock, readers of a type run concurrently
+ * and writers of different types do not block each other.
+ * </p>
+ *
+ * @module
+ */
+public class IndexedMemoryFeatureStore extends AbstractFeatureStore {
+
+    private static final FilterFactory FF = FactoryFinder.getFilterFactory(null);
+
+    private static final class Group {
+        final FeatureType type;
+        final boolean hasIds;
+        final AtomicLong incId = new AtomicLong(-1);//first one will be 0
+        final ReadWriteLock lock = new ReentrantReadWriteLock();
+        final Map<String,MemoryColumn> columns = new LinkedHashMap<>();
+        final Map<String,CoordinateReferenceSystem> crss = new HashMap<>();
+        final Map<String,Integer> ids = new HashMap<>();
+        final BitSet alive = new BitSet();
+        /** Incremented each time a row is released, readers skip rows reused since the query. */
+        int[] generations = new int[0];
+        String[] rowIds = new String[0];
+        int[] free = new int[16];
+        int nbFree = 0;
+        int nbRows = 0;
+
+        Group(final FeatureType type) {
+            this.type = type;
+            this.hasIds = hasIdentifier(type);
+            for (PropertyType pt : type.getProperties(true)) {
+                final String name = pt.getName().toString();
+                final MemoryColumn column = MemoryColumn.create(name, pt);
+                if (column != null) {
+                    columns.put(name, column);
+                    if (AttributeConvention.isGeometryAttribute(pt)) {
+                        final CoordinateReferenceSystem crs = FeatureExt.getCRS(pt);
+                        if (crs != null) crss.put(name, crs);
+                    }
+                }
+            }
+        }
+
+        public String generateId() {
+            while (true) {
+                final long c = incId.incrementAndGet();
+                final String strc = new StringBuilder(type.getName()
+                        .tip().toString()).append('.').append(c).toString();
+                if (!ids.containsKey(strc)) {
+                    return strc;
+                }
+            }
+        }
+
+        /**
+         * Find the column storing given property, following links.
+         *
+         * @param name property name, empty for the default geometry
+         * @return column or null
+         */
+        MemoryColumn getColumn(final String name) {
+            PropertyType pt;
+            try {
+                pt = name.isEmpty() ? FeatureExt.getDefaultGeometry(type) : type.getProperty(name);
+            } catch (PropertyNotFoundException | IllegalStateException ex) {
+                return null;
+            }
+            if (pt instanceof AbstractOperation) {
+                final Set<String> dependencies = ((AbstractOperation) pt).getDependencies();
+                if (dependencies.size() != 1) return null;
+                try {
+                    pt = type.getProperty(dependencies.iterator().next());
+                } catch (PropertyNotFoundException ex) {
+                    return null;
+                }
+            }
+            return columns.get(pt.getName().toString());
+        }
+
+        /**
+         * Returns a free row, growing columns when needed.
+         * Caller must hold the write lock.
+         */
+        int allocate() {
+            final int row;
+            if (nbFree > 0) {
+                row = free[--nbFree];
+            } else {
+                row = nbRows++;
+                if (row >= generations.length) {
+                    final int capacity = Math.max(16, row + (row >> 1));
+                    generations = Arrays.copyOf(generations, capacity);
+                    rowIds = Arrays.copyOf(rowIds, capacity);
+                    for (MemoryColumn column : columns.values()) {
+                        column.ensureCapacity(capacity);
+                    }
+                }
+            }
+            alive.set(row);
+            return row;
+        }
+
+        /**
+         * Clear row values and indexes, the row may be reused by next insertion.
+         * Caller must hold the write lock.
+         */
+        void release(final int row) {
+            for (MemoryColumn column : columns.values()) {
+                column.write(row, null);
+            }
+            if (rowIds[row] != null) {
+                ids.remove(rowIds[row]);
+                rowIds[row] = null;
+            }
+            alive.clear(row);
+            generations[row]++;
+            if (nbFree == free.length) {
+                free = Arrays.copyOf(free, nbFree * 2);
+            }
+            free[nbFree++] = row;
+        }
+
+        /**
+         * Create a feature with the row values.
+         * Caller must hold the read or write lock.
+         */
+        Feature toFeature(final int row) {
+            final Feature feature = type.newInstance();
+            for (MemoryColumn column : columns.values()) {
+                final Object value = column.get(row);
+                if (value != null) {
+                    feature.setPropertyValue(column.name, value);
+                }
+            }
+            return feature;
+        }
+    }
+
+    /**
+     * Iterate on a snapshot of row numbers, features are created while iterating.
+     */
+    private static final class RowIterator implements Iterator<Feature> {
+
+        private final Group grp;
+        private final int[] rows;
+        private final int[] generations;
+        private int index = 0;
+        private Feature next = null;
+
+        RowIterator(final Group grp, final BitSet rows) {
+            this.grp = grp;
+            this.rows = rows.stream().toArray();
+            this.generations = new int[this.rows.length];
+            for (int i = 0; i < this.rows.length; i++) {
+                generations[i] = grp.generations[this.rows[i]];
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            findNext();
+            return next != null;
+        }
+
+        @Override
+        public Feature next() {
+            findNext();
+            if (next == null) {
+                throw new NoSuchElementException("No more features.");
+            }
+            final Feature candidate = next;
+            next = null;
+            return candidate;
+        }
+
+        private void findNext() {
+            while (next == null && index < rows.length) {
+                final int row = rows[index];
+                final int generation = generations[index];
+                index++;
+                grp.lock.readLock().lock();
+                try {
+                    //row may have been removed since the query
+                    if (grp.alive.get(row) && grp.generations[row] == generation) {
+                        next = grp.toFeature(row);
+                    }
+                } finally {
+                    grp.lock.readLock().unlock();
+                }
+            }
+        }
+    }
+
+    private final QueryCapabilities capabilities = new DefaultQueryCapabilities(false);
+    private final boolean singleTypeLock;
+    private final GenericNameIndex<Group> groups = new GenericNameIndex<>();
+    private Set<GenericName> nameCache = null;
+
+    public IndexedMemoryFeatureStore() {
+        super(null);
+        singleTypeLock = false;
+    }
+
+    /**
+     * Create a memory feature store with a single type.
+     *
+     * @param type
+     * @param singleTypeLock : true if you don't want any other types to be create or
+     * this type to be deleted.
+     */
+    public IndexedMemoryFeatureStore(final FeatureType type, final boolean singleTypeLock) {
+        super(null);
+        this.singleTypeLock = singleTypeLock;
+        try {
+            groups.add(this, type.getName(), new Group(type));
+        } catch (IllegalNameException ex) {
+            //wont happen
+            getLogger().log(Level.WARNING, ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Memory feature store has no factory
+     * @return null
+     */
+    @Override
+    public DataStoreFactory getProvider() {
+        return null;
+    }
+
+    @Override
+    public GenericName getIdentifier() {
+        return null;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public synchronized Set<GenericName> getNames() throws DataStoreException {
+        if (nameCache == null) {
+            nameCache = groups.getNames();
+        }
+        return nameCache;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public FeatureType getFeatureType(final String name) throws DataStoreException {
+        return getGroup(name).type;
+    }
+
+    private Group getGroup(final String name) throws DataStoreException {
+        final Group grp = groups.get(this, name);
+        if (grp == null) {
+            throw new DataStoreException("Schema "+ name +" doesnt exist in this feature store.");
+        }
+        return grp;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public synchronized void createFeatureType(final FeatureType type) throws DataStoreException {
+        if (singleTypeLock) throw new DataStoreException(
+                "Memory feature store is in single type mode. Schema modification are not allowed.");
+
+        ensureNonNull("feature type", type);
+        final GenericName name = type.getName();
+
+        if (groups.contains(name.toString())) {
+            throw new IllegalArgumentException("FeatureType with name : " + type.getName() + " already exist.");
+        }
+
+        groups.add(this, name, new Group(type));
+        nameCache = null;
+        fireSchemaAdded(name, type);
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public synchronized void updateFeatureType(final FeatureType newType) throws DataStoreException {
+        if (singleTypeLock) throw new DataStoreException(
+                "Memory feature store is in single type mode. Schema modification are not allowed.");
+
+        ensureNonNull("feature type", newType);
+        final GenericName typeName = newType.getName();
+        ensureNonNull("name", typeName);
+
+        //todo must do it a way to avoid destroying all features.
+        final Group grp = getGroup(typeName.toString());
+        groups.remove(this, typeName);
+        groups.add(this, typeName, new Group(newType));
+        nameCache = null;
+        fireSchemaUpdated(typeName, grp.type, newType);
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public synchronized void deleteFeatureType(final String typeName) throws DataStoreException {
+        if (singleTypeLock) throw new DataStoreException(
+                "Memory feature store is in single type mode. Schema modification are not allowed.");
+
+        final Group grp = getGroup(typeName);
+        groups.remove(this, grp.type.getName());
+        nameCache = null;
+        fireSchemaDeleted(grp.type.getName(), grp.type);
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public QueryCapabilities getQueryCapabilities() {
+        return capabilities;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public List<FeatureId> addFeatures(final String groupName, final Collection<? extends Feature> collection,
+            final Hints hints) throws DataStoreException {
+        typeCheck(groupName);
+        final Group grp = getGroup(groupName);
+
+        final List<FeatureId> addedIds = new ArrayList<>();
+        grp.lock.writeLock().lock();
+        try {
+            for (final Feature f : collection) {
+                String key = null;
+                if (grp.hasIds) {
+                    Object candidateId = f.getPropertyValue(AttributeConvention.IDENTIFIER_PROPERTY.toString());
+                    if (candidateId == null || "".equals(candidateId)) {
+                        //feature does not have an id, create one
+                        candidateId = grp.generateId();
+                    } else if (candidateId instanceof Number && ((Number) candidateId).longValue() < 0) {
+                        //it's a decremented id value, we replace it
+                        candidateId = grp.generateId();
+                    } else if (grp.ids.containsKey(String.valueOf(candidateId))) {
+                        //key already used, replace it
+                        candidateId = grp.generateId();
+                    }
+                    f.setPropertyValue(AttributeConvention.IDENTIFIER_PROPERTY.toString(), candidateId);
+                    key = String.valueOf(candidateId);
+                }
+
+                final int row = grp.allocate();
+                try {
+                    for (MemoryColumn column : grp.columns.values()) {
+                        Object value;
+                        try {
+                            value = f.getPropertyValue(column.name);
+                        } catch (PropertyNotFoundException ex) {
+                            value = null;
+                        }
+                        write(grp, column, row, value);
+                    }
+                } catch (DataStoreException ex) {
+                    grp.release(row);
+                    throw ex;
+                }
+                if (key != null) {
+                    grp.ids.put(key, row);
+                    grp.rowIds[row] = key;
+                    addedIds.add(new DefaultFeatureId(key));
+                }
+            }
+        } finally {
+            grp.lock.writeLock().unlock();
+        }
+
+        //fire add event
+        final Id eventIds = FF.id(new HashSet<Identifier>(addedIds));
+        fireFeaturesAdded(grp.type.getName(), eventIds);
+        return addedIds;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void updateFeatures(final String groupName, final Filter filter, final Map<String, ?> values) throws DataStoreException {
+        typeCheck(groupName);
+        final Group grp = getGroup(groupName);
+
+        final Map<MemoryColumn,Object> changes = new HashMap<>();
+        for (Map.Entry<String, ?> entry : values.entrySet()) {
+            final MemoryColumn column = grp.getColumn(entry.getKey());
+            if (column == null) {
+                throw new DataStoreException("No property "+entry.getKey()+" in type "+groupName);
+            }
+            changes.put(column, entry.getValue());
+        }
+
+        final Set<Identifier> ups = new HashSet<>();
+        grp.lock.writeLock().lock();
+        try {
+            final BitSet rows = select(grp, filter);
+            for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row+1)) {
+                for (Map.Entry<MemoryColumn,Object> entry : changes.entrySet()) {
+                    write(grp, entry.getKey(), row, entry.getValue());
+                }
+                if (grp.rowIds[row] != null) {
+                    ups.add(new DefaultFeatureId(grp.rowIds[row]));
+                }
+            }
+        } finally {
+            grp.lock.writeLock().unlock();
+        }
+
+        //fire update event
+        fireFeaturesUpdated(grp.type.getName(), FF.id(ups));
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void removeFeatures(final String groupName, final Filter filter) throws DataStoreException {
+        typeCheck(groupName);
+        final Group grp = getGroup(groupName);
+
+        final Set<Identifier> rems = new HashSet<>();
+        grp.lock.writeLock().lock();
+        try {
+            final BitSet rows = select(grp, filter);
+            for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row+1)) {
+                if (grp.rowIds[row] != null) {
+                    rems.add(new DefaultFeatureId(grp.rowIds[row]));
+                }
+                grp.release(row);
+            }
+        } finally {
+            grp.lock.writeLock().unlock();
+        }
+
+        //fire remove event
+        fireFeaturesDeleted(grp.type.getName(), FF.id(rems));
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public FeatureReader getFeatureReader(final Query query) throws DataStoreException {
+        if (!(query instanceof org.geotoolkit.data.query.Query))  throw new UnsupportedQueryException();
+
+        final org.geotoolkit.data.query.Query gquery = (org.geotoolkit.data.query.Query) query;
+        final Group grp = getGroup(gquery.getTypeName());
+        final Filter filter = gquery.getFilter();
+        final QueryBuilder remaining = new QueryBuilder(gquery);
+
+        final Iterator<Feature> ite;
+        grp.lock.readLock().lock();
+        try {
+            BitSet rows = candidates(grp, filter);
+            if (rows == null) {
+                rows = grp.alive;
+            } else if (filter instanceof Id) {
+                //identifier index is exact
+                remaining.setFilter(Filter.INCLUDE);
+            }
+            ite = new RowIterator(grp, rows);
+        } finally {
+            grp.lock.readLock().unlock();
+        }
+
+        //indexes only preselect candidates, the filter is still evaluated
+        final FeatureReader reader = FeatureStreams.asReader(ite, grp.type);
+        return FeatureStreams.subset(reader, remaining.buildQuery());
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public FeatureWriter getFeatureWriter(Query query) throws DataStoreException {
+        return handleWriter(query);
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void close() throws DataStoreException {
+        super.close();
+        groups.clear();
+    }
+
+    @Override
+    public void refreshMetaModel() {
+    }
+
+    /**
+     * Store a value, ensuring geometries are in the property crs.
+     * Caller must hold the write lock.
+     */
+    private static void write(final Group grp, final MemoryColumn column, final int row, final Object value)
+            throws DataStoreException {
+        final CoordinateReferenceSystem crs = grp.crss.get(column.name);
+        boolean setCrs = false;
+        if (crs != null && value instanceof Geometry) {
+            try {
+                final CoordinateReferenceSystem geomCrs = JTS.findCoordinateReferenceSystem((Geometry) value);
+                if (geomCrs == null) {
+                    setCrs = true;
+                } else if (!Utilities.equalsIgnoreMetadata(geomCrs, crs)) {
+                    throw new DataStoreException("Geometry "+column.name+" CRS do not match FeatureType CRS");
+                }
+            } catch (FactoryException ex) {
+                throw new DataStoreException(ex.getMessage(), ex);
+            }
+        }
+        try {
+            column.write(row, value);
+        } catch (UnconvertibleObjectException | ClassCastException ex) {
+            throw new DataStoreException(ex.getMessage(), ex);
+        }
+        if (setCrs) {
+            JTS.setCRS((Geometry) column.get(row), crs);
+        }
+    }
+
+    /**
+     * Returns the rows matching the filter.
+     * Caller must hold the write lock.
+     */
+    private static BitSet select(final Group grp, final Filter filter) {
+        BitSet rows = candidates(grp, filter);
+        if (rows != null && filter instanceof Id) {
+            return rows;
+        }
+        rows = (BitSet) (rows == null ? grp.alive : rows).clone();
+        if (filter != Filter.INCLUDE) {
+            for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row+1)) {
+                if (!filter.evaluate(grp.toFeature(row))) {
+                    rows.clear(row);
+                }
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Returns the rows which may match the filter using indexes.
+     * Caller must hold the read or write lock.
+     *
+     * @return candidate rows, or null if the filter can not be answered by indexes
+     */
+    private static BitSet candidates(final Group grp, final Filter filter) {
+        if (filter == Filter.EXCLUDE) {
+            return new BitSet();
+        } else if (filter instanceof Id) {
+            if (!grp.hasIds) return null;
+            final BitSet rows = new BitSet();
+            for (Identifier id : ((Id) filter).getIdentifiers()) {
+                final Integer row = grp.ids.get(String.valueOf(id.getID()));
+                if (row != null) rows.set(row);
+            }
+            return rows;
+        } else if (filter instanceof And) {
+            BitSet rows = null;
+            for (Filter child : ((And) filter).getChildren()) {
+                final BitSet candidates = candidates(grp, child);
+                if (candidates == null) continue;
+                if (rows == null) rows = candidates;
+                else rows.and(candidates);
+            }
+            return rows;
+        } else if (filter instanceof Or) {
+            final BitSet rows = new BitSet();
+            for (Filter child : ((Or) filter).getChildren()) {
+                final BitSet candidates = candidates(grp, child);
+                if (candidates == null) return null;
+                rows.or(candidates);
+            }
+            return rows;
+        } else if (filter instanceof BBOX) {
+            return bboxCandidates(grp, (BBOX) filter);
+        } else if (filter instanceof PropertyIsBetween) {
+            final PropertyIsBetween between = (PropertyIsBetween) filter;
+            if (!(between.getExpression() instanceof PropertyName)
+                    || !(between.getLowerBoundary() instanceof Literal)
+                    || !(between.getUpperBoundary() instanceof Literal)) {
+                return null;
+            }
+            final MemoryColumn column = indexedColumn(grp, (PropertyName) between.getExpression(), true);
+            if (column == null) return null;
+            final Object lower = column.toKey(((Literal) between.getLowerBoundary()).getValue());
+            final Object upper = column.toKey(((Literal) between.getUpperBoundary()).getValue());
+            if (lower == null || upper == null) return null;
+            final BitSet rows = new BitSet();
+            column.search(lower, upper, rows);
+            return rows;
+        } else if (filter instanceof BinaryComparisonOperator) {
+            return comparisonCandidates(grp, (BinaryComparisonOperator) filter);
+        }
+        return null;
+    }
+
+    private static BitSet comparisonCandidates(final Group grp, final BinaryComparisonOperator filter) {
+        final boolean equal = filter instanceof PropertyIsEqualTo;
+        final boolean less = filter instanceof PropertyIsLessThan || filter instanceof PropertyIsLessThanOrEqualTo;
+        final boolean greater = filter instanceof PropertyIsGreaterThan || filter instanceof PropertyIsGreaterThanOrEqualTo;
+        if (!equal && !less && !greater) return null;
+
+        Expression exp1 = filter.getExpression1();
+        Expression exp2 = filter.getExpression2();
+        boolean reversed = false;
+        if (exp1 instanceof Literal && exp2 instanceof PropertyName) {
+            final Expression e = exp1;
+            exp1 = exp2;
+            exp2 = e;
+            reversed = true;
+        }
+        if (!(exp1 instanceof PropertyName) || !(exp2 instanceof Literal)) return null;
+
+        //case insensitive string comparison and string ordering are not indexed
+        final MemoryColumn column = indexedColumn(grp, (PropertyName) exp1, equal);
+        if (column == null) return null;
+        if (equal && !filter.isMatchingCase() && column.valueClass == String.class) return null;
+        final Object key = column.toKey(((Literal) exp2).getValue());
+        if (key == null) return null;
+
+        final BitSet rows = new BitSet();
+        if (equal) {
+            column.searchEqual(key, rows);
+        } else if (less != reversed) {
+            column.search(null, key, rows);
+        } else {
+            column.search(key, null, rows);
+        }
+        return rows;
+    }
+
+    /**
+     * Find the column of the property if it can be indexed, creating the index if needed.
+     *
+     * @param allowString true if string columns may be used
+     */
+    private static MemoryColumn indexedColumn(final Group grp, final PropertyName property, final boolean allowString) {
+        final MemoryColumn column = grp.getColumn(property.getPropertyName());
+        if (column == null || !column.isIndexable() || (!allowString && column.valueClass == String.class)) {
+            return null;
+        }
+        column.createIndex(grp.alive);
+        return column;
+    }
+
+    private static BitSet bboxCandidates(final Group grp, final BBOX filter) {
+        if (!(filter.getExpression1() instanceof PropertyName) || !(filter.getExpression2() instanceof Literal)) {
+            return null;
+        }
+        final MemoryColumn column = grp.getColumn(((PropertyName) filter.getExpression1()).getPropertyName());
+        final Object value = ((Literal) filter.getExpression2()).getValue();
+        if (!(column instanceof MemoryColumn.GeometryColumn) || !(value instanceof Envelope)) {
+            return null;
+        }
+
+        Envelope env = (Envelope) value;
+        final CoordinateReferenceSystem crs = grp.crss.get(column.name);
+        if (crs != null) {
+            //bbox filter consider envelopes without crs as geographic
+            if (env.getCoordinateReferenceSystem() == null) {
+                final GeneralEnvelope e = new GeneralEnvelope(env);
+                e.setCoordinateReferenceSystem(CommonCRS.WGS84.normalizedGeographic());
+                env = e;
+            }
+            if (!Utilities.equalsIgnoreMetadata(env.getCoordinateReferenceSystem(), crs)) {
+                try {
+                    env = Envelopes.transform(env, crs);
+                } catch (TransformException ex) {
+                    return null;
+                }
+            }
+        }
+        final BitSet rows = new BitSet();
+        ((MemoryColumn.GeometryColumn) column).search(new org.locationtech.jts.geom.Envelope(
+                env.getMinimum(0), env.getMaximum(0), env.getMinimum(1), env.getMaximum(1)), rows);
+        return rows;
+    }
+
+    private static boolean hasIdentifier(FeatureType type) {
+        try {
+            type.getProperty(AttributeConvention.IDENTIFIER_PROPERTY.toString());
+            return true;
+        } catch (PropertyNotFoundException ex) {
+            return false;
+        }
+    }
+
+}
@@ -0,0 +1,533 @@
+/*
+ *    Geotoolkit - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2018, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.data.memory;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import org.apache.sis.util.ObjectConverters;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.impl.PackedCoordinateSequenceFactory;
+import org.locationtech.jts.index.quadtree.Quadtree;
+import org.opengis.feature.AttributeType;
+import org.opengis.feature.FeatureAssociationRole;
+import org.opengis.feature.PropertyType;
+
+/**
+ * Values of a single property for all rows of an {@link IndexedMemoryFeatureStore} type.
+ * Numbers and dates are stored in primitive arrays, geometries with packed coordinates.
+ * <p>
+ * Columns are not thread safe, callers must hold the lock of the type.
+ * </p>
+ *
+ * @module
+ */
+abstract class MemoryColumn {
+
+    /**
+     * Number of rows a sorted index keeps in an array for a key before switching to a bit set.
+     */
+    private static final int MAX_ARRAY_ROWS = 64;
+
+    /**
+     * Relative tolerance when searching numbers, larger than the one used by equality filters.
+     */
+    private static final double NUMBER_TOLERANCE = 1E-9;
+
+    final String name;
+    final Class<?> valueClass;
+
+    /**
+     * Sorted index of the column values, created on first use then maintained on each write.
+     */
+    private NavigableMap<Object,Object> index;
+
+    MemoryColumn(final String name, final Class<?> valueClass) {
+        this.name = name;
+        this.valueClass = valueClass;
+    }
+
+    /**
+     * Create the column best suited to store values of given property.
+     * Multi-valued attributes and associations are stored as objects.
+     *
+     * @return created column, null for operations
+     */
+    static MemoryColumn create(final String name, final PropertyType property) {
+        if (property instanceof FeatureAssociationRole) {
+            return new ObjectColumn(name, Object.class);
+        } else if (!(property instanceof AttributeType)) {
+            return null;
+        }
+        final AttributeType<?> type = (AttributeType<?>) property;
+        final Class<?> clazz = type.getValueClass();
+        if (type.getMaximumOccurs() > 1) {
+            return new ObjectColumn(name, Object.class);
+        } else if (clazz == Double.class || clazz == Float.class) {
+            return new DoubleColumn(name, clazz);
+        } else if (clazz == Long.class || clazz == Integer.class || clazz == Short.class || clazz == Byte.class) {
+            return new LongColumn(name, clazz);
+        } else if (clazz == Date.class) {
+            return new DateColumn(name);
+        } else if (Geometry.class.isAssignableFrom(clazz)) {
+            return new GeometryColumn(name, clazz);
+        } else {
+            return new ObjectColumn(name, clazz);
+        }
+    }
+
+    /**
+     * Grow internal arrays to store at least given number of rows.
+     */
+    abstract void ensureCapacity(int capacity);
+
+    abstract Object get(int row);
+
+    abstract void set(int row, Object value);
+
+    /**
+     * Returns the index key of the row value, or null if the value is null
+     * or the column can not be indexed.
+     */
+    Object key(int row) {
+        return null;
+    }
+
+    /**
+     * Convert a filter literal to an index key.
+     * Returned key must compare with row keys the same way filters compare values,
+     * otherwise null is returned and the filter is evaluated on all rows.
+     */
+    Object toKey(Object literal) {
+        return null;
+    }
+
+    /**
+     * Store the row value, updating indexes.
+     */
+    void write(final int row, Object value) {
+        if (value != null && !valueClass.isInstance(value)) {
+            value = ObjectConverters.convert(value, valueClass);
+        }
+        if (index != null) unindex(key(row), row);
+        set(row, value);
+        if (index != null) index(index, key(row), row);
+    }
+
+    /**
+     * Returns true if the column can answer equality and range filters with a sorted index.
+     */
+    boolean isIndexable() {
+        return false;
+    }
+
+    /**
+     * Create the sorted index if it does not exist yet.
+     * Readers holding the read lock of the type may call this method concurrently,
+     * it must be called before each search.
+     *
+     * @param alive rows in use
+     */
+    synchronized void createIndex(final BitSet alive) {
+        if (index == null && isIndexable()) {
+            final NavigableMap<Object,Object> map = new TreeMap<>();
+            for (int row = alive.nextSetBit(0); row >= 0; row = alive.nextSetBit(row+1)) {
+                index(map, key(row), row);
+            }
+            index = map;
+        }
+    }
+
+    /**
+     * Add to result the rows which values may be equal to given key.
+     */
+    void searchEqual(final Object key, final BitSet result) {
+        search(key, key, result);
+    }
+
+    /**
+     * Add to result the rows which values are between given keys, both inclusive.
+     *
+     * @param lower lower key, null for unbounded
+     * @param upper upper key, null for unbounded
+     */
+    void search(final Object lower, final Object upper, final BitSet result) {
+        final Map<Object,Object> range;
+        if (lower == null && upper == null) {
+            range = index;
+        } else if (lower == null) {
+            range = index.headMap(upper, true);
+        } else if (upper == null) {
+            range = index.tailMap(lower, true);
+        } else if (((Comparable) lower).compareTo(upper) > 0) {
+            return;
+        } else {
+            range = index.subMap(lower, true, upper, true);
+        }
+        for (Object rows : range.values()) {
+            if (rows instanceof BitSet) {
+                result.or((BitSet) rows);
+            } else {
+                final int[] array = (int[]) rows;
+                for (int i = 1, n = array[0]; i <= n; i++) {
+                    result.set(array[i]);
+                }
+            }
+        }
+    }
+
+    private static void index(final NavigableMap<Object,Object> index, final Object key, final int row) {
+        if (key == null) return;
+        final Object rows = index.get(key);
+        if (rows == null) {
+            index.put(key, new int[]{1, row});
+        } else if (rows instanceof BitSet) {
+            ((BitSet) rows).set(row);
+        } else {
+            int[] array = (int[]) rows;
+            final int size = array[0];
+            if (size == MAX_ARRAY_ROWS) {
+                final BitSet set = new BitSet();
+                for (int i = 1; i <= size; i++) set.set(array[i]);
+                set.set(row);
+                index.put(key, set);
+                return;
+            }
+            if (size + 1 == array.length) {
+                array = Arrays.copyOf(array, Math.min(array.length * 2, MAX_ARRAY_ROWS + 1));
+                index.put(key, array);
+            }
+            array[0] = size + 1;
+            array[size + 1] = row;
+        }
+    }
+
+    private void unindex(final Object key, final int row) {
+        if (key == null) return;
+        final Object rows = index.get(key);
+        if (rows instanceof BitSet) {
+            final BitSet set = (BitSet) rows;
+            set.clear(row);
+            if (set.isEmpty()) index.remove(key);
+        } else if (rows != null) {
+            final int[] array = (int[]) rows;
+            final int size = array[0];
+            for (int i = 1; i <= size; i++) {
+                if (array[i] == row) {
+                    array[i] = array[size];
+                    array[0] = size - 1;
+                    break;
+                }
+            }
+            if (array[0] == 0) index.remove(key);
+        }
+    }
+
+    /**
+     * Index key of a number, both zeros must be the same key since filters consider them equal.
+     */
+    private static Double numberKey(final double value) {
+        return (value == 0) ? 0.0 : value;
+    }
+
+    /**
+     * Filters compare floating point numbers with a small tolerance, search a slightly larger range.
+     */
+    private void searchNumber(final Object key, final BitSet result) {
+        final double value = (Double) key;
+        final double tolerance = Math.abs(value) * NUMBER_TOLERANCE;
+        search(numberKey(value - tolerance), numberKey(value + tolerance), result);
+    }
+
+    /**
+     * Column of floating point numbers.
+     */
+    private static final class DoubleColumn extends MemoryColumn {
+
+        private final BitSet nulls = new BitSet();
+        private double[] values = new double[0];
+
+        DoubleColumn(final String name, final Class<?> valueClass) {
+            super(name, valueClass);
+        }
+
+        @Override
+        void ensureCapacity(int capacity) {
+            if (capacity > values.length) values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        Object get(int row) {
+            if (nulls.get(row)) return null;
+            return (valueClass == Float.class) ? (Object) (float) values[row] : (Object) values[row];
+        }
+
+        @Override
+        void set(int row, Object value) {
+            nulls.set(row, value == null);
+            values[row] = (value == null) ? 0 : ((Number) value).doubleValue();
+        }
+
+        @Override
+        Object key(int row) {
+            return nulls.get(row) ? null : numberKey(values[row]);
+        }
+
+        @Override
+        Object toKey(Object literal) {
+            return (literal instanceof Number) ? numberKey(((Number) literal).doubleValue()) : null;
+        }
+
+        @Override
+        void searchEqual(Object key, BitSet result) {
+            searchNumber(key, result);
+        }
+
+        @Override
+        boolean isIndexable() {
+            return true;
+        }
+    }
+
+    /**
+     * Column of integer numbers.
+     * Index keys are doubles in order to compare with any number literal,
+     * large values loosing precision only add candidates.
+     */
+    private static class LongColumn extends MemoryColumn {
+
+        protected final BitSet nulls = new BitSet();
+        protected long[] values = new long[0];
+
+        LongColumn(final String name, final Class<?> valueClass) {
+            super(name, valueClass);
+        }
+
+        @Override
+        void ensureCapacity(int capacity) {
+            if (capacity > values.length) values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        Object get(int row) {
+            if (nulls.get(row)) return null;
+            final long value = values[row];
+            if (valueClass == Integer.class) return (int) value;
+            if (valueClass == Short.class)   return (short) value;
+            if (valueClass == Byte.class)    return (byte) value;
+            return value;
+        }
+
+        @Override
+        void set(int row, Object value) {
+            nulls.set(row, value == null);
+            values[row] = (value == null) ? 0 : ((Number) value).longValue();
+        }
+
+        @Override
+        Object key(int row) {
+            return nulls.get(row) ? null : numberKey(values[row]);
+        }
+
+        /**
+         * Comparison filters convert literals to the column integer type,
+         * decimal literals are not indexed since rounding may change the result.
+         */
+        @Override
+        Object toKey(Object literal) {
+            if (literal instanceof Number) {
+                final double value = ((Number) literal).doubleValue();
+                if (value == Math.rint(value)) {
+                    return numberKey(value);
+                }
+            }
+            return null;
+        }
+
+        @Override
+        void searchEqual(Object key, BitSet result) {
+            searchNumber(key, result);
+        }
+
+        @Override
+        boolean isIndexable() {
+            return true;
+        }
+    }
+
+    /**
+     * Column of dates stored as milliseconds, a new date is created on each read.
+     */
+    private static final class DateColumn extends LongColumn {
+
+        DateColumn(final String name) {
+            super(name, Date.class);
+        }
+
+        @Override
+        Object get(int row) {
+            return nulls.get(row) ? null : new Date(values[row]);
+        }
+
+        @Override
+        void set(int row, Object value) {
+            nulls.set(row, value == null);
+            values[row] = (value == null) ? 0 : ((Date) value).getTime();
+        }
+
+        @Override
+        Object key(int row) {
+            return nulls.get(row) ? null : values[row];
+        }
+
+        @Override
+        Object toKey(Object literal) {
+            return (literal instanceof Date) ? ((Date) literal).getTime() : null;
+        }
+
+        @Override
+        void searchEqual(Object key, BitSet result) {
+            search(key, key, result);
+        }
+    }
+
+    /**
+     * Column of any other value type, strings can be indexed.
+     */
+    private static final class ObjectColumn extends MemoryColumn {
+
+        private Object[] values = new Object[0];
+
+        ObjectColumn(final String name, final Class<?> valueClass) {
+            super(name, valueClass);
+        }
+
+        @Override
+        void ensureCapacity(int capacity) {
+            if (capacity > values.length) values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        Object get(int row) {
+            return values[row];
+        }
+
+        @Override
+        void set(int row, Object value) {
+            values[row] = value;
+        }
+
+        @Override
+        Object key(int row) {
+            return (valueClass == String.class) ? values[row] : null;
+        }
+
+        @Override
+        Object toKey(Object literal) {
+            return (valueClass == String.class && literal instanceof String) ? literal : null;
+        }
+
+        @Override
+        boolean isIndexable() {
+            return valueClass == String.class;
+        }
+    }
+
+    /**
+     * Column of geometries.
+     * Geometries are copied with packed coordinate sequences, row envelopes are kept
+     * in a single array and referenced by a quadtree.
+     */
+    static final class GeometryColumn extends MemoryColumn {
+
+        private final Quadtree tree = new Quadtree();
+        private Geometry[] values = new Geometry[0];
+        private double[] envelopes = new double[0];
+
+        GeometryColumn(final String name, final Class<?> valueClass) {
+            super(name, valueClass);
+        }
+
+        @Override
+        void ensureCapacity(int capacity) {
+            if (capacity > values.length) {
+                values = Arrays.copyOf(values, capacity);
+                envelopes = Arrays.copyOf(envelopes, capacity * 4);
+            }
+        }
+
+        @Override
+        Object get(int row) {
+            return values[row];
+        }
+
+        @Override
+        void set(int row, Object value) {
+            final Geometry previous = values[row];
+            if (previous != null) {
+                tree.remove(envelope(row), row);
+            }
+            if (value == null) {
+                values[row] = null;
+                return;
+            }
+            final Geometry geom = (Geometry) value;
+            final Geometry packed = new GeometryFactory(geom.getPrecisionModel(), geom.getSRID(),
+                    PackedCoordinateSequenceFactory.DOUBLE_FACTORY).createGeometry(geom);
+            packed.setUserData(geom.getUserData());
+            values[row] = packed;
+
+            final Envelope env = packed.getEnvelopeInternal();
+            final int i = row * 4;
+            envelopes[i  ] = env.getMinX();
+            envelopes[i+1] = env.getMaxX();
+            envelopes[i+2] = env.getMinY();
+            envelopes[i+3] = env.getMaxY();
+            tree.insert(env, row);
+        }
+
+        /**
+         * Returns the envelope of the row geometry as it was when inserted.
+         */
+        private Envelope envelope(final int row) {
+            final int i = row * 4;
+            return new Envelope(envelopes[i], envelopes[i+1], envelopes[i+2], envelopes[i+3]);
+        }
+
+        /**
+         * Add to result the rows which geometry envelope intersects given envelope.
+         */
+        void search(final Envelope env, final BitSet result) {
+            final List<?> candidates = tree.query(env);
+            for (Object candidate : candidates) {
+                final int row = (Integer) candidate;
+                final int i = row * 4;
+                if (values[row] != null
+                        && envelopes[i  ] <= env.getMaxX() && envelopes[i+1] >= env.getMinX()
+                        && envelopes[i+2] <= env.getMaxY() && envelopes[i+3] >= env.getMinY()) {
+                    result.set(row);
+                }
+            }
+        }
+    }
+}
@@ -18,17 +18,12 @@ package org.geotoolkit.data.multires;
 
 import java.awt.Point;
 import java.awt.Rectangle;
-import java.util.concurrent.atomic.AtomicLong;
-import java.util.function.LongConsumer;
-import java.util.stream.LongStream;
-import java.util.stream.Stream;
 import org.apache.sis.geometry.Envelopes;
 import org.apache.sis.measure.NumberRange;
 import org.apache.sis.storage.DataStoreException;
 import org.geotoolkit.coverage.io.CoverageStoreException;
 import org.geotoolkit.process.Process;
 import org.geotoolkit.process.ProcessDescriptor;
-import org.geotoolkit.process.ProcessEvent;
 import org.geotoolkit.process.ProcessException;
 import org.geotoolkit.process.ProcessListener;
 import org.opengis.geometry.Envelope;
@@ -78,6 +73,7 @@ public abstract class AbstractTileGenerator implements TileGenerator {
     };
 
     protected boolean skipEmptyTiles = false;
+    private TileGenerationScheduler scheduler;
 
     public AbstractTileGenerator() {
     }
@@ -86,6 +82,20 @@ public abstract class AbstractTileGenerator implements TileGenerator {
         skipEmptyTiles = b;
     }
 
+    /**
+     * @return scheduler used to generate tiles, default is {@link TileGenerationScheduler#getDefault()}.
+     */
+    public TileGenerationScheduler getScheduler() {
+        return scheduler == null ? TileGenerationScheduler.getDefault() : scheduler;
+    }
+
+    /**
+     * @param scheduler scheduler used to generate tiles, null for default scheduler.
+     */
+    public void setScheduler(TileGenerationScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
     @Override
     public void generate(Pyramid pyramid, Envelope env, NumberRange resolutions,
             ProcessListener listener) throws DataStoreException, InterruptedException {
@@ -99,37 +109,28 @@ public abstract class AbstractTileGenerator implements TileGenerator {
         }
 
         final long total = countTiles(pyramid, env, resolutions);
-        final AtomicLong al = new AtomicLong();
+        final TileGenerationScheduler.Job job = getScheduler().begin(total, listener);
         for (final Mosaic mosaic : pyramid.getMosaics()) {
             if (resolutions == null || resolutions.contains(mosaic.getScale())) {
                 final Rectangle rect = Pyramids.getTilesInEnvelope(mosaic, env);
 
+                //one task per tile, idle threads steal tiles from busy ones
                 final long nbTile = ((long)rect.width) * ((long)rect.height);
-                LongStream.range(0, nbTile).parallel().forEach(new LongConsumer() {
-                    @Override
-                    public void accept(long value) {
-                        final long x = rect.x + (value % rect.width);
-                        final long y = rect.y + (value / rect.width);
-
-                        try {
-                            //do not regenerate existing tiles
-                            //if (!mosaic.isMissing((int)x, (int)y)) return;
-
-                            final Point coord = new Point((int)x, (int)y);
-                            try {
-                                final Tile data = generateTile(pyramid, mosaic, coord);
-                                if (!skipEmptyTiles || (skipEmptyTiles && !isEmpty(data))) {
-                                    mosaic.writeTiles(Stream.of(data), null);
-                                }
-                            } catch (Exception ex) {
-                                ex.printStackTrace();
-                            }
-                        } finally {
-                            long v = al.incrementAndGet();
-                            if (listener != null) {
-                                listener.progressing(new ProcessEvent(DUMMY, v+"/"+total, (float) (( ((double)v)/((double)total) )*100.0)  ));
-                            }
+                job.run(mosaic, nbTile, (long value, TileGenerationScheduler.TileWriter writer) -> {
+                    final long x = rect.x + (value % rect.width);
+                    final long y = rect.y + (value / rect.width);
+
+                    try {
+                        //do not regenerate existing tiles
+                        //if (!mosaic.isMissing((int)x, (int)y)) return;
+
+                        final Point coord = new Point((int)x, (int)y);
+                        final Tile data = generateTile(pyramid, mosaic, coord);
+                        if (!skipEmptyTiles || (skipEmptyTiles && !isEmpty(data))) {
+                            writer.write(data);
                         }
+                    } finally {
+                        writer.processed(1);
                     }
                 });
             }
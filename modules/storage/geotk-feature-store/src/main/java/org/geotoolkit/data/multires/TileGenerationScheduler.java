@@ -0,0 +1,546 @@
+/*
+ *    Geotoolkit - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2018, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.data.multires;
+
+import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.apache.sis.storage.DataStoreException;
+import org.apache.sis.util.ArgumentChecks;
+import org.apache.sis.util.logging.Logging;
+import org.geotoolkit.process.Monitor;
+import org.geotoolkit.process.ProcessEvent;
+import org.geotoolkit.process.ProcessListener;
+
+/**
+ * Schedule tile generation tasks on a dedicated work stealing thread pool.
+ *
+ * Generation tasks are split recursively down to a single task, idle threads steal
+ * pending tasks from busy ones, this balances uneven tile costs.
+ * Generated tiles are written in the target mosaic by a writer thread, in batches.
+ * Writer threads are reused between generations.
+ * The queue of tiles waiting to be written is bounded, generating threads wait when
+ * it is full, the pool starts compensation threads meanwhile.
+ *
+ * A generation is canceled if the calling thread is interrupted or if the
+ * {@link ProcessListener} implements {@link Monitor} and is canceled.
+ * Generating threads check the cancellation flag between tasks and when
+ * sending tiles, running tasks are not interrupted.
+ * By default a failing task is logged and generation continues with the other tasks,
+ * the tiles of the failed task are missing. A job can be set
+ * {@linkplain Job#setFailFast(boolean) fail fast} : the remaining tasks are then skipped
+ * and the first failure is rethrown by {@link Job#run(Mosaic, long, TileTask)}.
+ *
+ * @module
+ */
+public final class TileGenerationScheduler {
+
+    private static final Logger LOGGER = Logging.getLogger("org.geotoolkit.data.multires");
+
+    /**
+     * Minimum delay between two progress events, in milliseconds.
+     */
+    private static final long EVENT_DELAY = 1000;
+
+    private static TileGenerationScheduler DEFAULT;
+
+    /**
+     * Get the shared scheduler, using all available processors.
+     *
+     * @return shared scheduler
+     */
+    public static synchronized TileGenerationScheduler getDefault() {
+        if (DEFAULT == null) {
+            DEFAULT = new TileGenerationScheduler(Runtime.getRuntime().availableProcessors());
+        }
+        return DEFAULT;
+    }
+
+    private final ForkJoinPool pool;
+    private final ExecutorService writers;
+    private final int writeQueueSize;
+    private final int writeBatchSize;
+    private final AtomicInteger pendingWrites = new AtomicInteger();
+    private final AtomicInteger writerCount = new AtomicInteger();
+
+    /**
+     * Create a scheduler with default write queue and batch sizes.
+     *
+     * @param parallelism number of generating threads.
+     */
+    public TileGenerationScheduler(final int parallelism) {
+        this(parallelism, Math.max(16, parallelism * 4), 16);
+    }
+
+    /**
+     * @param parallelism number of generating threads.
+     * @param writeQueueSize maximum number of generated tiles waiting to be written, per generation.
+     * @param writeBatchSize maximum number of tiles written in one call to {@link Mosaic#writeTiles}.
+     */
+    public TileGenerationScheduler(final int parallelism, final int writeQueueSize, final int writeBatchSize) {
+        ArgumentChecks.ensureStrictlyPositive("parallelism", parallelism);
+        ArgumentChecks.ensureStrictlyPositive("writeQueueSize", writeQueueSize);
+        ArgumentChecks.ensureStrictlyPositive("writeBatchSize", writeBatchSize);
+        this.writeQueueSize = writeQueueSize;
+        this.writeBatchSize = writeBatchSize;
+        this.pool = new ForkJoinPool(parallelism, (ForkJoinPool p) -> {
+            final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            thread.setName("TileGenerator-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+        this.writers = Executors.newCachedThreadPool((Runnable r) -> {
+            final Thread thread = new Thread(r, "TileWriter-" + writerCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @return number of generating threads.
+     */
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * @return number of threads currently generating tiles.
+     */
+    public int getActiveThreadCount() {
+        return pool.getActiveThreadCount();
+    }
+
+    /**
+     * @return estimated number of generation tasks waiting for a thread.
+     */
+    public long getQueuedTaskCount() {
+        return pool.getQueuedTaskCount();
+    }
+
+    /**
+     * @return number of generated tiles waiting to be written, for all running generations.
+     */
+    public int getQueueDepth() {
+        return pendingWrites.get();
+    }
+
+    /**
+     * Stop generating threads, running generations are canceled.
+     */
+    public void shutdown() {
+        pool.shutdownNow();
+        writers.shutdownNow();
+    }
+
+    /**
+     * Start a new generation.
+     *
+     * @param total total number of tiles to generate, used for progress events.
+     * @param listener listener notified of progress, may be null.
+     * @return generation, used to run tasks for each mosaic.
+     */
+    public Job begin(final long total, final ProcessListener listener) {
+        return new Job(total, listener);
+    }
+
+    /**
+     * Tile generation task.
+     */
+    @FunctionalInterface
+    public interface TileTask {
+
+        /**
+         * Generate tiles of a task.
+         *
+         * @param index task index
+         * @param writer where to send generated tiles
+         * @throws Exception if generation failed, the error is logged and generation continues,
+         *         unless the job is {@linkplain Job#setFailFast(boolean) fail fast}.
+         */
+        void generate(long index, TileWriter writer) throws Exception;
+    }
+
+    /**
+     * Receive generated tiles.
+     */
+    public interface TileWriter {
+
+        /**
+         * Queue a tile for writing, wait if the write queue is full.
+         * Tasks generating several tiles should stop when this method throws.
+         *
+         * @param tile generated tile
+         * @throws InterruptedException if generation has been canceled.
+         */
+        void write(Tile tile) throws InterruptedException;
+
+        /**
+         * Declare processed tiles, written or skipped, for progress events.
+         *
+         * @param count number of processed tiles
+         */
+        void processed(long count);
+    }
+
+    /**
+     * A generation, may run tasks on several mosaics.
+     */
+    public final class Job implements Monitor {
+
+        private final long total;
+        private final ProcessListener listener;
+        private final long startTime = System.nanoTime();
+        private final AtomicLong processed = new AtomicLong();
+        private final AtomicLong written = new AtomicLong();
+        private final AtomicLong lastEvent = new AtomicLong(System.currentTimeMillis());
+        private final AtomicInteger queueDepth = new AtomicInteger();
+        private final AtomicReference<Exception> failure = new AtomicReference<>();
+        private volatile boolean canceled;
+        private volatile boolean failFast;
+
+        private Job(final long total, final ProcessListener listener) {
+            this.total = total;
+            this.listener = listener;
+        }
+
+        /**
+         * @return number of processed tiles, written or skipped.
+         */
+        public long getProcessedTiles() {
+            return processed.get();
+        }
+
+        /**
+         * @return number of tiles written in mosaics.
+         */
+        public long getWrittenTiles() {
+            return written.get();
+        }
+
+        /**
+         * @return average number of processed tiles per second since the generation started.
+         */
+        public double getTilesPerSecond() {
+            final double seconds = (System.nanoTime() - startTime) / 1e9;
+            return seconds <= 0 ? 0 : processed.get() / seconds;
+        }
+
+        /**
+         * @return number of generated tiles waiting to be written.
+         */
+        public int getQueueDepth() {
+            return queueDepth.get();
+        }
+
+        /**
+         * @return true if generation has been canceled.
+         */
+        @Override
+        public boolean isCanceled() {
+            if (!canceled && listener instanceof Monitor && ((Monitor) listener).isCanceled()) {
+                canceled = true;
+            }
+            return canceled;
+        }
+
+        /**
+         * @return true if the generation stops on the first task failure.
+         */
+        public boolean isFailFast() {
+            return failFast;
+        }
+
+        /**
+         * Choose how task failures are handled. If false (the default), failures are logged and
+         * the other tasks continue. If true, the remaining tasks are skipped and the first failure
+         * is thrown by {@link #run(Mosaic, long, TileTask)}.
+         *
+         * @param failFast true to stop generation on the first task failure.
+         */
+        public void setFailFast(final boolean failFast) {
+            this.failFast = failFast;
+        }
+
+        /**
+         * Get the first exception thrown by a generation task, with its original type.
+         * Exceptions thrown by other tasks running at the same time are suppressed exceptions of this one.
+         * Failures are only recorded when the job is {@linkplain #setFailFast(boolean) fail fast}.
+         *
+         * @return first task failure, or null if all tasks succeeded or failures were logged.
+         */
+        public Exception getFailure() {
+            return failure.get();
+        }
+
+        /**
+         * Record a task failure, remaining tasks are skipped.
+         */
+        private void fail(final Exception ex) {
+            if (!failure.compareAndSet(null, ex)) {
+                final Exception first = failure.get();
+                if (first != ex) first.addSuppressed(ex);
+            }
+        }
+
+        /**
+         * @return true if tasks must not be run anymore.
+         */
+        private boolean isStopped() {
+            return isCanceled() || failure.get() != null;
+        }
+
+        /**
+         * Cancel the generation, running tasks finish their current tile.
+         */
+        public void cancel() {
+            canceled = true;
+        }
+
+        /**
+         * Run generation tasks for a mosaic and wait for all tiles to be written.
+         *
+         * @param mosaic mosaic where tiles are written.
+         * @param nbTasks number of tasks
+         * @param task generation task
+         * @throws DataStoreException if tiles could not be written, or if a task failed
+         *         and the job is fail fast, see {@link #getFailure()}.
+         * @throws InterruptedException if generation has been canceled.
+         */
+        public void run(final Mosaic mosaic, final long nbTasks, final TileTask task)
+                throws DataStoreException, InterruptedException {
+            rethrowFailure();
+            if (isCanceled()) {
+                throw new InterruptedException("Tile generation canceled.");
+            }
+            if (nbTasks <= 0) return;
+
+            final MosaicWriter writer = new MosaicWriter(mosaic);
+            final Future<?> writerTask = writers.submit(writer);
+
+            final ForkJoinTask<Void> future = pool.submit(new RangeTask(0, nbTasks, task, writer));
+            try {
+                future.get();
+            } catch (InterruptedException ex) {
+                //interruption does not reach pool threads, they stop on the cancellation flag
+                cancel();
+                throw ex;
+            } catch (ExecutionException ex) {
+                cancel();
+                throw new DataStoreException(ex.getCause().getMessage(), ex.getCause());
+            } finally {
+                writer.finished = true;
+                try {
+                    writerTask.get();
+                } catch (ExecutionException ex) {
+                    writer.error.compareAndSet(null, ex.getCause());
+                }
+                fireProgress(true);
+            }
+
+            final Throwable error = writer.error.get();
+            if (error != null) {
+                throw (error instanceof DataStoreException) ? (DataStoreException) error
+                        : new DataStoreException(error.getMessage(), error);
+            }
+            rethrowFailure();
+            if (isCanceled()) {
+                throw new InterruptedException("Tile generation canceled.");
+            }
+        }
+
+        /**
+         * Throw the first task failure, data store and runtime exceptions as is, others wrapped.
+         */
+        private void rethrowFailure() throws DataStoreException {
+            final Exception ex = failure.get();
+            if (ex instanceof DataStoreException) {
+                throw (DataStoreException) ex;
+            } else if (ex instanceof RuntimeException) {
+                throw (RuntimeException) ex;
+            } else if (ex != null) {
+                throw new DataStoreException(ex.getMessage(), ex);
+            }
+        }
+
+        private void fireProgress(final boolean force) {
+            if (listener == null) return;
+            final long time = System.currentTimeMillis();
+            final long last = lastEvent.get();
+            if (!force && (time - last < EVENT_DELAY || !lastEvent.compareAndSet(last, time))) return;
+            final long v = processed.get();
+            final NumberFormat format = NumberFormat.getIntegerInstance(Locale.FRANCE);
+            final String msg = format.format(v) + " / " + format.format(total)
+                    + " (" + format.format(Math.round(getTilesPerSecond())) + " tiles/s)";
+            listener.progressing(new ProcessEvent(AbstractTileGenerator.DUMMY, msg,
+                    total <= 0 ? 100f : (float) ((((double) v) / ((double) total)) * 100.0)));
+        }
+
+        /**
+         * Split task range until a single task remains.
+         */
+        private final class RangeTask extends RecursiveAction {
+
+            private final long lower;
+            private final long upper;
+            private final TileTask task;
+            private final MosaicWriter writer;
+
+            RangeTask(final long lower, final long upper, final TileTask task, final MosaicWriter writer) {
+                this.lower = lower;
+                this.upper = upper;
+                this.task = task;
+                this.writer = writer;
+            }
+
+            @Override
+            protected void compute() {
+                if (isStopped() || writer.error.get() != null) return;
+                if (upper - lower > 1) {
+                    final long middle = (lower + upper) >>> 1;
+                    invokeAll(new RangeTask(lower, middle, task, writer), new RangeTask(middle, upper, task, writer));
+                    return;
+                }
+                try {
+                    task.generate(lower, writer);
+                } catch (InterruptedException ex) {
+                    //thrown by the writer when generation stops, keep the original failure if any
+                    if (failure.get() == null) cancel();
+                } catch (Exception ex) {
+                    if (failFast) {
+                        fail(ex);
+                    } else {
+                        LOGGER.log(Level.WARNING, ex.getMessage(), ex);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Write queued tiles in the mosaic.
+         */
+        private final class MosaicWriter implements Runnable, TileWriter {
+
+            private final Mosaic mosaic;
+            private final BlockingQueue<Tile> queue = new ArrayBlockingQueue<>(writeQueueSize);
+            private final AtomicReference<Throwable> error = new AtomicReference<>();
+            private volatile boolean finished;
+
+            MosaicWriter(final Mosaic mosaic) {
+                this.mosaic = mosaic;
+            }
+
+            /**
+             * @return true if tiles must not be generated anymore.
+             */
+            private boolean isStopped() {
+                return Job.this.isStopped() || error.get() != null;
+            }
+
+            @Override
+            public void write(final Tile tile) throws InterruptedException {
+                final TileOffer offer = new TileOffer(tile);
+                if (!isStopped()) {
+                    //let the pool start a compensation thread if the queue is full
+                    ForkJoinPool.managedBlock(offer);
+                }
+                if (!offer.offered) {
+                    throw new InterruptedException("Tile generation canceled.");
+                }
+                queueDepth.incrementAndGet();
+                pendingWrites.incrementAndGet();
+            }
+
+            /**
+             * Blocking insertion of a tile in the write queue, stops if generation is canceled.
+             */
+            private final class TileOffer implements ForkJoinPool.ManagedBlocker {
+
+                private final Tile tile;
+                private boolean offered;
+
+                TileOffer(final Tile tile) {
+                    this.tile = tile;
+                }
+
+                @Override
+                public boolean block() throws InterruptedException {
+                    while (!offered && !isStopped()) {
+                        offered = queue.offer(tile, 100, TimeUnit.MILLISECONDS);
+                    }
+                    return true;
+                }
+
+                @Override
+                public boolean isReleasable() {
+                    return offered || isStopped() || (offered = queue.offer(tile));
+                }
+            }
+
+            @Override
+            public void processed(final long count) {
+                processed.addAndGet(count);
+                fireProgress(false);
+            }
+
+            @Override
+            public void run() {
+                final List<Tile> batch = new ArrayList<>(writeBatchSize);
+                try {
+                    while (true) {
+                        final Tile tile = queue.poll(100, TimeUnit.MILLISECONDS);
+                        if (tile == null) {
+                            if (finished && queue.isEmpty()) break;
+                            continue;
+                        }
+                        batch.add(tile);
+                        queue.drainTo(batch, writeBatchSize - 1);
+                        queueDepth.addAndGet(-batch.size());
+                        pendingWrites.addAndGet(-batch.size());
+                        if (!isCanceled()) {
+                            mosaic.writeTiles(batch.stream(), Job.this);
+                            written.addAndGet(batch.size());
+                        }
+                        batch.clear();
+                    }
+                } catch (Throwable ex) {
+                    error.compareAndSet(null, ex);
+                    final int remaining = queue.size();
+                    queue.clear();
+                    queueDepth.addAndGet(-remaining);
+                    pendingWrites.addAndGet(-remaining);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,418 @@
+/*
+ *    Geotoolkit - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2018, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.internal.data;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryCollection;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.LinearRing;
+import org.locationtech.jts.geom.MultiLineString;
+import org.locationtech.jts.geom.MultiPoint;
+import org.locationtech.jts.geom.MultiPolygon;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.Polygon;
+import org.opengis.feature.AttributeType;
+import org.opengis.feature.Feature;
+import org.opengis.feature.FeatureAssociationRole;
+import org.opengis.feature.FeatureType;
+import org.opengis.feature.PropertyType;
+
+/**
+ * Compact binary encoding of features, used to store sorted runs in temporary files.<br>
+ * Attribute and association values are written in feature type order. Common values
+ * (texts, numbers, dates, geometries) have a dedicated encoding, other serializable
+ * values use java serialization.
+ * <p>
+ * Feature types, geometry factories, geometry user data and non serializable values
+ * are not written : they are kept in a table of this serializer and referenced by index.
+ * Encoded features can only be decoded by the serializer which encoded them.
+ * </p>
+ *
+ * @module
+ */
+final class FeatureSerializer {
+
+    private static final byte NULL       = 0;
+    private static final byte STRING     = 1;
+    private static final byte INTEGER    = 2;
+    private static final byte LONG       = 3;
+    private static final byte DOUBLE     = 4;
+    private static final byte FLOAT      = 5;
+    private static final byte SHORT      = 6;
+    private static final byte BYTE       = 7;
+    private static final byte BOOLEAN    = 8;
+    private static final byte DATE       = 9;
+    private static final byte GEOMETRY   = 10;
+    private static final byte FEATURE    = 11;
+    private static final byte COLLECTION = 12;
+    private static final byte SERIAL     = 13;
+    private static final byte REFERENCE  = 14;
+
+    private static final byte POINT           = 1;
+    private static final byte LINESTRING      = 2;
+    private static final byte LINEARRING      = 3;
+    private static final byte POLYGON         = 4;
+    private static final byte MULTIPOINT      = 5;
+    private static final byte MULTILINESTRING = 6;
+    private static final byte MULTIPOLYGON    = 7;
+    private static final byte COLLECTION_GEOM = 8;
+
+    /**
+     * Objects referenced by index in the encoded features.
+     */
+    private final List<Object> references = new ArrayList<>();
+    private final Map<Object,Integer> referenceIndexes = new IdentityHashMap<>();
+
+    /**
+     * Names of the encoded properties of each feature type.
+     */
+    private final Map<FeatureType,String[]> properties = new IdentityHashMap<>();
+
+    private int reference(final Object obj) {
+        Integer index = referenceIndexes.get(obj);
+        if (index == null) {
+            index = references.size();
+            references.add(obj);
+            referenceIndexes.put(obj, index);
+        }
+        return index;
+    }
+
+    private String[] properties(final FeatureType type) {
+        String[] names = properties.get(type);
+        if (names == null) {
+            final List<String> lst = new ArrayList<>();
+            for (PropertyType pt : type.getProperties(true)) {
+                if (pt instanceof AttributeType || pt instanceof FeatureAssociationRole) {
+                    lst.add(pt.getName().toString());
+                }
+            }
+            names = lst.toArray(new String[lst.size()]);
+            properties.put(type, names);
+        }
+        return names;
+    }
+
+    /**
+     * Write a feature.
+     */
+    void write(final Feature feature, final DataOutput out) throws IOException {
+        final FeatureType type = feature.getType();
+        out.writeInt(reference(type));
+        for (String name : properties(type)) {
+            writeValue(feature.getPropertyValue(name), out);
+        }
+    }
+
+    /**
+     * Read a feature written by {@link #write(Feature, DataOutput)}.
+     */
+    Feature read(final DataInput in) throws IOException {
+        final FeatureType type = (FeatureType) references.get(in.readInt());
+        final Feature feature = type.newInstance();
+        for (String name : properties(type)) {
+            final Object value = readValue(in);
+            if (value != null) {
+                feature.setPropertyValue(name, value);
+            }
+        }
+        return feature;
+    }
+
+    private void writeValue(final Object value, final DataOutput out) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof String) {
+            out.writeByte(STRING);
+            final byte[] bytes = ((String) value).getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        } else if (value instanceof Integer) {
+            out.writeByte(INTEGER);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Double) {
+            out.writeByte(DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof Float) {
+            out.writeByte(FLOAT);
+            out.writeFloat((Float) value);
+        } else if (value instanceof Short) {
+            out.writeByte(SHORT);
+            out.writeShort((Short) value);
+        } else if (value instanceof Byte) {
+            out.writeByte(BYTE);
+            out.writeByte((Byte) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value.getClass() == Date.class) {
+            out.writeByte(DATE);
+            out.writeLong(((Date) value).getTime());
+        } else if (value instanceof Geometry && isSupported((Geometry) value)) {
+            final Geometry geom = (Geometry) value;
+            out.writeByte(GEOMETRY);
+            out.writeInt(reference(geom.getFactory()));
+            out.writeInt(geom.getSRID());
+            out.writeInt(geom.getUserData() == null ? -1 : reference(geom.getUserData()));
+            writeGeometry(geom, out);
+        } else if (value instanceof Feature) {
+            out.writeByte(FEATURE);
+            write((Feature) value, out);
+        } else if (value instanceof Collection) {
+            final Collection<?> col = (Collection<?>) value;
+            out.writeByte(COLLECTION);
+            out.writeInt(col.size());
+            for (Object obj : col) {
+                writeValue(obj, out);
+            }
+        } else if (value instanceof Serializable) {
+            final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            try (ObjectOutputStream oos = new ObjectOutputStream(buffer)) {
+                oos.writeObject(value);
+            }
+            out.writeByte(SERIAL);
+            out.writeInt(buffer.size());
+            out.write(buffer.toByteArray());
+        } else {
+            out.writeByte(REFERENCE);
+            out.writeInt(reference(value));
+        }
+    }
+
+    private Object readValue(final DataInput in) throws IOException {
+        final byte tag = in.readByte();
+        switch (tag) {
+            case NULL:    return null;
+            case STRING:  {
+                final byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                return new String(bytes, StandardCharsets.UTF_8);
+            }
+            case INTEGER: return in.readInt();
+            case LONG:    return in.readLong();
+            case DOUBLE:  return in.readDouble();
+            case FLOAT:   return in.readFloat();
+            case SHORT:   return in.readShort();
+            case BYTE:    return in.readByte();
+            case BOOLEAN: return in.readBoolean();
+            case DATE:    return new Date(in.readLong());
+            case GEOMETRY: {
+                final GeometryFactory gf = (GeometryFactory) references.get(in.readInt());
+                final int srid = in.readInt();
+                final int userData = in.readInt();
+                final Geometry geom = readGeometry(gf, in);
+                geom.setSRID(srid);
+                if (userData >= 0) geom.setUserData(references.get(userData));
+                return geom;
+            }
+            case FEATURE: return read(in);
+            case COLLECTION: {
+                final int size = in.readInt();
+                final List<Object> col = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    col.add(readValue(in));
+                }
+                return col;
+            }
+            case SERIAL: {
+                final byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+                    return ois.readObject();
+                } catch (ClassNotFoundException ex) {
+                    throw new IOException(ex.getMessage(), ex);
+                }
+            }
+            case REFERENCE: return references.get(in.readInt());
+            default: throw new IOException("Unexpected value tag " + tag);
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Geometries //////////////////////////////////////////////////////////////
+    ////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * @return true if geometry and its components are of the standard JTS types
+     */
+    private static boolean isSupported(final Geometry geom) {
+        if (geom instanceof GeometryCollection) {
+            final Class<?> c = geom.getClass();
+            if (c != MultiPoint.class && c != MultiLineString.class && c != MultiPolygon.class && c != GeometryCollection.class) {
+                return false;
+            }
+            for (int i = 0, n = geom.getNumGeometries(); i < n; i++) {
+                if (!isSupported(geom.getGeometryN(i))) return false;
+            }
+            return true;
+        }
+        final Class<?> c = geom.getClass();
+        return c == Point.class || c == LineString.class || c == LinearRing.class || c == Polygon.class;
+    }
+
+    private static void writeGeometry(final Geometry geom, final DataOutput out) throws IOException {
+        if (geom instanceof Point) {
+            out.writeByte(POINT);
+            writeSequence(((Point) geom).getCoordinateSequence(), out);
+        } else if (geom instanceof LinearRing) {
+            out.writeByte(LINEARRING);
+            writeSequence(((LinearRing) geom).getCoordinateSequence(), out);
+        } else if (geom instanceof LineString) {
+            out.writeByte(LINESTRING);
+            writeSequence(((LineString) geom).getCoordinateSequence(), out);
+        } else if (geom instanceof Polygon) {
+            final Polygon poly = (Polygon) geom;
+            out.writeByte(POLYGON);
+            out.writeInt(poly.getNumInteriorRing());
+            writeSequence(((LineString) poly.getExteriorRing()).getCoordinateSequence(), out);
+            for (int i = 0, n = poly.getNumInteriorRing(); i < n; i++) {
+                writeSequence(((LineString) poly.getInteriorRingN(i)).getCoordinateSequence(), out);
+            }
+        } else {
+            if (geom instanceof MultiPoint)           out.writeByte(MULTIPOINT);
+            else if (geom instanceof MultiLineString) out.writeByte(MULTILINESTRING);
+            else if (geom instanceof MultiPolygon)    out.writeByte(MULTIPOLYGON);
+            else                                      out.writeByte(COLLECTION_GEOM);
+            out.writeInt(geom.getNumGeometries());
+            for (int i = 0, n = geom.getNumGeometries(); i < n; i++) {
+                writeGeometry(geom.getGeometryN(i), out);
+            }
+        }
+    }
+
+    private static Geometry readGeometry(final GeometryFactory gf, final DataInput in) throws IOException {
+        final byte type = in.readByte();
+        switch (type) {
+            case POINT:      return gf.createPoint(readSequence(gf, in));
+            case LINESTRING: return gf.createLineString(readSequence(gf, in));
+            case LINEARRING: return gf.createLinearRing(readSequence(gf, in));
+            case POLYGON: {
+                final LinearRing[] holes = new LinearRing[in.readInt()];
+                final LinearRing exterior = gf.createLinearRing(readSequence(gf, in));
+                for (int i = 0; i < holes.length; i++) {
+                    holes[i] = gf.createLinearRing(readSequence(gf, in));
+                }
+                return gf.createPolygon(exterior, holes);
+            }
+            default: {
+                final Geometry[] parts = new Geometry[in.readInt()];
+                for (int i = 0; i < parts.length; i++) {
+                    parts[i] = readGeometry(gf, in);
+                }
+                switch (type) {
+                    case MULTIPOINT:      return gf.createMultiPoint(GeometryFactory.toPointArray(Arrays.asList(parts)));
+                    case MULTILINESTRING: return gf.createMultiLineString(GeometryFactory.toLineStringArray(Arrays.asList(parts)));
+                    case MULTIPOLYGON:    return gf.createMultiPolygon(GeometryFactory.toPolygonArray(Arrays.asList(parts)));
+                    case COLLECTION_GEOM: return gf.createGeometryCollection(parts);
+                    default: throw new IOException("Unexpected geometry type " + type);
+                }
+            }
+        }
+    }
+
+    /**
+     * Coordinates are written in 2D, or 3D if the sequence has a z value.
+     */
+    private static void writeSequence(final CoordinateSequence cs, final DataOutput out) throws IOException {
+        final int size = cs.size();
+        boolean hasZ = false;
+        if (cs.getDimension() > 2) {
+            for (int i = 0; i < size && !hasZ; i++) {
+                hasZ = !Double.isNaN(cs.getOrdinate(i, CoordinateSequence.Z));
+            }
+        }
+        out.writeInt(size);
+        out.writeBoolean(hasZ);
+        for (int i = 0; i < size; i++) {
+            out.writeDouble(cs.getX(i));
+            out.writeDouble(cs.getY(i));
+            if (hasZ) out.writeDouble(cs.getOrdinate(i, CoordinateSequence.Z));
+        }
+    }
+
+    private static CoordinateSequence readSequence(final GeometryFactory gf, final DataInput in) throws IOException {
+        final int size = in.readInt();
+        final boolean hasZ = in.readBoolean();
+        final CoordinateSequence cs = gf.getCoordinateSequenceFactory().create(size, hasZ ? 3 : 2);
+        for (int i = 0; i < size; i++) {
+            cs.setOrdinate(i, CoordinateSequence.X, in.readDouble());
+            cs.setOrdinate(i, CoordinateSequence.Y, in.readDouble());
+            if (hasZ) cs.setOrdinate(i, CoordinateSequence.Z, in.readDouble());
+        }
+        return cs;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Memory estimation ///////////////////////////////////////////////////////
+    ////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Approximate heap size of a feature, in bytes.
+     */
+    static long estimateSize(final Feature feature) {
+        long size = 48;
+        for (PropertyType pt : feature.getType().getProperties(true)) {
+            if (pt instanceof AttributeType || pt instanceof FeatureAssociationRole) {
+                size += 32 + estimateValueSize(feature.getPropertyValue(pt.getName().toString()));
+            }
+        }
+        return size;
+    }
+
+    private static long estimateValueSize(final Object value) {
+        if (value == null) {
+            return 0;
+        } else if (value instanceof CharSequence) {
+            return 40 + 2L * ((CharSequence) value).length();
+        } else if (value instanceof Geometry) {
+            final Geometry geom = (Geometry) value;
+            return 64L * (1 + geom.getNumGeometries()) + 40L * geom.getNumPoints();
+        } else if (value instanceof Feature) {
+            return estimateSize((Feature) value);
+        } else if (value instanceof Collection) {
+            long size = 40;
+            for (Object obj : (Collection<?>) value) {
+                size += 8 + estimateValueSize(obj);
+            }
+            return size;
+        } else if (value instanceof Number || value instanceof Boolean) {
+            return 16;
+        }
+        return 64;
+    }
+}
@@ -63,15 +63,8 @@ public class GenericQueryFeatureIterator {
         //          otherwise the result will be illogic.
 
 
-        //wrap sort by ---------------------------------------------------------
-        //This can be really expensive, and force the us to read the full iterator.
-        //that may cause out of memory errors.
-        if(sorts != null && sorts.length != 0){
-            reader = FeatureStreams.sort(reader, sorts);
-        }
-
         //wrap filter ----------------------------------------------------------
-        //we must keep the filter first since it impacts the start index and max feature
+        //we must keep the filter first since it impacts the sort, start index and max feature
         if(filter != null && filter != Filter.INCLUDE){
             if(filter == Filter.EXCLUDE){
                 //filter that exclude everything, use optimzed reader
@@ -83,6 +76,19 @@ public class GenericQueryFeatureIterator {
             }
         }
 
+        //wrap sort by ---------------------------------------------------------
+        //This can be really expensive, and force the us to read the full iterator.
+        //when only the first features are requested, only those are kept in memory,
+        //otherwise features exceeding the memory budget are sorted in temporary files.
+        if(sorts != null && sorts.length != 0){
+            if(max != null){
+                final long limit = (long) max + ((start != null && start > 0) ? start : 0);
+                reader = FeatureStreams.sort(reader, limit, sorts);
+            }else{
+                reader = FeatureStreams.sort(reader, sorts);
+            }
+        }
+
         //wrap start index -----------------------------------------------------
         if(start != null && start > 0){
             reader = FeatureStreams.skip(reader, start);
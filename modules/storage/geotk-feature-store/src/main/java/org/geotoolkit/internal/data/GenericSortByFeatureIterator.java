@@ -17,11 +17,22 @@
 
 package org.geotoolkit.internal.data;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.logging.Level;
 import org.geotoolkit.feature.FeatureExt;
 import org.geotoolkit.data.FeatureCollection;
 import org.geotoolkit.data.FeatureIterator;
@@ -30,6 +41,7 @@ import org.geotoolkit.data.FeatureStoreRuntimeException;
 import org.geotoolkit.data.query.SortByComparator;
 import org.geotoolkit.factory.Hints;
 import org.apache.sis.util.Classes;
+import org.apache.sis.util.logging.Logging;
 import org.geotoolkit.data.memory.WrapFeatureCollection;
 import org.opengis.feature.Feature;
 import org.opengis.feature.FeatureType;
@@ -37,43 +49,256 @@ import org.opengis.filter.sort.SortBy;
 
 /**
  * Basic support for a  FeatureIterator that will sort features using the given sort by
- * orders. This may be very consuming in memory since this implementation must iterate
- * over all features and store them in memory in the right order.
- *
- * Don't use this class in you now that your iterator holds a great amount of features,
- * otherwise it may cause an Out Of Memory Exception.
+ * orders. This implementation must iterate over all features before returning the first one.
+ * <ul>
+ *   <li>When only the first features are needed, they are selected with a bounded heap,
+ *       memory use is proportional to the number of features returned.</li>
+ *   <li>Otherwise features are sorted in memory, when their size exceeds the memory budget
+ *       sorted runs are written in temporary files and merged while iterating.</li>
+ * </ul>
+ * The memory budget is given in megabytes by the {@value #MEMORY_KEY} system property,
+ * 64 megabytes by default.
  *
  * @author Johann Sorel (Geomatys)
  * @module
  */
 public class GenericSortByFeatureIterator<R extends FeatureIterator> implements FeatureIterator {
 
+    /**
+     * System property giving the default memory budget of sorts, in megabytes.
+     */
+    public static final String MEMORY_KEY = "geotk.feature.sort.memory";
+
+    private static final long DEFAULT_MEMORY = 64;
+
+    /**
+     * Maximum number of features selected with a bounded heap.
+     * Larger selections use the merge sort.
+     */
+    private static final long MAX_HEAP_SIZE = 1 << 16;
+
     protected final R iterator;
     private final Comparator<Feature> comparator;
-    protected List<Feature> ordered = null;
-    protected int index = 0;
+    private final long limit;
+    private final long memory;
+    protected Iterator<Feature> ordered = null;
+    private long returned = 0;
+    private final List<Path> runs = new ArrayList<>();
+    private final List<DataInputStream> runStreams = new ArrayList<>();
 
     /**
      * Creates a new instance of GenericSortByFeatureIterator
      *
      * @param iterator FeatureReader to sort
      * @param orders sorting orders
+     * @param limit number of sorted features needed, negative for all features
+     * @param memory memory budget in bytes, zero or negative for default budget
      */
-    private GenericSortByFeatureIterator(final R iterator, final SortBy[] orders) {
+    private GenericSortByFeatureIterator(final R iterator, final SortBy[] orders, final long limit, final long memory) {
         this.iterator = iterator;
         this.comparator = new SortByComparator(orders);
+        this.limit = limit;
+        this.memory = (memory > 0) ? memory : defaultMemory();
+    }
+
+    private static long defaultMemory() {
+        long megabytes = DEFAULT_MEMORY;
+        final String property = System.getProperty(MEMORY_KEY);
+        if (property != null) {
+            try {
+                megabytes = Long.parseLong(property.trim());
+            } catch (NumberFormatException ex) {
+                Logging.getLogger("org.geotoolkit.internal.data").log(Level.WARNING, "Invalid " + MEMORY_KEY + " value : " + property, ex);
+            }
+        }
+        return megabytes << 20;
     }
 
     private synchronized void sort() throws FeatureStoreRuntimeException{
         if(ordered != null) return;
 
-        ordered = new ArrayList<>();
+        if(limit >= 0 && limit <= MAX_HEAP_SIZE){
+            ordered = selectFirst();
+        }else{
+            try {
+                ordered = mergeSort();
+            } catch (IOException ex) {
+                throw new FeatureStoreRuntimeException(ex);
+            }
+        }
+    }
+
+    /**
+     * Feature and its position in the source iterator, used to keep sort stable.
+     */
+    private static final class Entry {
+        final Feature feature;
+        final long position;
+
+        Entry(final Feature feature, final long position) {
+            this.feature = feature;
+            this.position = position;
+        }
+    }
+
+    private int compare(final Entry e1, final Entry e2) {
+        final int c = comparator.compare(e1.feature, e2.feature);
+        return (c != 0) ? c : Long.compare(e1.position, e2.position);
+    }
+
+    /**
+     * Select the first features with a bounded heap, the last selected feature on top.
+     */
+    private Iterator<Feature> selectFirst() {
+        final List<Feature> result = new ArrayList<>();
+        if(limit == 0){
+            return result.iterator();
+        }
+        final PriorityQueue<Entry> heap = new PriorityQueue<>((int) limit, (Entry e1, Entry e2) -> compare(e2, e1));
+        long position = 0;
+        while(iterator.hasNext()){
+            final Feature feature = iterator.next();
+            if(heap.size() < limit){
+                heap.add(new Entry(FeatureExt.copy(feature), position));
+            }else if(comparator.compare(feature, heap.peek().feature) < 0){
+                heap.poll();
+                heap.add(new Entry(FeatureExt.copy(feature), position));
+            }
+            position++;
+        }
+        final List<Entry> entries = new ArrayList<>(heap);
+        Collections.sort(entries, this::compare);
+        for(Entry entry : entries){
+            result.add(entry.feature);
+        }
+        return result.iterator();
+    }
 
+    /**
+     * Sort features in memory while they fit the memory budget, then write sorted runs
+     * in temporary files and merge them.
+     */
+    private Iterator<Feature> mergeSort() throws IOException {
+        final FeatureSerializer serializer = new FeatureSerializer();
+        List<Feature> buffer = new ArrayList<>();
+        long size = 0;
         while(iterator.hasNext()){
-            ordered.add(FeatureExt.copy(iterator.next()));
+            final Feature feature = FeatureExt.copy(iterator.next());
+            buffer.add(feature);
+            size += FeatureSerializer.estimateSize(feature);
+            if(size > memory){
+                writeRun(buffer, serializer);
+                buffer = new ArrayList<>();
+                size = 0;
+            }
+        }
+        Collections.sort(buffer, comparator);
+        if(runs.isEmpty()){
+            return buffer.iterator();
+        }
+
+        //k-way merge of the runs, the in memory features are the last run
+        final List<Iterator<Feature>> sources = new ArrayList<>();
+        for(Path run : runs){
+            final DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(run), 16384));
+            runStreams.add(in);
+            sources.add(new RunIterator(in, serializer));
+        }
+        sources.add(buffer.iterator());
+        return new MergeIterator(sources);
+    }
+
+    private void writeRun(final List<Feature> buffer, final FeatureSerializer serializer) throws IOException {
+        Collections.sort(buffer, comparator);
+        final Path run = Files.createTempFile("geotk-sort", ".run");
+        runs.add(run);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run), 65536))) {
+            for(Feature feature : buffer){
+                out.writeBoolean(true);
+                serializer.write(feature, out);
+            }
+            out.writeBoolean(false);
+        }
+    }
+
+    /**
+     * Iterator over the features of a sorted run file.
+     */
+    private static final class RunIterator implements Iterator<Feature> {
+
+        private final DataInputStream in;
+        private final FeatureSerializer serializer;
+        private Feature next;
+
+        RunIterator(final DataInputStream in, final FeatureSerializer serializer) {
+            this.in = in;
+            this.serializer = serializer;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if(next == null){
+                try {
+                    if(in.readBoolean()){
+                        next = serializer.read(in);
+                    }
+                } catch (EOFException ex) {
+                    throw new FeatureStoreRuntimeException("Unexpected end of sorted run file", ex);
+                } catch (IOException ex) {
+                    throw new FeatureStoreRuntimeException(ex);
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public Feature next() {
+            if(!hasNext()){
+                throw new NoSuchElementException("No more elements.");
+            }
+            final Feature feature = next;
+            next = null;
+            return feature;
+        }
+    }
+
+    /**
+     * Merge sorted sources, equal features are returned in source order.
+     */
+    private final class MergeIterator implements Iterator<Feature> {
+
+        private final List<Iterator<Feature>> sources;
+        private final PriorityQueue<Entry> heads;
+
+        MergeIterator(final List<Iterator<Feature>> sources) {
+            this.sources = sources;
+            this.heads = new PriorityQueue<>(sources.size(), GenericSortByFeatureIterator.this::compare);
+            for(int i=0,n=sources.size();i<n;i++){
+                advance(i);
+            }
+        }
+
+        private void advance(final int source) {
+            final Iterator<Feature> ite = sources.get(source);
+            if(ite.hasNext()){
+                heads.add(new Entry(ite.next(), source));
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !heads.isEmpty();
         }
 
-        Collections.sort(ordered,comparator);
+        @Override
+        public Feature next() {
+            final Entry entry = heads.poll();
+            if(entry == null){
+                throw new NoSuchElementException("No more elements.");
+            }
+            advance((int) entry.position);
+            return entry.feature;
+        }
     }
 
     /**
@@ -82,13 +307,11 @@ public class GenericSortByFeatureIterator<R extends FeatureIterator> implements
     @Override
     public Feature next() throws FeatureStoreRuntimeException {
         sort();
-        try{
-            Feature c = ordered.get(index);
-            index++;
-            return c;
-        }catch(IndexOutOfBoundsException ex){
+        if(limit >= 0 && returned >= limit){
             throw new NoSuchElementException("No more elements.");
         }
+        returned++;
+        return ordered.next();
     }
 
     /**
@@ -96,7 +319,20 @@ public class GenericSortByFeatureIterator<R extends FeatureIterator> implements
      */
     @Override
     public void close() throws FeatureStoreRuntimeException {
-        iterator.close();
+        try {
+            for(DataInputStream in : runStreams){
+                in.close();
+            }
+            for(Path run : runs){
+                Files.deleteIfExists(run);
+            }
+        } catch (IOException ex) {
+            throw new FeatureStoreRuntimeException(ex);
+        } finally {
+            runStreams.clear();
+            runs.clear();
+            iterator.close();
+        }
     }
 
     /**
@@ -105,7 +341,7 @@ public class GenericSortByFeatureIterator<R extends FeatureIterator> implements
     @Override
     public boolean hasNext() throws FeatureStoreRuntimeException {
         sort();
-        return index < ordered.size();
+        return (limit < 0 || returned < limit) && ordered.hasNext();
     }
 
     /**
@@ -135,8 +371,8 @@ public class GenericSortByFeatureIterator<R extends FeatureIterator> implements
      */
     private static final class GenericSortByFeatureReader extends GenericSortByFeatureIterator<FeatureReader> implements FeatureReader{
 
-        private GenericSortByFeatureReader(final FeatureReader reader,final SortBy[] orders){
-            super(reader,orders);
+        private GenericSortByFeatureReader(final FeatureReader reader,final SortBy[] orders, final long limit, final long memory){
+            super(reader,orders,limit,memory);
         }
 
         @Override
@@ -171,7 +407,20 @@ public class GenericSortByFeatureIterator<R extends FeatureIterator> implements
      * Wrap a FeatureReader will a sort by order.
      */
     public static FeatureReader wrap(final FeatureReader reader, final SortBy[] orders){
-        return new GenericSortByFeatureReader(reader, orders);
+        return wrap(reader, orders, -1, 0);
+    }
+
+    /**
+     * Wrap a FeatureReader will a sort by order, returning only the first features.
+     *
+     * @param reader source reader
+     * @param orders sorting orders
+     * @param limit maximum number of features returned, negative for all features
+     * @param memory memory budget in bytes, zero or negative for default budget
+     * @return sorted reader
+     */
+    public static FeatureReader wrap(final FeatureReader reader, final SortBy[] orders, final long limit, final long memory){
+        return new GenericSortByFeatureReader(reader, orders, limit, memory);
     }
 
     /**
@@ -181,7 +430,7 @@ public class GenericSortByFeatureIterator<R extends FeatureIterator> implements
         if(reader instanceof FeatureReader){
             return wrap((FeatureReader)reader,orders);
         }else{
-            return new GenericSortByFeatureIterator(reader, orders);
+            return new GenericSortByFeatureIterator(reader, orders, -1, 0);
         }
     }
 
@@ -624,6 +624,57 @@ public class FeatureStreamsTest extends org.geotoolkit.test.TestBase {
         assertTrue(checkIte.isClosed());
     }
 
+    /**
+     * Test sort with temporary run files and first features selection.
+     */
+    @Test
+    public void testLargeSortByIterator() throws Exception {
+        final java.util.List<Feature> features = new java.util.ArrayList<>();
+        final java.util.Random random = new java.util.Random(42);
+        for(int i=0;i<2000;i++){
+            final Feature f = originalType.newInstance();
+            f.setPropertyValue(AttributeConvention.IDENTIFIER_PROPERTY.toString(), i);
+            f.setPropertyValue("att_geom", GF.createPoint(new Coordinate(i, -i)));
+            f.setPropertyValue("att_string", "n\u00b0"+random.nextInt(100));
+            f.setPropertyValue("att_double", (double) random.nextInt(50));
+            features.add(f);
+        }
+        final SortBy[] sorts = new SortBy[]{
+            FF.sort("att_double", SortOrder.DESCENDING)
+        };
+        //a few kilobytes of memory force the use of run files
+        FeatureReader ite = org.geotoolkit.internal.data.GenericSortByFeatureIterator.wrap(
+                FeatureStreams.asReader(features.iterator(), originalType), sorts, -1, 20000);
+        final java.util.Set<Object> ids = new java.util.HashSet<>();
+        double last = Double.POSITIVE_INFINITY;
+        while(ite.hasNext()){
+            final Feature f = ite.next();
+            final Object id = f.getPropertyValue(AttributeConvention.IDENTIFIER_PROPERTY.toString());
+            assertTrue(ids.add(id));
+            final Feature e = features.get((Integer) id);
+            assertEquals(e.getPropertyValue("att_string"), f.getPropertyValue("att_string"));
+            assertEquals(e.getPropertyValue("att_geom"), f.getPropertyValue("att_geom"));
+            final double value = (Double) f.getPropertyValue("att_double");
+            assertTrue(value <= last);
+            last = value;
+        }
+        ite.close();
+        assertEquals(2000, ids.size());
+
+        //first features only
+        ite = FeatureStreams.sort(FeatureStreams.asReader(features.iterator(), originalType), 25, sorts);
+        int i = 0;
+        last = Double.POSITIVE_INFINITY;
+        while(ite.hasNext()){
+            final double value = (Double) ite.next().getPropertyValue("att_double");
+            assertTrue(value <= last);
+            last = value;
+            i++;
+        }
+        ite.close();
+        assertEquals(25, i);
+    }
+
     @Test
     public void testSortByIteratorOnComplex(){
 
@@ -0,0 +1,183 @@
+/*
+ *    Geotoolkit - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2018, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.data.memory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.apache.sis.feature.builder.AttributeRole;
+import org.apache.sis.feature.builder.FeatureTypeBuilder;
+import org.apache.sis.geometry.GeneralEnvelope;
+import org.apache.sis.internal.feature.AttributeConvention;
+import org.apache.sis.referencing.CommonCRS;
+import org.apache.sis.storage.DataStoreException;
+import org.geotoolkit.data.FeatureReader;
+import org.geotoolkit.data.query.QueryBuilder;
+import org.geotoolkit.factory.FactoryFinder;
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Point;
+import org.opengis.feature.Feature;
+import org.opengis.feature.FeatureType;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory2;
+import org.opengis.filter.MatchAction;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test {@link IndexedMemoryFeatureStore} filters answered by indexes give
+ * the same results as filters evaluated on each feature.
+ *
+ * @module
+ */
+public class IndexedMemoryFeatureStoreTest extends org.geotoolkit.test.TestBase {
+
+    private static final FilterFactory2 FF = (FilterFactory2) FactoryFinder.getFilterFactory(null);
+    private static final GeometryFactory GF = new GeometryFactory();
+
+    private final FeatureType type;
+    private final IndexedMemoryFeatureStore store;
+    private final List<Feature> features = new ArrayList<>();
+
+    public IndexedMemoryFeatureStoreTest() throws DataStoreException {
+        final FeatureTypeBuilder ftb = new FeatureTypeBuilder();
+        ftb.setName("test");
+        ftb.addAttribute(String.class).setName(AttributeConvention.IDENTIFIER_PROPERTY);
+        ftb.addAttribute(Point.class).setName("geom").setCRS(CommonCRS.WGS84.normalizedGeographic()).addRole(AttributeRole.DEFAULT_GEOMETRY);
+        ftb.addAttribute(Integer.class).setName("value");
+        ftb.addAttribute(Double.class).setName("ratio");
+        ftb.addAttribute(String.class).setName("name");
+        ftb.addAttribute(Date.class).setName("date");
+        type = ftb.build();
+
+        store = new IndexedMemoryFeatureStore(type, true);
+
+        for (int x = 0; x < 40; x++) {
+            for (int y = 0; y < 25; y++) {
+                final Feature f = type.newInstance();
+                f.setPropertyValue("geom", GF.createPoint(new Coordinate(x, y)));
+                f.setPropertyValue("value", x * y);
+                f.setPropertyValue("ratio", (y == 0) ? null : (double) x / y);
+                f.setPropertyValue("name", "n" + (x % 7));
+                f.setPropertyValue("date", new Date(x * 1000L));
+                features.add(f);
+            }
+        }
+        store.addFeatures(type.getName().toString(), features);
+    }
+
+    /**
+     * Returns the identifiers of the store features matching the filter.
+     */
+    private Set<Object> query(final Filter filter) throws DataStoreException {
+        final Set<Object> ids = new HashSet<>();
+        try (FeatureReader reader = store.getFeatureReader(QueryBuilder.filtered(type.getName().toString(), filter))) {
+            while (reader.hasNext()) {
+                assertTrue(ids.add(reader.next().getPropertyValue(AttributeConvention.IDENTIFIER_PROPERTY.toString())));
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Returns the identifiers of the original features matching the filter.
+     */
+    private Set<Object> expected(final Filter filter) {
+        final Set<Object> ids = new HashSet<>();
+        for (Feature f : features) {
+            if (filter.evaluate(f)) {
+                ids.add(f.getPropertyValue(AttributeConvention.IDENTIFIER_PROPERTY.toString()));
+            }
+        }
+        return ids;
+    }
+
+    private void check(final Filter filter, final int count) throws DataStoreException {
+        final Set<Object> result = query(filter);
+        assertEquals(filter.toString(), count, result.size());
+        assertEquals(filter.toString(), expected(filter), result);
+    }
+
+    @Test
+    public void testIndexedFilters() throws DataStoreException {
+        final GeneralEnvelope env = new GeneralEnvelope(CommonCRS.WGS84.normalizedGeographic());
+        env.setRange(0, 9.5, 20.5);
+        env.setRange(1, 4.5, 10.5);
+        check(FF.bbox(FF.property("geom"), env), 11*6);
+        check(FF.bbox(FF.property(""), env), 11*6);
+
+        //envelope in latitude/longitude order
+        final GeneralEnvelope latlon = new GeneralEnvelope(CommonCRS.WGS84.geographic());
+        latlon.setRange(0, 4.5, 10.5);
+        latlon.setRange(1, 9.5, 20.5);
+        check(FF.bbox(FF.property("geom"), latlon), 11*6);
+
+        check(FF.equals(FF.property("value"), FF.literal(12)), 6);
+        check(FF.equals(FF.literal(12d), FF.property("value")), 6);
+        check(FF.equals(FF.property("ratio"), FF.literal(0.5)), 12);
+        check(FF.equals(FF.property("name"), FF.literal("n3")), 6*25);
+        check(FF.less(FF.property("value"), FF.literal(3)), 40+25-1+1+2);
+        check(FF.lessOrEqual(FF.literal(900), FF.property("value")), expected(FF.greaterOrEqual(FF.property("value"), FF.literal(900))).size());
+        check(FF.greater(FF.property("date"), FF.literal(new Date(37000L))), 2*25);
+        check(FF.between(FF.property("value"), FF.literal(10), FF.literal(20)),
+                expected(FF.between(FF.property("value"), FF.literal(10), FF.literal(20))).size());
+        check(FF.and(FF.bbox(FF.property("geom"), env), FF.equals(FF.property("name"), FF.literal("n3"))), 2*6);
+        check(FF.or(FF.equals(FF.property("value"), FF.literal(0)), FF.equals(FF.property("name"), FF.literal("n3"))), 40+25-1+6*24);
+        check(FF.id(Collections.singleton(FF.featureId("test.10"))), 1);
+
+        //not indexed
+        check(FF.like(FF.property("name"), "n1"), 6*25);
+        check(FF.equal(FF.property("name"), FF.literal("N3"), false, MatchAction.ANY), 6*25);
+        check(FF.equals(FF.property("value"), FF.literal(12.5)), 0);
+    }
+
+    @Test
+    public void testWriteUpdatesIndexes() throws DataStoreException {
+        final String name = type.getName().toString();
+        final Filter n3 = FF.equals(FF.property("name"), FF.literal("n3"));
+        final GeneralEnvelope env = new GeneralEnvelope(CommonCRS.WGS84.normalizedGeographic());
+        env.setRange(0, 99, 101);
+        env.setRange(1, 99, 101);
+        final Filter bbox = FF.bbox(FF.property("geom"), env);
+        assertEquals(6*25, query(n3).size());
+        assertEquals(0, query(bbox).size());
+
+        store.updateFeatures(name, FF.equals(FF.property("value"), FF.literal(12)),
+                Collections.singletonMap("geom", GF.createPoint(new Coordinate(100, 100))));
+        assertEquals(6, query(bbox).size());
+
+        store.removeFeatures(name, n3);
+        assertEquals(0, query(n3).size());
+        assertEquals(1000 - 6*25, query(Filter.INCLUDE).size());
+        //feature at x=3, y=4 was removed
+        assertEquals(5, query(bbox).size());
+
+        //removed rows are reused
+        final Feature f = type.newInstance();
+        f.setPropertyValue("geom", GF.createPoint(new Coordinate(100, 100)));
+        f.setPropertyValue("name", "n3");
+        store.addFeatures(name, Collections.singleton(f));
+        assertEquals(1, query(n3).size());
+        assertEquals(6, query(bbox).size());
+        assertEquals(1000 - 6*25 + 1, query(Filter.INCLUDE).size());
+    }
+}
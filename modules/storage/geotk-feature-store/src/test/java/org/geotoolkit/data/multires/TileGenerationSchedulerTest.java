@@ -0,0 +1,256 @@
+/*
+ *    Geotoolkit - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2018, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.data.multires;
+
+import java.awt.Dimension;
+import java.awt.Point;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import org.apache.sis.geometry.GeneralDirectPosition;
+import org.apache.sis.referencing.CommonCRS;
+import org.apache.sis.storage.DataStoreException;
+import org.geotoolkit.process.Monitor;
+import org.geotoolkit.process.ProcessEvent;
+import org.geotoolkit.process.ProcessListener;
+import org.geotoolkit.storage.AbstractResource;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test {@link TileGenerationScheduler}.
+ */
+public class TileGenerationSchedulerTest {
+
+    private static final class TestTile extends AbstractResource implements Tile {
+
+        private final Point position;
+
+        TestTile(Point position) {
+            this.position = position;
+        }
+
+        @Override
+        public Point getPosition() {
+            return position;
+        }
+    }
+
+    /**
+     * Mosaic recording written tiles.
+     */
+    private static final class RecordingMosaic extends DefiningMosaic {
+
+        private final Set<Point> written = ConcurrentHashMap.newKeySet();
+        private final AtomicInteger calls = new AtomicInteger();
+        private final long delay;
+
+        RecordingMosaic(int width, int height, long delay) {
+            super("0", new GeneralDirectPosition(CommonCRS.WGS84.normalizedGeographic()), 1,
+                    new Dimension(256, 256), new Dimension(width, height));
+            this.delay = delay;
+        }
+
+        @Override
+        public void writeTiles(Stream<Tile> tiles, Monitor monitor) {
+            calls.incrementAndGet();
+            tiles.forEach((Tile t) -> {
+                Assert.assertTrue("Tile written twice", written.add(t.getPosition()));
+            });
+            if (delay > 0) {
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    private static final class CancelingListener implements ProcessListener, Monitor {
+
+        private volatile boolean canceled;
+
+        @Override public void started(ProcessEvent event) {}
+        @Override public void progressing(ProcessEvent event) {}
+        @Override public void dismissed(ProcessEvent event) {}
+        @Override public void paused(ProcessEvent event) {}
+        @Override public void resumed(ProcessEvent event) {}
+        @Override public void completed(ProcessEvent event) {}
+        @Override public void failed(ProcessEvent event) {}
+
+        @Override
+        public boolean isCanceled() {
+            return canceled;
+        }
+    }
+
+    @Test
+    public void generateAllTiles() throws Exception {
+        final TileGenerationScheduler scheduler = new TileGenerationScheduler(4, 8, 5);
+        final RecordingMosaic mosaic = new RecordingMosaic(20, 10, 0);
+        final TileGenerationScheduler.Job job = scheduler.begin(200, null);
+        try {
+            job.run(mosaic, 200, (long index, TileGenerationScheduler.TileWriter writer) -> {
+                final Point pt = new Point((int) (index % 20), (int) (index / 20));
+                //uneven tile cost
+                if (pt.x < 2) Thread.sleep(5);
+                if (pt.y % 3 != 0) {
+                    writer.write(new TestTile(pt));
+                }
+                writer.processed(1);
+            });
+        } finally {
+            scheduler.shutdown();
+        }
+        Assert.assertEquals(200, job.getProcessedTiles());
+        Assert.assertEquals(120, job.getWrittenTiles());
+        Assert.assertEquals(120, mosaic.written.size());
+        Assert.assertEquals(0, job.getQueueDepth());
+        Assert.assertEquals(0, scheduler.getQueueDepth());
+        //tiles are written in batches
+        Assert.assertTrue(mosaic.calls.get() >= 120 / 5);
+    }
+
+    @Test
+    public void boundedWriteQueue() throws Exception {
+        final TileGenerationScheduler scheduler = new TileGenerationScheduler(4, 4, 1);
+        final RecordingMosaic mosaic = new RecordingMosaic(10, 10, 2);
+        final TileGenerationScheduler.Job job = scheduler.begin(100, null);
+        final AtomicInteger maxDepth = new AtomicInteger();
+        try {
+            job.run(mosaic, 100, (long index, TileGenerationScheduler.TileWriter writer) -> {
+                writer.write(new TestTile(new Point((int) (index % 10), (int) (index / 10))));
+                maxDepth.accumulateAndGet(job.getQueueDepth(), Math::max);
+                writer.processed(1);
+            });
+        } finally {
+            scheduler.shutdown();
+        }
+        Assert.assertEquals(100, mosaic.written.size());
+        Assert.assertTrue("Queue depth " + maxDepth.get(), maxDepth.get() <= 4 + 4);
+    }
+
+    @Test
+    public void cancelFromListener() throws Exception {
+        final TileGenerationScheduler scheduler = new TileGenerationScheduler(2);
+        final RecordingMosaic mosaic = new RecordingMosaic(100, 100, 0);
+        final CancelingListener listener = new CancelingListener();
+        final TileGenerationScheduler.Job job = scheduler.begin(10000, listener);
+        try {
+            job.run(mosaic, 10000, (long index, TileGenerationScheduler.TileWriter writer) -> {
+                if (index == 10) listener.canceled = true;
+                writer.processed(1);
+            });
+            Assert.fail("Generation should have been canceled.");
+        } catch (InterruptedException ex) {
+            //ok
+        } finally {
+            scheduler.shutdown();
+        }
+        Assert.assertTrue(job.isCanceled());
+        Assert.assertTrue(job.getProcessedTiles() < 10000);
+    }
+
+    /**
+     * Interrupting the calling thread must stop generating threads waiting on a full write queue.
+     */
+    @Test
+    public void cancelByInterrupt() throws Exception {
+        final TileGenerationScheduler scheduler = new TileGenerationScheduler(2, 1, 1);
+        final RecordingMosaic mosaic = new RecordingMosaic(100, 100, 100);
+        final TileGenerationScheduler.Job job = scheduler.begin(10000, null);
+        final AtomicInteger generated = new AtomicInteger();
+        final Thread caller = Thread.currentThread();
+        final Thread interrupter = new Thread(() -> {
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException ex) {
+                return;
+            }
+            caller.interrupt();
+        });
+        interrupter.start();
+        try {
+            job.run(mosaic, 10000, (long index, TileGenerationScheduler.TileWriter writer) -> {
+                generated.incrementAndGet();
+                writer.write(new TestTile(new Point((int) (index % 100), (int) (index / 100))));
+                writer.processed(1);
+            });
+            Assert.fail("Generation should have been canceled.");
+        } catch (InterruptedException ex) {
+            //ok
+        } finally {
+            interrupter.join();
+            Thread.interrupted();
+        }
+        Assert.assertTrue(job.isCanceled());
+        //blocked threads stop on the cancellation flag
+        Thread.sleep(300);
+        final int count = generated.get();
+        Thread.sleep(300);
+        Assert.assertEquals(count, generated.get());
+        scheduler.shutdown();
+    }
+
+    /**
+     * By default a task failure is logged and the other tasks are generated.
+     */
+    @Test
+    public void failureIsLogged() throws Exception {
+        final TileGenerationScheduler scheduler = new TileGenerationScheduler(2);
+        final RecordingMosaic mosaic = new RecordingMosaic(100, 100, 0);
+        final TileGenerationScheduler.Job job = scheduler.begin(10000, null);
+        try {
+            Assert.assertFalse(job.isFailFast());
+            job.run(mosaic, 10000, (long index, TileGenerationScheduler.TileWriter writer) -> {
+                if (index == 10) throw new java.io.IOException("Tile " + index);
+                writer.processed(1);
+            });
+        } finally {
+            scheduler.shutdown();
+        }
+        Assert.assertNull(job.getFailure());
+        Assert.assertEquals(9999, job.getProcessedTiles());
+    }
+
+    /**
+     * A task failure must stop a fail fast generation and be reported with its original type.
+     */
+    @Test
+    public void failureStopsGeneration() throws Exception {
+        final TileGenerationScheduler scheduler = new TileGenerationScheduler(2);
+        final RecordingMosaic mosaic = new RecordingMosaic(100, 100, 0);
+        final TileGenerationScheduler.Job job = scheduler.begin(10000, null);
+        job.setFailFast(true);
+        try {
+            job.run(mosaic, 10000, (long index, TileGenerationScheduler.TileWriter writer) -> {
+                if (index == 10) throw new java.io.IOException("Tile " + index);
+                writer.processed(1);
+            });
+            Assert.fail("Generation should have failed.");
+        } catch (DataStoreException ex) {
+            Assert.assertSame(job.getFailure(), ex.getCause());
+            Assert.assertTrue(job.getFailure() instanceof java.io.IOException);
+        } finally {
+            scheduler.shutdown();
+        }
+        Assert.assertFalse(job.isCanceled());
+        Assert.assertTrue(job.getProcessedTiles() < 10000);
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ *    Geotoolkit.org - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2018, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+
+/**
+ * Runs a work shared by the calling thread and executor threads.
+ * <p>
+ * Every thread runs the same {@link Task}, which takes its work items (tiles, blocks, slices...)
+ * from a state shared by all threads until none remain. The calling thread always takes part to
+ * the work, executor threads only help it : executor tasks which have not started when the calling
+ * thread is done are cancelled, started ones are awaited since they still use the shared state.
+ * <p>
+ * A task which fails should make the other threads stop taking work items, this is the
+ * responsibility of the task since only it knows its shared state.
+ *
+ * @module
+ */
+public final class SharedWork {
+    /**
+     * Do not allow instantiation of this class.
+     */
+    private SharedWork() {
+    }
+
+    /**
+     * Work run by each thread.
+     */
+    @FunctionalInterface
+    public interface Task {
+        /**
+         * Take and process work items until none remain.
+         *
+         * @throws Exception if an item can not be processed.
+         */
+        void run() throws Exception;
+    }
+
+    /**
+     * Runs the task in the calling thread and in at most {@code nbWorkers} executor threads,
+     * then waits for the started executor threads. If the executor rejects a task, the work is
+     * shared by the threads already started.
+     *
+     * @param  executor  executor of the helping threads, may be {@code null} if {@code nbWorkers} is zero or less.
+     * @param  nbWorkers number of helping threads, not counting the calling thread.
+     * @param  task      work run by each thread.
+     * @return the first error thrown by a thread, errors of other threads are suppressed exceptions of this one.
+     *         {@code null} if all threads succeeded.
+     */
+    public static Throwable run(final Executor executor, final int nbWorkers, final Task task) {
+        final List<FutureTask<Void>> workers = new ArrayList<>(Math.max(0, nbWorkers));
+        for (int i = 0; i < nbWorkers; i++) {
+            final FutureTask<Void> worker = new FutureTask<>(() -> {
+                task.run();
+                return null;
+            });
+            try {
+                executor.execute(worker);
+            } catch (RejectedExecutionException ex) {
+                break;
+            }
+            workers.add(worker);
+        }
+
+        Throwable error = null;
+        try {
+            task.run();
+        } catch (Throwable ex) {
+            error = ex;
+        }
+
+        boolean interrupted = false;
+        for (final FutureTask<Void> worker : workers) {
+            if (worker.cancel(false)) continue;
+            Throwable cause = null;
+            while (true) {
+                try {
+                    worker.get();
+                } catch (InterruptedException ex) {
+                    // Started workers still use the shared state, wait for them anyway.
+                    interrupted = true;
+                    continue;
+                } catch (ExecutionException ex) {
+                    cause = ex.getCause();
+                }
+                break;
+            }
+            if (cause != null) {
+                if (error == null) error = cause;
+                else if (error != cause) error.addSuppressed(cause);
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return error;
+    }
+}
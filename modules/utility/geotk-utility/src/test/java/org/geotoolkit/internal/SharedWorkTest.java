@@ -0,0 +1,78 @@
+/*
+ *    Geotoolkit.org - An Open Source Java GIS Toolkit
+ *    http://www.geotoolkit.org
+ *
+ *    (C) 2018, Geomatys
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotoolkit.internal;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+
+/**
+ * Tests {@link SharedWork}.
+ *
+ * @module
+ */
+public final class SharedWorkTest extends org.geotoolkit.test.TestBase {
+    /**
+     * All items are processed once, by the calling thread and the executor threads.
+     */
+    @Test
+    public void testRun() {
+        final ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            final AtomicInteger next = new AtomicInteger();
+            final AtomicInteger done = new AtomicInteger();
+            final Throwable error = SharedWork.run(executor, 3, () -> {
+                while (next.getAndIncrement() < 1000) {
+                    done.incrementAndGet();
+                }
+            });
+            assertNull(error);
+            assertEquals(1000, done.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * The first error is returned, the calling thread works alone without executor.
+     */
+    @Test
+    public void testError() {
+        final Throwable error = SharedWork.run(null, 0, () -> {
+            throw new IOException("Unreadable item.");
+        });
+        assertTrue(error instanceof IOException);
+        assertEquals("Unreadable item.", error.getMessage());
+    }
+
+    /**
+     * Rejected executor tasks leave the work to the calling thread.
+     */
+    @Test
+    public void testRejected() {
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        executor.shutdown();
+        final AtomicInteger done = new AtomicInteger();
+        assertNull(SharedWork.run(executor, 2, done::incrementAndGet));
+        assertEquals(1, done.get());
+    }
+}